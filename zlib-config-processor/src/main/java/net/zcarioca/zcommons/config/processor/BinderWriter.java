@@ -0,0 +1,251 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Writes the source of a generated binder. Properties whose field or write
+ * method is accessible from the bean's package are written with a direct
+ * assignment or method call, the rest are handed to the binder's cached
+ * property writers.
+ * 
+ * @author zcarioca
+ */
+class BinderWriter
+{
+   private final ProcessingEnvironment processingEnv;
+   private final TypeElement beanType;
+   private final String packageName;
+   private final String binderName;
+   private final List<ConfigurableProperty> properties;
+
+   BinderWriter(ProcessingEnvironment processingEnv, TypeElement beanType, String packageName, String binderName, List<ConfigurableProperty> properties)
+   {
+      this.processingEnv = processingEnv;
+      this.beanType = beanType;
+      this.packageName = packageName;
+      this.binderName = binderName;
+      this.properties = properties;
+   }
+
+   void write(Writer writer) throws IOException
+   {
+      String beanName = typeName(beanType.asType());
+      StringBuilder source = new StringBuilder();
+
+      if (!packageName.isEmpty())
+      {
+         source.append("package ").append(packageName).append(";\n\n");
+      }
+      source.append("/**\n * Generated by the zlib-config annotation processor, do not edit.\n */\n");
+      source.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+      source.append("public final class ").append(binderName).append(" extends net.zcarioca.zcommons.config.data.GeneratedBeanBinder\n{\n");
+
+      for (int i = 0; i < properties.size(); i++)
+      {
+         source.append("   private final Property p").append(i).append(";\n");
+      }
+
+      source.append("\n   public ").append(binderName).append("() throws Exception\n   {\n");
+      source.append("      super(").append(beanName).append(".class);\n");
+      for (int i = 0; i < properties.size(); i++)
+      {
+         ConfigurableProperty property = properties.get(i);
+         source.append("      p").append(i).append(" = property(");
+         source.append(literal(property.getPropertyName())).append(", ");
+         source.append(property.getWriteMethod() != null ? typeName(property.getWriteMethod().getParameters().get(0).asType()) + ".class" : "null").append(", ");
+         source.append(property.getField() != null ? literal(property.getField().getSimpleName().toString()) : "null").append(", ");
+         source.append(property.getReadMethod() != null ? literal(property.getReadMethod().getSimpleName().toString()) : "null").append(", ");
+         source.append(property.getWriteMethod() != null ? literal(property.getWriteMethod().getSimpleName().toString()) : "null").append(", ");
+         source.append(property.isUseWriteMethod()).append(", ");
+         source.append(literal(property.getPropertyKey())).append(", ");
+         source.append(literal(property.getDefaultValue())).append(");\n");
+      }
+      source.append("   }\n\n");
+
+      source.append("   @Override\n");
+      source.append("   protected void bindProperties(Object bean, net.zcarioca.zcommons.config.util.ConfigSnapshot snapshot) throws Exception\n   {\n");
+      source.append("      ").append(beanName).append(" target = (").append(beanName).append(") bean;\n");
+      for (int i = 0; i < properties.size(); i++)
+      {
+         ConfigurableProperty property = properties.get(i);
+         String value = convertExpression(property.getWrittenType(), i);
+         if (!isDirectlyWritable(property))
+         {
+            source.append("      bindProperty(p").append(i).append(", bean, snapshot);\n");
+         }
+         else if (property.isUseWriteMethod())
+         {
+            source.append("      target.").append(property.getWriteMethod().getSimpleName()).append("(").append(value).append(");\n");
+         }
+         else
+         {
+            source.append("      target.").append(property.getField().getSimpleName()).append(" = ").append(value).append(";\n");
+         }
+      }
+      source.append("   }\n}\n");
+
+      writer.write(source.toString());
+   }
+
+   private boolean isDirectlyWritable(ConfigurableProperty property)
+   {
+      Element member = property.isUseWriteMethod() ? property.getWriteMethod() : property.getField();
+      Set<Modifier> modifiers = member.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL))
+      {
+         return false;
+      }
+
+      TypeElement declaringType = (TypeElement) member.getEnclosingElement();
+      if (!isSamePackage(declaringType))
+      {
+         // only public members of public classes can be reached from another package
+         return modifiers.contains(Modifier.PUBLIC) && declaringType.getModifiers().contains(Modifier.PUBLIC) && !isHiddenByShadowing(property);
+      }
+      return !isHiddenByShadowing(property);
+   }
+
+   /**
+    * A field declared again by a subclass hides the superclass field from a
+    * direct assignment through the bean type.
+    */
+   private boolean isHiddenByShadowing(ConfigurableProperty property)
+   {
+      if (property.isUseWriteMethod())
+      {
+         return false;
+      }
+      return property.getField().getEnclosingElement() != beanType && isDeclaredBelow(property);
+   }
+
+   private boolean isDeclaredBelow(ConfigurableProperty property)
+   {
+      Element declaringType = property.getField().getEnclosingElement();
+      TypeElement type = beanType;
+      while (type != null && type != declaringType)
+      {
+         for (Element element : type.getEnclosedElements())
+         {
+            if (element.getKind().isField() && element.getSimpleName().contentEquals(property.getField().getSimpleName()))
+            {
+               return true;
+            }
+         }
+         TypeMirror superclass = type.getSuperclass();
+         type = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) processingEnv.getTypeUtils().asElement(superclass) : null;
+      }
+      return false;
+   }
+
+   private boolean isSamePackage(TypeElement type)
+   {
+      PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+      String typePackage = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+      return typePackage.equals(packageName);
+   }
+
+   private String typeName(TypeMirror type)
+   {
+      return processingEnv.getTypeUtils().erasure(type).toString();
+   }
+
+   /**
+    * The <code>int</code>, <code>long</code>, <code>double</code> and
+    * <code>boolean</code> properties are converted without boxing, anything
+    * else is converted to an object and cast.
+    */
+   private String convertExpression(TypeMirror type, int index)
+   {
+      switch (type.getKind())
+      {
+         case INT:
+            return "convertInt(p" + index + ", snapshot)";
+         case LONG:
+            return "convertLong(p" + index + ", snapshot)";
+         case DOUBLE:
+            return "convertDouble(p" + index + ", snapshot)";
+         case BOOLEAN:
+            return "convertBoolean(p" + index + ", snapshot)";
+         default:
+            return "(" + castType(type) + ") convert(p" + index + ", snapshot)";
+      }
+   }
+
+   private String castType(TypeMirror type)
+   {
+      if (type.getKind().isPrimitive())
+      {
+         return processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString();
+      }
+      return typeName(type);
+   }
+
+   static String literal(String value)
+   {
+      if (value == null)
+      {
+         return "null";
+      }
+      StringBuilder literal = new StringBuilder("\"");
+      for (char c : value.toCharArray())
+      {
+         switch (c)
+         {
+            case '"':
+               literal.append("\\\"");
+               break;
+            case '\\':
+               literal.append("\\\\");
+               break;
+            case '\n':
+               literal.append("\\n");
+               break;
+            case '\r':
+               literal.append("\\r");
+               break;
+            case '\t':
+               literal.append("\\t");
+               break;
+            default:
+               if (c < 0x20 || c > 0x7e)
+               {
+                  literal.append(String.format("\\u%04x", (int) c));
+               }
+               else
+               {
+                  literal.append(c);
+               }
+         }
+      }
+      return literal.append('"').toString();
+   }
+}
@@ -0,0 +1,515 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a binder for every configurable bean compiled with this processor
+ * on the annotation processor path. The binders extend the library's
+ * <code>GeneratedBeanBinder</code> and are listed in the
+ * <code>META-INF/zlib-config/binders.index</code> resource, where the
+ * <code>GeneratedBindingEngine</code> finds them at runtime.
+ * <p/>
+ * The processor finds the same properties the library finds by reflection: a
+ * {@link #CONFIGURABLE_ATTRIBUTE} on a public write method, on a public read
+ * method or on a field, with the same precedence. Patterns given with
+ * {@link #CONFIGURABLE_DATE_FORMAT} are validated at compile time.
+ * <p/>
+ * Bean classes the binders cannot reference, such as private, local or
+ * abstract classes, are skipped and continue to be configured by reflection.
+ * 
+ * @author zcarioca
+ */
+@SupportedAnnotationTypes({ ConfigurableProcessor.CONFIGURABLE, ConfigurableProcessor.CONFIGURABLE_ATTRIBUTE, ConfigurableProcessor.CONFIGURABLE_DATE_FORMAT })
+public class ConfigurableProcessor extends AbstractProcessor
+{
+   static final String CONFIGURABLE = "net.zcarioca.zcommons.config.Configurable";
+   static final String CONFIGURABLE_ATTRIBUTE = "net.zcarioca.zcommons.config.ConfigurableAttribute";
+   static final String CONFIGURABLE_DATE_FORMAT = "net.zcarioca.zcommons.config.ConfigurableDateFormat";
+
+   static final String INDEX_RESOURCE = "META-INF/zlib-config/binders.index";
+   static final String BINDER_SUFFIX = "_ConfigBinder";
+
+   private final Set<String> processedTypes = new LinkedHashSet<String>();
+   private final Map<String, String> index = new TreeMap<String, String>();
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public SourceVersion getSupportedSourceVersion()
+   {
+      return SourceVersion.latestSupported();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+   {
+      Set<TypeElement> beanTypes = new LinkedHashSet<TypeElement>();
+      for (TypeElement annotation : annotations)
+      {
+         String annotationName = annotation.getQualifiedName().toString();
+         for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+         {
+            if (CONFIGURABLE_DATE_FORMAT.equals(annotationName))
+            {
+               validateDateFormat(element);
+            }
+            else if (element.getKind().isClass())
+            {
+               beanTypes.add((TypeElement) element);
+            }
+            else if (element.getEnclosingElement().getKind().isClass())
+            {
+               beanTypes.add((TypeElement) element.getEnclosingElement());
+            }
+         }
+      }
+
+      for (TypeElement beanType : beanTypes)
+      {
+         if (processedTypes.add(beanType.getQualifiedName().toString()) && isBindable(beanType))
+         {
+            generateBinder(beanType);
+         }
+      }
+
+      if (roundEnv.processingOver() && !index.isEmpty())
+      {
+         writeIndex();
+      }
+      return false;
+   }
+
+   private void validateDateFormat(Element element)
+   {
+      AnnotationMirror mirror = getAnnotation(element, CONFIGURABLE_DATE_FORMAT);
+      String pattern = getAnnotationValue(mirror, "value");
+      try
+      {
+         DateTimeFormatter.ofPattern(pattern);
+      }
+      catch (IllegalArgumentException exc)
+      {
+         // Date and Calendar properties are parsed with a SimpleDateFormat
+         if (!isSimpleDateFormat(pattern))
+         {
+            processingEnv.getMessager().printMessage(Kind.ERROR, String.format("Invalid date format '%s': %s", pattern, exc.getMessage()), element, mirror);
+         }
+      }
+   }
+
+   private static boolean isSimpleDateFormat(String pattern)
+   {
+      try
+      {
+         new SimpleDateFormat(pattern);
+         return true;
+      }
+      catch (IllegalArgumentException exc)
+      {
+         return false;
+      }
+   }
+
+   private boolean isBindable(TypeElement beanType)
+   {
+      if (beanType.getKind() != ElementKind.CLASS || beanType.getModifiers().contains(Modifier.ABSTRACT))
+      {
+         return false;
+      }
+
+      Element element = beanType;
+      while (element.getKind().isClass())
+      {
+         TypeElement type = (TypeElement) element;
+         if (type.getModifiers().contains(Modifier.PRIVATE) || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS)
+         {
+            note(beanType, "is not accessible, it will be configured by reflection");
+            return false;
+         }
+         element = type.getEnclosingElement();
+      }
+      return true;
+   }
+
+   private void generateBinder(TypeElement beanType)
+   {
+      List<ConfigurableProperty> properties = findProperties(beanType);
+      if (properties.isEmpty())
+      {
+         return;
+      }
+
+      PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(beanType);
+      String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+      String binaryName = processingEnv.getElementUtils().getBinaryName(beanType).toString();
+      String simpleBinaryName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+      String binderName = simpleBinaryName.replace('$', '_') + BINDER_SUFFIX;
+      String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+
+      try
+      {
+         JavaFileObject source = processingEnv.getFiler().createSourceFile(qualifiedBinderName, beanType);
+         Writer writer = source.openWriter();
+         try
+         {
+            new BinderWriter(processingEnv, beanType, packageName, binderName, properties).write(writer);
+         }
+         finally
+         {
+            writer.close();
+         }
+         index.put(binaryName, qualifiedBinderName);
+      }
+      catch (IOException exc)
+      {
+         processingEnv.getMessager().printMessage(Kind.ERROR, "Could not generate the configuration binder: " + exc.getMessage(), beanType);
+      }
+   }
+
+   /**
+    * Finds the configurable properties in the same order and with the same
+    * precedence as the library's reflective introspection.
+    */
+   private List<ConfigurableProperty> findProperties(TypeElement beanType)
+   {
+      List<ConfigurableProperty> properties = new ArrayList<ConfigurableProperty>();
+      Map<String, ExecutableElement[]> accessors = findAccessors(beanType);
+      Map<String, ExecutableElement[]> descriptors = new HashMap<String, ExecutableElement[]>();
+
+      for (Map.Entry<String, ExecutableElement[]> entry : accessors.entrySet())
+      {
+         String name = entry.getKey();
+         ExecutableElement reader = entry.getValue()[0];
+         ExecutableElement writer = entry.getValue()[1];
+         VariableElement field = findField(beanType, name);
+
+         if (reader != null)
+         {
+            descriptors.put(name, entry.getValue());
+         }
+         if (writer != null)
+         {
+            AnnotationMirror writerAttr = getAnnotation(writer, CONFIGURABLE_ATTRIBUTE);
+            if (writerAttr != null)
+            {
+               properties.add(newProperty(name, field, reader, writer, true, writerAttr));
+               descriptors.remove(name);
+            }
+            AnnotationMirror readerAttr = reader != null ? getAnnotation(reader, CONFIGURABLE_ATTRIBUTE) : null;
+            if (readerAttr != null)
+            {
+               properties.add(newProperty(name, field, reader, writer, true, readerAttr));
+               descriptors.remove(name);
+            }
+         }
+      }
+
+      TypeElement type = beanType;
+      while (type != null)
+      {
+         for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+         {
+            String name = field.getSimpleName().toString();
+            AnnotationMirror fieldAttr = getAnnotation(field, CONFIGURABLE_ATTRIBUTE);
+            ExecutableElement[] descriptor = descriptors.get(name);
+            if (fieldAttr != null)
+            {
+               if (descriptor != null && descriptor[1] != null)
+               {
+                  properties.add(newProperty(name, field, descriptor[0], descriptor[1], true, fieldAttr));
+               }
+               else
+               {
+                  properties.add(newProperty(name, field, null, null, false, fieldAttr));
+               }
+            }
+            else if (descriptor != null)
+            {
+               AnnotationMirror readerAttr = getAnnotation(descriptor[0], CONFIGURABLE_ATTRIBUTE);
+               if (readerAttr != null)
+               {
+                  properties.add(newProperty(name, field, descriptor[0], descriptor[1], false, readerAttr));
+               }
+            }
+         }
+         type = getSuperclass(type);
+      }
+      return properties;
+   }
+
+   /**
+    * Finds the public read and write methods of every bean property, keyed
+    * and ordered by property name.
+    */
+   private Map<String, ExecutableElement[]> findAccessors(TypeElement beanType)
+   {
+      Map<String, List<ExecutableElement>> setters = new HashMap<String, List<ExecutableElement>>();
+      Map<String, ExecutableElement[]> accessors = new TreeMap<String, ExecutableElement[]>();
+
+      for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(beanType)))
+      {
+         Set<Modifier> modifiers = method.getModifiers();
+         if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC))
+         {
+            continue;
+         }
+
+         String methodName = method.getSimpleName().toString();
+         int params = method.getParameters().size();
+         TypeMirror returnType = method.getReturnType();
+
+         if (params == 0 && methodName.startsWith("get") && methodName.length() > 3 && returnType.getKind() != TypeKind.VOID)
+         {
+            ExecutableElement[] accessor = getAccessor(accessors, decapitalize(methodName.substring(3)));
+            if (accessor[0] == null)
+            {
+               accessor[0] = method;
+            }
+         }
+         else if (params == 0 && methodName.startsWith("is") && methodName.length() > 2 && returnType.getKind() == TypeKind.BOOLEAN)
+         {
+            // an "is" reader takes precedence over a "get" reader
+            getAccessor(accessors, decapitalize(methodName.substring(2)))[0] = method;
+         }
+         else if (params == 1 && methodName.startsWith("set") && methodName.length() > 3 && returnType.getKind() == TypeKind.VOID)
+         {
+            String name = decapitalize(methodName.substring(3));
+            List<ExecutableElement> candidates = setters.get(name);
+            if (candidates == null)
+            {
+               candidates = new ArrayList<ExecutableElement>();
+               setters.put(name, candidates);
+            }
+            candidates.add(method);
+         }
+      }
+
+      for (Map.Entry<String, List<ExecutableElement>> entry : setters.entrySet())
+      {
+         ExecutableElement[] accessor = getAccessor(accessors, entry.getKey());
+         for (ExecutableElement setter : entry.getValue())
+         {
+            TypeMirror paramType = erasure(setter.getParameters().get(0).asType());
+            if (accessor[0] == null || processingEnv.getTypeUtils().isSameType(erasure(accessor[0].getReturnType()), paramType))
+            {
+               accessor[1] = setter;
+               break;
+            }
+         }
+      }
+
+      // the "class" property is never configurable
+      accessors.remove("class");
+      return accessors;
+   }
+
+   private static ExecutableElement[] getAccessor(Map<String, ExecutableElement[]> accessors, String name)
+   {
+      ExecutableElement[] accessor = accessors.get(name);
+      if (accessor == null)
+      {
+         accessor = new ExecutableElement[2];
+         accessors.put(name, accessor);
+      }
+      return accessor;
+   }
+
+   private VariableElement findField(TypeElement beanType, String name)
+   {
+      TypeElement type = beanType;
+      while (type != null)
+      {
+         for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+         {
+            if (field.getSimpleName().contentEquals(name))
+            {
+               return field;
+            }
+         }
+         type = getSuperclass(type);
+      }
+      return null;
+   }
+
+   private ConfigurableProperty newProperty(String name, VariableElement field, ExecutableElement reader, ExecutableElement writer, boolean useWriteMethod,
+         AnnotationMirror attr)
+   {
+      String propertyName = field != null ? field.getSimpleName().toString() : name;
+      return new ConfigurableProperty(propertyName, field, reader, writer, useWriteMethod, getAnnotationValue(attr, "propertyName"), getAnnotationValue(attr,
+            "defaultValue"));
+   }
+
+   private TypeElement getSuperclass(TypeElement type)
+   {
+      TypeMirror superclass = type.getSuperclass();
+      return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+   }
+
+   private TypeMirror erasure(TypeMirror type)
+   {
+      return processingEnv.getTypeUtils().erasure(type);
+   }
+
+   private static AnnotationMirror getAnnotation(Element element, String annotationName)
+   {
+      for (AnnotationMirror mirror : element.getAnnotationMirrors())
+      {
+         if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName))
+         {
+            return mirror;
+         }
+      }
+      return null;
+   }
+
+   private String getAnnotationValue(AnnotationMirror mirror, String name)
+   {
+      Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet())
+      {
+         if (entry.getKey().getSimpleName().contentEquals(name))
+         {
+            return String.valueOf(entry.getValue().getValue());
+         }
+      }
+      return "";
+   }
+
+   /**
+    * The same as <code>java.beans.Introspector.decapitalize</code>.
+    */
+   static String decapitalize(String name)
+   {
+      if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0)))
+      {
+         return name;
+      }
+      return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+   }
+
+   private void writeIndex()
+   {
+      Map<String, String> entries = new TreeMap<String, String>();
+      readExistingIndex(entries);
+      entries.putAll(index);
+
+      try
+      {
+         FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+         PrintWriter writer = new PrintWriter(new OutputStreamWriter(resource.openOutputStream(), "UTF-8"));
+         try
+         {
+            for (Map.Entry<String, String> entry : entries.entrySet())
+            {
+               writer.println(entry.getKey() + "=" + entry.getValue());
+            }
+         }
+         finally
+         {
+            writer.close();
+         }
+      }
+      catch (IOException exc)
+      {
+         processingEnv.getMessager().printMessage(Kind.ERROR, "Could not write the configuration binder index: " + exc.getMessage());
+      }
+      index.clear();
+   }
+
+   /**
+    * Keeps the binders of an incremental build's earlier compilation. Stale
+    * entries are harmless, the library ignores binders it cannot load.
+    */
+   private void readExistingIndex(Map<String, String> entries)
+   {
+      try
+      {
+         FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+         BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), "UTF-8"));
+         try
+         {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+               int split = line.indexOf('=');
+               if (split > 0)
+               {
+                  entries.put(line.substring(0, split).trim(), line.substring(split + 1).trim());
+               }
+            }
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+      catch (Exception exc)
+      {
+         // there is no earlier index
+      }
+   }
+
+   private void note(Element element, String message)
+   {
+      processingEnv.getMessager().printMessage(Kind.NOTE, String.format("%s %s", element, message), element);
+   }
+}
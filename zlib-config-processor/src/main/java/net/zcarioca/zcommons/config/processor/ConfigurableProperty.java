@@ -0,0 +1,97 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.processor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A configurable property found by the {@link ConfigurableProcessor}, the
+ * compile time equivalent of the metadata the library resolves by reflection.
+ * 
+ * @author zcarioca
+ */
+class ConfigurableProperty
+{
+   private final String propertyName;
+   private final VariableElement field;
+   private final ExecutableElement readMethod;
+   private final ExecutableElement writeMethod;
+   private final boolean useWriteMethod;
+   private final String propertyKey;
+   private final String defaultValue;
+
+   ConfigurableProperty(String propertyName, VariableElement field, ExecutableElement readMethod, ExecutableElement writeMethod, boolean useWriteMethod,
+         String propertyKey, String defaultValue)
+   {
+      this.propertyName = propertyName;
+      this.field = field;
+      this.readMethod = readMethod;
+      this.writeMethod = writeMethod;
+      this.useWriteMethod = useWriteMethod;
+      this.propertyKey = propertyKey;
+      this.defaultValue = defaultValue;
+   }
+
+   String getPropertyName()
+   {
+      return this.propertyName;
+   }
+
+   VariableElement getField()
+   {
+      return this.field;
+   }
+
+   ExecutableElement getReadMethod()
+   {
+      return this.readMethod;
+   }
+
+   ExecutableElement getWriteMethod()
+   {
+      return this.writeMethod;
+   }
+
+   boolean isUseWriteMethod()
+   {
+      return this.useWriteMethod;
+   }
+
+   String getPropertyKey()
+   {
+      return this.propertyKey;
+   }
+
+   String getDefaultValue()
+   {
+      return this.defaultValue;
+   }
+
+   /**
+    * Gets the type of the value written to the bean.
+    * 
+    * @return Returns the written type.
+    */
+   TypeMirror getWrittenType()
+   {
+      return useWriteMethod ? writeMethod.getParameters().get(0).asType() : field.asType();
+   }
+}
@@ -0,0 +1,240 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import net.zcarioca.zcommons.config.data.BeanBinder;
+import net.zcarioca.zcommons.config.data.GeneratedBeanBinder;
+import net.zcarioca.zcommons.config.data.GeneratedBindingEngine;
+import net.zcarioca.zcommons.config.data.PreparedBinding;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ConfigurableProcessor} by compiling sample beans with it.
+ * 
+ * @author zcarioca
+ */
+public class ConfigurableProcessorTest
+{
+   private File workDir;
+   private File sourceDir;
+   private File classDir;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      workDir = File.createTempFile("processor", "test");
+      workDir.delete();
+      sourceDir = new File(workDir, "src");
+      classDir = new File(workDir, "classes");
+      sourceDir.mkdirs();
+      classDir.mkdirs();
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      FileUtils.deleteQuietly(workDir);
+   }
+
+   @Test
+   public void testGeneratesBinders() throws Exception
+   {
+      writeSource("sample/SampleBean.java", 
+            "package sample;",
+            "import net.zcarioca.zcommons.config.*;",
+            "@Configurable",
+            "public class SampleBean {",
+            "   @ConfigurableAttribute private String name;",
+            "   @ConfigurableAttribute(defaultValue = \"3\") int count;",
+            "   @ConfigurableAttribute(defaultValue = \"true\") private boolean enabled;",
+            "   private long total;",
+            "   private String unset;",
+            "   public String getName() { return name; }",
+            "   public int getCount() { return count; }",
+            "   public boolean isEnabled() { return enabled; }",
+            "   public long getTotal() { return total; }",
+            "   @ConfigurableAttribute(propertyName = \"the.total\", defaultValue = \"12\")",
+            "   public void setTotal(long total) { this.total = total * 2; }",
+            "   public String getUnset() { return unset; }",
+            "   public void setUnset(String unset) { this.unset = unset; }",
+            "   public static class Nested {",
+            "      @ConfigurableAttribute public String value;",
+            "      public String getValue() { return value; }",
+            "   }",
+            "   private static class Hidden {",
+            "      @ConfigurableAttribute String value;",
+            "   }",
+            "}");
+
+      List<Diagnostic<? extends JavaFileObject>> errors = compile();
+      assertTrue(errors.toString(), errors.isEmpty());
+
+      assertTrue(new File(classDir, "sample/SampleBean_ConfigBinder.class").exists());
+      assertTrue(new File(classDir, "sample/SampleBean_Nested_ConfigBinder.class").exists());
+      assertFalse(new File(classDir, "sample/SampleBean_Hidden_ConfigBinder.class").exists());
+
+      String index = FileUtils.readFileToString(new File(classDir, ConfigurableProcessor.INDEX_RESOURCE), "UTF-8");
+      assertTrue(index.contains("sample.SampleBean=sample.SampleBean_ConfigBinder"));
+      assertTrue(index.contains("sample.SampleBean$Nested=sample.SampleBean_Nested_ConfigBinder"));
+
+      URLClassLoader classLoader = new URLClassLoader(new URL[] { classDir.toURI().toURL() }, getClass().getClassLoader());
+      Class<?> beanClass = classLoader.loadClass("sample.SampleBean");
+
+      GeneratedBindingEngine engine = new GeneratedBindingEngine();
+      BeanBinder binder = engine.getBinder(beanClass);
+      assertTrue(binder instanceof GeneratedBeanBinder);
+      assertEquals(beanClass, binder.getBeanType());
+
+      Properties properties = new Properties();
+      properties.setProperty("name", "generated");
+      properties.setProperty("the.total", "21");
+
+      Object bean = beanClass.getDeclaredConstructor().newInstance();
+      binder.bind(bean, properties);
+
+      assertEquals("generated", get(bean, "getName"));
+      assertEquals(3, get(bean, "getCount"));
+      assertEquals(Boolean.TRUE, get(bean, "isEnabled"));
+      assertEquals(42l, get(bean, "getTotal"));
+      assertEquals(null, get(bean, "getUnset"));
+
+      // only the changed properties are written again
+      assertEquals(new HashSet<String>(Arrays.asList("name", "count", "enabled", "the.total")), binder.getPropertyKeys());
+      properties.setProperty("name", "changed");
+      properties.setProperty("the.total", "5");
+      binder.bind(bean, ConfigSnapshot.of(properties), Collections.singleton("the.total"));
+      assertEquals("generated", get(bean, "getName"));
+      assertEquals(10l, get(bean, "getTotal"));
+
+      // prepared values are written only when applied
+      properties.setProperty("the.total", "7");
+      PreparedBinding binding = binder.prepare(bean, ConfigSnapshot.of(properties), null);
+      assertEquals("generated", get(bean, "getName"));
+      binding.apply();
+      assertEquals("changed", get(bean, "getName"));
+      assertEquals(14l, get(bean, "getTotal"));
+
+      Class<?> nestedClass = classLoader.loadClass("sample.SampleBean$Nested");
+      Object nested = nestedClass.getDeclaredConstructor().newInstance();
+      properties.setProperty("value", "nested");
+      engine.getBinder(nestedClass).bind(nested, properties);
+      assertEquals("nested", get(nested, "getValue"));
+   }
+
+   @Test
+   public void testRejectsInvalidDateFormat() throws Exception
+   {
+      writeSource("sample/DateBean.java", 
+            "package sample;",
+            "import net.zcarioca.zcommons.config.*;",
+            "public class DateBean {",
+            "   @ConfigurableAttribute @ConfigurableDateFormat(\"yyyy-MM-dd ii\") private java.util.Date date;",
+            "}");
+
+      List<Diagnostic<? extends JavaFileObject>> errors = compile();
+      assertEquals(1, errors.size());
+      assertTrue(errors.get(0).getMessage(null).contains("yyyy-MM-dd ii"));
+   }
+
+   @Test
+   public void testDecapitalize()
+   {
+      assertEquals("name", ConfigurableProcessor.decapitalize("Name"));
+      assertEquals("URL", ConfigurableProcessor.decapitalize("URL"));
+      assertEquals("a", ConfigurableProcessor.decapitalize("A"));
+   }
+
+   @Test
+   public void testLiteral()
+   {
+      assertEquals("null", BinderWriter.literal(null));
+      assertEquals("\"a\\\"b\\\\c\\n\\u00e9\"", BinderWriter.literal("a\"b\\c\n\u00e9"));
+   }
+
+   private void writeSource(String path, String... lines) throws IOException
+   {
+      FileUtils.writeLines(new File(sourceDir, path), "UTF-8", Arrays.asList(lines));
+   }
+
+   private List<Diagnostic<? extends JavaFileObject>> compile() throws IOException
+   {
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      assertNotNull("The tests must run on a JDK", compiler);
+
+      DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+      StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+      try
+      {
+         Iterable<? extends JavaFileObject> sources = fileManager.getJavaFileObjectsFromFiles(FileUtils.listFiles(sourceDir, new String[] { "java" }, true));
+         List<String> options = Arrays.asList("-d", classDir.getAbsolutePath(), "-classpath", System.getProperty("java.class.path"));
+
+         CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+         task.setProcessors(Arrays.asList(new ConfigurableProcessor()));
+         task.call();
+      }
+      finally
+      {
+         fileManager.close();
+      }
+
+      List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<Diagnostic<? extends JavaFileObject>>();
+      for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+      {
+         if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+         {
+            errors.add(diagnostic);
+         }
+      }
+      return errors;
+   }
+
+   private static Object get(Object bean, String getter) throws Exception
+   {
+      return bean.getClass().getMethod(getter).invoke(bean);
+   }
+}
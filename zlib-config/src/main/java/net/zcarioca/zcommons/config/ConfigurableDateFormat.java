@@ -25,11 +25,21 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.sql.Date;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Calendar;
 
 /**
  * A date format for configurable attributes which are either of the type {@link Date}
- * or {@link Calendar}. Date format follows the rules supplied by the {@link SimpleDateFormat}.
+ * or {@link Calendar}, or one of the <code>java.time</code> types {@link Instant},
+ * {@link LocalDate}, {@link LocalDateTime} and {@link ZonedDateTime}. Date and Calendar
+ * formats follow the rules supplied by the {@link SimpleDateFormat}. The java.time types
+ * follow the rules supplied by the {@link DateTimeFormatter}, for which fields missing
+ * from the pattern take their earliest value, and the default time zone is used unless
+ * the pattern includes one.
  * 
  * @author zcarioca
  */
@@ -19,6 +19,7 @@
 package net.zcarioca.zcommons.config;
 
 import java.util.EventListener;
+import java.util.Set;
 
 /**
  * A listener that receives messages when a configuration file has been
@@ -43,4 +44,21 @@ public interface ConfigurationUpdateListener extends EventListener
     * @param bean The bean that has been updated.
     */
    public void completedBeanUpdate(Object bean);
+
+   /**
+    * Fired when a bean has been updated by the configuration system, with the
+    * keys of the properties which changed. Only the properties with those
+    * keys were written to the bean, and beans none of whose properties
+    * changed are not updated at all. When the previous configuration is not
+    * known, every property is written and all of the bean's keys are given.
+    * <p/>
+    * By default, this calls {@link #completedBeanUpdate(Object)}.
+    * 
+    * @param bean The bean that has been updated.
+    * @param changedKeys The keys of the properties which changed.
+    */
+   public default void completedBeanUpdate(Object bean, Set<String> changedKeys)
+   {
+      completedBeanUpdate(bean);
+   }
 }
@@ -0,0 +1,174 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * An {@link Environment} which keeps immutable snapshots of the environment
+ * variables and the system properties, instead of copying them on every call.
+ * <p/>
+ * The environment variables cannot change while the JVM runs, so they are
+ * copied once. The system properties snapshot is rebuilt when
+ * {@link System#setProperties(Properties)} replaces the system properties,
+ * when a property is added, removed or given a new value, which is detected
+ * through the hash code of the system properties, or when
+ * {@link #invalidate()} is called. The library invalidates the snapshot
+ * whenever a configuration source is reloaded.
+ * <p/>
+ * The single key lookups never build a snapshot, they read the current value
+ * directly.
+ * 
+ * @author zcarioca
+ */
+public class SnapshotEnvironment implements Environment
+{
+   private volatile Map<String, String> envSnapshot;
+   private volatile SystemSnapshot systemSnapshot;
+
+   /**
+    * Discards the snapshots, so that they are rebuilt on their next use.
+    */
+   public void invalidate()
+   {
+      this.envSnapshot = null;
+      this.systemSnapshot = null;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Map<String, String> getAllEnvProperties()
+   {
+      Map<String, String> snapshot = this.envSnapshot;
+      if (snapshot == null)
+      {
+         snapshot = Collections.unmodifiableMap(new HashMap<String, String>(System.getenv()));
+         this.envSnapshot = snapshot;
+      }
+      return snapshot;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Map<String, String> getAllSystemProperties()
+   {
+      Properties current = System.getProperties();
+      SystemSnapshot snapshot = this.systemSnapshot;
+      if (snapshot == null || !snapshot.isCurrent(current))
+      {
+         snapshot = new SystemSnapshot(current);
+         this.systemSnapshot = snapshot;
+      }
+      return snapshot.properties;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String getEnvVariable(String envVar)
+   {
+      return getEnvVariable(envVar, null);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String getEnvVariable(String envVar, String defaultValue)
+   {
+      String value = System.getenv(envVar);
+      if (StringUtils.isBlank(value))
+      {
+         value = defaultValue;
+      }
+      return value;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String getSystemProperty(String propertyName)
+   {
+      return System.getProperty(propertyName);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String getSystemProperty(String propertyName, String defaultValue)
+   {
+      return System.getProperty(propertyName, defaultValue);
+   }
+
+   /**
+    * An immutable copy of the system properties, with the version it was
+    * taken at.
+    */
+   private static final class SystemSnapshot
+   {
+      private final Properties source;
+      private final int size;
+      private final int hash;
+      private final Map<String, String> properties;
+
+      SystemSnapshot(Properties source)
+      {
+         Map<String, String> props = new HashMap<String, String>();
+         int size;
+         // hashed before copying, so a change made during the copy is seen
+         // by the next check
+         int hash = source.hashCode();
+         synchronized (source)
+         {
+            size = source.size();
+            for (Entry<Object, Object> entry : source.entrySet())
+            {
+               props.put(entry.getKey().toString(), entry.getValue().toString());
+            }
+         }
+         this.source = source;
+         this.size = size;
+         this.hash = hash;
+         this.properties = Collections.unmodifiableMap(props);
+      }
+
+      /**
+       * Returns true if the system properties are the same object, with the
+       * same number of entries and the same hash code, as when the snapshot
+       * was taken.
+       */
+      boolean isCurrent(Properties current)
+      {
+         return this.source == current && this.size == current.size() && this.hash == current.hashCode();
+      }
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.time.DateTimeException;
+import java.time.ZonedDateTime;
+
+import net.zcarioca.zcommons.config.ConfigurableDateFormat;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The base of the <code>java.time</code> converters. Values are parsed with
+ * the cached formatter of the property's {@link ConfigurableDateFormat}, or
+ * in their ISO-8601 form if the property has no date format.
+ * 
+ * @author zcarioca
+ */
+abstract class AbstractTemporalPropertyConverter<T> implements BeanPropertyConverter<T>
+{
+   private final Class<T> supportedClass;
+
+   protected AbstractTemporalPropertyConverter(Class<T> supportedClass)
+   {
+      this.supportedClass = supportedClass;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Class<T> getSupportedClass()
+   {
+      return supportedClass;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public T convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      if (StringUtils.isBlank(value))
+      {
+         return null;
+      }
+
+      String pattern = DateFormatterCache.getPattern(beanPropertyInfo);
+      try
+      {
+         if (pattern != null)
+         {
+            return convert(DateFormatterCache.parse(DateFormatterCache.getFormatter(pattern, beanPropertyInfo), value));
+         }
+         return parseIso(value.trim());
+      }
+      catch (DateTimeException exc)
+      {
+         throw new ConfigurationException(String.format("Could not format property %s of %s, value %s did not fit provided format %s",
+               beanPropertyInfo.getPropertyName(), beanPropertyInfo.getBeanType().getSimpleName(), value, pattern != null ? pattern : "ISO-8601"), exc);
+      }
+   }
+
+   /**
+    * Converts the date and time parsed with a {@link ConfigurableDateFormat}.
+    * 
+    * @param dateTime The parsed date and time.
+    * @return Returns the converted value.
+    */
+   abstract T convert(ZonedDateTime dateTime);
+
+   /**
+    * Parses the ISO-8601 form of the value.
+    * 
+    * @param value The trimmed value.
+    * @return Returns the converted value.
+    * @throws DateTimeException if the value is not valid.
+    */
+   abstract T parseIso(String value);
+}
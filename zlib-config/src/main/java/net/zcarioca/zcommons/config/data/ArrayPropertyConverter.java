@@ -0,0 +1,148 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2013 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.reflect.Array;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * A property converter to convert array properties.
+ *
+ * @author zcarioca
+ */
+class ArrayPropertyConverter<T> implements BeanPropertyConverter<T>
+{
+   private final Class<T> arrayType;
+
+   private ArrayPropertyConverter(Class<T> arrayType)
+   {
+
+      this.arrayType = arrayType;
+   }
+
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   public static <T> ArrayPropertyConverter<T> createNewArrayPropertyConverter(Class<T> arrayType)
+   {
+      return new ArrayPropertyConverter(arrayType);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Class<?> getSupportedClass()
+   {
+      return Array.newInstance(arrayType.getComponentType(), 0).getClass();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   @SuppressWarnings({"rawtypes", "unchecked"})
+   public T convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      BeanPropertyConverter converter = BeanPropertyConverterRegistry.getRegistry().getPropertyConverter(arrayType.getComponentType());
+      String[] splitValues = split(value);
+
+      Object primitiveData = convertPrimitiveArray(converter, splitValues, beanPropertyInfo);
+      if (primitiveData != null)
+      {
+         return (T) primitiveData;
+      }
+
+      Class<?> componentType = arrayType.getComponentType();
+      if (!componentType.isPrimitive())
+      {
+         // reference arrays are filled directly, without going through Array.set
+         Object[] data = (Object[]) Array.newInstance(componentType, splitValues.length);
+         for (int i = 0; i < splitValues.length; i++)
+         {
+            data[i] = converter.convertPropertyValue(splitValues[i], beanPropertyInfo);
+         }
+         return (T) data;
+      }
+
+      T data = (T) Array.newInstance(componentType, splitValues.length);
+
+      for (int i = 0; i < splitValues.length; i++) {
+         Object itemVal = converter.convertPropertyValue(splitValues[i], beanPropertyInfo);
+         if (itemVal == null) {
+            itemVal = BeanPropertySetterFactory.getDefaultValue(componentType);
+         }
+         Array.set(data, i, itemVal);
+      }
+      return data;
+   }
+
+   /**
+    * Fills <code>int</code>, <code>long</code>, <code>double</code> and
+    * <code>boolean</code> arrays without boxing each item, provided the
+    * built-in converter is registered for the component type.
+    */
+   private Object convertPrimitiveArray(BeanPropertyConverter<?> converter, String[] splitValues, BeanPropertyInfo beanPropertyInfo)
+         throws ConfigurationException
+   {
+      Class<?> componentType = arrayType.getComponentType();
+      if (componentType == int.class && converter instanceof IntValueConverter)
+      {
+         int[] data = new int[splitValues.length];
+         for (int i = 0; i < splitValues.length; i++)
+         {
+            data[i] = ((IntValueConverter) converter).convertToInt(splitValues[i], beanPropertyInfo);
+         }
+         return data;
+      }
+      if (componentType == long.class && converter instanceof LongValueConverter)
+      {
+         long[] data = new long[splitValues.length];
+         for (int i = 0; i < splitValues.length; i++)
+         {
+            data[i] = ((LongValueConverter) converter).convertToLong(splitValues[i], beanPropertyInfo);
+         }
+         return data;
+      }
+      if (componentType == double.class && converter instanceof DoubleValueConverter)
+      {
+         double[] data = new double[splitValues.length];
+         for (int i = 0; i < splitValues.length; i++)
+         {
+            data[i] = ((DoubleValueConverter) converter).convertToDouble(splitValues[i], beanPropertyInfo);
+         }
+         return data;
+      }
+      if (componentType == boolean.class && converter instanceof BooleanValueConverter)
+      {
+         boolean[] data = new boolean[splitValues.length];
+         for (int i = 0; i < splitValues.length; i++)
+         {
+            data[i] = ((BooleanValueConverter) converter).convertToBoolean(splitValues[i], beanPropertyInfo);
+         }
+         return data;
+      }
+      return null;
+   }
+
+   String[] split(String originalValue)
+   {
+      return CsvTokenizer.split(originalValue);
+   }
+
+}
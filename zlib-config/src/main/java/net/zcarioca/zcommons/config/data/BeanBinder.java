@@ -0,0 +1,124 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.Properties;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
+
+/**
+ * Binds the configurable properties of a single bean type. A binder is
+ * created once per bean class by a {@link BindingEngine} and may be used to
+ * configure any number of instances of that class.
+ * 
+ * @author zcarioca
+ */
+public interface BeanBinder
+{
+   /**
+    * Gets the type of bean this binder configures.
+    * 
+    * @return Returns the bean type.
+    */
+   public Class<?> getBeanType();
+
+   /**
+    * Uses the supplied {@link Properties} to set every configurable property
+    * of the bean.
+    * 
+    * @param bean The bean to configure, must be an instance of the bean type.
+    * @param properties The properties.
+    * @throws ConfigurationException if any property could not be set.
+    */
+   public void bind(Object bean, Properties properties) throws ConfigurationException;
+
+   /**
+    * Uses the supplied {@link ConfigSnapshot} to set every configurable
+    * property of the bean. Binders which do not read snapshots directly are
+    * given a copy of the snapshot as {@link Properties}.
+    * 
+    * @param bean The bean to configure, must be an instance of the bean type.
+    * @param snapshot The configuration snapshot.
+    * @throws ConfigurationException if any property could not be set.
+    */
+   public default void bind(Object bean, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      bind(bean, snapshot.toProperties());
+   }
+
+   /**
+    * Sets the configurable properties of the bean whose keys are among the
+    * changed keys, leaving the others as they are. Binders which cannot set
+    * single properties set every property.
+    * 
+    * @param bean The bean to configure, must be an instance of the bean type.
+    * @param snapshot The configuration snapshot.
+    * @param changedKeys The keys of the properties to set.
+    * @throws ConfigurationException if any property could not be set.
+    */
+   public default void bind(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys) throws ConfigurationException
+   {
+      bind(bean, snapshot);
+   }
+
+   /**
+    * Converts the values of the properties of the bean whose keys are among
+    * the changed keys, without writing them, so that the values of several
+    * beans can be converted before any of them is changed. Binders which
+    * cannot convert ahead of writing convert the values when the binding is
+    * applied.
+    * 
+    * @param bean The bean to configure, must be an instance of the bean type.
+    * @param snapshot The configuration snapshot.
+    * @param changedKeys The keys of the properties to set, or null to set
+    *        every property.
+    * @return Returns the binding, which writes the values when applied.
+    * @throws ConfigurationException if any value could not be converted.
+    */
+   public default PreparedBinding prepare(final Object bean, final ConfigSnapshot snapshot, final Set<String> changedKeys) throws ConfigurationException
+   {
+      return new PreparedBinding()
+      {
+         @Override
+         public void apply() throws ConfigurationException
+         {
+            if (changedKeys == null)
+            {
+               bind(bean, snapshot);
+            }
+            else
+            {
+               bind(bean, snapshot, changedKeys);
+            }
+         }
+      };
+   }
+
+   /**
+    * Gets the keys of the properties this binder sets.
+    * 
+    * @return Returns the property keys, or null if they are not known.
+    */
+   public default Set<String> getPropertyKeys()
+   {
+      return null;
+   }
+}
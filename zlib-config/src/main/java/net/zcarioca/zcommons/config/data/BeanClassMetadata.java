@@ -0,0 +1,112 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * The introspection result for a bean class. Holds the
+ * {@link BeanPropertyMetadata} of every configurable property, or the error
+ * that prevented the class from being introspected.
+ *
+ * @author zcarioca
+ */
+final class BeanClassMetadata
+{
+   private final Class<?> beanClass;
+   private final List<BeanPropertyMetadata> properties;
+   private final Set<String> propertyKeys;
+   private final Exception failure;
+
+   private BeanClassMetadata(Class<?> beanClass, List<BeanPropertyMetadata> properties, Exception failure)
+   {
+      this.beanClass = beanClass;
+      this.properties = properties;
+      this.propertyKeys = getPropertyKeys(properties);
+      this.failure = failure;
+   }
+
+   /**
+    * Gets the keys of the properties, in the order of the properties.
+    *
+    * @param properties The property metadata.
+    * @return Returns an immutable set of the property keys.
+    */
+   static Set<String> getPropertyKeys(List<BeanPropertyMetadata> properties)
+   {
+      Set<String> keys = new LinkedHashSet<String>();
+      for (BeanPropertyMetadata property : properties)
+      {
+         keys.add(property.getPropertyKey());
+      }
+      return Collections.unmodifiableSet(keys);
+   }
+
+   static BeanClassMetadata forProperties(Class<?> beanClass, List<BeanPropertyMetadata> properties)
+   {
+      return new BeanClassMetadata(beanClass, Collections.unmodifiableList(properties), null);
+   }
+
+   static BeanClassMetadata forFailure(Class<?> beanClass, Exception failure)
+   {
+      return new BeanClassMetadata(beanClass, Collections.<BeanPropertyMetadata> emptyList(), failure);
+   }
+
+   /**
+    * Gets the bean class.
+    *
+    * @return Returns the bean class.
+    */
+   Class<?> getBeanClass()
+   {
+      return this.beanClass;
+   }
+
+   /**
+    * Gets the metadata for each configurable property of the class.
+    *
+    * @return Returns an immutable list of property metadata.
+    * @throws ConfigurationException if the class could not be introspected.
+    */
+   List<BeanPropertyMetadata> getProperties() throws ConfigurationException
+   {
+      if (this.failure != null)
+      {
+         throw new ConfigurationException("Could not introspect bean class", this.failure);
+      }
+      return this.properties;
+   }
+
+   /**
+    * Gets the keys of the configurable properties of the class.
+    *
+    * @return Returns an immutable set of the property keys.
+    * @throws ConfigurationException if the class could not be introspected.
+    */
+   Set<String> getPropertyKeys() throws ConfigurationException
+   {
+      getProperties();
+      return this.propertyKeys;
+   }
+}
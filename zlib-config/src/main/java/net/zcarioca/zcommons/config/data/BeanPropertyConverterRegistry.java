@@ -0,0 +1,299 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2013 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A registry of value converters. Custom converters should be supplied to this
+ * registry.
+ * <p/>
+ * The converter of each property type is resolved once and memoized in a
+ * {@link ClassValue}, so the cache does not keep the classes of unloaded class
+ * loaders reachable. A type without a converter of its own, and without a
+ * <code>String</code> constructor or <code>valueOf(String)</code> method, uses
+ * the converter registered for its nearest superclass or interface.
+ * Registering a converter discards the memoized resolutions.
+ * 
+ * @author zcarioca
+ */
+public class BeanPropertyConverterRegistry
+{
+   private static final Logger logger = LoggerFactory.getLogger(BeanPropertyConverterRegistry.class);
+
+   private static final BeanPropertyConverter<?> genericPropertyConverter = new GenericPropertyConverter();
+
+   private final Map<Class<?>, BeanPropertyConverter<?>> registry;
+   private volatile ClassValue<BeanPropertyConverter<?>> resolved;
+   private final AtomicInteger generation = new AtomicInteger();
+
+   /**
+    * Gets access to the {@link BeanPropertyConverterRegistry}.
+    * 
+    * @return Returns access to the {@link BeanPropertyConverterRegistry}.
+    */
+   public static BeanPropertyConverterRegistry getRegistry()
+   {
+      return RegistryHolder.beanPropertyConverterRegistry;
+   }
+
+   /**
+    * Registers a new {@link BeanPropertyConverter}.
+    * 
+    * @param converter The {@link BeanPropertyConverter} to register.
+    * @throws IllegalArgumentException if the converter is null.
+    * @throws ConfigurationException if the converter does not return a
+    *         supported class.
+    */
+   public void register(BeanPropertyConverter<?> converter) throws ConfigurationException
+   {
+      if (converter == null)
+      {
+         throw new IllegalArgumentException("The property converter cannot be null");
+      }
+
+      Class<?> supportedClass = converter.getSupportedClass();
+      if (supportedClass != null)
+      {
+         this.registry.put(supportedClass, converter);
+         this.resolved = createResolutionCache();
+         this.generation.incrementAndGet();
+      }
+      else
+      {
+         throw new ConfigurationException("Cannot use a property converter that does not return a supported class: " + converter.getClass());
+      }
+   }
+
+   /**
+    * Gets a {@link BeanPropertyConverter} for the supplied type.
+    * 
+    * @param type The type to convert.
+    * @return Returns a {@link BeanPropertyConverter} for the supplied type.
+    * @throws IllegalArgumentException if the type is null.
+    */
+   public BeanPropertyConverter<?> getPropertyConverter(Class<?> type)
+   {
+      if (type == null)
+      {
+         throw new IllegalArgumentException("The supplied type cannot be null");
+      }
+      return this.resolved.get(type);
+   }
+
+   /**
+    * Gets a {@link BeanPropertyConverter} for the supplied generic type. The
+    * type arguments of {@link java.util.List}, {@link java.util.Set} and
+    * {@link java.util.Map} types select the converters of their elements,
+    * unless a converter is registered for the collection type itself.
+    * 
+    * @param type The generic type to convert.
+    * @return Returns a {@link BeanPropertyConverter} for the supplied type.
+    * @throws IllegalArgumentException if the type is null.
+    */
+   public BeanPropertyConverter<?> getPropertyConverter(Type type)
+   {
+      if (type instanceof Class)
+      {
+         return getPropertyConverter((Class<?>) type);
+      }
+      if (type == null)
+      {
+         throw new IllegalArgumentException("The supplied type cannot be null");
+      }
+
+      Class<?> rawType = CollectionPropertyConverter.resolveClass(type);
+      if (CollectionPropertyConverter.isCollectionType(rawType) && getRegisteredConverter(rawType) == null)
+      {
+         return CollectionPropertyConverter.createNewCollectionPropertyConverter(type);
+      }
+      return getPropertyConverter(rawType);
+   }
+
+   /**
+    * Gets the number of converters registered so far, which lets converters
+    * that keep resolved converters tell when to resolve them again.
+    * 
+    * @return Returns the registration count.
+    */
+   int getGeneration()
+   {
+      return this.generation.get();
+   }
+
+   /**
+    * Gets the converter registered for exactly the supplied type, which takes
+    * precedence over the built-in collection converters.
+    * 
+    * @param type The type to convert.
+    * @return Returns the registered converter, or null if none is registered.
+    */
+   BeanPropertyConverter<?> getRegisteredConverter(Class<?> type)
+   {
+      return this.registry.get(normalizedType(type));
+   }
+
+   private ClassValue<BeanPropertyConverter<?>> createResolutionCache()
+   {
+      return new ClassValue<BeanPropertyConverter<?>>()
+      {
+         @Override
+         protected BeanPropertyConverter<?> computeValue(Class<?> type)
+         {
+            return resolve(type);
+         }
+      };
+   }
+
+   private BeanPropertyConverter<?> resolve(Class<?> type)
+   {
+      if (type.isArray())
+      {
+         return ArrayPropertyConverter.createNewArrayPropertyConverter(type);
+      }
+
+      Class<?> normalizedType = normalizedType(type);
+      BeanPropertyConverter<?> converter = this.registry.get(normalizedType);
+      if (converter == null && CollectionPropertyConverter.isCollectionType(type))
+      {
+         return CollectionPropertyConverter.createNewCollectionPropertyConverter(type);
+      }
+      if (converter == null && !GenericPropertyConverter.canConvert(normalizedType))
+      {
+         converter = findInheritedConverter(normalizedType);
+         if (converter != null && logger.isDebugEnabled())
+            logger.debug(String.format("Using the converter of %s for %s", converter.getSupportedClass(), type));
+      }
+      return converter != null ? converter : genericPropertyConverter;
+   }
+
+   /**
+    * Finds the converter registered for the nearest superclass, or failing
+    * that for the nearest interface, of the type.
+    */
+   private BeanPropertyConverter<?> findInheritedConverter(Class<?> type)
+   {
+      for (Class<?> superclass = type.getSuperclass(); superclass != null; superclass = superclass.getSuperclass())
+      {
+         BeanPropertyConverter<?> converter = this.registry.get(superclass);
+         if (converter != null)
+         {
+            return converter;
+         }
+      }
+
+      Deque<Class<?>> interfaces = new ArrayDeque<Class<?>>();
+      for (Class<?> current = type; current != null; current = current.getSuperclass())
+      {
+         interfaces.addAll(Arrays.asList(current.getInterfaces()));
+      }
+      Set<Class<?>> visited = new HashSet<Class<?>>();
+      while (!interfaces.isEmpty())
+      {
+         Class<?> iface = interfaces.removeFirst();
+         if (visited.add(iface))
+         {
+            BeanPropertyConverter<?> converter = this.registry.get(iface);
+            if (converter != null)
+            {
+               return converter;
+            }
+            interfaces.addAll(Arrays.asList(iface.getInterfaces()));
+         }
+      }
+      return null;
+   }
+
+   private Class<?> normalizedType(Class<?> type)
+   {
+      if (type.isPrimitive())
+      {
+         return convertFromPrimitiveType(type);
+      }
+      return type;
+   }
+
+   private Class<?> convertFromPrimitiveType(Class<?> type)
+   {
+      if (boolean.class == type)
+         return Boolean.class;
+      if (char.class == type)
+         return Character.class;
+      if (byte.class == type)
+         return Byte.class;
+      if (short.class == type)
+         return Short.class;
+      if (int.class == type)
+         return Integer.class;
+      if (long.class == type)
+         return Long.class;
+      if (float.class == type)
+         return Float.class;
+
+      // this is all that's left
+      return Double.class;
+   }
+
+   BeanPropertyConverterRegistry()
+   {
+      registry = new ConcurrentHashMap<Class<?>, BeanPropertyConverter<?>>();
+      registry.put(String.class, new StringPropertyConverter());
+      registry.put(Boolean.class, new BooleanPropertyConverter());
+      registry.put(Character.class, new CharacterPropertyConverter());
+      registry.put(Byte.class, NumberPropertyConverter.createNewNumberPropertyConverter(Byte.class));
+      registry.put(Short.class, NumberPropertyConverter.createNewNumberPropertyConverter(Short.class));
+      registry.put(Integer.class, NumberPropertyConverter.createNewNumberPropertyConverter(Integer.class));
+      registry.put(Long.class, NumberPropertyConverter.createNewNumberPropertyConverter(Long.class));
+      registry.put(Float.class, NumberPropertyConverter.createNewNumberPropertyConverter(Float.class));
+      registry.put(Double.class, NumberPropertyConverter.createNewNumberPropertyConverter(Double.class));
+      registry.put(Date.class, new DatePropertyConverter());
+      registry.put(Calendar.class, new CalendarPropertyConverter());
+      registry.put(Instant.class, new InstantPropertyConverter());
+      registry.put(LocalDate.class, new LocalDatePropertyConverter());
+      registry.put(LocalDateTime.class, new LocalDateTimePropertyConverter());
+      registry.put(ZonedDateTime.class, new ZonedDateTimePropertyConverter());
+      registry.put(Duration.class, new DurationPropertyConverter());
+      resolved = createResolutionCache();
+   }
+
+   private static class RegistryHolder
+   {
+      private static final BeanPropertyConverterRegistry beanPropertyConverterRegistry = new BeanPropertyConverterRegistry();
+   }
+}
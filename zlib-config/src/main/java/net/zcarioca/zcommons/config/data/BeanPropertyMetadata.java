@@ -0,0 +1,201 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import net.zcarioca.zcommons.config.ConfigurableAttribute;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The resolved binding information for a single configurable property of a
+ * bean class. Instances are immutable and shared by every bean of the same
+ * class.
+ *
+ * @author zcarioca
+ */
+final class BeanPropertyMetadata
+{
+   private final PropertyDescriptor descriptor;
+   private final Field field;
+   private final boolean useWriteMethod;
+   private final String propertyKey;
+   private final String defaultValue;
+   private final Class<?> rawType;
+   private final Type genericType;
+   private final BeanPropertyConverter<?> collectionConverter;
+   private final BeanPropertyInfo beanPropertyInfo;
+   private final BeanPropertyWriter writer;
+   private final PrimitivePropertyWriter primitiveWriter;
+
+   BeanPropertyMetadata(Class<?> beanClass, PropertyDescriptor descriptor, Field field, ConfigurableAttribute attr, boolean useWriteMethod)
+   {
+      this(beanClass, descriptor, field, attr.propertyName(), attr.defaultValue(), useWriteMethod);
+   }
+
+   BeanPropertyMetadata(Class<?> beanClass, PropertyDescriptor descriptor, Field field, String propertyKey, String defaultValue, boolean useWriteMethod)
+   {
+      this.descriptor = descriptor;
+      this.field = field;
+      this.useWriteMethod = useWriteMethod;
+
+      Class<?> propertyType = field != null ? field.getType() : descriptor.getPropertyType();
+      String propertyName = field != null ? field.getName() : descriptor.getName();
+
+      this.beanPropertyInfo = new BeanPropertySetterFactory.BeanPropertyInfoImpl(beanClass, propertyType, propertyName,
+            BeanPropertySetterFactory.getBeanAnnotations(beanClass), BeanPropertySetterFactory.getPropertyAnnotations(field, descriptor));
+
+      this.propertyKey = StringUtils.isEmpty(propertyKey) ? propertyName : propertyKey;
+      this.defaultValue = defaultValue;
+      this.rawType = useWriteMethod ? descriptor.getPropertyType() : field.getType();
+      this.genericType = useWriteMethod ? descriptor.getWriteMethod().getGenericParameterTypes()[0] : field.getGenericType();
+      this.collectionConverter = genericType instanceof ParameterizedType && CollectionPropertyConverter.isCollectionType(rawType) ? CollectionPropertyConverter
+            .createNewCollectionPropertyConverter(genericType, this.beanPropertyInfo) : null;
+      this.writer = useWriteMethod ? BeanPropertyWriters.forWriteMethod(descriptor.getWriteMethod()) : BeanPropertyWriters.forField(field);
+      this.primitiveWriter = useWriteMethod ? PrimitivePropertyWriters.forWriteMethod(descriptor.getWriteMethod()) : PrimitivePropertyWriters.forField(field);
+   }
+
+   /**
+    * Gets the property descriptor, may be null for field only properties.
+    *
+    * @return Returns the property descriptor.
+    */
+   PropertyDescriptor getDescriptor()
+   {
+      return this.descriptor;
+   }
+
+   /**
+    * Gets the backing field, may be null for write method only properties.
+    *
+    * @return Returns the field.
+    */
+   Field getField()
+   {
+      return this.field;
+   }
+
+   /**
+    * Returns true if the value is written through the property's write method
+    * rather than directly to the field.
+    *
+    * @return Returns true if the write method is used.
+    */
+   boolean isUseWriteMethod()
+   {
+      return this.useWriteMethod;
+   }
+
+   /**
+    * Gets the key used to look up the property value.
+    *
+    * @return Returns the property key.
+    */
+   String getPropertyKey()
+   {
+      return this.propertyKey;
+   }
+
+   /**
+    * Gets the default value from the {@link ConfigurableAttribute}.
+    *
+    * @return Returns the default value.
+    */
+   String getDefaultValue()
+   {
+      return this.defaultValue;
+   }
+
+   /**
+    * Gets the declared type of the property, including array types.
+    *
+    * @return Returns the raw property type.
+    */
+   Class<?> getRawType()
+   {
+      return this.rawType;
+   }
+
+   /**
+    * Gets the declared generic type of the property, which carries the
+    * element types of collection properties.
+    *
+    * @return Returns the generic property type.
+    */
+   Type getGenericType()
+   {
+      return this.genericType;
+   }
+
+   /**
+    * Gets the converter of the property. The converter of a parameterized
+    * collection type is created once for the property, and used unless a
+    * converter is registered for the collection type itself. The others are
+    * resolved by the {@link BeanPropertyConverterRegistry}, so that converters
+    * registered later are still used.
+    *
+    * @return Returns the property converter.
+    */
+   BeanPropertyConverter<?> getConverter()
+   {
+      BeanPropertyConverterRegistry registry = BeanPropertyConverterRegistry.getRegistry();
+      if (this.collectionConverter != null)
+      {
+         BeanPropertyConverter<?> registered = registry.getRegisteredConverter(this.rawType);
+         return registered != null ? registered : this.collectionConverter;
+      }
+      return registry.getPropertyConverter(this.rawType);
+   }
+
+   /**
+    * Gets the shared {@link BeanPropertyInfo} for this property.
+    *
+    * @return Returns the bean property info.
+    */
+   BeanPropertyInfo getBeanPropertyInfo()
+   {
+      return this.beanPropertyInfo;
+   }
+
+   /**
+    * Gets the writer resolved for this property.
+    *
+    * @return Returns the property writer.
+    */
+   BeanPropertyWriter getWriter()
+   {
+      return this.writer;
+   }
+
+   /**
+    * Gets the writer which converts and writes the value without boxing it,
+    * only available for <code>int</code>, <code>long</code>,
+    * <code>double</code> and <code>boolean</code> properties.
+    *
+    * @return Returns the primitive writer, or null.
+    */
+   PrimitivePropertyWriter getPrimitiveWriter()
+   {
+      return this.primitiveWriter;
+   }
+}
@@ -21,6 +21,7 @@ package net.zcarioca.zcommons.config.data;
 import java.util.Properties;
 
 import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
 
 /**
  * This class is responsible for setting a property on a bean.
@@ -53,4 +54,16 @@ public interface BeanPropertySetter
     * @param properties The properties.
     */
    public void setProperty(Properties properties) throws ConfigurationException;
+
+   /**
+    * Uses the supplied {@link ConfigSnapshot} to set the correct property on
+    * the bean. Setters which do not read snapshots directly are given a copy
+    * of the snapshot as {@link Properties}.
+    * 
+    * @param snapshot The configuration snapshot.
+    */
+   public default void setProperty(ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      setProperty(snapshot.toProperties());
+   }
 }
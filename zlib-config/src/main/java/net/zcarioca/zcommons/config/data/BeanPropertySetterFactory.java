@@ -19,11 +19,11 @@
 package net.zcarioca.zcommons.config.data;
 
 import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -36,9 +36,9 @@ import java.util.Properties;
 
 import net.zcarioca.zcommons.config.ConfigurableAttribute;
 import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
 
 import org.apache.commons.lang.ArrayUtils;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,8 +51,19 @@ public class BeanPropertySetterFactory
 {
    private static final Logger logger = LoggerFactory.getLogger(BeanPropertySetterFactory.class);
 
+   private static final ClassValue<BeanClassMetadata> metadataCache = new ClassValue<BeanClassMetadata>()
+   {
+      @Override
+      protected BeanClassMetadata computeValue(Class<?> beanClass)
+      {
+         return introspect(beanClass);
+      }
+   };
+
    /**
     * Gets a collection of {@link BeanPropertySetter} to configure the bean.
+    * The class of the bean is only introspected once, the returned setters
+    * simply bind the cached property metadata to the supplied bean.
     *
     * @param bean The bean to configure.
     * @return Returns a collection of {@link BeanPropertySetter}.
@@ -60,10 +71,35 @@ public class BeanPropertySetterFactory
     */
    public Collection<BeanPropertySetter> getPropertySettersForBean(Object bean) throws ConfigurationException
    {
-      List<BeanPropertySetter> setters = new ArrayList<BeanPropertySetter>();
-      Map<String, PropertyDescriptor> descriptors = new HashMap<String, PropertyDescriptor>();
+      List<BeanPropertyMetadata> properties = getClassMetadata(bean.getClass()).getProperties();
+      List<BeanPropertySetter> setters = new ArrayList<BeanPropertySetter>(properties.size());
 
-      Class<?> beanClass = bean.getClass();
+      for (BeanPropertyMetadata property : properties)
+      {
+         setters.add(new BoundBeanPropertySetter(bean, property));
+      }
+      return setters;
+   }
+
+   /**
+    * Gets the cached metadata of a bean class, introspecting the class on
+    * first use.
+    *
+    * @param beanClass The bean class.
+    * @return Returns the class metadata.
+    */
+   static BeanClassMetadata getClassMetadata(Class<?> beanClass)
+   {
+      return metadataCache.get(beanClass);
+   }
+
+   private static BeanClassMetadata introspect(Class<?> beanClass)
+   {
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Introspecting configurable properties of %s", beanClass));
+
+      List<BeanPropertyMetadata> properties = new ArrayList<BeanPropertyMetadata>();
+      Map<String, PropertyDescriptor> descriptors = new HashMap<String, PropertyDescriptor>();
 
       try 
       {
@@ -83,51 +119,60 @@ public class BeanPropertySetterFactory
             {
                if (writer.isAnnotationPresent(ConfigurableAttribute.class)) 
                {
-                  setters.add(new WriterBeanPropertySetter(bean, desc, field, writer.getAnnotation(ConfigurableAttribute.class)));
+                  properties.add(new BeanPropertyMetadata(beanClass, desc, field, writer.getAnnotation(ConfigurableAttribute.class), true));
                   descriptors.remove(desc.getDisplayName());
                }
                if (reader != null && reader.isAnnotationPresent(ConfigurableAttribute.class)) 
                {
-                  setters.add(new WriterBeanPropertySetter(bean, desc, field, reader.getAnnotation(ConfigurableAttribute.class)));
+                  properties.add(new BeanPropertyMetadata(beanClass, desc, field, reader.getAnnotation(ConfigurableAttribute.class), true));
                   descriptors.remove(desc.getDisplayName());
                }
             }
          }
-      } 
-      catch (Throwable t) 
-      {
-         throw new ConfigurationException("Could not introspect bean class", t);
-      }
-      do 
-      {
-         Field[] fields = beanClass.getDeclaredFields();
-         for (Field field : fields) 
+
+         Class<?> type = beanClass;
+         do 
          {
-            if (field.isAnnotationPresent(ConfigurableAttribute.class)) 
+            Field[] fields = type.getDeclaredFields();
+            for (Field field : fields) 
             {
-               if (descriptors.containsKey(field.getName()) && descriptors.get(field.getName()).getWriteMethod() != null) 
+               if (field.isAnnotationPresent(ConfigurableAttribute.class)) 
                {
-                  PropertyDescriptor desc = descriptors.get(field.getName());
-                  setters.add(new WriterBeanPropertySetter(bean, desc, field, field.getAnnotation(ConfigurableAttribute.class)));
+                  if (descriptors.containsKey(field.getName()) && descriptors.get(field.getName()).getWriteMethod() != null) 
+                  {
+                     PropertyDescriptor desc = descriptors.get(field.getName());
+                     properties.add(new BeanPropertyMetadata(beanClass, desc, field, field.getAnnotation(ConfigurableAttribute.class), true));
+                  } 
+                  else 
+                  {
+                     properties.add(new BeanPropertyMetadata(beanClass, null, field, field.getAnnotation(ConfigurableAttribute.class), false));
+                  }
                } 
-               else 
-               {
-                  setters.add(new FieldBeanPropertySetter(bean, null, field, field.getAnnotation(ConfigurableAttribute.class)));
-               }
-            } 
-            else if (descriptors.containsKey(field.getName())) 
-            {
-               // the annotation may have been set on the getter, not the field
-               PropertyDescriptor desc = descriptors.get(field.getName());
-               if (desc.getReadMethod().isAnnotationPresent(ConfigurableAttribute.class)) 
+               else if (descriptors.containsKey(field.getName())) 
                {
-                  setters.add(new FieldBeanPropertySetter(bean, desc, field, desc.getReadMethod().getAnnotation(ConfigurableAttribute.class)));
+                  // the annotation may have been set on the getter, not the field
+                  PropertyDescriptor desc = descriptors.get(field.getName());
+                  if (desc.getReadMethod().isAnnotationPresent(ConfigurableAttribute.class)) 
+                  {
+                     properties.add(new BeanPropertyMetadata(beanClass, desc, field, desc.getReadMethod().getAnnotation(ConfigurableAttribute.class), false));
+                  }
                }
             }
          }
+         while ((type = type.getSuperclass()) != null);
+         return BeanClassMetadata.forProperties(beanClass, properties);
+      } 
+      catch (IntrospectionException exc) 
+      {
+         return BeanClassMetadata.forFailure(beanClass, exc);
+      }
+      catch (RuntimeException exc) 
+      {
+         // a runtime failure is cached like an introspection failure; errors
+         // are left to propagate uncached, and the class is introspected
+         // again on its next use
+         return BeanClassMetadata.forFailure(beanClass, exc);
       }
-      while ((beanClass = beanClass.getSuperclass()) != null);
-      return setters;
    }
 
    static Object getDefaultValue(Class<?> primitiveType)
@@ -149,7 +194,7 @@ public class BeanPropertySetterFactory
       return 0l;
    }
 
-   private Field getField(Class<?> beanClass, PropertyDescriptor descriptor)
+   private static Field getField(Class<?> beanClass, PropertyDescriptor descriptor)
    {
       do 
       {
@@ -167,7 +212,7 @@ public class BeanPropertySetterFactory
       return null;
    }
 
-   private static Collection<Annotation> getPropertyAnnotations(Field field, PropertyDescriptor descriptor)
+   static Collection<Annotation> getPropertyAnnotations(Field field, PropertyDescriptor descriptor)
    {
       Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<Class<? extends Annotation>, Annotation>();
 
@@ -189,7 +234,7 @@ public class BeanPropertySetterFactory
       return annotations.values();
    }
 
-   private static Collection<Annotation> getBeanAnnotations(Class<?> beanClass)
+   static Collection<Annotation> getBeanAnnotations(Class<?> beanClass)
    {
       return Arrays.asList(beanClass.getAnnotations());
    }
@@ -208,26 +253,15 @@ public class BeanPropertySetterFactory
       }
    }
 
-   private static abstract class AbstractBeanPropertySetter implements BeanPropertySetter
+   private static final class BoundBeanPropertySetter implements BeanPropertySetter
    {
-      final Object bean;
-      final PropertyDescriptor descriptor;
-      final Field field;
-      final BeanPropertyInfo beanPropertyInfo;
-      final ConfigurableAttribute attr;
+      private final Object bean;
+      private final BeanPropertyMetadata metadata;
 
-      public AbstractBeanPropertySetter(Object bean, PropertyDescriptor descriptor, Field field, ConfigurableAttribute attr)
+      public BoundBeanPropertySetter(Object bean, BeanPropertyMetadata metadata)
       {
          this.bean = bean;
-         this.descriptor = descriptor;
-         this.field = field;
-         this.attr = attr;
-
-         Class<?> propertyType = field != null ? field.getType() : descriptor.getPropertyType();
-         String propertyName = field != null ? field.getName() : descriptor.getName();
-
-         this.beanPropertyInfo = new BeanPropertyInfoImpl(bean.getClass(), propertyType, propertyName,
-               getBeanAnnotations(bean.getClass()), getPropertyAnnotations(field, descriptor));
+         this.metadata = metadata;
       }
 
       /**
@@ -236,7 +270,7 @@ public class BeanPropertySetterFactory
       @Override
       public BeanPropertyInfo getBeanPropertyInfo()
       {
-         return this.beanPropertyInfo;
+         return this.metadata.getBeanPropertyInfo();
       }
 
       /**
@@ -245,31 +279,43 @@ public class BeanPropertySetterFactory
       @Override
       public String getPropertyKey()
       {
-         String propName = attr.propertyName();
-         if (StringUtils.isEmpty(propName)) 
-         {
-            propName = beanPropertyInfo.getPropertyName();
-         }
-         return propName;
+         return this.metadata.getPropertyKey();
       }
 
       /**
        * {@inheritDoc}
        */
       @Override
-      @SuppressWarnings("rawtypes")
       public void setProperty(Properties properties) throws ConfigurationException
+      {
+         setProperty(ConfigSnapshot.of(properties));
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      @SuppressWarnings("rawtypes")
+      public void setProperty(ConfigSnapshot snapshot) throws ConfigurationException
       {
          String propName = getPropertyKey();
-         String defaultVal = attr.defaultValue();
+         String defaultVal = metadata.getDefaultValue();
+         BeanPropertyInfo beanPropertyInfo = getBeanPropertyInfo();
 
          if (logger.isTraceEnabled())
             logger.trace(String.format("Setting property '%s' with value '%s' for bean '%s'", propName, defaultVal, bean.toString()));
 
          try 
          {
-            BeanPropertyConverter converter = BeanPropertyConverterRegistry.getRegistry().getPropertyConverter(getRawType());
-            Object beanVal = converter.convertPropertyValue(properties.getProperty(propName, defaultVal), beanPropertyInfo);
+            BeanPropertyConverter converter = metadata.getConverter();
+            PrimitivePropertyWriter primitiveWriter = metadata.getPrimitiveWriter();
+            if (primitiveWriter != null && primitiveWriter.supports(converter))
+            {
+               primitiveWriter.write(bean, converter, snapshot.get(propName, defaultVal), beanPropertyInfo);
+               return;
+            }
+
+            Object beanVal = converter.convertPropertyValue(snapshot.get(propName, defaultVal), beanPropertyInfo);
 
             if (beanVal == null) 
             {
@@ -279,80 +325,23 @@ public class BeanPropertySetterFactory
                }
             }
 
-            writeValue(beanVal);
+            metadata.getWriter().write(bean, beanVal);
          } 
          catch (Exception exc) 
          {
             throw new ConfigurationException("Could not write property to bean", exc);
          }
       }
-
-      public abstract Class<?> getRawType();
-
-      public abstract void writeValue(Object beanVal) throws IllegalAccessException, InvocationTargetException;
-   }
-
-   private static final class FieldBeanPropertySetter extends AbstractBeanPropertySetter implements BeanPropertySetter
-   {
-      public FieldBeanPropertySetter(Object bean, PropertyDescriptor descriptor, Field field, ConfigurableAttribute attr)
-      {
-         super(bean, descriptor, field, attr);
-      }
-
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public void writeValue(Object beanVal) throws IllegalAccessException
-      {
-         field.setAccessible(true);
-         field.set(bean, beanVal);
-      }
-
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public Class<?> getRawType()
-      {
-         return field.getType();
-      }
    }
 
-   private static final class WriterBeanPropertySetter extends AbstractBeanPropertySetter implements BeanPropertySetter
-   {
-      public WriterBeanPropertySetter(Object bean, PropertyDescriptor descriptor, Field field, ConfigurableAttribute attr)
-      {
-         super(bean, descriptor, field, attr);
-      }
-
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public void writeValue(Object beanVal) throws IllegalAccessException, InvocationTargetException
-      {
-         descriptor.getWriteMethod().setAccessible(true);
-         descriptor.getWriteMethod().invoke(bean, beanVal);
-      }
-
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public Class<?> getRawType()
-      {
-         return descriptor.getPropertyType();
-      }
-   }
-
-   private static final class BeanPropertyInfoImpl implements BeanPropertyInfo
+   static final class BeanPropertyInfoImpl implements BeanPropertyInfo
    {
       private final Class<?> beanType;
       private final Class<?> propertyType;
       private final String propertyName;
       private final Collection<Annotation> beanAnnotations;
       private final Collection<Annotation> propertyAnnotations;
+      private final int radix;
 
       public BeanPropertyInfoImpl(Class<?> beanType, Class<?> propertyType, String propertyName, Collection<Annotation> beanAnnotations, Collection<Annotation> propertyAnnotations)
       {
@@ -362,6 +351,18 @@ public class BeanPropertySetterFactory
 
          this.propertyAnnotations = Collections.unmodifiableCollection(propertyAnnotations);
          this.beanAnnotations = Collections.unmodifiableCollection(beanAnnotations);
+         this.radix = NumberPropertyConverter.findRadix(this);
+      }
+
+      /**
+       * Gets the radix of integral number properties, resolved once from the
+       * number encoding annotations.
+       * 
+       * @return Returns the radix.
+       */
+      int getRadix()
+      {
+         return radix;
       }
 
       /**
@@ -0,0 +1,37 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+/**
+ * Writes a converted value into a property of a bean, either directly into
+ * the field or through the property's write method.
+ *
+ * @author zcarioca
+ */
+interface BeanPropertyWriter
+{
+   /**
+    * Writes the value to the bean.
+    *
+    * @param bean The bean to write to.
+    * @param value The converted value.
+    * @throws Exception if the value could not be written.
+    */
+   public void write(Object bean, Object value) throws Exception;
+}
@@ -0,0 +1,189 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the {@link BeanPropertyWriter} strategies.
+ * <p/>
+ * The method handle writers resolve the field or write method once, with
+ * access checks suppressed, and are then invoked with an exact signature so
+ * the JIT can inline the write. The reflective writers are kept as a fallback
+ * for environments in which a method handle cannot be obtained.
+ *
+ * @author zcarioca
+ */
+final class BeanPropertyWriters
+{
+   private static final Logger logger = LoggerFactory.getLogger(BeanPropertyWriters.class);
+
+   private static final MethodType WRITER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+   /**
+    * Creates the preferred writer for a field.
+    *
+    * @param field The field to write.
+    * @return Returns a method handle writer, or a reflective writer if the
+    *         handle cannot be resolved.
+    */
+   static BeanPropertyWriter forField(Field field)
+   {
+      try
+      {
+         return methodHandleFieldWriter(field);
+      }
+      catch (Exception exc)
+      {
+         if (logger.isDebugEnabled())
+            logger.debug(String.format("Falling back to reflection for field %s: %s", field, exc.getMessage()));
+         return reflectiveFieldWriter(field);
+      }
+   }
+
+   /**
+    * Creates the preferred writer for a property's write method.
+    *
+    * @param method The write method.
+    * @return Returns a method handle writer, or a reflective writer if the
+    *         handle cannot be resolved.
+    */
+   static BeanPropertyWriter forWriteMethod(Method method)
+   {
+      try
+      {
+         return methodHandleMethodWriter(method);
+      }
+      catch (Exception exc)
+      {
+         if (logger.isDebugEnabled())
+            logger.debug(String.format("Falling back to reflection for method %s: %s", method, exc.getMessage()));
+         return reflectiveMethodWriter(method);
+      }
+   }
+
+   static BeanPropertyWriter methodHandleFieldWriter(Field field) throws IllegalAccessException
+   {
+      field.setAccessible(true);
+      return new MethodHandleBeanPropertyWriter(MethodHandles.lookup().unreflectSetter(field));
+   }
+
+   static BeanPropertyWriter methodHandleMethodWriter(Method method) throws IllegalAccessException
+   {
+      method.setAccessible(true);
+      return new MethodHandleBeanPropertyWriter(MethodHandles.lookup().unreflect(method));
+   }
+
+   static BeanPropertyWriter reflectiveFieldWriter(Field field)
+   {
+      return new ReflectiveFieldWriter(field);
+   }
+
+   static BeanPropertyWriter reflectiveMethodWriter(Method method)
+   {
+      return new ReflectiveMethodWriter(method);
+   }
+
+   private BeanPropertyWriters()
+   {
+      // static factory
+   }
+
+   private static final class MethodHandleBeanPropertyWriter implements BeanPropertyWriter
+   {
+      private final MethodHandle handle;
+
+      MethodHandleBeanPropertyWriter(MethodHandle handle)
+      {
+         this.handle = handle.asType(WRITER_TYPE);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, Object value) throws Exception
+      {
+         try
+         {
+            this.handle.invokeExact(bean, value);
+         }
+         catch (Exception exc)
+         {
+            throw exc;
+         }
+         catch (Error err)
+         {
+            throw err;
+         }
+         catch (Throwable t)
+         {
+            throw new InvocationTargetException(t);
+         }
+      }
+   }
+
+   private static final class ReflectiveFieldWriter implements BeanPropertyWriter
+   {
+      private final Field field;
+
+      ReflectiveFieldWriter(Field field)
+      {
+         this.field = field;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, Object value) throws Exception
+      {
+         this.field.setAccessible(true);
+         this.field.set(bean, value);
+      }
+   }
+
+   private static final class ReflectiveMethodWriter implements BeanPropertyWriter
+   {
+      private final Method method;
+
+      ReflectiveMethodWriter(Method method)
+      {
+         this.method = method;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, Object value) throws Exception
+      {
+         this.method.setAccessible(true);
+         this.method.invoke(bean, value);
+      }
+   }
+}
@@ -0,0 +1,40 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * Creates the {@link BeanBinder} used to configure beans of a given type.
+ * 
+ * @author zcarioca
+ * @see SetterBindingEngine
+ * @see CompiledBindingEngine
+ */
+public interface BindingEngine
+{
+   /**
+    * Gets the binder for a bean class.
+    * 
+    * @param beanClass The bean class.
+    * @return Returns the binder for the class.
+    * @throws ConfigurationException if the class cannot be bound.
+    */
+   public BeanBinder getBinder(Class<?> beanClass) throws ConfigurationException;
+}
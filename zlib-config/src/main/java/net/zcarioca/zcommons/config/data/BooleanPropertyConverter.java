@@ -27,7 +27,7 @@ import org.apache.commons.lang.StringUtils;
  * 
  * @author zcarioca
  */
-class BooleanPropertyConverter implements BeanPropertyConverter<Boolean>
+class BooleanPropertyConverter implements BeanPropertyConverter<Boolean>, BooleanValueConverter
 {
 
    /**
@@ -48,6 +48,15 @@ class BooleanPropertyConverter implements BeanPropertyConverter<Boolean>
       return StringUtils.isBlank(value) ? null : parseBoolean(value.trim());
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean convertToBoolean(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      return StringUtils.isBlank(value) ? false : parseBoolean(value.trim());
+   }
+
    private boolean parseBoolean(String value) throws ConfigurationException
    {
       boolean bool = Boolean.parseBoolean(value) || 
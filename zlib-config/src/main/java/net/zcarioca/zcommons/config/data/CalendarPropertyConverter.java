@@ -30,6 +30,7 @@ import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
  */
 class CalendarPropertyConverter implements BeanPropertyConverter<Calendar>
 {
+   private final DatePropertyConverter dateConverter = new DatePropertyConverter();
 
    /**
     * {@inheritDoc}
@@ -48,8 +49,7 @@ class CalendarPropertyConverter implements BeanPropertyConverter<Calendar>
    {
       Calendar calendar = null;
 
-      DatePropertyConverter converter = new DatePropertyConverter();
-      Date date = converter.convertPropertyValue(value, beanPropertyInfo);
+      Date date = dateConverter.convertPropertyValue(value, beanPropertyInfo);
 
       if (date != null)
       {
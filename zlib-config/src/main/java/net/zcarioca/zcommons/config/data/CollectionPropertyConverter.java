@@ -0,0 +1,387 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.IntSet;
+import net.zcarioca.zcommons.config.util.LongSet;
+
+/**
+ * A property converter to convert {@link List}, {@link Set}, {@link Map},
+ * {@link IntSet} and {@link LongSet} properties. The items are split the same
+ * way as array items, empty items are skipped, and map entries are written as
+ * <code>key=value</code>.
+ * <p/>
+ * The element types are read from the generic type of the property, and are
+ * converted with the registered converters. The collections are immutable:
+ * lists wrap the converted array, sets and maps are backed by arrays and an
+ * open addressing index, and the primitive sets hold unboxed values.
+ * <p/>
+ * The element converters, and the property information handed to them, are
+ * resolved once for the property being converted and kept until a converter
+ * is registered or a different property is converted.
+ *
+ * @author zcarioca
+ */
+class CollectionPropertyConverter<T> implements BeanPropertyConverter<T>
+{
+   private final Class<?> collectionType;
+   private final Class<?> elementType;
+   private final Class<?> valueType;
+   private volatile Elements elements;
+
+   private CollectionPropertyConverter(Class<?> collectionType, Class<?> elementType, Class<?> valueType)
+   {
+      this.collectionType = collectionType;
+      this.elementType = elementType;
+      this.valueType = valueType;
+   }
+
+   /**
+    * Returns true if the type is one of the supported collection types.
+    *
+    * @param type The declared type of the property.
+    * @return Returns true if this converter supports the type.
+    */
+   static boolean isCollectionType(Class<?> type)
+   {
+      return type == List.class || type == Collection.class || type == Set.class || type == Map.class || type == IntSet.class || type == LongSet.class;
+   }
+
+   /**
+    * Creates a converter for the generic type of a collection property.
+    *
+    * @param type The generic type of the property.
+    * @return Returns the converter.
+    */
+   public static <T> CollectionPropertyConverter<T> createNewCollectionPropertyConverter(Type type)
+   {
+      return createConverter(type);
+   }
+
+   /**
+    * Creates a converter for the generic type of a collection property, with
+    * its element converters already resolved for the property.
+    *
+    * @param type The generic type of the property.
+    * @param beanPropertyInfo The information about the property.
+    * @return Returns the converter.
+    */
+   static <T> CollectionPropertyConverter<T> createNewCollectionPropertyConverter(Type type, BeanPropertyInfo beanPropertyInfo)
+   {
+      CollectionPropertyConverter<T> converter = createConverter(type);
+      converter.getElements(beanPropertyInfo);
+      return converter;
+   }
+
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   private static <T> CollectionPropertyConverter<T> createConverter(Type type)
+   {
+      Class<?> collectionType = resolveClass(type);
+      if (collectionType == IntSet.class)
+      {
+         return new CollectionPropertyConverter(IntSet.class, int.class, null);
+      }
+      if (collectionType == LongSet.class)
+      {
+         return new CollectionPropertyConverter(LongSet.class, long.class, null);
+      }
+
+      Type[] arguments = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments() : new Type[0];
+      Class<?> elementType = arguments.length > 0 ? resolveElementClass(arguments[0]) : String.class;
+      Class<?> valueType = arguments.length > 1 ? resolveElementClass(arguments[1]) : String.class;
+      return new CollectionPropertyConverter(collectionType, elementType, valueType);
+   }
+
+   /**
+    * Resolves the class a generic type is erased to.
+    *
+    * @param type The generic type.
+    * @return Returns the class.
+    */
+   static Class<?> resolveClass(Type type)
+   {
+      if (type instanceof Class)
+      {
+         return (Class<?>) type;
+      }
+      if (type instanceof ParameterizedType)
+      {
+         return resolveClass(((ParameterizedType) type).getRawType());
+      }
+      if (type instanceof GenericArrayType)
+      {
+         return Array.newInstance(resolveClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+      }
+      if (type instanceof WildcardType)
+      {
+         return resolveClass(((WildcardType) type).getUpperBounds()[0]);
+      }
+      if (type instanceof TypeVariable)
+      {
+         return resolveClass(((TypeVariable<?>) type).getBounds()[0]);
+      }
+      return Object.class;
+   }
+
+   private static Class<?> resolveElementClass(Type type)
+   {
+      Class<?> elementType = resolveClass(type);
+      return elementType == Object.class ? String.class : elementType;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Class<?> getSupportedClass()
+   {
+      return collectionType;
+   }
+
+   /**
+    * Gets the type of the elements, or of the keys of a map.
+    *
+    * @return Returns the element type.
+    */
+   Class<?> getElementType()
+   {
+      return elementType;
+   }
+
+   /**
+    * Gets the type of the values of a map.
+    *
+    * @return Returns the value type, or null if the property is not a map.
+    */
+   Class<?> getValueType()
+   {
+      return collectionType == Map.class ? valueType : null;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public T convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      String[] items = CsvTokenizer.split(value != null ? value : "");
+      Elements elements = getElements(beanPropertyInfo);
+
+      if (collectionType == IntSet.class)
+      {
+         return (T) convertToIntSet(items, elements);
+      }
+      if (collectionType == LongSet.class)
+      {
+         return (T) convertToLongSet(items, elements);
+      }
+      if (collectionType == Map.class)
+      {
+         return (T) convertToMap(items, elements, beanPropertyInfo);
+      }
+
+      Object[] data = convertItems(items, elements.elementConverter, elements.elementInfo);
+      if (collectionType == Set.class)
+      {
+         return (T) new CompactSet<Object>(data);
+      }
+      return (T) Collections.unmodifiableList(Arrays.asList(data));
+   }
+
+   private static Object[] convertItems(String[] items, BeanPropertyConverter<?> converter, BeanPropertyInfo elementInfo) throws ConfigurationException
+   {
+      Object[] data = new Object[items.length];
+      int count = 0;
+      for (String item : items)
+      {
+         if (item.length() > 0)
+         {
+            data[count++] = converter.convertPropertyValue(item, elementInfo);
+         }
+      }
+      return count == data.length ? data : Arrays.copyOf(data, count);
+   }
+
+   private static Map<Object, Object> convertToMap(String[] items, Elements elements, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      String[] keys = new String[items.length];
+      String[] values = new String[items.length];
+      int count = 0;
+      for (String item : items)
+      {
+         if (item.length() == 0)
+         {
+            continue;
+         }
+         int separator = item.indexOf('=');
+         if (separator < 0)
+         {
+            throw new ConfigurationException(String.format("The map entry '%s' of property %s is not of the form key=value", item,
+                  beanPropertyInfo.getPropertyName()));
+         }
+         keys[count] = item.substring(0, separator).trim();
+         values[count++] = item.substring(separator + 1).trim();
+      }
+
+      return new CompactMap<Object, Object>(convertItems(Arrays.copyOf(keys, count), elements.elementConverter, elements.elementInfo),
+            convertEntryValues(Arrays.copyOf(values, count), elements.valueConverter, elements.valueInfo));
+   }
+
+   private static Object[] convertEntryValues(String[] values, BeanPropertyConverter<?> converter, BeanPropertyInfo valueInfo) throws ConfigurationException
+   {
+      // empty values are kept, so that they stay aligned with their keys
+      Object[] data = new Object[values.length];
+      for (int i = 0; i < values.length; i++)
+      {
+         data[i] = converter.convertPropertyValue(values[i], valueInfo);
+      }
+      return data;
+   }
+
+   private static IntSet convertToIntSet(String[] items, Elements elements) throws ConfigurationException
+   {
+      BeanPropertyConverter<?> converter = elements.elementConverter;
+      BeanPropertyInfo elementInfo = elements.elementInfo;
+
+      int[] data = new int[items.length];
+      int count = 0;
+      for (String item : items)
+      {
+         if (item.length() == 0)
+         {
+            continue;
+         }
+         if (converter instanceof IntValueConverter)
+         {
+            data[count++] = ((IntValueConverter) converter).convertToInt(item, elementInfo);
+         }
+         else
+         {
+            Object converted = converter.convertPropertyValue(item, elementInfo);
+            data[count++] = converted != null ? ((Number) converted).intValue() : 0;
+         }
+      }
+      return IntSet.of(count == data.length ? data : Arrays.copyOf(data, count));
+   }
+
+   private static LongSet convertToLongSet(String[] items, Elements elements) throws ConfigurationException
+   {
+      BeanPropertyConverter<?> converter = elements.elementConverter;
+      BeanPropertyInfo elementInfo = elements.elementInfo;
+
+      long[] data = new long[items.length];
+      int count = 0;
+      for (String item : items)
+      {
+         if (item.length() == 0)
+         {
+            continue;
+         }
+         if (converter instanceof LongValueConverter)
+         {
+            data[count++] = ((LongValueConverter) converter).convertToLong(item, elementInfo);
+         }
+         else
+         {
+            Object converted = converter.convertPropertyValue(item, elementInfo);
+            data[count++] = converted != null ? ((Number) converted).longValue() : 0l;
+         }
+      }
+      return LongSet.of(count == data.length ? data : Arrays.copyOf(data, count));
+   }
+
+   /**
+    * Gets the element converters and their property information for the
+    * property, resolving them again only if a converter has been registered
+    * since, or if a different property is converted.
+    */
+   private Elements getElements(BeanPropertyInfo beanPropertyInfo)
+   {
+      BeanPropertyConverterRegistry registry = BeanPropertyConverterRegistry.getRegistry();
+      int generation = registry.getGeneration();
+      Elements current = this.elements;
+      if (current != null && current.source == beanPropertyInfo && current.generation == generation)
+      {
+         return current;
+      }
+
+      BeanPropertyConverter<?> elementConverter = registry.getPropertyConverter(elementType);
+      BeanPropertyInfo elementInfo = createElementInfo(beanPropertyInfo, elementType);
+      BeanPropertyConverter<?> valueConverter = null;
+      BeanPropertyInfo valueInfo = null;
+      if (collectionType == Map.class)
+      {
+         valueConverter = registry.getPropertyConverter(valueType);
+         valueInfo = createElementInfo(beanPropertyInfo, valueType);
+      }
+      current = new Elements(beanPropertyInfo, generation, elementConverter, elementInfo, valueConverter, valueInfo);
+      this.elements = current;
+      return current;
+   }
+
+   /**
+    * Describes the elements of the property to the element converters, with
+    * the annotations of the property so that formats and encodings apply to
+    * each element.
+    */
+   private static BeanPropertyInfo createElementInfo(BeanPropertyInfo beanPropertyInfo, Class<?> type)
+   {
+      return new BeanPropertySetterFactory.BeanPropertyInfoImpl(beanPropertyInfo.getBeanType(), type, beanPropertyInfo.getPropertyName(),
+            beanPropertyInfo.getBeanAnnotations(), beanPropertyInfo.getPropertyAnnotations());
+   }
+
+   /**
+    * The element converters resolved for one property.
+    */
+   private static final class Elements
+   {
+      private final BeanPropertyInfo source;
+      private final int generation;
+      private final BeanPropertyConverter<?> elementConverter;
+      private final BeanPropertyInfo elementInfo;
+      private final BeanPropertyConverter<?> valueConverter;
+      private final BeanPropertyInfo valueInfo;
+
+      Elements(BeanPropertyInfo source, int generation, BeanPropertyConverter<?> elementConverter, BeanPropertyInfo elementInfo,
+            BeanPropertyConverter<?> valueConverter, BeanPropertyInfo valueInfo)
+      {
+         this.source = source;
+         this.generation = generation;
+         this.elementConverter = elementConverter;
+         this.elementInfo = elementInfo;
+         this.valueConverter = valueConverter;
+         this.valueInfo = valueInfo;
+      }
+   }
+}
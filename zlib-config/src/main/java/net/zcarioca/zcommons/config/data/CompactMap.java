@@ -0,0 +1,143 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map which keeps its keys in a {@link CompactSet} and its
+ * values in an array at the same positions.
+ *
+ * @author zcarioca
+ */
+final class CompactMap<K, V> extends AbstractMap<K, V>
+{
+   private final CompactSet<K> keys;
+   private final Object[] values;
+
+   /**
+    * Creates a map of the keys and values. If a key is repeated, the key keeps
+    * its first position and the last value wins.
+    *
+    * @param keys The keys.
+    * @param values The values, at the same positions as the keys.
+    */
+   CompactMap(Object[] keys, Object[] values)
+   {
+      this.keys = new CompactSet<K>(keys);
+      this.values = new Object[this.keys.size()];
+      for (int i = 0; i < keys.length; i++)
+      {
+         this.values[this.keys.indexOf(keys[i])] = values[i];
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public V get(Object key)
+   {
+      int index = keys.indexOf(key);
+      return index >= 0 ? (V) values[index] : null;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean containsKey(Object key)
+   {
+      return keys.indexOf(key) >= 0;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int size()
+   {
+      return values.length;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Set<K> keySet()
+   {
+      return keys;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Set<Map.Entry<K, V>> entrySet()
+   {
+      return new AbstractSet<Map.Entry<K, V>>()
+      {
+         @Override
+         public int size()
+         {
+            return values.length;
+         }
+
+         @Override
+         public Iterator<Map.Entry<K, V>> iterator()
+         {
+            final Iterator<K> keyIterator = keys.iterator();
+            return new Iterator<Map.Entry<K, V>>()
+            {
+               private int index;
+
+               @Override
+               public boolean hasNext()
+               {
+                  return keyIterator.hasNext();
+               }
+
+               @Override
+               @SuppressWarnings("unchecked")
+               public Map.Entry<K, V> next()
+               {
+                  if (!keyIterator.hasNext())
+                  {
+                     throw new NoSuchElementException();
+                  }
+                  K key = keyIterator.next();
+                  return new AbstractMap.SimpleImmutableEntry<K, V>(key, (V) values[index++]);
+               }
+
+               @Override
+               public void remove()
+               {
+                  throw new UnsupportedOperationException();
+               }
+            };
+         }
+      };
+   }
+}
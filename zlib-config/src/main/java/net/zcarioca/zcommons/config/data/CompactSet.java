@@ -0,0 +1,173 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set backed by an array of the elements, in the order in which
+ * they were configured, and an open addressing table of indexes into that
+ * array. Unlike a {@link java.util.HashSet} no entry object is created per
+ * element.
+ *
+ * @author zcarioca
+ */
+final class CompactSet<E> extends AbstractSet<E>
+{
+   private final Object[] elements;
+   private final int[] table;
+   private final int mask;
+
+   /**
+    * Creates a set of the elements, ignoring duplicates.
+    *
+    * @param elements The elements, may contain null.
+    */
+   CompactSet(Object[] elements)
+   {
+      // slots hold the element index plus one, zero marks an empty slot
+      int size = 2;
+      while (size < elements.length * 2)
+      {
+         size <<= 1;
+      }
+      this.table = new int[size];
+      this.mask = size - 1;
+
+      Object[] distinct = new Object[elements.length];
+      int count = 0;
+      for (Object element : elements)
+      {
+         int slot = hash(element) & mask;
+         boolean found = false;
+         while (table[slot] != 0)
+         {
+            if (equal(distinct[table[slot] - 1], element))
+            {
+               found = true;
+               break;
+            }
+            slot = (slot + 1) & mask;
+         }
+         if (!found)
+         {
+            distinct[count] = element;
+            table[slot] = ++count;
+         }
+      }
+      this.elements = count == distinct.length ? distinct : Arrays.copyOf(distinct, count);
+   }
+
+   /**
+    * Gets the position of the element in the set.
+    *
+    * @param element The element.
+    * @return Returns the index of the element, or -1 if it is not in the set.
+    */
+   int indexOf(Object element)
+   {
+      int slot = hash(element) & mask;
+      int index;
+      while ((index = table[slot]) != 0)
+      {
+         if (equal(elements[index - 1], element))
+         {
+            return index - 1;
+         }
+         slot = (slot + 1) & mask;
+      }
+      return -1;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean contains(Object o)
+   {
+      return indexOf(o) >= 0;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int size()
+   {
+      return elements.length;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Iterator<E> iterator()
+   {
+      return new Iterator<E>()
+      {
+         private int index;
+
+         @Override
+         public boolean hasNext()
+         {
+            return index < elements.length;
+         }
+
+         @Override
+         @SuppressWarnings("unchecked")
+         public E next()
+         {
+            if (index >= elements.length)
+            {
+               throw new NoSuchElementException();
+            }
+            return (E) elements[index++];
+         }
+
+         @Override
+         public void remove()
+         {
+            throw new UnsupportedOperationException();
+         }
+      };
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Object[] toArray()
+   {
+      return elements.clone();
+   }
+
+   private static boolean equal(Object a, Object b)
+   {
+      return a == null ? b == null : a.equals(b);
+   }
+
+   private static int hash(Object element)
+   {
+      int hash = element == null ? 0 : element.hashCode() * 0x9E3779B9;
+      return hash ^ (hash >>> 16);
+   }
+}
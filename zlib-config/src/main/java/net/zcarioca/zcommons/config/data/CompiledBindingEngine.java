@@ -0,0 +1,218 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BindingEngine} that compiles a dedicated binder for every bean
+ * class. The binder flattens the cached property metadata of the class into
+ * parallel arrays of keys, defaults and writers, so configuring a bean is a
+ * single pass over those arrays without creating a {@link BeanPropertySetter}
+ * per property. Binders are cached per class and are safe to share between
+ * threads.
+ * 
+ * @author zcarioca
+ */
+public class CompiledBindingEngine implements BindingEngine
+{
+   private static final Logger logger = LoggerFactory.getLogger(CompiledBindingEngine.class);
+
+   private static final ClassValue<CompiledBeanBinder> binderCache = new ClassValue<CompiledBeanBinder>()
+   {
+      @Override
+      protected CompiledBeanBinder computeValue(Class<?> beanClass)
+      {
+         return new CompiledBeanBinder(beanClass);
+      }
+   };
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public BeanBinder getBinder(Class<?> beanClass) throws ConfigurationException
+   {
+      CompiledBeanBinder binder = binderCache.get(beanClass);
+      binder.verify();
+      return binder;
+   }
+
+   private static final class CompiledBeanBinder implements BeanBinder
+   {
+      private final BeanClassMetadata classMetadata;
+      private final String[] keys;
+      private final Set<String> propertyKeys;
+      private final String[] defaults;
+      private final BeanPropertyMetadata[] metadata;
+      private final BeanPropertyInfo[] infos;
+      private final Object[] primitiveDefaults;
+      private final BeanPropertyWriter[] writers;
+      private final PrimitivePropertyWriter[] primitiveWriters;
+
+      CompiledBeanBinder(Class<?> beanClass)
+      {
+         this.classMetadata = BeanPropertySetterFactory.getClassMetadata(beanClass);
+
+         List<BeanPropertyMetadata> properties;
+         try
+         {
+            properties = classMetadata.getProperties();
+         }
+         catch (ConfigurationException exc)
+         {
+            properties = Collections.emptyList();
+         }
+
+         int size = properties.size();
+         this.keys = new String[size];
+         this.defaults = new String[size];
+         this.metadata = new BeanPropertyMetadata[size];
+         this.infos = new BeanPropertyInfo[size];
+         this.primitiveDefaults = new Object[size];
+         this.writers = new BeanPropertyWriter[size];
+         this.primitiveWriters = new PrimitivePropertyWriter[size];
+
+         for (int i = 0; i < size; i++)
+         {
+            BeanPropertyMetadata property = properties.get(i);
+            keys[i] = property.getPropertyKey();
+            defaults[i] = property.getDefaultValue();
+            metadata[i] = property;
+            infos[i] = property.getBeanPropertyInfo();
+            writers[i] = property.getWriter();
+            primitiveWriters[i] = property.getPrimitiveWriter();
+            if (!infos[i].isArray() && infos[i].isPrimitive())
+            {
+               primitiveDefaults[i] = BeanPropertySetterFactory.getDefaultValue(infos[i].getPropertyType());
+            }
+         }
+
+         this.propertyKeys = BeanClassMetadata.getPropertyKeys(properties);
+
+         if (logger.isDebugEnabled())
+            logger.debug(String.format("Compiled binder for %s with %d properties", beanClass, size));
+      }
+
+      void verify() throws ConfigurationException
+      {
+         // rethrows the introspection failure, if there was one
+         classMetadata.getProperties();
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public Class<?> getBeanType()
+      {
+         return classMetadata.getBeanClass();
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void bind(Object bean, Properties properties) throws ConfigurationException
+      {
+         bind(bean, ConfigSnapshot.of(properties));
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void bind(Object bean, ConfigSnapshot snapshot) throws ConfigurationException
+      {
+         for (int i = 0; i < keys.length; i++)
+         {
+            bindProperty(bean, snapshot, i);
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void bind(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys) throws ConfigurationException
+      {
+         for (int i = 0; i < keys.length; i++)
+         {
+            if (changedKeys.contains(keys[i]))
+            {
+               bindProperty(bean, snapshot, i);
+            }
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public PreparedBinding prepare(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys) throws ConfigurationException
+      {
+         return ConvertedBinding.convert(bean, snapshot, changedKeys, Arrays.asList(metadata));
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public Set<String> getPropertyKeys()
+      {
+         return propertyKeys;
+      }
+
+      @SuppressWarnings("rawtypes")
+      private void bindProperty(Object bean, ConfigSnapshot snapshot, int i) throws ConfigurationException
+      {
+         try
+         {
+            BeanPropertyConverter converter = metadata[i].getConverter();
+            String value = snapshot.get(keys[i], defaults[i]);
+            if (primitiveWriters[i] != null && primitiveWriters[i].supports(converter))
+            {
+               primitiveWriters[i].write(bean, converter, value, infos[i]);
+               return;
+            }
+
+            Object beanVal = converter.convertPropertyValue(value, infos[i]);
+            if (beanVal == null)
+            {
+               beanVal = primitiveDefaults[i];
+            }
+            writers[i].write(bean, beanVal);
+         }
+         catch (Exception exc)
+         {
+            throw new ConfigurationException("Could not write property to bean", exc);
+         }
+      }
+   }
+}
@@ -0,0 +1,130 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.List;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
+
+/**
+ * A {@link PreparedBinding} holding the converted values of the properties
+ * to write. The values of primitive properties whose converter can convert
+ * without boxing are held unboxed, in slots written by the property's
+ * {@link PrimitivePropertyWriter}, any other value is written by the
+ * property's {@link BeanPropertyWriter}. Applying the binding only writes the
+ * values, nothing is converted twice.
+ * 
+ * @author zcarioca
+ */
+final class ConvertedBinding implements PreparedBinding
+{
+   private final Object bean;
+   private final BeanPropertyWriter[] writers;
+   private final PrimitivePropertyWriter[] primitiveWriters;
+   private final Object[] values;
+   private final long[] slots;
+   private final int count;
+
+   private ConvertedBinding(Object bean, BeanPropertyWriter[] writers, PrimitivePropertyWriter[] primitiveWriters, Object[] values, long[] slots, int count)
+   {
+      this.bean = bean;
+      this.writers = writers;
+      this.primitiveWriters = primitiveWriters;
+      this.values = values;
+      this.slots = slots;
+      this.count = count;
+   }
+
+   /**
+    * Converts the values of the properties of a bean.
+    * 
+    * @param bean The bean to configure.
+    * @param snapshot The configuration snapshot.
+    * @param changedKeys The keys of the properties to write, or null to write
+    *        every property.
+    * @param properties The metadata of the bean's properties.
+    * @return Returns the binding.
+    * @throws ConfigurationException if any value could not be converted.
+    */
+   @SuppressWarnings("rawtypes")
+   static ConvertedBinding convert(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys, List<BeanPropertyMetadata> properties)
+         throws ConfigurationException
+   {
+      BeanPropertyWriter[] writers = new BeanPropertyWriter[properties.size()];
+      PrimitivePropertyWriter[] primitiveWriters = new PrimitivePropertyWriter[writers.length];
+      Object[] values = new Object[writers.length];
+      long[] slots = new long[writers.length];
+      int count = 0;
+      for (BeanPropertyMetadata property : properties)
+      {
+         String key = property.getPropertyKey();
+         if (changedKeys != null && !changedKeys.contains(key))
+         {
+            continue;
+         }
+         BeanPropertyInfo info = property.getBeanPropertyInfo();
+         BeanPropertyConverter converter = property.getConverter();
+         String value = snapshot.get(key, property.getDefaultValue());
+         PrimitivePropertyWriter primitiveWriter = property.getPrimitiveWriter();
+         if (primitiveWriter != null && primitiveWriter.supports(converter))
+         {
+            primitiveWriters[count] = primitiveWriter;
+            slots[count++] = primitiveWriter.convert(converter, value, info);
+            continue;
+         }
+
+         Object converted = converter.convertPropertyValue(value, info);
+         if (converted == null && !info.isArray() && info.isPrimitive())
+         {
+            converted = BeanPropertySetterFactory.getDefaultValue(info.getPropertyType());
+         }
+         writers[count] = property.getWriter();
+         values[count++] = converted;
+      }
+      return new ConvertedBinding(bean, writers, primitiveWriters, values, slots, count);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void apply() throws ConfigurationException
+   {
+      for (int i = 0; i < count; i++)
+      {
+         try
+         {
+            if (primitiveWriters[i] != null)
+            {
+               primitiveWriters[i].write(bean, slots[i]);
+            }
+            else
+            {
+               writers[i].write(bean, values[i]);
+            }
+         }
+         catch (Exception exc)
+         {
+            throw new ConfigurationException("Could not write property to bean", exc);
+         }
+      }
+   }
+}
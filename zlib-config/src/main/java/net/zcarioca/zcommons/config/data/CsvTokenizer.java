@@ -0,0 +1,186 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.Arrays;
+
+/**
+ * Splits a comma-separated list in a single pass over the value.
+ * <p/>
+ * Items are trimmed and may be quoted to include commas. A quoted item keeps
+ * any doubled quotes as they are, and an item which opens a quote without
+ * closing it before the next comma continues through the following items
+ * until one ends in a quote, commas included. These are the rules of the
+ * regular expression based split this class replaces.
+ * 
+ * @author zcarioca
+ */
+final class CsvTokenizer
+{
+   private static final char SEPARATOR = ',';
+   private static final char QUOTE = '"';
+
+   private static final String[] EMPTY = new String[0];
+
+   /**
+    * Splits the value.
+    * 
+    * @param value The comma-separated value, not null.
+    * @return Returns the items.
+    */
+   static String[] split(String value)
+   {
+      int length = value.length();
+      String[] items = new String[Math.min(16, length + 1)];
+      int count = 0;
+
+      StringBuilder quoted = null;
+      boolean inQuotedLoop = false;
+
+      int start = 0;
+      boolean first = true;
+      while (true)
+      {
+         // every token but the first begins at a separator, which is part of the token
+         if (!first)
+         {
+            start = value.indexOf(SEPARATOR, start);
+            if (start < 0)
+            {
+               break;
+            }
+         }
+         int content = first ? 0 : start + 1;
+         int end = tokenEnd(value, content);
+         first = false;
+
+         int itemStart = start;
+         int itemEnd = end;
+         if (!inQuotedLoop)
+         {
+            if (itemStart < itemEnd && value.charAt(itemStart) == SEPARATOR)
+            {
+               itemStart++;
+            }
+            while (itemStart < itemEnd && value.charAt(itemStart) <= ' ')
+               itemStart++;
+            while (itemEnd > itemStart && value.charAt(itemEnd - 1) <= ' ')
+               itemEnd--;
+         }
+
+         String item = null;
+         if (!inQuotedLoop && itemStart < itemEnd && value.charAt(itemStart) == QUOTE)
+         {
+            itemStart++;
+            if (itemStart < itemEnd && value.charAt(itemEnd - 1) == QUOTE)
+            {
+               item = value.substring(itemStart, itemEnd - 1);
+            }
+            else
+            {
+               quoted = quoted == null ? new StringBuilder() : quoted;
+               quoted.setLength(0);
+               quoted.append(value, itemStart, itemEnd);
+               inQuotedLoop = true;
+            }
+         }
+         else if (inQuotedLoop)
+         {
+            if (itemStart < itemEnd && value.charAt(itemEnd - 1) == QUOTE)
+            {
+               quoted.append(value, itemStart, itemEnd - 1);
+               inQuotedLoop = false;
+               item = quoted.toString();
+            }
+            else
+            {
+               quoted.append(value, itemStart, itemEnd);
+            }
+         }
+         else
+         {
+            item = value.substring(itemStart, itemEnd);
+         }
+
+         if (item != null)
+         {
+            if (count == items.length)
+            {
+               items = Arrays.copyOf(items, count * 2);
+            }
+            items[count++] = item;
+         }
+
+         // only the first token can be empty, the next search starts past it
+         start = end > start ? end : end + 1;
+      }
+
+      if (count == 0)
+      {
+         return EMPTY;
+      }
+      return count == items.length ? items : Arrays.copyOf(items, count);
+   }
+
+   /**
+    * Finds the end of the token whose content begins at the index: the end of
+    * the longest quoted run if the content opens with a quote, otherwise the
+    * next separator.
+    */
+   private static int tokenEnd(String value, int content)
+   {
+      int length = value.length();
+      if (content < length && value.charAt(content) == QUOTE)
+      {
+         // the run may contain doubled quotes, it ends at the last quote reachable through them
+         int close = -1;
+         int i = content + 1;
+         while (true)
+         {
+            while (i < length && value.charAt(i) != QUOTE)
+               i++;
+            if (i == length)
+            {
+               break;
+            }
+            close = i;
+            if (i + 1 < length && value.charAt(i + 1) == QUOTE)
+            {
+               i += 2;
+            }
+            else
+            {
+               break;
+            }
+         }
+         if (close >= 0)
+         {
+            return close + 1;
+         }
+      }
+
+      int separator = value.indexOf(SEPARATOR, content);
+      return separator < 0 ? length : separator;
+   }
+
+   private CsvTokenizer()
+   {
+      // static tokenizer
+   }
+}
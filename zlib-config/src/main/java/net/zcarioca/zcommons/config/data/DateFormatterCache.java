@@ -0,0 +1,258 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.annotation.Annotation;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.zcarioca.zcommons.config.ConfigurableDateFormat;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * Caches the formatters of each {@link ConfigurableDateFormat} pattern.
+ * <p/>
+ * The <code>java.time</code> converters share one immutable
+ * {@link DateTimeFormatter} per pattern, which is safe to use from any
+ * thread. The formatters resolve leniently, and fields missing from the
+ * pattern take their earliest value: a <code>yyyy</code> pattern resolves to
+ * midnight on the first of January in the default time zone.
+ * <p/>
+ * {@link java.util.Date} and {@link java.util.Calendar} values keep the
+ * parsing rules of {@link SimpleDateFormat}, which accepts fewer digits than
+ * the pattern, ignores the case of month names and reads fractions as a
+ * number of milliseconds. A <code>SimpleDateFormat</code> is not thread-safe,
+ * so each thread parses with its own copy of the cached instance.
+ * 
+ * @author zcarioca
+ */
+final class DateFormatterCache
+{
+   private static final ConcurrentMap<String, DateTimeFormatter> formatters = new ConcurrentHashMap<String, DateTimeFormatter>();
+   private static final ConcurrentMap<String, SimpleDateFormat> dateFormats = new ConcurrentHashMap<String, SimpleDateFormat>();
+   private static final ThreadLocal<Map<String, SimpleDateFormat>> threadDateFormats = new ThreadLocal<Map<String, SimpleDateFormat>>()
+   {
+      @Override
+      protected Map<String, SimpleDateFormat> initialValue()
+      {
+         return new HashMap<String, SimpleDateFormat>();
+      }
+   };
+
+   /**
+    * Gets the formatter of a pattern, creating it on first use.
+    * 
+    * @param pattern The pattern.
+    * @return Returns the cached formatter.
+    * @throws IllegalArgumentException if the pattern is not valid.
+    */
+   static DateTimeFormatter getFormatter(String pattern)
+   {
+      DateTimeFormatter formatter = formatters.get(pattern);
+      if (formatter == null)
+      {
+         formatter = new DateTimeFormatterBuilder().appendPattern(pattern).toFormatter().withResolverStyle(ResolverStyle.LENIENT);
+         DateTimeFormatter existing = formatters.putIfAbsent(pattern, formatter);
+         formatter = existing != null ? existing : formatter;
+      }
+      return formatter;
+   }
+
+   /**
+    * Gets the calling thread's date format of a pattern, copying the cached
+    * instance on first use. The format is set to the current default time
+    * zone, as a newly created one would be.
+    * 
+    * @param pattern The pattern.
+    * @return Returns the date format, which must not be shared with other
+    *         threads.
+    * @throws IllegalArgumentException if the pattern is not valid.
+    */
+   static SimpleDateFormat getDateFormat(String pattern)
+   {
+      Map<String, SimpleDateFormat> local = threadDateFormats.get();
+      SimpleDateFormat dateFormat = local.get(pattern);
+      if (dateFormat == null)
+      {
+         SimpleDateFormat prototype = dateFormats.get(pattern);
+         if (prototype == null)
+         {
+            prototype = new SimpleDateFormat(pattern);
+            SimpleDateFormat existing = dateFormats.putIfAbsent(pattern, prototype);
+            prototype = existing != null ? existing : prototype;
+         }
+         // the prototype is only ever cloned, never used to parse
+         dateFormat = (SimpleDateFormat) prototype.clone();
+         local.put(pattern, dateFormat);
+      }
+      dateFormat.setTimeZone(TimeZone.getDefault());
+      return dateFormat;
+   }
+
+   /**
+    * Gets the calling thread's date format of a property's pattern.
+    * 
+    * @param pattern The pattern.
+    * @param beanPropertyInfo The information about the property.
+    * @return Returns the date format, which must not be shared with other
+    *         threads.
+    * @throws ConfigurationException if the pattern is not valid.
+    */
+   static SimpleDateFormat getDateFormat(String pattern, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      try
+      {
+         return getDateFormat(pattern);
+      }
+      catch (IllegalArgumentException exc)
+      {
+         throw new ConfigurationException(String.format("%s is not a valid format for the @ConfigurableDateFormat for property %s.%s", pattern,
+               beanPropertyInfo.getBeanType().getSimpleName(), beanPropertyInfo.getPropertyName()));
+      }
+   }
+
+   /**
+    * Gets the pattern of the {@link ConfigurableDateFormat} on the property,
+    * or on the bean if the property has none.
+    * 
+    * @param beanPropertyInfo The information about the property.
+    * @return Returns the pattern, or null if there is no date format.
+    * @throws ConfigurationException if the date format has no pattern.
+    */
+   static String getPattern(BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      ConfigurableDateFormat format = getConfigurableDateFormat(beanPropertyInfo.getPropertyAnnotations());
+      if (format == null)
+      {
+         format = getConfigurableDateFormat(beanPropertyInfo.getBeanAnnotations());
+      }
+      if (format == null)
+      {
+         return null;
+      }
+      if (format.value() == null)
+      {
+         throw new ConfigurationException(String.format("@ConfigurableDateFormat requires a format to be specified for property %s.%s", 
+               beanPropertyInfo.getBeanType().getSimpleName(), beanPropertyInfo.getPropertyName()));
+      }
+      return format.value();
+   }
+
+   /**
+    * Gets the formatter of a property's pattern.
+    * 
+    * @param pattern The pattern.
+    * @param beanPropertyInfo The information about the property.
+    * @return Returns the cached formatter.
+    * @throws ConfigurationException if the pattern is not valid.
+    */
+   static DateTimeFormatter getFormatter(String pattern, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      try
+      {
+         return getFormatter(pattern);
+      }
+      catch (IllegalArgumentException exc)
+      {
+         throw new ConfigurationException(String.format("%s is not a valid format for the @ConfigurableDateFormat for property %s.%s", pattern,
+               beanPropertyInfo.getBeanType().getSimpleName(), beanPropertyInfo.getPropertyName()));
+      }
+   }
+
+   /**
+    * Parses the value into a date and time. Like <code>SimpleDateFormat</code>,
+    * any text following the pattern is ignored.
+    * 
+    * @param formatter The formatter.
+    * @param value The value.
+    * @return Returns the date and time, in the parsed zone or the default
+    *         zone.
+    * @throws DateTimeException if the value does not fit the pattern.
+    */
+   static ZonedDateTime parse(DateTimeFormatter formatter, CharSequence value)
+   {
+      TemporalAccessor parsed = formatter.parse(value, new ParsePosition(0));
+
+      ZoneId zone = parsed.query(TemporalQueries.zone());
+      return ZonedDateTime.ofLocal(LocalDateTime.of(resolveDate(parsed), resolveTime(parsed)), zone != null ? zone : ZoneId.systemDefault(), null);
+   }
+
+   private static LocalDate resolveDate(TemporalAccessor parsed)
+   {
+      LocalDate date = parsed.query(TemporalQueries.localDate());
+      if (date != null)
+      {
+         return date;
+      }
+
+      int year = parsed.isSupported(ChronoField.YEAR) ? parsed.get(ChronoField.YEAR) : 1970;
+      if (parsed.isSupported(ChronoField.DAY_OF_YEAR))
+      {
+         return LocalDate.ofYearDay(year, 1).plusDays(parsed.getLong(ChronoField.DAY_OF_YEAR) - 1);
+      }
+
+      long month = parsed.isSupported(ChronoField.MONTH_OF_YEAR) ? parsed.getLong(ChronoField.MONTH_OF_YEAR) : 1;
+      long day = parsed.isSupported(ChronoField.DAY_OF_MONTH) ? parsed.getLong(ChronoField.DAY_OF_MONTH) : 1;
+      return LocalDate.of(year, 1, 1).plusMonths(month - 1).plusDays(day - 1);
+   }
+
+   private static LocalTime resolveTime(TemporalAccessor parsed)
+   {
+      LocalTime time = parsed.query(TemporalQueries.localTime());
+      return time != null ? time : LocalTime.MIDNIGHT;
+   }
+
+   private static ConfigurableDateFormat getConfigurableDateFormat(Collection<Annotation> annotations)
+   {
+      if (annotations != null)
+      {
+         for (Annotation annotation : annotations)
+         {
+            if (annotation instanceof ConfigurableDateFormat)
+            {
+               return (ConfigurableDateFormat) annotation;
+            }
+         }
+      }
+      return null;
+   }
+
+   private DateFormatterCache()
+   {
+      // static cache
+   }
+}
@@ -18,10 +18,8 @@
  */
 package net.zcarioca.zcommons.config.data;
 
-import java.lang.annotation.Annotation;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Collection;
 import java.util.Date;
 
 import net.zcarioca.zcommons.config.ConfigurableDateFormat;
@@ -30,7 +28,8 @@ import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
 import org.apache.commons.lang.StringUtils;
 
 /**
- * Converts a {@link Date} property.
+ * Converts a {@link Date} property, using the <code>SimpleDateFormat</code>
+ * of the property's {@link ConfigurableDateFormat}, cached per thread.
  * 
  * @author zcarioca
  */
@@ -52,63 +51,23 @@ class DatePropertyConverter implements BeanPropertyConverter<Date>
    @Override
    public Date convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
    {
-      SimpleDateFormat simpleDateFormat = getSimpleDateFormat(beanPropertyInfo);
-      if (simpleDateFormat == null)
+      String pattern = DateFormatterCache.getPattern(beanPropertyInfo);
+      if (pattern == null)
       {
          throw new ConfigurationException(String.format("To convert a value to a date the field '%s' or class '%s' must be annotated with an @ConfigurableDateFormat",
                beanPropertyInfo.getPropertyName(), beanPropertyInfo.getBeanType().getSimpleName()));
       }
+      SimpleDateFormat dateFormat = DateFormatterCache.getDateFormat(pattern, beanPropertyInfo);
 
       try
       {
-         return StringUtils.isBlank(value) ? null : simpleDateFormat.parse(value);
+         return StringUtils.isBlank(value) ? null : dateFormat.parse(value);
       }
       catch (ParseException exc)
       {
          throw new ConfigurationException(String.format("Could not format property %s of %s, value %s did not fit provided format %s",
-               beanPropertyInfo.getPropertyName(), beanPropertyInfo.getBeanType().getSimpleName(), value, simpleDateFormat.toPattern()));
+               beanPropertyInfo.getPropertyName(), beanPropertyInfo.getBeanType().getSimpleName(), value, pattern));
       }
    }
 
-   SimpleDateFormat getSimpleDateFormat(BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
-   {
-      ConfigurableDateFormat format = null;
-      try
-      {
-         format = getConfigurableDateFormat(beanPropertyInfo.getPropertyAnnotations());
-         if (format == null)
-         {
-            format = getConfigurableDateFormat(beanPropertyInfo.getBeanAnnotations());
-         }
-
-         if (format != null)
-         {
-            return new SimpleDateFormat(format.value());
-         }
-      }
-      catch (NullPointerException exc)
-      {
-         throw new ConfigurationException(String.format("@ConfigurableDateFormat requires a format to be specified for property %s.%s", 
-               beanPropertyInfo.getBeanType().getSimpleName(), beanPropertyInfo.getPropertyName()));
-      }
-      catch (IllegalArgumentException exc)
-      {
-         throw new ConfigurationException(String.format("%s is not a valid format for the @ConfigurableDateFormat for property %s.%s", format == null ? null
-               : format.value(), beanPropertyInfo.getBeanType().getSimpleName(), beanPropertyInfo.getPropertyName()));
-      }
-      return null;
-   }
-
-   ConfigurableDateFormat getConfigurableDateFormat(Collection<Annotation> annotations)
-   {
-      for (Annotation annotation : annotations)
-      {
-         if (annotation instanceof ConfigurableDateFormat)
-         {
-            return (ConfigurableDateFormat) annotation;
-         }
-      }
-      return null;
-   }
-
 }
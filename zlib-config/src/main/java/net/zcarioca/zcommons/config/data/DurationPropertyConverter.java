@@ -0,0 +1,91 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Converts a {@link Duration} property from its ISO-8601 form, such as
+ * <code>PT15M</code>, or from a plain number of milliseconds.
+ * 
+ * @author zcarioca
+ */
+class DurationPropertyConverter implements BeanPropertyConverter<Duration>
+{
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Class<Duration> getSupportedClass()
+   {
+      return Duration.class;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Duration convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      if (StringUtils.isBlank(value))
+      {
+         return null;
+      }
+
+      String trimmed = value.trim();
+      try
+      {
+         if (isMillis(trimmed))
+         {
+            return Duration.ofMillis(Long.parseLong(trimmed));
+         }
+         return Duration.parse(trimmed);
+      }
+      catch (NumberFormatException exc)
+      {
+         throw new ConfigurationException(String.format("Could not parse %s as a %s", value, Duration.class), exc);
+      }
+      catch (DateTimeParseException exc)
+      {
+         throw new ConfigurationException(String.format("Could not parse %s as a %s", value, Duration.class), exc);
+      }
+   }
+
+   private boolean isMillis(String value)
+   {
+      int start = value.charAt(0) == '-' ? 1 : 0;
+      if (start == value.length())
+      {
+         return false;
+      }
+      for (int i = start; i < value.length(); i++)
+      {
+         if (!Character.isDigit(value.charAt(i)))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+}
@@ -0,0 +1,392 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
+
+/**
+ * The base class of the binders generated at compile time by the
+ * <code>zlib-config-processor</code> annotation processor. A generated binder
+ * declares each configurable property of its bean type once, in its
+ * constructor, and then writes the converted values in a single straight-line
+ * method. Fields and write methods that are accessible from the bean's package
+ * are written directly, anything else goes through a property writer that is
+ * resolved once per property.
+ * <p/>
+ * The properties are still looked up reflectively, by name, when the binder
+ * is created: {@link #property} resolves the field and accessor methods of
+ * each property and reads their annotations. The bean class is never
+ * scanned for its configurable properties.
+ * <p/>
+ * This class is not intended to be extended by hand.
+ * 
+ * @author zcarioca
+ */
+public abstract class GeneratedBeanBinder implements BeanBinder
+{
+   /**
+    * The class path resource listing the generated binders. Each line has the
+    * form <code>beanClassName=binderClassName</code>.
+    */
+   public static final String INDEX_RESOURCE = "META-INF/zlib-config/binders.index";
+
+   private final Class<?> beanType;
+   private final List<Property> properties;
+   private volatile Set<String> propertyKeys;
+
+   /**
+    * Constructor for the generated binder.
+    * 
+    * @param beanType The type of bean this binder configures.
+    */
+   protected GeneratedBeanBinder(Class<?> beanType)
+   {
+      this.beanType = beanType;
+      this.properties = new ArrayList<Property>();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public final Class<?> getBeanType()
+   {
+      return this.beanType;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public final void bind(Object bean, Properties properties) throws ConfigurationException
+   {
+      bind(bean, ConfigSnapshot.of(properties));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public final void bind(Object bean, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      try
+      {
+         bindProperties(bean, snapshot);
+      }
+      catch (Exception exc)
+      {
+         throw new ConfigurationException("Could not write property to bean", exc);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * The properties are written one at a time through their property writers,
+    * since the generated code only writes the bean as a whole.
+    */
+   @Override
+   public final void bind(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys) throws ConfigurationException
+   {
+      try
+      {
+         for (Property property : properties)
+         {
+            if (changedKeys.contains(property.metadata.getPropertyKey()))
+            {
+               bindProperty(property, bean, snapshot);
+            }
+         }
+      }
+      catch (Exception exc)
+      {
+         throw new ConfigurationException("Could not write property to bean", exc);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public final PreparedBinding prepare(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys) throws ConfigurationException
+   {
+      List<BeanPropertyMetadata> metadata = new ArrayList<BeanPropertyMetadata>(properties.size());
+      for (Property property : properties)
+      {
+         metadata.add(property.metadata);
+      }
+      return ConvertedBinding.convert(bean, snapshot, changedKeys, metadata);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public final Set<String> getPropertyKeys()
+   {
+      Set<String> keys = this.propertyKeys;
+      if (keys == null)
+      {
+         // the properties are all declared by the generated constructor
+         keys = new LinkedHashSet<String>();
+         for (Property property : properties)
+         {
+            keys.add(property.metadata.getPropertyKey());
+         }
+         keys = Collections.unmodifiableSet(keys);
+         this.propertyKeys = keys;
+      }
+      return keys;
+   }
+
+   /**
+    * Writes every configurable property of the bean.
+    * 
+    * @param bean The bean to configure.
+    * @param snapshot The configuration snapshot.
+    * @throws Exception if any property could not be converted or written.
+    */
+   protected abstract void bindProperties(Object bean, ConfigSnapshot snapshot) throws Exception;
+
+   /**
+    * Declares a configurable property of the bean type.
+    * 
+    * @param propertyName The name of the property.
+    * @param propertyType The type of the bean property, used to find the
+    *        write method.
+    * @param fieldName The name of the backing field, or null.
+    * @param readMethodName The name of the public read method, or null.
+    * @param writeMethodName The name of the public write method, or null.
+    * @param useWriteMethod Whether the value is written through the write
+    *        method rather than the field.
+    * @param propertyKey The key of the property, may be blank.
+    * @param defaultValue The default value of the property.
+    * @return Returns the declared property.
+    * @throws Exception if the members of the property cannot be found.
+    */
+   protected final Property property(String propertyName, Class<?> propertyType, String fieldName, String readMethodName, String writeMethodName,
+         boolean useWriteMethod, String propertyKey, String defaultValue) throws Exception
+   {
+      Field field = fieldName != null ? findField(fieldName) : null;
+      Method readMethod = readMethodName != null ? beanType.getMethod(readMethodName) : null;
+      Method writeMethod = writeMethodName != null ? beanType.getMethod(writeMethodName, propertyType) : null;
+
+      PropertyDescriptor descriptor = null;
+      if (readMethod != null || writeMethod != null)
+      {
+         descriptor = new PropertyDescriptor(propertyName, readMethod, writeMethod);
+      }
+      Property property = new Property(new BeanPropertyMetadata(beanType, descriptor, field, propertyKey, defaultValue, useWriteMethod));
+      properties.add(property);
+      return property;
+   }
+
+   /**
+    * Converts the value of the property found in the snapshot.
+    * 
+    * @param property The property.
+    * @param snapshot The configuration snapshot.
+    * @return Returns the converted value, or the default value of the
+    *         primitive type if the property is a primitive without a value.
+    * @throws ConfigurationException if the value cannot be converted.
+    */
+   @SuppressWarnings("rawtypes")
+   protected final Object convert(Property property, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      BeanPropertyMetadata metadata = property.metadata;
+      BeanPropertyConverter converter = metadata.getConverter();
+      Object value = converter.convertPropertyValue(snapshot.get(metadata.getPropertyKey(), metadata.getDefaultValue()), metadata.getBeanPropertyInfo());
+
+      return value != null ? value : property.primitiveDefault;
+   }
+
+   /**
+    * Converts the value of an <code>int</code> property without boxing it,
+    * unless a custom converter is registered for the type.
+    * 
+    * @param property The property.
+    * @param snapshot The configuration snapshot.
+    * @return Returns the converted value.
+    * @throws ConfigurationException if the value cannot be converted.
+    */
+   protected final int convertInt(Property property, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      BeanPropertyMetadata metadata = property.metadata;
+      BeanPropertyConverter<?> converter = metadata.getConverter();
+      String value = snapshot.get(metadata.getPropertyKey(), metadata.getDefaultValue());
+      if (converter instanceof IntValueConverter)
+      {
+         return ((IntValueConverter) converter).convertToInt(value, metadata.getBeanPropertyInfo());
+      }
+      Object converted = converter.convertPropertyValue(value, metadata.getBeanPropertyInfo());
+      return converted != null ? ((Integer) converted).intValue() : 0;
+   }
+
+   /**
+    * Converts the value of a <code>long</code> property without boxing it,
+    * unless a custom converter is registered for the type.
+    * 
+    * @param property The property.
+    * @param snapshot The configuration snapshot.
+    * @return Returns the converted value.
+    * @throws ConfigurationException if the value cannot be converted.
+    */
+   protected final long convertLong(Property property, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      BeanPropertyMetadata metadata = property.metadata;
+      BeanPropertyConverter<?> converter = metadata.getConverter();
+      String value = snapshot.get(metadata.getPropertyKey(), metadata.getDefaultValue());
+      if (converter instanceof LongValueConverter)
+      {
+         return ((LongValueConverter) converter).convertToLong(value, metadata.getBeanPropertyInfo());
+      }
+      Object converted = converter.convertPropertyValue(value, metadata.getBeanPropertyInfo());
+      return converted != null ? ((Long) converted).longValue() : 0l;
+   }
+
+   /**
+    * Converts the value of a <code>double</code> property without boxing it,
+    * unless a custom converter is registered for the type.
+    * 
+    * @param property The property.
+    * @param snapshot The configuration snapshot.
+    * @return Returns the converted value.
+    * @throws ConfigurationException if the value cannot be converted.
+    */
+   protected final double convertDouble(Property property, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      BeanPropertyMetadata metadata = property.metadata;
+      BeanPropertyConverter<?> converter = metadata.getConverter();
+      String value = snapshot.get(metadata.getPropertyKey(), metadata.getDefaultValue());
+      if (converter instanceof DoubleValueConverter)
+      {
+         return ((DoubleValueConverter) converter).convertToDouble(value, metadata.getBeanPropertyInfo());
+      }
+      Object converted = converter.convertPropertyValue(value, metadata.getBeanPropertyInfo());
+      return converted != null ? ((Double) converted).doubleValue() : 0d;
+   }
+
+   /**
+    * Converts the value of a <code>boolean</code> property without boxing
+    * it, unless a custom converter is registered for the type.
+    * 
+    * @param property The property.
+    * @param snapshot The configuration snapshot.
+    * @return Returns the converted value.
+    * @throws ConfigurationException if the value cannot be converted.
+    */
+   protected final boolean convertBoolean(Property property, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      BeanPropertyMetadata metadata = property.metadata;
+      BeanPropertyConverter<?> converter = metadata.getConverter();
+      String value = snapshot.get(metadata.getPropertyKey(), metadata.getDefaultValue());
+      if (converter instanceof BooleanValueConverter)
+      {
+         return ((BooleanValueConverter) converter).convertToBoolean(value, metadata.getBeanPropertyInfo());
+      }
+      Object converted = converter.convertPropertyValue(value, metadata.getBeanPropertyInfo());
+      return converted != null ? ((Boolean) converted).booleanValue() : false;
+   }
+
+   /**
+    * Converts and writes a property that is not accessible to the generated
+    * binder, without boxing primitive values where possible.
+    * 
+    * @param property The property.
+    * @param bean The bean.
+    * @param snapshot The configuration snapshot.
+    * @throws Exception if the value cannot be converted or written.
+    */
+   protected final void bindProperty(Property property, Object bean, ConfigSnapshot snapshot) throws Exception
+   {
+      BeanPropertyMetadata metadata = property.metadata;
+      PrimitivePropertyWriter primitiveWriter = metadata.getPrimitiveWriter();
+      if (primitiveWriter != null)
+      {
+         BeanPropertyConverter<?> converter = metadata.getConverter();
+         if (primitiveWriter.supports(converter))
+         {
+            primitiveWriter.write(bean, converter, snapshot.get(metadata.getPropertyKey(), metadata.getDefaultValue()), metadata.getBeanPropertyInfo());
+            return;
+         }
+      }
+      write(property, bean, convert(property, snapshot));
+   }
+
+   /**
+    * Writes a value to a property that is not accessible to the generated
+    * binder.
+    * 
+    * @param property The property.
+    * @param bean The bean.
+    * @param value The converted value.
+    * @throws Exception if the value cannot be written.
+    */
+   protected final void write(Property property, Object bean, Object value) throws Exception
+   {
+      property.metadata.getWriter().write(bean, value);
+   }
+
+   private Field findField(String fieldName) throws NoSuchFieldException
+   {
+      Class<?> type = beanType;
+      do
+      {
+         try
+         {
+            return type.getDeclaredField(fieldName);
+         }
+         catch (NoSuchFieldException exc)
+         {
+            // ignore, move on
+         }
+      }
+      while ((type = type.getSuperclass()) != null);
+
+      throw new NoSuchFieldException(fieldName);
+   }
+
+   /**
+    * A property declared by a generated binder.
+    */
+   protected static final class Property
+   {
+      private final BeanPropertyMetadata metadata;
+      private final Object primitiveDefault;
+
+      Property(BeanPropertyMetadata metadata)
+      {
+         this.metadata = metadata;
+
+         BeanPropertyInfo info = metadata.getBeanPropertyInfo();
+         this.primitiveDefault = !info.isArray() && info.isPrimitive() ? BeanPropertySetterFactory.getDefaultValue(info.getPropertyType()) : null;
+      }
+   }
+}
@@ -0,0 +1,217 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BindingEngine} that uses the binders generated at compile time by
+ * the <code>zlib-config-processor</code> annotation processor. Bean classes
+ * without a generated binder are handed to a fallback engine, the
+ * {@link SetterBindingEngine} unless otherwise specified.
+ * <p/>
+ * Generated binders are found through the {@link GeneratedBeanBinder#INDEX_RESOURCE}
+ * files on the class path of the bean's class loader.
+ * 
+ * @author zcarioca
+ */
+public class GeneratedBindingEngine implements BindingEngine
+{
+   private static final Logger logger = LoggerFactory.getLogger(GeneratedBindingEngine.class);
+
+   private static final Map<ClassLoader, Map<String, String>> indexes = new WeakHashMap<ClassLoader, Map<String, String>>();
+
+   // holds an empty value for the bean classes without a generated binder
+   private static final ClassValue<Optional<BeanBinder>> generatedBinders = new ClassValue<Optional<BeanBinder>>()
+   {
+      @Override
+      protected Optional<BeanBinder> computeValue(Class<?> beanClass)
+      {
+         return Optional.ofNullable(loadGeneratedBinder(beanClass));
+      }
+   };
+
+   private final BindingEngine fallbackEngine;
+
+   /**
+    * Creates a new {@link GeneratedBindingEngine} which falls back to the
+    * {@link SetterBindingEngine}.
+    */
+   public GeneratedBindingEngine()
+   {
+      this(new SetterBindingEngine());
+   }
+
+   /**
+    * Creates a new {@link GeneratedBindingEngine}.
+    * 
+    * @param fallbackEngine The engine used for classes without a generated
+    *        binder.
+    * @throws IllegalArgumentException if the fallback engine is null.
+    */
+   public GeneratedBindingEngine(BindingEngine fallbackEngine)
+   {
+      if (fallbackEngine == null)
+      {
+         throw new IllegalArgumentException("The fallback binding engine cannot be null");
+      }
+      this.fallbackEngine = fallbackEngine;
+   }
+
+   /**
+    * Gets the engine used for classes without a generated binder.
+    * 
+    * @return Returns the fallback engine.
+    */
+   public BindingEngine getFallbackEngine()
+   {
+      return this.fallbackEngine;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public BeanBinder getBinder(Class<?> beanClass) throws ConfigurationException
+   {
+      Optional<BeanBinder> binder = generatedBinders.get(beanClass);
+      return binder.isPresent() ? binder.get() : fallbackEngine.getBinder(beanClass);
+   }
+
+   /**
+    * Returns true if a generated binder exists for the bean class.
+    * 
+    * @param beanClass The bean class.
+    * @return Returns true if there is a generated binder.
+    */
+   public static boolean hasGeneratedBinder(Class<?> beanClass)
+   {
+      return generatedBinders.get(beanClass).isPresent();
+   }
+
+   private static BeanBinder loadGeneratedBinder(Class<?> beanClass)
+   {
+      ClassLoader classLoader = beanClass.getClassLoader();
+      if (classLoader == null)
+      {
+         return null;
+      }
+
+      String binderClassName = getIndex(classLoader).get(beanClass.getName());
+      if (binderClassName == null)
+      {
+         return null;
+      }
+
+      try
+      {
+         Class<?> binderClass = Class.forName(binderClassName, true, classLoader);
+         BeanBinder binder = (BeanBinder) binderClass.getDeclaredConstructor().newInstance();
+         if (binder.getBeanType() != beanClass)
+         {
+            logger.warn(String.format("The generated binder %s does not bind %s", binderClassName, beanClass));
+            return null;
+         }
+         return binder;
+      }
+      catch (Exception exc)
+      {
+         logger.warn(String.format("Could not load the generated binder %s for %s: %s", binderClassName, beanClass, exc));
+         return null;
+      }
+      catch (LinkageError err)
+      {
+         logger.warn(String.format("Could not load the generated binder %s for %s: %s", binderClassName, beanClass, err));
+         return null;
+      }
+   }
+
+   private static Map<String, String> getIndex(ClassLoader classLoader)
+   {
+      synchronized (indexes)
+      {
+         Map<String, String> index = indexes.get(classLoader);
+         if (index == null)
+         {
+            index = readIndex(classLoader);
+            indexes.put(classLoader, index);
+         }
+         return index;
+      }
+   }
+
+   private static Map<String, String> readIndex(ClassLoader classLoader)
+   {
+      Map<String, String> index = new HashMap<String, String>();
+      try
+      {
+         Enumeration<URL> resources = classLoader.getResources(GeneratedBeanBinder.INDEX_RESOURCE);
+         while (resources.hasMoreElements())
+         {
+            readIndex(resources.nextElement(), index);
+         }
+      }
+      catch (IOException exc)
+      {
+         logger.warn("Could not read the generated binder index: " + exc.getMessage());
+      }
+
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Found %d generated binders for class loader %s", index.size(), classLoader));
+
+      return index.isEmpty() ? Collections.<String, String> emptyMap() : index;
+   }
+
+   private static void readIndex(URL resource, Map<String, String> index) throws IOException
+   {
+      BufferedReader reader = null;
+      try
+      {
+         reader = new BufferedReader(new InputStreamReader(resource.openStream(), "UTF-8"));
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            int split = line.indexOf('=');
+            if (split > 0 && !line.startsWith("#"))
+            {
+               index.put(line.substring(0, split).trim(), line.substring(split + 1).trim());
+            }
+         }
+      }
+      finally
+      {
+         IOUtils.closeQuietly(reader);
+      }
+   }
+}
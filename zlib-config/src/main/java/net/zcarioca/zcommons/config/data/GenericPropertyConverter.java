@@ -0,0 +1,137 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2013 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * A generic property converter, which creates the value with the type's
+ * <code>String</code> constructor or, if it has none, with a static
+ * <code>valueOf(String)</code> method such as the one of an enum.
+ * <p/>
+ * The constructor or method is looked up once per type and kept as a method
+ * handle in a {@link ClassValue}.
+ * 
+ * @author zcarioca
+ */
+class GenericPropertyConverter implements BeanPropertyConverter<Object>
+{
+   private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class, String.class);
+
+   private static final ClassValue<ValueFactory> factories = new ClassValue<ValueFactory>()
+   {
+      @Override
+      protected ValueFactory computeValue(Class<?> type)
+      {
+         return createValueFactory(type);
+      }
+   };
+
+   /**
+    * Returns true if the type has a <code>String</code> constructor or a
+    * static <code>valueOf(String)</code> method.
+    * 
+    * @param type The type to create.
+    * @return Returns true if this converter can create the type.
+    */
+   static boolean canConvert(Class<?> type)
+   {
+      return factories.get(type).handle != null;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Class<?> getSupportedClass()
+   {
+      return Object.class;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Object convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      Class<?> propertyType = beanPropertyInfo.getPropertyType();
+      ValueFactory factory = factories.get(propertyType);
+      if (factory.handle == null)
+      {
+         throw new ConfigurationException(String.format("Could instantiate instance of class %s: %s", propertyType, factory.error));
+      }
+
+      try
+      {
+         return factory.handle.invokeExact(value);
+      }
+      catch (Throwable t)
+      {
+         throw new ConfigurationException(String.format("Could instantiate instance of class %s: %s", propertyType, t.getMessage()), t);
+      }
+   }
+
+   private static ValueFactory createValueFactory(Class<?> type)
+   {
+      try
+      {
+         Constructor<?> constructor = type.getConstructor(String.class);
+         constructor.setAccessible(true);
+         return new ValueFactory(MethodHandles.lookup().unreflectConstructor(constructor).asType(FACTORY_TYPE), null);
+      }
+      catch (Exception exc)
+      {
+         // fall through to the valueOf method
+      }
+
+      try
+      {
+         Method valueOf = type.getMethod("valueOf", String.class);
+         if (Modifier.isStatic(valueOf.getModifiers()) && type.isAssignableFrom(valueOf.getReturnType()))
+         {
+            valueOf.setAccessible(true);
+            return new ValueFactory(MethodHandles.lookup().unreflect(valueOf).asType(FACTORY_TYPE), null);
+         }
+      }
+      catch (Exception exc)
+      {
+         // no factory method either
+      }
+      return new ValueFactory(null, "no String constructor or static valueOf(String) method");
+   }
+
+   private static final class ValueFactory
+   {
+      private final MethodHandle handle;
+      private final String error;
+
+      ValueFactory(MethodHandle handle, String error)
+      {
+         this.handle = handle;
+         this.error = error;
+      }
+   }
+}
@@ -1,43 +1,53 @@
 /*
  * Project: zlib-config
- * 
- * Copyright (C) 2010 zcarioca.net
- * 
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
  * the Free Software Foundation, either version 3 of the License, or
  * (at your option) any later version.
- * 
+ *
  * This program is distributed in the hope that it will be useful,
  * but WITHOUT ANY WARRANTY; without even the implied warranty of
  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
  * GNU General Public License for more details.
- * 
+ *
  * You should have received a copy of the GNU General Public License
  * along with this program. If not, see <http://www.gnu.org/licenses/>.
  */
-package net.zcarioca.zcommons.config.source;
-
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertSame;
-import net.zcarioca.zcommons.config.BaseTestCase;
+package net.zcarioca.zcommons.config.data;
 
-import org.junit.Test;
+import java.time.Instant;
+import java.time.ZonedDateTime;
 
 /**
- * Tests the {@link ConfigurationSourceProviderFactory}.
- * 
+ * Converts an {@link Instant} property.
  * 
  * @author zcarioca
  */
-public class ConfigurationSourceProviderFactoryTest extends BaseTestCase
+class InstantPropertyConverter extends AbstractTemporalPropertyConverter<Instant>
 {
+   InstantPropertyConverter()
+   {
+      super(Instant.class);
+   }
 
-   @Test
-   public void testGetInstance()
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   Instant convert(ZonedDateTime dateTime)
    {
-      assertNotNull(ConfigurationSourceProviderFactory.getInstance());
-      assertSame(ConfigurationSourceProviderFactory.getInstance(), ConfigurationSourceProviderFactory.getInstance());
+      return dateTime.toInstant();
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   Instant parseIso(String value)
+   {
+      return Instant.parse(value);
+   }
 }
@@ -0,0 +1,42 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * Implemented by the built-in {@link BeanPropertyConverter} of the
+ * {@link Long} type to convert values straight into a long primitive,
+ * without creating a wrapper object.
+ * 
+ * @author zcarioca
+ */
+interface LongValueConverter
+{
+   /**
+    * Converts the value to a long.
+    * 
+    * @param value The value to convert.
+    * @param beanPropertyInfo The information about the property.
+    * @return Returns the value, or the primitive's default value if the value
+    *         is blank.
+    * @throws ConfigurationException if the value cannot be converted.
+    */
+   public long convertToLong(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException;
+}
@@ -0,0 +1,215 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+/**
+ * Parses a number of a single type and radix straight from a
+ * {@link CharSequence}. Leading and trailing whitespace is skipped in place,
+ * the value is never copied, and the integral parsers accumulate the digits
+ * without calling any reflective or boxing parse method. The parsers follow
+ * the rules of the <code>parseXxx(String, int)</code> methods of the wrapper
+ * types, including their range checks.
+ * 
+ * @author zcarioca
+ */
+abstract class NumberParser
+{
+   /**
+    * Creates the parser for a type and radix.
+    * 
+    * @param type The wrapper type to parse.
+    * @param radix The radix, ignored for floating point types.
+    * @return Returns the parser.
+    * @throws IllegalArgumentException if the type is not a supported number
+    *         type.
+    */
+   static NumberParser create(Class<?> type, int radix)
+   {
+      if (type == Integer.class)
+         return new IntegralParser(radix, Integer.MIN_VALUE, Integer.MAX_VALUE)
+         {
+            @Override
+            Number parse(CharSequence value)
+            {
+               return Integer.valueOf(parseInt(value));
+            }
+         };
+      if (type == Long.class)
+         return new IntegralParser(radix, Long.MIN_VALUE, Long.MAX_VALUE)
+         {
+            @Override
+            Number parse(CharSequence value)
+            {
+               return Long.valueOf(parseLong(value));
+            }
+         };
+      if (type == Short.class)
+         return new IntegralParser(radix, Short.MIN_VALUE, Short.MAX_VALUE)
+         {
+            @Override
+            Number parse(CharSequence value)
+            {
+               return Short.valueOf((short) parseLong(value));
+            }
+         };
+      if (type == Byte.class)
+         return new IntegralParser(radix, Byte.MIN_VALUE, Byte.MAX_VALUE)
+         {
+            @Override
+            Number parse(CharSequence value)
+            {
+               return Byte.valueOf((byte) parseLong(value));
+            }
+         };
+      if (type == Float.class)
+         return new NumberParser()
+         {
+            @Override
+            Number parse(CharSequence value)
+            {
+               return Float.valueOf(value.toString());
+            }
+         };
+      if (type == Double.class)
+         return new NumberParser()
+         {
+            @Override
+            Number parse(CharSequence value)
+            {
+               return Double.valueOf(parseDouble(value));
+            }
+
+            @Override
+            double parseDouble(CharSequence value)
+            {
+               // the floating point parser already skips the surrounding whitespace
+               return Double.parseDouble(value.toString());
+            }
+         };
+
+      throw new IllegalArgumentException("Unsupported number type: " + type);
+   }
+
+   /**
+    * Parses the value into the parser's wrapper type.
+    * 
+    * @param value The value, which must not be blank.
+    * @return Returns the number.
+    * @throws NumberFormatException if the value is not a valid number.
+    */
+   abstract Number parse(CharSequence value);
+
+   int parseInt(CharSequence value)
+   {
+      return parse(value).intValue();
+   }
+
+   long parseLong(CharSequence value)
+   {
+      return parse(value).longValue();
+   }
+
+   double parseDouble(CharSequence value)
+   {
+      return parse(value).doubleValue();
+   }
+
+   private static class IntegralParser extends NumberParser
+   {
+      private final int radix;
+      private final long min;
+      private final long max;
+
+      IntegralParser(int radix, long min, long max)
+      {
+         if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
+         {
+            throw new IllegalArgumentException("Unsupported radix: " + radix);
+         }
+         this.radix = radix;
+         this.min = min;
+         this.max = max;
+      }
+
+      @Override
+      Number parse(CharSequence value)
+      {
+         return Long.valueOf(parseLong(value));
+      }
+
+      @Override
+      int parseInt(CharSequence value)
+      {
+         return (int) parseLong(value);
+      }
+
+      @Override
+      long parseLong(CharSequence value)
+      {
+         int start = 0;
+         int end = value.length();
+         while (start < end && value.charAt(start) <= ' ')
+            start++;
+         while (end > start && value.charAt(end - 1) <= ' ')
+            end--;
+
+         if (start == end)
+         {
+            throw invalid(value);
+         }
+
+         // accumulates negatively, the negative range is the larger one
+         boolean negative = false;
+         long limit = -max;
+         char first = value.charAt(start);
+         if (first == '-' || first == '+')
+         {
+            negative = first == '-';
+            limit = negative ? min : limit;
+            if (++start == end)
+            {
+               throw invalid(value);
+            }
+         }
+
+         long multmin = limit / radix;
+         long result = 0;
+         for (int i = start; i < end; i++)
+         {
+            int digit = Character.digit(value.charAt(i), radix);
+            if (digit < 0 || result < multmin)
+            {
+               throw invalid(value);
+            }
+            result *= radix;
+            if (result < limit + digit)
+            {
+               throw invalid(value);
+            }
+            result -= digit;
+         }
+         return negative ? result : -result;
+      }
+
+      private NumberFormatException invalid(CharSequence value)
+      {
+         return new NumberFormatException(String.format("For input string: \"%s\" under radix %d", value, radix));
+      }
+   }
+}
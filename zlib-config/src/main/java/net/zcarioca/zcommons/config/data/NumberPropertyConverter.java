@@ -0,0 +1,188 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2013 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+
+import net.zcarioca.zcommons.config.ConfigurableNumberEncoding;
+import net.zcarioca.zcommons.config.ConfigurableNumberEncoding.NumberFormat;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A numeric property converter. The {@link NumberParser} of every supported
+ * radix is created along with the converter, and the radix of a property is
+ * resolved once when its {@link BeanPropertyInfo} is created, so converting a
+ * value is a table lookup followed by the parse.
+ * 
+ * @author zcarioca
+ */
+class NumberPropertyConverter<T extends Number> implements BeanPropertyConverter<T>, IntValueConverter, LongValueConverter, DoubleValueConverter
+{
+   private static final int DEFAULT_RADIX = NumberFormat.DECIMAL.radix();
+
+   private final Class<T> supportedClass;
+   private final NumberParser[] parsers;
+
+   private NumberPropertyConverter(Class<T> type)
+   {
+      supportedClass = type;
+      parsers = new NumberParser[Character.MAX_RADIX + 1];
+      for (NumberFormat numberFormat : NumberFormat.values())
+      {
+         parsers[numberFormat.radix()] = NumberParser.create(type, numberFormat.radix());
+      }
+   }
+
+   public static <T extends Number> NumberPropertyConverter<T> createNewNumberPropertyConverter(Class<T> type)
+   {
+      return new NumberPropertyConverter<T>(type);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Class<T> getSupportedClass()
+   {
+      return supportedClass;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public T convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      if (StringUtils.isBlank(value))
+         return null;
+
+      try
+      {
+         return (T) getParser(beanPropertyInfo).parse(value);
+      }
+      catch (NumberFormatException exc)
+      {
+         throw new ConfigurationException(String.format("Could not parse %s as a %s", value, getSupportedClass()), exc);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int convertToInt(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      if (StringUtils.isBlank(value))
+         return 0;
+
+      try
+      {
+         return getParser(beanPropertyInfo).parseInt(value);
+      }
+      catch (NumberFormatException exc)
+      {
+         throw new ConfigurationException(String.format("Could not parse %s as a %s", value, int.class), exc);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public long convertToLong(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      if (StringUtils.isBlank(value))
+         return 0l;
+
+      try
+      {
+         return getParser(beanPropertyInfo).parseLong(value);
+      }
+      catch (NumberFormatException exc)
+      {
+         throw new ConfigurationException(String.format("Could not parse %s as a %s", value, long.class), exc);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double convertToDouble(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+   {
+      if (StringUtils.isBlank(value))
+         return 0d;
+
+      try
+      {
+         return getParser(beanPropertyInfo).parseDouble(value);
+      }
+      catch (NumberFormatException exc)
+      {
+         throw new ConfigurationException(String.format("Could not parse %s as a %s", value, double.class), exc);
+      }
+   }
+
+   private NumberParser getParser(BeanPropertyInfo beanPropertyInfo)
+   {
+      int radix = beanPropertyInfo instanceof BeanPropertySetterFactory.BeanPropertyInfoImpl ? ((BeanPropertySetterFactory.BeanPropertyInfoImpl) beanPropertyInfo)
+            .getRadix() : findRadix(beanPropertyInfo);
+      return parsers[radix];
+   }
+
+   /**
+    * Finds the radix of a property from its {@link ConfigurableNumberEncoding},
+    * or from the bean's if the property has none.
+    * 
+    * @param beanPropertyInfo The information about the property.
+    * @return Returns the radix, 10 if there is no encoding.
+    */
+   static int findRadix(BeanPropertyInfo beanPropertyInfo)
+   {
+      ConfigurableNumberEncoding configurableNumberEncoding = getConfigurableNumberFormat(beanPropertyInfo);
+      return configurableNumberEncoding != null ? configurableNumberEncoding.value().radix() : DEFAULT_RADIX;
+   }
+
+   private static ConfigurableNumberEncoding getConfigurableNumberFormat(BeanPropertyInfo beanPropertyInfo)
+   {
+      ConfigurableNumberEncoding configurableNumberEncoding = getConfigurableNumberFormat(beanPropertyInfo.getPropertyAnnotations());
+
+      return configurableNumberEncoding != null ? configurableNumberEncoding : getConfigurableNumberFormat(beanPropertyInfo.getBeanAnnotations());
+   }
+
+   private static ConfigurableNumberEncoding getConfigurableNumberFormat(Collection<Annotation> annotations)
+   {
+      if (annotations != null)
+      {
+         for (Annotation annotation : annotations)
+         {
+            if (annotation instanceof ConfigurableNumberEncoding)
+            {
+               return (ConfigurableNumberEncoding) annotation;
+            }
+         }
+      }
+      return null;
+   }
+
+}
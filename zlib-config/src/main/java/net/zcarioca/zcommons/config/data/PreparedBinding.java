@@ -0,0 +1,39 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * The values of a bean's properties, converted ahead of being written. A
+ * binding is prepared by {@link BeanBinder#prepare}, so that every value of
+ * a reload can be converted, and any conversion error reported, before any
+ * bean is changed.
+ * 
+ * @author zcarioca
+ */
+public interface PreparedBinding
+{
+   /**
+    * Writes the prepared values to the bean.
+    * 
+    * @throws ConfigurationException if any value could not be written.
+    */
+   public void apply() throws ConfigurationException;
+}
@@ -0,0 +1,76 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * Converts and writes the value of a primitive property in a single step, so
+ * the value is never boxed. Only used when the registered converter of the
+ * property type is one of the built-in primitive value converters, custom
+ * converters always go through the {@link BeanPropertyWriter}.
+ * 
+ * @author zcarioca
+ */
+interface PrimitivePropertyWriter
+{
+   /**
+    * Returns true if the converter can convert straight into the primitive
+    * type written by this writer.
+    * 
+    * @param converter The converter registered for the property type.
+    * @return Returns true if the converter is supported.
+    */
+   public boolean supports(BeanPropertyConverter<?> converter);
+
+   /**
+    * Converts the value and writes it to the bean.
+    * 
+    * @param bean The bean to write to.
+    * @param converter The supported converter.
+    * @param value The value to convert.
+    * @param beanPropertyInfo The information about the property.
+    * @throws Exception if the value could not be converted or written.
+    */
+   public void write(Object bean, BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws Exception;
+
+   /**
+    * Converts the value into a primitive slot, without writing it, so that it
+    * can be written later by {@link #write(Object, long)}. Every supported
+    * primitive fits the bits of a <code>long</code>.
+    * 
+    * @param converter The supported converter.
+    * @param value The value to convert.
+    * @param beanPropertyInfo The information about the property.
+    * @return Returns the slot holding the converted value.
+    * @throws ConfigurationException if the value could not be converted.
+    */
+   public long convert(BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException;
+
+   /**
+    * Writes a value converted by
+    * {@link #convert(BeanPropertyConverter, String, BeanPropertyInfo)} to the
+    * bean.
+    * 
+    * @param bean The bean to write to.
+    * @param slot The slot holding the converted value.
+    * @throws Exception if the value could not be written.
+    */
+   public void write(Object bean, long slot) throws Exception;
+}
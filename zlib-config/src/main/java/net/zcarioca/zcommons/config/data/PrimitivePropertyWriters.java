@@ -0,0 +1,380 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the {@link PrimitivePropertyWriter} for <code>int</code>,
+ * <code>long</code>, <code>double</code> and <code>boolean</code> properties.
+ * The writers invoke a method handle typed with the primitive parameter, so
+ * neither the converted value nor the write creates a wrapper object.
+ * 
+ * @author zcarioca
+ */
+final class PrimitivePropertyWriters
+{
+   private static final Logger logger = LoggerFactory.getLogger(PrimitivePropertyWriters.class);
+
+   /**
+    * Creates the primitive writer for a field.
+    * 
+    * @param field The field to write.
+    * @return Returns the writer, or null if the field type is not supported
+    *         or the field cannot be resolved to a method handle.
+    */
+   static PrimitivePropertyWriter forField(Field field)
+   {
+      if (!isSupported(field.getType()))
+      {
+         return null;
+      }
+      try
+      {
+         field.setAccessible(true);
+         return create(field.getType(), MethodHandles.lookup().unreflectSetter(field));
+      }
+      catch (Exception exc)
+      {
+         if (logger.isDebugEnabled())
+            logger.debug(String.format("No primitive writer for field %s: %s", field, exc.getMessage()));
+         return null;
+      }
+   }
+
+   /**
+    * Creates the primitive writer for a property's write method.
+    * 
+    * @param method The write method.
+    * @return Returns the writer, or null if the property type is not
+    *         supported or the method cannot be resolved to a method handle.
+    */
+   static PrimitivePropertyWriter forWriteMethod(Method method)
+   {
+      Class<?> type = method.getParameterTypes()[0];
+      if (!isSupported(type))
+      {
+         return null;
+      }
+      try
+      {
+         method.setAccessible(true);
+         return create(type, MethodHandles.lookup().unreflect(method));
+      }
+      catch (Exception exc)
+      {
+         if (logger.isDebugEnabled())
+            logger.debug(String.format("No primitive writer for method %s: %s", method, exc.getMessage()));
+         return null;
+      }
+   }
+
+   static boolean isSupported(Class<?> type)
+   {
+      return type == int.class || type == long.class || type == double.class || type == boolean.class;
+   }
+
+   private static PrimitivePropertyWriter create(Class<?> type, MethodHandle handle)
+   {
+      MethodHandle typed = handle.asType(MethodType.methodType(void.class, Object.class, type));
+      if (type == int.class)
+         return new IntWriter(typed);
+      if (type == long.class)
+         return new LongWriter(typed);
+      if (type == double.class)
+         return new DoubleWriter(typed);
+      return new BooleanWriter(typed);
+   }
+
+   private static Exception rethrow(Throwable t)
+   {
+      if (t instanceof Error)
+      {
+         throw (Error) t;
+      }
+      return t instanceof Exception ? (Exception) t : new InvocationTargetException(t);
+   }
+
+   private PrimitivePropertyWriters()
+   {
+      // static factory
+   }
+
+   private static final class IntWriter implements PrimitivePropertyWriter
+   {
+      private final MethodHandle handle;
+
+      IntWriter(MethodHandle handle)
+      {
+         this.handle = handle;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public boolean supports(BeanPropertyConverter<?> converter)
+      {
+         return converter instanceof IntValueConverter;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws Exception
+      {
+         int primitive = ((IntValueConverter) converter).convertToInt(value, beanPropertyInfo);
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public long convert(BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+      {
+         int primitive = ((IntValueConverter) converter).convertToInt(value, beanPropertyInfo);
+         return primitive;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, long slot) throws Exception
+      {
+         int primitive = (int) slot;
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+   }
+
+   private static final class LongWriter implements PrimitivePropertyWriter
+   {
+      private final MethodHandle handle;
+
+      LongWriter(MethodHandle handle)
+      {
+         this.handle = handle;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public boolean supports(BeanPropertyConverter<?> converter)
+      {
+         return converter instanceof LongValueConverter;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws Exception
+      {
+         long primitive = ((LongValueConverter) converter).convertToLong(value, beanPropertyInfo);
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public long convert(BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+      {
+         long primitive = ((LongValueConverter) converter).convertToLong(value, beanPropertyInfo);
+         return primitive;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, long slot) throws Exception
+      {
+         long primitive = slot;
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+   }
+
+   private static final class DoubleWriter implements PrimitivePropertyWriter
+   {
+      private final MethodHandle handle;
+
+      DoubleWriter(MethodHandle handle)
+      {
+         this.handle = handle;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public boolean supports(BeanPropertyConverter<?> converter)
+      {
+         return converter instanceof DoubleValueConverter;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws Exception
+      {
+         double primitive = ((DoubleValueConverter) converter).convertToDouble(value, beanPropertyInfo);
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public long convert(BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+      {
+         double primitive = ((DoubleValueConverter) converter).convertToDouble(value, beanPropertyInfo);
+         return Double.doubleToRawLongBits(primitive);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, long slot) throws Exception
+      {
+         double primitive = Double.longBitsToDouble(slot);
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+   }
+
+   private static final class BooleanWriter implements PrimitivePropertyWriter
+   {
+      private final MethodHandle handle;
+
+      BooleanWriter(MethodHandle handle)
+      {
+         this.handle = handle;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public boolean supports(BeanPropertyConverter<?> converter)
+      {
+         return converter instanceof BooleanValueConverter;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws Exception
+      {
+         boolean primitive = ((BooleanValueConverter) converter).convertToBoolean(value, beanPropertyInfo);
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public long convert(BeanPropertyConverter<?> converter, String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+      {
+         boolean primitive = ((BooleanValueConverter) converter).convertToBoolean(value, beanPropertyInfo);
+         return primitive ? 1l : 0l;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void write(Object bean, long slot) throws Exception
+      {
+         boolean primitive = slot != 0l;
+         try
+         {
+            this.handle.invokeExact(bean, primitive);
+         }
+         catch (Throwable t)
+         {
+            throw rethrow(t);
+         }
+      }
+   }
+}
@@ -0,0 +1,117 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.Properties;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
+
+/**
+ * The default {@link BindingEngine}. Each bind creates the
+ * {@link BeanPropertySetter} collection for the bean through the
+ * {@link BeanPropertySetterFactory} and applies every setter in turn.
+ * 
+ * @author zcarioca
+ */
+public class SetterBindingEngine implements BindingEngine
+{
+   private final BeanPropertySetterFactory beanPropertySetterFactory = new BeanPropertySetterFactory();
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public BeanBinder getBinder(final Class<?> beanClass) throws ConfigurationException
+   {
+      return new BeanBinder()
+      {
+         /**
+          * {@inheritDoc}
+          */
+         @Override
+         public Class<?> getBeanType()
+         {
+            return beanClass;
+         }
+
+         /**
+          * {@inheritDoc}
+          */
+         @Override
+         public void bind(Object bean, Properties properties) throws ConfigurationException
+         {
+            bind(bean, ConfigSnapshot.of(properties));
+         }
+
+         /**
+          * {@inheritDoc}
+          */
+         @Override
+         public void bind(Object bean, ConfigSnapshot snapshot) throws ConfigurationException
+         {
+            for (BeanPropertySetter setter : beanPropertySetterFactory.getPropertySettersForBean(bean))
+            {
+               setter.setProperty(snapshot);
+            }
+         }
+
+         /**
+          * {@inheritDoc}
+          */
+         @Override
+         public void bind(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys) throws ConfigurationException
+         {
+            for (BeanPropertySetter setter : beanPropertySetterFactory.getPropertySettersForBean(bean))
+            {
+               if (changedKeys.contains(setter.getPropertyKey()))
+               {
+                  setter.setProperty(snapshot);
+               }
+            }
+         }
+
+         /**
+          * {@inheritDoc}
+          */
+         @Override
+         public PreparedBinding prepare(Object bean, ConfigSnapshot snapshot, Set<String> changedKeys) throws ConfigurationException
+         {
+            return ConvertedBinding.convert(bean, snapshot, changedKeys, BeanPropertySetterFactory.getClassMetadata(beanClass).getProperties());
+         }
+
+         /**
+          * {@inheritDoc}
+          */
+         @Override
+         public Set<String> getPropertyKeys()
+         {
+            try
+            {
+               return BeanPropertySetterFactory.getClassMetadata(beanClass).getPropertyKeys();
+            }
+            catch (ConfigurationException exc)
+            {
+               return null;
+            }
+         }
+      };
+   }
+}
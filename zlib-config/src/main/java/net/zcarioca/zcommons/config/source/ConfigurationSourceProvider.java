@@ -22,6 +22,7 @@ import java.util.Properties;
 
 import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
 import net.zcarioca.zcommons.config.source.spi.DefaultConfigSourceServiceProvider;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
 import net.zcarioca.zcommons.config.util.PropertiesBuilderFactory;
 
 /**
@@ -109,6 +110,25 @@ public interface ConfigurationSourceProvider
    public Properties getProperties(ConfigurationSourceIdentifier configurationSourceIdentifier, PropertiesBuilderFactory propertiesBuilderFactory)
          throws ConfigurationException;
 
+   /**
+    * Uses the {@link ConfigurationSourceIdentifier} to locate and parse the
+    * data into an immutable {@link ConfigSnapshot}, which is what the beans
+    * are configured from. By default this is a snapshot of
+    * {@link #getProperties(ConfigurationSourceIdentifier, PropertiesBuilderFactory)}.
+    * 
+    * @param configurationSourceIdentifier The source of the configuration data.
+    * 
+    * @param propertiesBuilderFactory The properties builder factory used to
+    *        create the properties object.
+    * 
+    * @return Returns a {@link ConfigSnapshot}.
+    */
+   public default ConfigSnapshot getSnapshot(ConfigurationSourceIdentifier configurationSourceIdentifier, PropertiesBuilderFactory propertiesBuilderFactory)
+         throws ConfigurationException
+   {
+      return ConfigSnapshot.of(getProperties(configurationSourceIdentifier, propertiesBuilderFactory));
+   }
+
    /**
     * Determines whether this source provider will support the configuration
     * source identifier.
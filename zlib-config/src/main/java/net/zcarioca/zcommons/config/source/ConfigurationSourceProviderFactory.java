@@ -0,0 +1,223 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2010 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.zcarioca.zcommons.config.source.spi.DefaultConfigSourceServiceProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This is a factory class used to load the {@link ConfigurationSourceProvider}
+ * implementations available to the ClassLoader.
+ * <p/>
+ * The providers are loaded and instantiated once, and again only when
+ * {@link #refresh()} is called. The provider of each
+ * {@link ConfigurationSourceIdentifier} is chosen outside of any lock; when
+ * several threads ask for it at the same time, the first choice recorded is
+ * used by all of them, and it is initialized before it is handed out. The
+ * providers and the choices made from them are replaced together, so a
+ * lookup never mixes the choices of one load with the providers of another.
+ * 
+ * @author zcarioca
+ */
+public class ConfigurationSourceProviderFactory
+{
+   private static final Logger logger = LoggerFactory.getLogger(ConfigurationSourceProviderFactory.class);
+   private static final ConfigurationSourceProviderFactory spiFactory = new ConfigurationSourceProviderFactory();
+
+   private final ServiceLoader<ConfigurationSourceProvider> serviceLoader;
+
+   private volatile Associations associations;
+
+   /**
+    * Gets access to the singleton instance.
+    * 
+    * @return Returns a reference to the singleton.
+    */
+   public static ConfigurationSourceProviderFactory getInstance()
+   {
+      return spiFactory;
+   }
+
+   /**
+    * Gets the configuration source provider for a given source identifier.
+    * 
+    * @param configurationSourceIdentifier The configuration source identifier.
+    * @return Returns the source provider for an identifier.
+    */
+   public ConfigurationSourceProvider getConfigurationSourceProvider(ConfigurationSourceIdentifier configurationSourceIdentifier)
+   {
+      Associations current = this.associations;
+      ProviderEntry entry = current.identifierMap.get(configurationSourceIdentifier);
+      if (entry == null)
+      {
+         // the providers are asked outside of the map, a concurrent choice
+         // for the same identifier wins
+         ProviderEntry chosen = chooseProvider(current, configurationSourceIdentifier);
+         entry = current.identifierMap.putIfAbsent(configurationSourceIdentifier, chosen);
+         if (entry == null)
+         {
+            entry = chosen;
+         }
+      }
+      entry.initialize();
+      return entry.provider;
+   }
+
+   /**
+    * Forgets which provider was chosen for each identifier, and destroys the
+    * providers which were initialized. The providers themselves are kept.
+    */
+   public synchronized void clearAssociations()
+   {
+      Associations current = this.associations;
+      this.associations = new Associations(current.providers, current.defaultProvider);
+      for (ProviderEntry entry : current.providers)
+      {
+         entry.destroy();
+      }
+      current.defaultProvider.destroy();
+   }
+
+   /**
+    * Clears the associations and loads the providers again, for example
+    * after providers were added to the class path.
+    */
+   public synchronized void refresh()
+   {
+      clearAssociations();
+      loadProviders();
+   }
+
+   private static ProviderEntry chooseProvider(Associations associations, ConfigurationSourceIdentifier configurationSourceIdentifier)
+   {
+      if (logger.isTraceEnabled())
+         logger.trace(String.format("Mapping provider for %s", configurationSourceIdentifier));
+
+      ProviderEntry chosen = associations.defaultProvider;
+      for (ProviderEntry entry : associations.providers)
+      {
+         ConfigurationSourceProvider provider = entry.provider;
+         if (provider.supportsIdentifier(configurationSourceIdentifier)
+               && chosen.provider.getPriorityLevel().ordinal() < provider.getPriorityLevel().ordinal())
+         {
+            chosen = entry;
+         }
+      }
+
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Mapped the provider %s to the identifier %s", chosen.provider.getProviderID(), configurationSourceIdentifier));
+      return chosen;
+   }
+
+   /**
+    * Instantiates each provider available to the service loader.
+    */
+   private synchronized void loadProviders()
+   {
+      this.serviceLoader.reload();
+      List<ProviderEntry> entries = new ArrayList<ProviderEntry>();
+      for (Iterator<ConfigurationSourceProvider> iterator = this.serviceLoader.iterator(); iterator.hasNext();)
+      {
+         try
+         {
+            entries.add(new ProviderEntry(iterator.next()));
+         }
+         catch (ServiceConfigurationError err)
+         {
+            logger.warn("Could not load a configuration source provider", err);
+         }
+      }
+      this.associations = new Associations(entries, new ProviderEntry(new DefaultConfigSourceServiceProvider()));
+
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Loaded %d configuration source providers", entries.size()));
+   }
+
+   private ConfigurationSourceProviderFactory()
+   {
+      this.serviceLoader = ServiceLoader.load(ConfigurationSourceProvider.class, Thread.currentThread().getContextClassLoader());
+      loadProviders();
+   }
+
+   /**
+    * The loaded providers and the provider chosen for each identifier since
+    * they were loaded or the associations were last cleared.
+    */
+   private static final class Associations
+   {
+      private final List<ProviderEntry> providers;
+      private final ProviderEntry defaultProvider;
+      private final ConcurrentMap<ConfigurationSourceIdentifier, ProviderEntry> identifierMap;
+
+      Associations(List<ProviderEntry> providers, ProviderEntry defaultProvider)
+      {
+         this.providers = providers;
+         this.defaultProvider = defaultProvider;
+         this.identifierMap = new ConcurrentHashMap<ConfigurationSourceIdentifier, ProviderEntry>();
+      }
+   }
+
+   /**
+    * A loaded provider, and whether it has been initialized.
+    */
+   private static final class ProviderEntry
+   {
+      private final ConfigurationSourceProvider provider;
+      private volatile boolean initialized;
+
+      ProviderEntry(ConfigurationSourceProvider provider)
+      {
+         this.provider = provider;
+      }
+
+      void initialize()
+      {
+         if (!this.initialized)
+         {
+            synchronized (this)
+            {
+               if (!this.initialized)
+               {
+                  this.provider.postInit();
+                  this.initialized = true;
+               }
+            }
+         }
+      }
+
+      synchronized void destroy()
+      {
+         if (this.initialized)
+         {
+            this.initialized = false;
+            this.provider.preDestroy();
+         }
+      }
+   }
+}
@@ -0,0 +1,298 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source.spi;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides whether a reported file change is a real change to the file's
+ * contents.
+ * <p/>
+ * The events for a file are coalesced until the file has been quiet for the
+ * quiet period, so that a file written in several steps is looked at once,
+ * after the last step. The file is then hashed, and the callback is only
+ * told of the change if the hash differs from that of the contents last
+ * applied. The hash is only recorded as applied once the callback reports
+ * that the change was applied, see {@link #applied(File, byte[])}, so a
+ * change whose reconfiguration failed is acted on again at the next event.
+ * With a quiet period of zero every event is checked at once, on the thread
+ * which reported it.
+ * 
+ * @author zcarioca
+ */
+class ChangeDetector
+{
+   private static final Logger logger = LoggerFactory.getLogger(ChangeDetector.class);
+
+   // the fingerprint of a file which does not exist
+   private static final byte[] MISSING = new byte[0];
+
+   /**
+    * Told of the files whose contents have changed.
+    */
+   interface Callback
+   {
+      /**
+       * Called when the contents of the file have changed. Once the change
+       * has been applied, the fingerprint should be given back to
+       * {@link ChangeDetector#applied(File, byte[])}.
+       * 
+       * @param file The file.
+       * @param fingerprint The fingerprint of the changed contents, or null
+       *        if the file could not be read.
+       */
+      public void contentChanged(File file, byte[] fingerprint);
+   }
+
+   private final long quietPeriod;
+   private final Callback callback;
+   private final ConcurrentMap<File, byte[]> applied;
+   private final ConcurrentMap<File, Long> lastEvents;
+
+   private ScheduledExecutorService executor;
+
+   /**
+    * Constructor for the ChangeDetector.
+    * 
+    * @param quietPeriod The time a file must be quiet for before it is
+    *        checked, in milliseconds.
+    * @param callback The callback to tell of changes.
+    */
+   ChangeDetector(long quietPeriod, Callback callback)
+   {
+      this.quietPeriod = Math.max(0, quietPeriod);
+      this.callback = callback;
+      this.applied = new ConcurrentHashMap<File, byte[]>();
+      this.lastEvents = new ConcurrentHashMap<File, Long>();
+   }
+
+   /**
+    * Gets the quiet period.
+    * 
+    * @return Returns the quiet period, in milliseconds.
+    */
+   long getQuietPeriod()
+   {
+      return this.quietPeriod;
+   }
+
+   /**
+    * Records the current contents of the file as applied, unless contents
+    * have already been recorded for it.
+    * 
+    * @param file The file.
+    */
+   void track(File file)
+   {
+      if (!this.applied.containsKey(file))
+      {
+         byte[] fingerprint = fingerprint(file);
+         if (fingerprint != null)
+         {
+            this.applied.putIfAbsent(file, fingerprint);
+         }
+      }
+   }
+
+   /**
+    * Records the contents of the file as applied.
+    * 
+    * @param file The file.
+    * @param fingerprint The fingerprint given to the callback.
+    */
+   void applied(File file, byte[] fingerprint)
+   {
+      if (fingerprint != null)
+      {
+         this.applied.put(file, fingerprint);
+      }
+   }
+
+   /**
+    * Forgets the applied contents of the file.
+    * 
+    * @param file The file.
+    */
+   void forget(File file)
+   {
+      this.applied.remove(file);
+   }
+
+   /**
+    * Reports a change to the file.
+    * 
+    * @param file The file.
+    */
+   void fileChanged(File file)
+   {
+      if (this.quietPeriod == 0)
+      {
+         check(file);
+      }
+      else if (this.lastEvents.put(file, System.currentTimeMillis()) == null)
+      {
+         // no check is pending for this file yet
+         schedule(file, this.quietPeriod);
+      }
+   }
+
+   /**
+    * Stops the pending checks and forgets every file.
+    */
+   synchronized void shutdown()
+   {
+      if (this.executor != null)
+      {
+         this.executor.shutdownNow();
+         this.executor = null;
+      }
+      this.lastEvents.clear();
+      this.applied.clear();
+   }
+
+   private void schedule(final File file, long delay)
+   {
+      getExecutor().schedule(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            Long lastEvent = lastEvents.get(file);
+            if (lastEvent == null)
+            {
+               return;
+            }
+            long remaining = lastEvent + quietPeriod - System.currentTimeMillis();
+            if (remaining > 0)
+            {
+               schedule(file, remaining);
+            }
+            else if (lastEvents.remove(file, lastEvent))
+            {
+               check(file);
+            }
+            else
+            {
+               // another event arrived in the meantime
+               schedule(file, quietPeriod);
+            }
+         }
+      }, delay, TimeUnit.MILLISECONDS);
+   }
+
+   private void check(File file)
+   {
+      byte[] fingerprint = fingerprint(file);
+      byte[] previous = fingerprint != null ? this.applied.get(file) : this.applied.remove(file);
+      if (fingerprint != null && Arrays.equals(previous, fingerprint))
+      {
+         if (logger.isDebugEnabled())
+            logger.debug(format("The contents of %s have not changed", file));
+         return;
+      }
+
+      try
+      {
+         this.callback.contentChanged(file, fingerprint);
+      }
+      catch (RuntimeException exc)
+      {
+         logger.warn(format("Could not handle the change to %s", file), exc);
+      }
+   }
+
+   private synchronized ScheduledExecutorService getExecutor()
+   {
+      if (this.executor == null)
+      {
+         ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+         {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+               Thread thread = new Thread(runnable, "zlib-config-change-detector");
+               thread.setDaemon(true);
+               return thread;
+            }
+         });
+         executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+         this.executor = executor;
+      }
+      return this.executor;
+   }
+
+   /**
+    * Hashes the contents of the file.
+    * 
+    * @param file The file.
+    * @return Returns the hash, an empty array if the file does not exist, or
+    *         null if it could not be read.
+    */
+   static byte[] fingerprint(File file)
+   {
+      if (!file.isFile())
+      {
+         return MISSING;
+      }
+      InputStream in = null;
+      try
+      {
+         MessageDigest digest = MessageDigest.getInstance("SHA-256");
+         in = new FileInputStream(file);
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = in.read(buffer)) >= 0)
+         {
+            digest.update(buffer, 0, read);
+         }
+         return digest.digest();
+      }
+      catch (IOException exc)
+      {
+         logger.warn(format("Could not read %s: %s", file, exc.getMessage()));
+         return null;
+      }
+      catch (NoSuchAlgorithmException exc)
+      {
+         throw new IllegalStateException(exc);
+      }
+      finally
+      {
+         IOUtils.closeQuietly(in);
+      }
+   }
+}
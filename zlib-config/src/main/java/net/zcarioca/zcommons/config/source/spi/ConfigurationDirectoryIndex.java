@@ -0,0 +1,353 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source.spi;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory index of the files in the configuration directory, so that the
+ * file of a configuration source is found without listing directories.
+ * <p/>
+ * A file is found by the path of its directory, relative to the configuration
+ * directory, and by a resource name which it matches the way the provider
+ * always matched them: ignoring case, and with an optional
+ * <code>.properties</code> extension followed by an optional
+ * <code>.xml</code> extension. Where several files in a directory match, the
+ * one whose name sorts first is used.
+ * <p/>
+ * The index is built once the configuration directory is being watched, and
+ * is then kept up to date from the watcher's events. Until then, files are
+ * looked up by listing the candidate directories, see
+ * {@link #scan(File, String, String)}.
+ * 
+ * @author zcarioca
+ */
+class ConfigurationDirectoryIndex
+{
+   private static final Logger logger = LoggerFactory.getLogger(ConfigurationDirectoryIndex.class);
+
+   private static final String PROPERTIES = ".properties";
+   private static final String XML = ".xml";
+
+   private final File directory;
+   private final ConcurrentMap<String, File> files;
+
+   private volatile boolean built;
+
+   /**
+    * Creates an empty index of the configuration directory.
+    * 
+    * @param directory The configuration directory.
+    */
+   ConfigurationDirectoryIndex(File directory)
+   {
+      this.directory = directory;
+      this.files = new ConcurrentHashMap<String, File>();
+   }
+
+   /**
+    * Gets the configuration directory.
+    * 
+    * @return Returns the configuration directory.
+    */
+   File getDirectory()
+   {
+      return this.directory;
+   }
+
+   /**
+    * Returns true once the index has been built.
+    * 
+    * @return Returns true if the index can be used.
+    */
+   boolean isBuilt()
+   {
+      return this.built;
+   }
+
+   /**
+    * Indexes every file under the configuration directory. This should be
+    * called once the directory is being watched, so that no change is missed
+    * between the two.
+    */
+   synchronized void build()
+   {
+      this.files.clear();
+      addDirectory(this.directory);
+      this.built = true;
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Indexed %d names under %s", this.files.size(), this.directory));
+   }
+
+   /**
+    * Empties the index, which can no longer be used.
+    */
+   synchronized void clear()
+   {
+      this.built = false;
+      this.files.clear();
+   }
+
+   /**
+    * Finds the file of a configuration source, first in the directory of the
+    * package and then in the configuration directory itself.
+    * 
+    * @param packagePath The path of the package directory, separated by '/'.
+    * @param resourceName The resource name.
+    * @return Returns the file, or null if there is none.
+    */
+   File find(String packagePath, String resourceName)
+   {
+      String name = normalize(resourceName);
+      File file = packagePath.length() > 0 ? this.files.get(key(packagePath, name)) : null;
+      return file != null ? file : this.files.get(key("", name));
+   }
+
+   /**
+    * Records a file which was created.
+    * 
+    * @param file The file.
+    */
+   synchronized void fileCreated(File file)
+   {
+      if (this.built)
+      {
+         addFile(file);
+      }
+   }
+
+   /**
+    * Forgets a file which was deleted.
+    * 
+    * @param file The file.
+    */
+   synchronized void fileDeleted(File file)
+   {
+      File parent = file.getParentFile();
+      String dir = relativePath(parent);
+      if (dir != null && this.built)
+      {
+         for (String name : names(file.getName()))
+         {
+            String key = key(dir, name);
+            if (this.files.remove(key, file))
+            {
+               // another file of the directory may match the same name
+               File replacement = findInDirectory(parent, name);
+               if (replacement != null)
+               {
+                  this.files.put(key, replacement);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Indexes the files of a directory which was created.
+    * 
+    * @param dir The directory.
+    */
+   synchronized void directoryCreated(File dir)
+   {
+      if (relativePath(dir) != null && this.built)
+      {
+         addDirectory(dir);
+      }
+   }
+
+   /**
+    * Forgets the files of a directory which was deleted.
+    * 
+    * @param dir The directory.
+    */
+   synchronized void directoryDeleted(File dir)
+   {
+      String path = relativePath(dir);
+      if (path != null && this.built)
+      {
+         String prefix = path + "/";
+         for (Iterator<Map.Entry<String, File>> entries = this.files.entrySet().iterator(); entries.hasNext();)
+         {
+            if (entries.next().getKey().startsWith(prefix))
+            {
+               entries.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Finds the file of a configuration source by listing the candidate
+    * directories, for use when there is no index of the directory.
+    * 
+    * @param directory The configuration directory.
+    * @param packagePath The path of the package directory, separated by '/'.
+    * @param resourceName The resource name.
+    * @return Returns the file, or null if there is none.
+    */
+   static File scan(File directory, String packagePath, String resourceName)
+   {
+      String name = normalize(resourceName);
+      File file = null;
+      if (packagePath.length() > 0)
+      {
+         File packageDir = new File(directory, packagePath);
+         if (packageDir.isDirectory())
+         {
+            file = findInDirectory(packageDir, name);
+         }
+         else if (logger.isDebugEnabled())
+         {
+            logger.debug(String.format("Could not find directory %s", packageDir));
+         }
+      }
+      return file != null ? file : findInDirectory(directory, name);
+   }
+
+   private void addDirectory(File dir)
+   {
+      File[] children = dir.listFiles();
+      if (children == null)
+      {
+         return;
+      }
+      for (File child : children)
+      {
+         if (child.isDirectory())
+         {
+            addDirectory(child);
+         }
+         else
+         {
+            addFile(child);
+         }
+      }
+   }
+
+   private void addFile(File file)
+   {
+      String dir = relativePath(file.getParentFile());
+      if (dir != null)
+      {
+         for (String name : names(file.getName()))
+         {
+            String key = key(dir, name);
+            File current = this.files.get(key);
+            if (current == null || file.getName().compareTo(current.getName()) < 0)
+            {
+               this.files.put(key, file);
+            }
+         }
+      }
+   }
+
+   /**
+    * Gets the path of a directory relative to the configuration directory.
+    * 
+    * @return Returns the relative path, empty for the configuration directory
+    *         itself, or null if the directory is not under it.
+    */
+   private String relativePath(File dir)
+   {
+      if (dir == null)
+      {
+         return null;
+      }
+      String root = this.directory.getAbsolutePath();
+      String path = dir.getAbsolutePath();
+      if (path.equals(root))
+      {
+         return "";
+      }
+      if (!path.startsWith(root + File.separator))
+      {
+         return null;
+      }
+      return path.substring(root.length() + 1).replace(File.separatorChar, '/');
+   }
+
+   private static File findInDirectory(File dir, String name)
+   {
+      File match = null;
+      File[] children = dir.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            if (child.isFile() && (match == null || child.getName().compareTo(match.getName()) < 0) && matches(child.getName(), name))
+            {
+               match = child;
+            }
+         }
+      }
+      return match;
+   }
+
+   private static boolean matches(String fileName, String name)
+   {
+      for (String candidate : names(fileName))
+      {
+         if (candidate.equals(name))
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Gets the resource names a file answers to: its own name, without a
+    * trailing <code>.xml</code>, and without a <code>.properties</code>
+    * before that.
+    */
+   private static String[] names(String fileName)
+   {
+      String name = normalize(fileName);
+      String withoutXml = name.endsWith(XML) ? name.substring(0, name.length() - XML.length()) : name;
+      String base = withoutXml.endsWith(PROPERTIES) ? withoutXml.substring(0, withoutXml.length() - PROPERTIES.length()) : withoutXml;
+      if (base.equals(name))
+      {
+         return new String[] { name };
+      }
+      if (base.equals(withoutXml) || withoutXml.equals(name))
+      {
+         return new String[] { name, base };
+      }
+      return new String[] { name, withoutXml, base };
+   }
+
+   private static String normalize(String name)
+   {
+      return name.toLowerCase(Locale.ENGLISH);
+   }
+
+   private static String key(String dir, String name)
+   {
+      return dir + "/" + name;
+   }
+}
@@ -0,0 +1,42 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source.spi;
+
+/**
+ * Watches the configuration directory and reports changes to a
+ * {@link org.apache.commons.io.monitor.FileAlterationListener}.
+ * 
+ * @author zcarioca
+ */
+interface FileWatcher
+{
+   /**
+    * Starts watching the directory.
+    * 
+    * @throws Exception if the watcher could not be started.
+    */
+   public void start() throws Exception;
+
+   /**
+    * Stops watching the directory and releases the watcher's resources.
+    * 
+    * @throws Exception if the watcher could not be stopped.
+    */
+   public void stop() throws Exception;
+}
@@ -23,14 +23,12 @@ import static net.zcarioca.zcommons.config.ConfigurationConstants.FILESYSTEM_CON
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Pattern;
 
 import net.zcarioca.zcommons.config.Environment;
 import net.zcarioca.zcommons.config.EnvironmentAccessor;
@@ -39,13 +37,12 @@ import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
 import net.zcarioca.zcommons.config.source.ConfigurationSourceProvider;
 import net.zcarioca.zcommons.config.util.ConfigurationUtilities;
 import net.zcarioca.zcommons.config.util.PropertiesBuilder;
+import net.zcarioca.zcommons.config.util.ReconfigurationExecutor;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.monitor.FileAlterationListener;
-import org.apache.commons.io.monitor.FileAlterationMonitor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -62,13 +59,25 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
    public static final String ROOT_DIR_ENV_OVERRIDE = "config.file.rootDirEnvVar";
    public static final String ROOT_DIR_OVERRIDE = "config.file.rootDir";
    public static final String CONF_DIR_OVERRIDE = "config.file.confDir";
+   public static final String WATCHER_OVERRIDE = "config.file.watcher";
+   public static final String POLL_INTERVAL_OVERRIDE = "config.file.pollInterval";
+   public static final String QUIET_PERIOD_OVERRIDE = "config.file.quietPeriod";
+
+   public static final String WATCHER_AUTO = "auto";
+   public static final String WATCHER_NIO = "nio";
+   public static final String WATCHER_POLL = "poll";
+   public static final long DEFAULT_POLL_INTERVAL = 10000l;
+   public static final long DEFAULT_QUIET_PERIOD = 500l;
 
    private final FilesystemConfiguration filesystemConfiguration;
 
    private final Object lock = new Object();
 
    private static FileWatchListener fileWatchListener;
-   private static FileAlterationMonitor fileAlterationMonitor;
+   private static FileWatcher fileWatcher;
+   private static volatile ConfigurationDirectoryIndex directoryIndex;
+
+   private volatile File configurationDirectory;
 
    public FilesystemConfigurationSourceServiceProvider()
    {
@@ -183,19 +192,20 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       super.postInit();
       synchronized (lock)
       {
-         if (fileAlterationMonitor == null)
+         if (fileWatcher == null)
          {
-            fileWatchListener = new FileWatchListener(ConfigurationUtilities.getInstance());
-            fileAlterationMonitor = new FileAlterationMonitor();
             File confDir = getFilesystemConfiguration().getConfigurationDirectory();
-            FileAlterationObserver observer = new FileAlterationObserver(confDir);
-
-            observer.addListener(getFileWatchListener());
-            fileAlterationMonitor.addObserver(observer);
+            ConfigurationDirectoryIndex index = new ConfigurationDirectoryIndex(confDir);
+            fileWatchListener = new FileWatchListener(ConfigurationUtilities.getInstance(), getFilesystemConfiguration().getQuietPeriod(), index);
+            fileWatcher = createFileWatcher(confDir, getFileWatchListener());
 
             try
             {
-               fileAlterationMonitor.start();
+               fileWatcher.start();
+
+               // the index is only built once changes to it are being reported
+               index.build();
+               directoryIndex = index;
             }
             catch (Exception exc)
             {
@@ -216,13 +226,17 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       {
          try
          {
-            if (fileAlterationMonitor != null)
-               fileAlterationMonitor.stop(10);
+            if (fileWatcher != null)
+               fileWatcher.stop();
             if (fileWatchListener != null)
                fileWatchListener.clear();
 
-            fileAlterationMonitor = null;
+            if (directoryIndex != null)
+               directoryIndex.clear();
+
+            fileWatcher = null;
             fileWatchListener = null;
+            directoryIndex = null;
          }
          catch (Exception exc)
          {
@@ -251,6 +265,40 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       return null;
    }
 
+   /**
+    * Creates the watcher of the configuration directory. Unless the polling
+    * watcher is configured, the directory is watched through the file
+    * system's {@link java.nio.file.WatchService}, falling back to polling if
+    * the file system cannot report changes itself.
+    * 
+    * @param confDir The configuration directory.
+    * @param listener The listener to report changes to.
+    * @return Returns the file watcher.
+    */
+   FileWatcher createFileWatcher(File confDir, FileAlterationListener listener)
+   {
+      FilesystemConfiguration configuration = getFilesystemConfiguration();
+      String watcher = configuration.getWatcher();
+      if (!WATCHER_POLL.equalsIgnoreCase(watcher))
+      {
+         try
+         {
+            NioFileWatcher nioFileWatcher = new NioFileWatcher(confDir, listener);
+            if (nioFileWatcher.isNative() || WATCHER_NIO.equalsIgnoreCase(watcher))
+            {
+               return nioFileWatcher;
+            }
+            logger.info(format("The file system of %s does not report changes, polling it instead", confDir));
+            nioFileWatcher.stop();
+         }
+         catch (Exception exc)
+         {
+            logger.warn(format("Could not watch %s for changes, polling it instead: %s", confDir, exc.getMessage()));
+         }
+      }
+      return new PollingFileWatcher(confDir, listener, configuration.getPollInterval());
+   }
+
    private synchronized static FileWatchListener getFileWatchListener()
    {
       if (fileWatchListener == null)
@@ -263,16 +311,22 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
    private File getConfigurationFile(Class<?> referenceClass, String resourceName) throws ConfigurationException
    {
       File file;
-      Pattern pattern = Pattern.compile(String.format("^%s(\\.properties)?(\\.xml)?$", resourceName), Pattern.CASE_INSENSITIVE);
       try
       {
-         File confDir = getFilesystemConfiguration().getConfigurationDirectory();
-         file = getConfigurationFileInSubDirs(confDir, referenceClass, pattern);
+         File confDir = getConfigurationDirectory();
+         Package referencePackage = referenceClass.getPackage();
+         String packagePath = referencePackage != null ? referencePackage.getName().replace('.', '/') : "";
 
-         if (file == null)
+         ConfigurationDirectoryIndex index = directoryIndex;
+         if (index != null && index.isBuilt() && index.getDirectory().equals(confDir))
          {
-            file = getFromPattern(confDir, pattern);
+            file = index.find(packagePath, resourceName);
          }
+         else
+         {
+            file = ConfigurationDirectoryIndex.scan(confDir, packagePath, resourceName);
+         }
+
          if (file == null)
          {
             throw new ConfigurationException(format("Could not find file for %s:%s", referenceClass, resourceName));
@@ -285,45 +339,19 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       return file;
    }
 
-   private File getConfigurationFileInSubDirs(File confDir, Class<?> referenceClass, Pattern pattern)
-   {
-      String path = referenceClass.getPackage().getName().replaceAll("\\.", File.separator);
-
-      File filePath = new File(confDir, path);
-      if (!filePath.isDirectory())
-      {
-         if (logger.isDebugEnabled())
-            logger.debug(format("Could not find directory %s", filePath));
-         return null;
-      }
-
-      return getFromPattern(filePath, pattern);
-   }
-
-   private File getFromPattern(File directory, Pattern pattern)
-   {
-      File[] match = directory.listFiles(new PatternFileFilter(pattern));
-
-      return ArrayUtils.isNotEmpty(match) ? match[0] : null;
-   }
-
-   private static class PatternFileFilter implements FileFilter
+   /**
+    * Gets the configuration directory, which is looked up once it has been
+    * found.
+    */
+   private File getConfigurationDirectory()
    {
-      private final Pattern pattern;
-
-      PatternFileFilter(Pattern pattern)
-      {
-         this.pattern = pattern;
-      }
-
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public boolean accept(File pathName)
+      File confDir = this.configurationDirectory;
+      if (confDir == null)
       {
-         return pattern.matcher(pathName.getName()).matches();
+         confDir = getFilesystemConfiguration().getConfigurationDirectory();
+         this.configurationDirectory = confDir;
       }
+      return confDir;
    }
 
    public static class FilesystemConfiguration
@@ -333,6 +361,9 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       private final String confDir;
       private final String rootDirEnvironmentVar;
       private final String rootDir;
+      private final String watcher;
+      private final long pollInterval;
+      private final long quietPeriod;
 
       FilesystemConfiguration(Environment environment)
       {
@@ -340,6 +371,32 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
          this.confDir = this.environment.getSystemProperty(CONF_DIR_OVERRIDE, DEFAULT_CONF_DIR);
          this.rootDirEnvironmentVar = this.environment.getSystemProperty(ROOT_DIR_ENV_OVERRIDE, DEFAULT_ROOT_DIR_ENV_VAR);
          this.rootDir = this.environment.getSystemProperty(ROOT_DIR_OVERRIDE, null);
+         String watcher = this.environment.getSystemProperty(WATCHER_OVERRIDE, WATCHER_AUTO);
+         this.watcher = StringUtils.isNotBlank(watcher) ? watcher.trim() : WATCHER_AUTO;
+         this.pollInterval = parseInterval(POLL_INTERVAL_OVERRIDE, DEFAULT_POLL_INTERVAL, 1);
+         this.quietPeriod = parseInterval(QUIET_PERIOD_OVERRIDE, DEFAULT_QUIET_PERIOD, 0);
+      }
+
+      private long parseInterval(String propertyName, long defaultValue, long minimum)
+      {
+         String value = this.environment.getSystemProperty(propertyName, null);
+         if (StringUtils.isNotBlank(value))
+         {
+            try
+            {
+               long interval = Long.parseLong(value.trim());
+               if (interval >= minimum)
+               {
+                  return interval;
+               }
+            }
+            catch (NumberFormatException exc)
+            {
+               // use the default
+            }
+            logger.warn(format("Ignoring the invalid value '%s' of %s", value, propertyName));
+         }
+         return defaultValue;
       }
 
       /**
@@ -383,6 +440,41 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
          return this.confDir;
       }
 
+      /**
+       * Gets the kind of watcher used to detect changes to the configuration
+       * files: 'auto', 'nio' or 'poll'. Defaults to 'auto'.
+       * 
+       * @return Returns the kind of watcher.
+       */
+      String getWatcher()
+      {
+         return this.watcher;
+      }
+
+      /**
+       * Gets the interval at which the configuration directory is polled, in
+       * milliseconds, when it is not watched through the file system. Defaults
+       * to 10 seconds.
+       * 
+       * @return Returns the poll interval.
+       */
+      long getPollInterval()
+      {
+         return this.pollInterval;
+      }
+
+      /**
+       * Gets the time a changed configuration file must be left alone before
+       * its contents are compared with those last applied, in milliseconds.
+       * Defaults to half a second.
+       * 
+       * @return Returns the quiet period.
+       */
+      long getQuietPeriod()
+      {
+         return this.quietPeriod;
+      }
+
       /**
        * Gets the directory containing the configuration files.
        * 
@@ -428,11 +520,32 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
    {
       private final Map<File, ConfigurationSourceIdentifier> mapper;
       private final ConfigurationUtilities configurationUtilities;
+      private final ChangeDetector changeDetector;
+      private final ConfigurationDirectoryIndex directoryIndex;
 
       FileWatchListener(ConfigurationUtilities configurationUtilities)
+      {
+         this(configurationUtilities, DEFAULT_QUIET_PERIOD);
+      }
+
+      FileWatchListener(ConfigurationUtilities configurationUtilities, long quietPeriod)
+      {
+         this(configurationUtilities, quietPeriod, null);
+      }
+
+      FileWatchListener(ConfigurationUtilities configurationUtilities, long quietPeriod, ConfigurationDirectoryIndex directoryIndex)
       {
          this.mapper = new HashMap<File, ConfigurationSourceIdentifier>();
          this.configurationUtilities = configurationUtilities;
+         this.directoryIndex = directoryIndex;
+         this.changeDetector = new ChangeDetector(quietPeriod, new ChangeDetector.Callback()
+         {
+            @Override
+            public void contentChanged(File file, byte[] fingerprint)
+            {
+               resetProperties(file, fingerprint);
+            }
+         });
       }
 
       public void clear()
@@ -441,6 +554,7 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
          {
             this.mapper.clear();
          }
+         this.changeDetector.shutdown();
       }
 
       public void addFile(File file, ConfigurationSourceIdentifier configurationSourceIdentifier)
@@ -454,6 +568,7 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
          {
             this.mapper.put(file, configurationSourceIdentifier);
          }
+         this.changeDetector.track(file);
       }
 
       /**
@@ -476,7 +591,10 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       @Override
       public void onFileChange(File file)
       {
-         resetProperties(file);
+         if (isMapped(file))
+         {
+            this.changeDetector.fileChanged(file);
+         }
       }
 
       /**
@@ -485,12 +603,16 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       @Override
       public void onFileDelete(File file)
       {
+         if (this.directoryIndex != null)
+            this.directoryIndex.fileDeleted(file);
+
          synchronized (this.mapper)
          {
             if (this.mapper.containsKey(file))
             {
                logger.info(format("The file '%s' has been deleted", file));
-               this.mapper.remove(file);
+               this.configurationUtilities.getSnapshotCache().invalidate(this.mapper.remove(file));
+               this.changeDetector.forget(file);
             }
          }
       }
@@ -499,7 +621,14 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
        * {@inheritDoc}
        */
       @Override
-      public void onFileCreate(File file) { /* ignore */ }
+      public void onFileCreate(File file)
+      {
+         if (this.directoryIndex != null)
+            this.directoryIndex.fileCreated(file);
+
+         // a watched file which is replaced by a rename is reported as created
+         onFileChange(file);
+      }
 
       /**
        * {@inheritDoc}
@@ -511,13 +640,21 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
        * {@inheritDoc}
        */
       @Override
-      public void onDirectoryDelete(File file) { /* ignore */ }
+      public void onDirectoryDelete(File file)
+      {
+         if (this.directoryIndex != null)
+            this.directoryIndex.directoryDeleted(file);
+      }
 
       /**
        * {@inheritDoc}
        */
       @Override
-      public void onDirectoryCreate(File file) { /* ignore */ }
+      public void onDirectoryCreate(File file)
+      {
+         if (this.directoryIndex != null)
+            this.directoryIndex.directoryCreated(file);
+      }
 
       /**
        * {@inheritDoc}
@@ -531,18 +668,35 @@ public class FilesystemConfigurationSourceServiceProvider extends AbstractConfig
       @Override
       public void onStop(FileAlterationObserver fileAlterationObserver) { /* ignore */ }
 
-      private void resetProperties(File file)
+      private boolean isMapped(File file)
       {
-         if (this.mapper.containsKey(file))
+         synchronized (this.mapper)
          {
-            try
-            {
-               this.configurationUtilities.runReconfiguration(this.mapper.get(file));
-            }
-            catch (ConfigurationException exc)
+            return this.mapper.containsKey(file);
+         }
+      }
+
+      private void resetProperties(final File file, final byte[] fingerprint)
+      {
+         ConfigurationSourceIdentifier sourceId;
+         synchronized (this.mapper)
+         {
+            sourceId = this.mapper.get(file);
+         }
+         if (sourceId != null)
+         {
+            if (logger.isDebugEnabled())
+               logger.debug(format("The file '%s' has changed, scheduling the reconfiguration of %s", file, sourceId));
+            this.configurationUtilities.scheduleReconfiguration(sourceId, new ReconfigurationExecutor.Callback()
             {
-               logger.warn(format("Could not reset properties on the file %s", file), exc);
-            }
+               @Override
+               public void reconfigured(ConfigurationSourceIdentifier configurationSourceIdentifier, boolean succeeded)
+               {
+                  // a failed change is looked at again when the file is next reported
+                  if (succeeded)
+                     changeDetector.applied(file, fingerprint);
+               }
+            });
          }
       }
    }
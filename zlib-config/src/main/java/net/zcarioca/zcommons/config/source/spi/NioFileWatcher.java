@@ -0,0 +1,368 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source.spi;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link FileWatcher} which is told of changes by the file system, through
+ * a {@link WatchService}, instead of polling for them. Every directory of the
+ * tree is registered, including those created while it is being watched, and
+ * the events are reported to the listener from a single daemon thread.
+ * <p/>
+ * The watcher remembers the entries of every directory it watches, so that,
+ * like the polling watcher, it reports the deletion of each file of a deleted
+ * directory, and so that a directory whose events were lost can be compared
+ * with what was last seen of it.
+ * <p/>
+ * Some platforms implement the {@link WatchService} by polling, see
+ * {@link #isNative()}; the {@link PollingFileWatcher} should be preferred
+ * there, as it can be configured.
+ * 
+ * @author zcarioca
+ */
+class NioFileWatcher implements FileWatcher
+{
+   private static final Logger logger = LoggerFactory.getLogger(NioFileWatcher.class);
+
+   private final Path root;
+   private final FileAlterationListener listener;
+   private final WatchService watchService;
+   private final Map<WatchKey, Path> directories;
+   private final Map<Path, Set<Path>> entries;
+
+   private Thread thread;
+
+   /**
+    * Constructor for the NioFileWatcher.
+    * 
+    * @param directory The directory to watch.
+    * @param listener The listener to report changes to.
+    * @throws IOException if the file system does not support watching.
+    */
+   NioFileWatcher(File directory, FileAlterationListener listener) throws IOException
+   {
+      this.root = directory.toPath();
+      this.listener = listener;
+      this.watchService = this.root.getFileSystem().newWatchService();
+      this.directories = new ConcurrentHashMap<WatchKey, Path>();
+      this.entries = new ConcurrentHashMap<Path, Set<Path>>();
+   }
+
+   /**
+    * Returns true if the file system reports changes itself, rather than
+    * through a watch service which polls.
+    * 
+    * @return Returns true if the watch service is native.
+    */
+   boolean isNative()
+   {
+      return !this.watchService.getClass().getName().endsWith("PollingWatchService");
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public synchronized void start() throws Exception
+   {
+      if (this.thread != null)
+      {
+         return;
+      }
+      registerAll(this.root);
+
+      this.thread = new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            watch();
+         }
+      }, "zlib-config-file-watcher");
+      this.thread.setDaemon(true);
+      this.thread.start();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public synchronized void stop() throws Exception
+   {
+      this.watchService.close();
+      if (this.thread != null)
+      {
+         this.thread.interrupt();
+         this.thread.join(10);
+         this.thread = null;
+      }
+      this.directories.clear();
+      this.entries.clear();
+   }
+
+   void registerAll(Path start) throws IOException
+   {
+      Files.walkFileTree(start, new SimpleFileVisitor<Path>()
+      {
+         @Override
+         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+         {
+            register(dir);
+            return FileVisitResult.CONTINUE;
+         }
+
+         @Override
+         public FileVisitResult visitFileFailed(Path file, IOException exc)
+         {
+            logger.warn(format("Could not watch %s: %s", file, exc.getMessage()));
+            return FileVisitResult.CONTINUE;
+         }
+      });
+   }
+
+   private void register(Path dir) throws IOException
+   {
+      WatchKey key = dir.register(this.watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      this.directories.put(key, dir);
+      this.entries.put(dir, list(dir));
+      if (logger.isDebugEnabled())
+         logger.debug(format("Watching the directory %s", dir));
+   }
+
+   private void watch()
+   {
+      while (true)
+      {
+         WatchKey key;
+         try
+         {
+            key = this.watchService.take();
+         }
+         catch (InterruptedException exc)
+         {
+            return;
+         }
+         catch (ClosedWatchServiceException exc)
+         {
+            return;
+         }
+
+         Path dir = this.directories.get(key);
+         if (dir != null)
+         {
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+               try
+               {
+                  dispatch(dir, event);
+               }
+               catch (RuntimeException exc)
+               {
+                  logger.warn(format("Could not handle the change to %s", event.context()), exc);
+               }
+            }
+         }
+         if (!key.reset())
+         {
+            // the directory is gone, or no longer accessible
+            this.directories.remove(key);
+         }
+      }
+   }
+
+   private void dispatch(Path dir, WatchEvent<?> event)
+   {
+      WatchEvent.Kind<?> kind = event.kind();
+      if (kind == OVERFLOW)
+      {
+         logger.info(format("Missed changes in %s, comparing it with what was last seen", dir));
+         rescan(dir);
+         return;
+      }
+
+      Path path = dir.resolve((Path) event.context());
+      Set<Path> seen = this.entries.get(dir);
+      if (kind == ENTRY_CREATE)
+      {
+         if (seen != null && seen.contains(path))
+         {
+            // already reported when the directory was registered
+            if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))
+               this.listener.onFileChange(path.toFile());
+         }
+         else
+         {
+            created(dir, path);
+         }
+      }
+      else if (kind == ENTRY_MODIFY)
+      {
+         if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+            this.listener.onDirectoryChange(path.toFile());
+         else
+            this.listener.onFileChange(path.toFile());
+      }
+      else if (kind == ENTRY_DELETE)
+      {
+         deleted(dir, path);
+      }
+   }
+
+   /**
+    * Compares a directory with what was last seen of it, reporting the entries
+    * which were created or deleted since, and every file which is still there
+    * as changed.
+    * 
+    * @param dir The directory.
+    */
+   void rescan(Path dir)
+   {
+      Set<Path> seen = this.entries.get(dir);
+      if (seen == null)
+      {
+         return;
+      }
+      Set<Path> current = list(dir);
+      for (Path path : new HashSet<Path>(seen))
+      {
+         if (!current.contains(path))
+            deleted(dir, path);
+      }
+      for (Path path : current)
+      {
+         if (!seen.contains(path))
+            created(dir, path);
+         else if (!this.entries.containsKey(path))
+            this.listener.onFileChange(path.toFile());
+      }
+   }
+
+   /**
+    * Reports an entry which was created, with the whole tree under it when it
+    * is a directory, which is then watched.
+    */
+   private void created(Path dir, Path path)
+   {
+      Set<Path> seen = this.entries.get(dir);
+      if (seen != null)
+      {
+         seen.add(path);
+      }
+      if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+      {
+         try
+         {
+            register(path);
+         }
+         catch (IOException exc)
+         {
+            logger.warn(format("Could not watch the new directory %s: %s", path, exc.getMessage()));
+         }
+         this.listener.onDirectoryCreate(path.toFile());
+         Set<Path> children = this.entries.get(path);
+         if (children != null)
+         {
+            for (Path child : new HashSet<Path>(children))
+            {
+               created(path, child);
+            }
+         }
+      }
+      else
+      {
+         this.listener.onFileCreate(path.toFile());
+      }
+   }
+
+   /**
+    * Reports an entry which was deleted; for a directory, the deletion of
+    * everything that was last seen under it is reported first.
+    */
+   private void deleted(Path dir, Path path)
+   {
+      Set<Path> seen = this.entries.get(dir);
+      if (seen != null)
+      {
+         seen.remove(path);
+      }
+      Set<Path> children = this.entries.remove(path);
+      if (children != null)
+      {
+         for (Path child : children)
+         {
+            deleted(path, child);
+         }
+         for (Iterator<Map.Entry<WatchKey, Path>> keys = this.directories.entrySet().iterator(); keys.hasNext();)
+         {
+            Map.Entry<WatchKey, Path> key = keys.next();
+            if (key.getValue().equals(path))
+            {
+               key.getKey().cancel();
+               keys.remove();
+            }
+         }
+         this.listener.onDirectoryDelete(path.toFile());
+      }
+      else
+      {
+         this.listener.onFileDelete(path.toFile());
+      }
+   }
+
+   private static Set<Path> list(Path dir)
+   {
+      Set<Path> paths = new HashSet<Path>();
+      File[] files = dir.toFile().listFiles();
+      if (files != null)
+      {
+         for (File file : files)
+         {
+            paths.add(file.toPath());
+         }
+      }
+      return paths;
+   }
+}
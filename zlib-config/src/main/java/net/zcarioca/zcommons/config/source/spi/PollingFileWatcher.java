@@ -0,0 +1,71 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source.spi;
+
+import java.io.File;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.apache.commons.io.monitor.FileAlterationMonitor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+
+/**
+ * A {@link FileWatcher} which polls the directory tree at a fixed interval,
+ * comparing the files it finds with those of the previous poll. Used where
+ * the file system cannot report changes itself.
+ * 
+ * @author zcarioca
+ */
+class PollingFileWatcher implements FileWatcher
+{
+   private final FileAlterationMonitor monitor;
+
+   /**
+    * Constructor for the PollingFileWatcher.
+    * 
+    * @param directory The directory to watch.
+    * @param listener The listener to report changes to.
+    * @param interval The time between polls, in milliseconds.
+    */
+   PollingFileWatcher(File directory, FileAlterationListener listener, long interval)
+   {
+      FileAlterationObserver observer = new FileAlterationObserver(directory);
+      observer.addListener(listener);
+
+      this.monitor = new FileAlterationMonitor(interval);
+      this.monitor.addObserver(observer);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void start() throws Exception
+   {
+      this.monitor.start();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void stop() throws Exception
+   {
+      this.monitor.stop(10);
+   }
+}
@@ -0,0 +1,367 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+
+/**
+ * Tracks the beans configured from each configuration source, so that they
+ * can be reconfigured when the source changes.
+ * <p/>
+ * Beans are tracked by identity, so a bean configured twice is tracked once,
+ * whatever its <code>equals</code> method says. The registry only holds weak
+ * references to the beans: a bean which is no longer used elsewhere, such as
+ * a prototype or request scoped bean, is dropped once it has been garbage
+ * collected, and is never reconfigured.
+ * <p/>
+ * Each source has its own list of beans and its own lock, so beans of
+ * different sources are registered and reconfigured without contending with
+ * each other.
+ * 
+ * @author zcarioca
+ */
+public final class BeanRegistry
+{
+   private final ConcurrentMap<ConfigurationSourceIdentifier, SourceBeans> sources;
+   private final ReferenceQueue<Object> collected;
+
+   /**
+    * Creates an empty registry.
+    */
+   public BeanRegistry()
+   {
+      this.sources = new ConcurrentHashMap<ConfigurationSourceIdentifier, SourceBeans>();
+      this.collected = new ReferenceQueue<Object>();
+   }
+
+   /**
+    * Tracks a bean configured from a source.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @param bean The bean.
+    * @return Returns true if the bean was not already tracked for the source.
+    */
+   public boolean register(ConfigurationSourceIdentifier sourceId, Object bean)
+   {
+      expunge();
+      return getSourceBeans(sourceId).add(bean, sourceId, this.collected);
+   }
+
+   /**
+    * Stops tracking a bean, so that it is no longer reconfigured.
+    * 
+    * @param bean The bean.
+    * @return Returns true if the bean was tracked.
+    */
+   public boolean unregister(Object bean)
+   {
+      expunge();
+      boolean removed = false;
+      BeanReference key = new BeanReference(bean, null, null);
+      for (SourceBeans sourceBeans : this.sources.values())
+      {
+         removed |= sourceBeans.remove(key);
+      }
+      return removed;
+   }
+
+   /**
+    * Gets the beans configured from a source which are still in use, in the
+    * order in which they were first configured.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @return Returns the beans, which the caller may keep.
+    */
+   public List<Object> getBeans(ConfigurationSourceIdentifier sourceId)
+   {
+      expunge();
+      SourceBeans sourceBeans = this.sources.get(sourceId);
+      return sourceBeans != null ? sourceBeans.getBeans() : new ArrayList<Object>(0);
+   }
+
+   /**
+    * Gets the number of beans tracked for a source.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @return Returns the number of beans.
+    */
+   public int getBeanCount(ConfigurationSourceIdentifier sourceId)
+   {
+      expunge();
+      SourceBeans sourceBeans = this.sources.get(sourceId);
+      return sourceBeans != null ? sourceBeans.size() : 0;
+   }
+
+   /**
+    * Gets the number of beans tracked for each source.
+    * 
+    * @return Returns a copy of the number of beans of each source.
+    */
+   public Map<ConfigurationSourceIdentifier, Integer> getBeanCounts()
+   {
+      expunge();
+      Map<ConfigurationSourceIdentifier, Integer> counts = new LinkedHashMap<ConfigurationSourceIdentifier, Integer>();
+      for (Map.Entry<ConfigurationSourceIdentifier, SourceBeans> entry : this.sources.entrySet())
+      {
+         int size = entry.getValue().size();
+         if (size > 0)
+         {
+            counts.put(entry.getKey(), size);
+         }
+      }
+      return counts;
+   }
+
+   /**
+    * Gets the sources with beans tracked.
+    * 
+    * @return Returns a copy of the source identifiers.
+    */
+   public Collection<ConfigurationSourceIdentifier> getSourceIdentifiers()
+   {
+      return new ArrayList<ConfigurationSourceIdentifier>(getBeanCounts().keySet());
+   }
+
+   /**
+    * Stops tracking every bean.
+    */
+   public void clear()
+   {
+      for (SourceBeans sourceBeans : this.sources.values())
+      {
+         sourceBeans.clear();
+      }
+      while (this.collected.poll() != null)
+      {
+         // drain
+      }
+   }
+
+   /**
+    * Records the snapshot a bean of the source was configured from. Once
+    * beans of the source have been configured from snapshots with different
+    * contents, the snapshot of the source is unknown until it is next
+    * reconfigured.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @param snapshot The snapshot the bean was configured from.
+    */
+   void configured(ConfigurationSourceIdentifier sourceId, ConfigSnapshot snapshot)
+   {
+      getSourceBeans(sourceId).configured(snapshot);
+   }
+
+   /**
+    * Records the snapshot every bean of the source was reconfigured from.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @param snapshot The snapshot the beans were reconfigured from.
+    */
+   void reconfigured(ConfigurationSourceIdentifier sourceId, ConfigSnapshot snapshot)
+   {
+      getSourceBeans(sourceId).reconfigured(snapshot);
+   }
+
+   /**
+    * Gets the snapshot every bean of the source was last configured from.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @return Returns the snapshot, or null if it is not known.
+    */
+   ConfigSnapshot getConfiguredSnapshot(ConfigurationSourceIdentifier sourceId)
+   {
+      SourceBeans sourceBeans = this.sources.get(sourceId);
+      return sourceBeans != null ? sourceBeans.getConfigured() : null;
+   }
+
+   /**
+    * Gets the lock of a source. Beans are configured from the source under its
+    * read lock, and reconfigured under its write lock, so that a bean
+    * configured during a reconfiguration is either reconfigured with the
+    * others or configured from the new contents of the source.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @return Returns the lock of the source.
+    */
+   ReadWriteLock getLock(ConfigurationSourceIdentifier sourceId)
+   {
+      return getSourceBeans(sourceId).lock;
+   }
+
+   private SourceBeans getSourceBeans(ConfigurationSourceIdentifier sourceId)
+   {
+      SourceBeans sourceBeans = this.sources.get(sourceId);
+      if (sourceBeans == null)
+      {
+         SourceBeans newSourceBeans = new SourceBeans();
+         sourceBeans = this.sources.putIfAbsent(sourceId, newSourceBeans);
+         if (sourceBeans == null)
+         {
+            sourceBeans = newSourceBeans;
+         }
+      }
+      return sourceBeans;
+   }
+
+   /**
+    * Drops the beans which have been garbage collected.
+    */
+   private void expunge()
+   {
+      Reference<?> reference;
+      while ((reference = this.collected.poll()) != null)
+      {
+         BeanReference beanReference = (BeanReference) reference;
+         SourceBeans sourceBeans = this.sources.get(beanReference.sourceId);
+         if (sourceBeans != null)
+         {
+            sourceBeans.remove(beanReference);
+         }
+      }
+   }
+
+   /**
+    * The beans of one source, which are kept once the source is known even
+    * when they are all gone, so that the source keeps the same lock.
+    */
+   private static final class SourceBeans
+   {
+      private final Map<BeanReference, BeanReference> beans = new LinkedHashMap<BeanReference, BeanReference>();
+      private final ReadWriteLock lock = new ReentrantReadWriteLock();
+      private ConfigSnapshot configured;
+      private boolean mixed;
+
+      synchronized boolean add(Object bean, ConfigurationSourceIdentifier sourceId, ReferenceQueue<Object> queue)
+      {
+         if (this.beans.containsKey(new BeanReference(bean, null, null)))
+         {
+            return false;
+         }
+         BeanReference reference = new BeanReference(bean, sourceId, queue);
+         this.beans.put(reference, reference);
+         return true;
+      }
+
+      synchronized boolean remove(BeanReference reference)
+      {
+         return this.beans.remove(reference) != null;
+      }
+
+      synchronized List<Object> getBeans()
+      {
+         List<Object> live = new ArrayList<Object>(this.beans.size());
+         for (BeanReference reference : this.beans.keySet())
+         {
+            Object bean = reference.get();
+            if (bean != null)
+            {
+               live.add(bean);
+            }
+         }
+         return live;
+      }
+
+      synchronized int size()
+      {
+         return this.beans.size();
+      }
+
+      synchronized void clear()
+      {
+         this.beans.clear();
+         this.configured = null;
+         this.mixed = false;
+      }
+
+      synchronized void configured(ConfigSnapshot snapshot)
+      {
+         if (this.configured == null)
+         {
+            this.configured = snapshot;
+         }
+         else if (this.configured.getVersion() != snapshot.getVersion() && !this.configured.equals(snapshot))
+         {
+            this.mixed = true;
+         }
+      }
+
+      synchronized void reconfigured(ConfigSnapshot snapshot)
+      {
+         this.configured = snapshot;
+         this.mixed = false;
+      }
+
+      synchronized ConfigSnapshot getConfigured()
+      {
+         return this.mixed ? null : this.configured;
+      }
+   }
+
+   /**
+    * A weak reference to a bean which is equal to any other reference to the
+    * same bean, and which keeps the bean's identity hash code after the bean
+    * has been collected.
+    */
+   private static final class BeanReference extends WeakReference<Object>
+   {
+      private final ConfigurationSourceIdentifier sourceId;
+      private final int hashCode;
+
+      BeanReference(Object bean, ConfigurationSourceIdentifier sourceId, ReferenceQueue<Object> queue)
+      {
+         super(bean, queue);
+         this.sourceId = sourceId;
+         this.hashCode = System.identityHashCode(bean);
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (obj == this)
+         {
+            return true;
+         }
+         if (!(obj instanceof BeanReference))
+         {
+            return false;
+         }
+         Object bean = get();
+         return bean != null && bean == ((BeanReference) obj).get();
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return this.hashCode;
+      }
+   }
+}
@@ -0,0 +1,449 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable set of configuration properties, as read from a single
+ * configuration source. The keys and values are held in flat arrays with an
+ * open addressing index, so lookups take no lock and create no objects, and
+ * a snapshot may be shared freely between threads.
+ * <p/>
+ * Every snapshot is given a version number when it is created, which is
+ * greater than that of every snapshot created before it, so a reader can tell
+ * whether the configuration it holds has been replaced.
+ * <p/>
+ * A snapshot of properties built with system property or environment layers
+ * keeps those layers: a key which is not among the snapshot's own keys is
+ * looked up in the layers, as {@link Properties#getProperty(String)} would.
+ * The first lookup of a layered key takes the layers' locks, and its value is
+ * then remembered by the snapshot, so later lookups of the key take none.
+ * Only the snapshot's own keys are listed by {@link #keySet()}.
+ * 
+ * @author zcarioca
+ */
+public final class ConfigSnapshot
+{
+   private static final AtomicLong versions = new AtomicLong();
+   private static final Object UNDEFINED = new Object();
+   private static final ConfigSnapshot EMPTY = new ConfigSnapshot(new String[0], new String[0], null);
+
+   private final String[] keys;
+   private final String[] values;
+   private final int[] table;
+   private final int mask;
+   private final LayeredProperties layers;
+   private final ConcurrentMap<String, Object> layered;
+   private final long version;
+
+   /**
+    * Creates a snapshot of the properties, including any defaults.
+    * 
+    * @param properties The properties, may be null.
+    * @return Returns the snapshot.
+    */
+   public static ConfigSnapshot of(Properties properties)
+   {
+      if (properties == null)
+      {
+         return EMPTY;
+      }
+      Set<String> names = properties.stringPropertyNames();
+      String[] keys = new String[names.size()];
+      String[] values = new String[keys.length];
+      int count = 0;
+      for (String name : names)
+      {
+         String value = properties.getProperty(name);
+         if (value != null && count < keys.length)
+         {
+            keys[count] = name;
+            values[count++] = value;
+         }
+      }
+      LayeredProperties layers = properties instanceof LayeredProperties ? (LayeredProperties) properties : null;
+      return new ConfigSnapshot(Arrays.copyOf(keys, count), Arrays.copyOf(values, count), layers);
+   }
+
+   /**
+    * Creates a snapshot of the entries of the map. Entries with a null key or
+    * value are ignored.
+    * 
+    * @param properties The properties, may be null.
+    * @return Returns the snapshot.
+    */
+   public static ConfigSnapshot of(Map<String, String> properties)
+   {
+      if (properties == null)
+      {
+         return EMPTY;
+      }
+      String[] keys = new String[properties.size()];
+      String[] values = new String[keys.length];
+      int count = 0;
+      for (Entry<String, String> entry : properties.entrySet())
+      {
+         if (entry.getKey() != null && entry.getValue() != null && count < keys.length)
+         {
+            keys[count] = entry.getKey();
+            values[count++] = entry.getValue();
+         }
+      }
+      return new ConfigSnapshot(Arrays.copyOf(keys, count), Arrays.copyOf(values, count), null);
+   }
+
+   /**
+    * Gets the empty snapshot.
+    * 
+    * @return Returns the empty snapshot.
+    */
+   public static ConfigSnapshot empty()
+   {
+      return EMPTY;
+   }
+
+   private ConfigSnapshot(String[] keys, String[] values, LayeredProperties layers)
+   {
+      // slots hold the key index plus one, zero marks an empty slot
+      int size = 2;
+      while (size < keys.length * 2)
+      {
+         size <<= 1;
+      }
+      int[] table = new int[size];
+      int mask = size - 1;
+
+      int count = 0;
+      for (int i = 0; i < keys.length; i++)
+      {
+         int slot = hash(keys[i]) & mask;
+         while (table[slot] != 0 && !keys[table[slot] - 1].equals(keys[i]))
+         {
+            slot = (slot + 1) & mask;
+         }
+         if (table[slot] != 0)
+         {
+            // a repeated key keeps its first position and takes the last value
+            values[table[slot] - 1] = values[i];
+            continue;
+         }
+         keys[count] = keys[i];
+         values[count] = values[i];
+         table[slot] = ++count;
+      }
+
+      this.keys = count == keys.length ? keys : Arrays.copyOf(keys, count);
+      this.values = count == values.length ? values : Arrays.copyOf(values, count);
+      this.table = table;
+      this.mask = mask;
+      this.layers = layers;
+      this.layered = layers != null ? new ConcurrentHashMap<String, Object>() : null;
+      this.version = versions.incrementAndGet();
+   }
+
+   /**
+    * Gets the value of a property.
+    * 
+    * @param key The property key.
+    * @return Returns the value, or null if the property is not set.
+    */
+   public String get(String key)
+   {
+      int index = indexOf(key);
+      if (index >= 0)
+      {
+         return this.values[index];
+      }
+      return this.layers != null && key != null ? getLayered(key) : null;
+   }
+
+   /**
+    * Gets the value of a property.
+    * 
+    * @param key The property key.
+    * @param defaultValue The value to return if the property is not set.
+    * @return Returns the value, or the default value if the property is not
+    *         set.
+    */
+   public String get(String key, String defaultValue)
+   {
+      String value = get(key);
+      return value != null ? value : defaultValue;
+   }
+
+   /**
+    * Returns true if the property is one of the snapshot's own keys.
+    * 
+    * @param key The property key.
+    * @return Returns true if the snapshot contains the key.
+    */
+   public boolean containsKey(String key)
+   {
+      return indexOf(key) >= 0;
+   }
+
+   /**
+    * Gets the number of the snapshot's own keys.
+    * 
+    * @return Returns the number of properties.
+    */
+   public int size()
+   {
+      return this.keys.length;
+   }
+
+   /**
+    * Returns true if the snapshot has no keys of its own.
+    * 
+    * @return Returns true if the snapshot is empty.
+    */
+   public boolean isEmpty()
+   {
+      return this.keys.length == 0;
+   }
+
+   /**
+    * Gets the snapshot's own keys, which cannot be modified.
+    * 
+    * @return Returns the keys.
+    */
+   public Set<String> keySet()
+   {
+      return new AbstractSet<String>()
+      {
+         @Override
+         public boolean contains(Object o)
+         {
+            return o instanceof String && containsKey((String) o);
+         }
+
+         @Override
+         public int size()
+         {
+            return keys.length;
+         }
+
+         @Override
+         public Iterator<String> iterator()
+         {
+            return new Iterator<String>()
+            {
+               private int index;
+
+               @Override
+               public boolean hasNext()
+               {
+                  return index < keys.length;
+               }
+
+               @Override
+               public String next()
+               {
+                  if (index >= keys.length)
+                  {
+                     throw new NoSuchElementException();
+                  }
+                  return keys[index++];
+               }
+
+               @Override
+               public void remove()
+               {
+                  throw new UnsupportedOperationException();
+               }
+            };
+         }
+      };
+   }
+
+   /**
+    * Gets the version of this snapshot. A snapshot created later always has
+    * a greater version.
+    * 
+    * @return Returns the version.
+    */
+   public long getVersion()
+   {
+      return this.version;
+   }
+
+   /**
+    * Gets the keys whose values differ between this snapshot and an earlier
+    * one: keys which were added, removed, or given a new value. Only the
+    * snapshots' own keys are compared.
+    * 
+    * @param previous The earlier snapshot, may be null.
+    * @return Returns an immutable set of the changed keys, which is every key
+    *         of this snapshot if there is no earlier snapshot.
+    */
+   public Set<String> changedKeys(ConfigSnapshot previous)
+   {
+      if (previous == null)
+      {
+         return Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(this.keys)));
+      }
+      Set<String> changed = new LinkedHashSet<String>();
+      for (int i = 0; i < this.keys.length; i++)
+      {
+         int index = previous.indexOf(this.keys[i]);
+         if (index < 0 || !previous.values[index].equals(this.values[i]))
+         {
+            changed.add(this.keys[i]);
+         }
+      }
+      for (int i = 0; i < previous.keys.length; i++)
+      {
+         if (indexOf(previous.keys[i]) < 0)
+         {
+            changed.add(previous.keys[i]);
+         }
+      }
+      return Collections.unmodifiableSet(changed);
+   }
+
+   /**
+    * Copies the snapshot into a new {@link Properties} object, for code which
+    * still works with properties. Any system property or environment layers
+    * are kept.
+    * 
+    * @return Returns a new properties object.
+    */
+   public Properties toProperties()
+   {
+      Properties properties = this.layers != null ? this.layers.copyLayers() : new Properties();
+      for (int i = 0; i < this.keys.length; i++)
+      {
+         properties.setProperty(this.keys[i], this.values[i]);
+      }
+      return properties;
+   }
+
+   /**
+    * Returns true if the other object is a snapshot with the same keys and
+    * values. The version and the layers are not compared.
+    */
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (obj == this)
+      {
+         return true;
+      }
+      if (!(obj instanceof ConfigSnapshot))
+      {
+         return false;
+      }
+      ConfigSnapshot other = (ConfigSnapshot) obj;
+      if (other.size() != size())
+      {
+         return false;
+      }
+      for (int i = 0; i < this.keys.length; i++)
+      {
+         int index = other.indexOf(this.keys[i]);
+         if (index < 0 || !other.values[index].equals(this.values[i]))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int hashCode()
+   {
+      int hashCode = 0;
+      for (int i = 0; i < this.keys.length; i++)
+      {
+         hashCode += this.keys[i].hashCode() ^ this.values[i].hashCode();
+      }
+      return hashCode;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      StringBuilder builder = new StringBuilder("{");
+      for (int i = 0; i < this.keys.length; i++)
+      {
+         if (i > 0)
+         {
+            builder.append(", ");
+         }
+         builder.append(this.keys[i]).append('=').append(this.values[i]);
+      }
+      return builder.append('}').toString();
+   }
+
+   private String getLayered(String key)
+   {
+      Object value = this.layered.get(key);
+      if (value == null)
+      {
+         String resolved = this.layers.getProperty(key);
+         value = resolved != null ? resolved : UNDEFINED;
+         this.layered.putIfAbsent(key, value);
+      }
+      return value != UNDEFINED ? (String) value : null;
+   }
+
+   private int indexOf(String key)
+   {
+      if (key == null)
+      {
+         return -1;
+      }
+      int slot = hash(key) & this.mask;
+      int index;
+      while ((index = this.table[slot]) != 0)
+      {
+         if (this.keys[index - 1].equals(key))
+         {
+            return index - 1;
+         }
+         slot = (slot + 1) & this.mask;
+      }
+      return -1;
+   }
+
+   private static int hash(String key)
+   {
+      int hash = key.hashCode() * 0x9E3779B9;
+      return hash ^ (hash >>> 16);
+   }
+}
@@ -0,0 +1,96 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+/**
+ * Holds the current configuration of a bean type as a whole instance, for
+ * readers which must never see a partly reloaded configuration.
+ * <p/>
+ * When the bean's configuration source changes, a new instance is created and
+ * configured away from the readers, and then published by a single volatile
+ * write. A reader which calls {@link #get()} sees either the complete old
+ * instance or the complete new one, and every value written to the new
+ * instance before it was published, without taking a lock. Readers should
+ * call {@link #get()} once per unit of work and read the values from the
+ * instance it returns, rather than keeping the instance.
+ * <p/>
+ * Holders are created by
+ * {@link ConfigurationUtilities#createHolder(Class)}. The configuration
+ * utilities only keep weak references to them, so a holder is reloaded for
+ * as long as the application uses it.
+ * 
+ * @author zcarioca
+ */
+public final class ConfigurationHolder<T>
+{
+   private final Class<T> beanType;
+   private volatile T current;
+
+   /**
+    * Creates a holder of an instance which has been fully configured.
+    * 
+    * @param beanType The bean type.
+    * @param initial The configured instance.
+    */
+   ConfigurationHolder(Class<T> beanType, T initial)
+   {
+      this.beanType = beanType;
+      this.current = initial;
+   }
+
+   /**
+    * Gets the current configuration.
+    * 
+    * @return Returns the configured instance.
+    */
+   public T get()
+   {
+      return this.current;
+   }
+
+   /**
+    * Gets the type of the configured instances.
+    * 
+    * @return Returns the bean type.
+    */
+   public Class<T> getBeanType()
+   {
+      return this.beanType;
+   }
+
+   /**
+    * Replaces the current configuration. The instance must not be changed
+    * once it has been published.
+    * 
+    * @param instance The newly configured instance.
+    */
+   void publish(Object instance)
+   {
+      this.current = this.beanType.cast(instance);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      return String.format("ConfigurationHolder[%s]", this.beanType.getName());
+   }
+}
@@ -0,0 +1,928 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2010 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import net.zcarioca.zcommons.config.ConfigurationProcessListener;
+import net.zcarioca.zcommons.config.ConfigurationUpdateListener;
+import net.zcarioca.zcommons.config.data.BeanBinder;
+import net.zcarioca.zcommons.config.data.BindingEngine;
+import net.zcarioca.zcommons.config.data.GeneratedBindingEngine;
+import net.zcarioca.zcommons.config.data.PreparedBinding;
+import net.zcarioca.zcommons.config.data.SetterBindingEngine;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceProvider;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceProviderFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This singleton works as the configuration injection engine.
+ * 
+ * @author zcarioca
+ */
+public class ConfigurationUtilities
+{
+   private static final Logger logger = LoggerFactory.getLogger(ConfigurationUtilities.class);
+   private static ConfigurationUtilities configUtil = new ConfigurationUtilities();
+
+   private final BeanRegistry beanRegistry;
+   private final CopyOnWriteArraySet<ConfigurationProcessListener> processListeners;
+   private final CopyOnWriteArraySet<ConfigurationUpdateListener> updateListeners;
+   private final SnapshotCache snapshotCache;
+
+   private PropertiesBuilderFactory propertiesBuilderFactory = new PropertiesBuilderFactory();
+   private BindingEngine bindingEngine = new GeneratedBindingEngine();
+   private ReconfigurationExecutor reconfigurationExecutor;
+   private volatile ListenerDispatcher listenerDispatcher;
+
+   private boolean reconfigureOnUpdateEnabled;
+   private boolean snapshotCacheEnabled = true;
+
+   /**
+    * Gets an instance of this singleton.
+    * 
+    * @return Returns an instance of the singleton.
+    */
+   public static ConfigurationUtilities getInstance()
+   {
+      return configUtil;
+   }
+   
+   /**
+    * Utility method to configure a bean with an existing {@link Properties}
+    * object.
+    * 
+    * @param bean The bean to configure.
+    * @param properties The properties.
+    */
+   public static void configureBean(Object bean, Properties properties) throws ConfigurationException
+   {
+      setProperties(bean, ConfigSnapshot.of(properties));
+   }
+
+   /**
+    * Utility method to configure a bean with an existing
+    * {@link ConfigSnapshot}.
+    * 
+    * @param bean The bean to configure.
+    * @param snapshot The configuration snapshot.
+    */
+   public static void configureBean(Object bean, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      setProperties(bean, snapshot);
+   }
+
+   /**
+    * Configures the supplied bean.
+    * 
+    * @param bean The bean to configure.
+    */
+   public void configureBean(Object bean) throws ConfigurationException
+   {
+      configureBean(bean, false);
+   }
+
+   /**
+    * Configures the supplied bean.
+    * 
+    * @param bean The bean to configure.
+    * @param invokePostConstruct Whether to invoke any &#64;PostConstruct
+    *        methods.
+    */
+   public void configureBean(Object bean, boolean invokePostConstruct) throws ConfigurationException
+   {
+      if (bean == null)
+      {
+         logger.warn("Bean is NULL");
+         throw new IllegalArgumentException("The bean is NULL");
+      }
+      invokeStartConfig(bean);
+
+      configureBeanObject(bean);
+      if (invokePostConstruct)
+      {
+         invokePostConstruct(bean);
+      }
+
+      invokeCompleteConfig(bean);
+   }
+
+   /**
+    * Creates a {@link ConfigurationHolder} of a configured instance of the
+    * bean type. When the bean's configuration source changes, a new instance
+    * is configured and published whole, so readers of the holder never see a
+    * partly reloaded configuration. The instances are created with the
+    * type's no argument constructor, and their &#64;PostConstruct methods are
+    * invoked.
+    * 
+    * @param beanType The bean type.
+    * @return Returns the holder.
+    * @throws ConfigurationException if the instance could not be created or
+    *         configured.
+    */
+   public <T> ConfigurationHolder<T> createHolder(Class<T> beanType) throws ConfigurationException
+   {
+      if (beanType == null)
+      {
+         throw new IllegalArgumentException("The bean type is NULL");
+      }
+      T instance = beanType.cast(newInstance(beanType));
+      invokeStartConfig(instance);
+
+      ConfigurationSourceIdentifier sourceId = new ConfigurationSourceIdentifier(instance);
+      ConfigurationHolder<T> holder;
+      Lock lock = this.beanRegistry.getLock(sourceId).readLock();
+      lock.lock();
+      try
+      {
+         ConfigSnapshot snapshot = loadSnapshot(sourceId);
+         setProperties(instance, snapshot);
+         invokePostConstruct(instance);
+         holder = new ConfigurationHolder<T>(beanType, instance);
+         this.beanRegistry.register(sourceId, holder);
+         this.beanRegistry.configured(sourceId, snapshot);
+      }
+      finally
+      {
+         lock.unlock();
+      }
+
+      invokeCompleteConfig(instance);
+      return holder;
+   }
+
+   /**
+    * Reconfigures the beans that inherited their configuration from the given
+    * {@link ConfigurationSourceIdentifier}. The source is read again and
+    * compared, key by key, with the snapshot the beans were last configured
+    * from: only the properties whose values changed are written, and beans
+    * none of whose properties changed are left alone. Messages for each
+    * updated bean are sent to any registered
+    * {@link ConfigurationUpdateListener}, with the keys that changed. The
+    * cached snapshot of the source is dropped, even if reconfiguration on
+    * update is disabled, so that beans configured later read the source
+    * again.
+    * <p/>
+    * The values of every bean are converted before any bean is written, so a
+    * value which cannot be converted leaves all of the beans as they were.
+    * Beans are still written in place while other threads may read them;
+    * readers which must see the old or the new configuration as a whole
+    * should read it from a {@link ConfigurationHolder}.
+    * <p/>
+    * Beans of the same source which are configured meanwhile wait for the
+    * reconfiguration to finish; beans of other sources do not.
+    * 
+    * @param sourceId The {@link ConfigurationSourceIdentifier}.
+    * @throws ConfigurationException if there is an error configuring any of the
+    *         associated beans.
+    */
+   public void runReconfiguration(ConfigurationSourceIdentifier sourceId) throws ConfigurationException
+   {
+      runReconfiguration(sourceId, false);
+   }
+
+   /**
+    * Reconfigures the beans that inherited their configuration from the given
+    * {@link ConfigurationSourceIdentifier}, as
+    * {@link #runReconfiguration(ConfigurationSourceIdentifier)} does, or
+    * forces every property of every bean to be written again.
+    * 
+    * @param sourceId The {@link ConfigurationSourceIdentifier}.
+    * @param rebindAll Whether every bean is updated, whether or not its
+    *        properties changed.
+    * @throws ConfigurationException if there is an error configuring any of the
+    *         associated beans.
+    */
+   public void runReconfiguration(ConfigurationSourceIdentifier sourceId, boolean rebindAll) throws ConfigurationException
+   {
+      Lock lock = this.beanRegistry.getLock(sourceId).writeLock();
+      lock.lock();
+      try
+      {
+         this.snapshotCache.invalidate(sourceId);
+         if (isReconfigureOnUpdateEnabled())
+         {
+            ConfigSnapshot previous = rebindAll ? null : this.beanRegistry.getConfiguredSnapshot(sourceId);
+            ConfigSnapshot snapshot = loadSnapshot(sourceId);
+
+            // every value is converted before any bean is changed
+            List<PendingUpdate> updates = new ArrayList<PendingUpdate>();
+            for (Object bean : this.beanRegistry.getBeans(sourceId))
+            {
+               PendingUpdate update = prepareUpdate(bean, previous, snapshot);
+               if (update != null)
+               {
+                  updates.add(update);
+               }
+            }
+            for (PendingUpdate update : updates)
+            {
+               update.apply();
+            }
+            this.beanRegistry.reconfigured(sourceId, snapshot);
+         }
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Schedules the reconfiguration of the beans that inherited their
+    * configuration from the given {@link ConfigurationSourceIdentifier} on the
+    * {@link ReconfigurationExecutor}, and returns without waiting for it.
+    * Providers which detect changes should use this rather than
+    * {@link #runReconfiguration(ConfigurationSourceIdentifier)}, so that a
+    * slow bean does not hold up the detection of other changes.
+    * 
+    * @param sourceId The {@link ConfigurationSourceIdentifier}.
+    * @return Returns true if the reconfiguration was queued, or false if the
+    *         queue was full and it was deferred, or the executor dropped it.
+    */
+   public boolean scheduleReconfiguration(ConfigurationSourceIdentifier sourceId)
+   {
+      return getReconfigurationExecutor().submit(this, sourceId);
+   }
+
+   /**
+    * Schedules the reconfiguration of the beans that inherited their
+    * configuration from the given {@link ConfigurationSourceIdentifier}, as
+    * {@link #scheduleReconfiguration(ConfigurationSourceIdentifier)} does, and
+    * tells the callback whether the reconfiguration succeeded.
+    * 
+    * @param sourceId The {@link ConfigurationSourceIdentifier}.
+    * @param callback The callback to tell once the reconfiguration has
+    *        finished.
+    * @return Returns true if the reconfiguration was queued, or false if the
+    *         queue was full and it was deferred, or the executor dropped it.
+    */
+   public boolean scheduleReconfiguration(ConfigurationSourceIdentifier sourceId, ReconfigurationExecutor.Callback callback)
+   {
+      return getReconfigurationExecutor().submit(this, sourceId, callback);
+   }
+
+   /**
+    * Gets the {@link ReconfigurationExecutor} which runs scheduled
+    * reconfigurations, creating the default one on first use.
+    * 
+    * @return Returns the reconfiguration executor.
+    */
+   public synchronized ReconfigurationExecutor getReconfigurationExecutor()
+   {
+      if (this.reconfigurationExecutor == null)
+      {
+         this.reconfigurationExecutor = new ReconfigurationExecutor();
+      }
+      return this.reconfigurationExecutor;
+   }
+
+   /**
+    * Sets the {@link ReconfigurationExecutor} which runs scheduled
+    * reconfigurations. The previous executor is not shut down.
+    * 
+    * @param reconfigurationExecutor The reconfiguration executor.
+    * @throws IllegalArgumentException if the executor is null.
+    */
+   public synchronized void setReconfigurationExecutor(ReconfigurationExecutor reconfigurationExecutor)
+   {
+      if (reconfigurationExecutor == null)
+      {
+         throw new IllegalArgumentException("The reconfiguration executor cannot be null");
+      }
+      this.reconfigurationExecutor = reconfigurationExecutor;
+   }
+
+   /**
+    * Gets the executor the listeners are notified on.
+    * 
+    * @return Returns the listener executor, or null if the listeners are
+    *         notified on the thread which configures the bean.
+    */
+   public Executor getListenerExecutor()
+   {
+      ListenerDispatcher dispatcher = this.listenerDispatcher;
+      return dispatcher != null ? dispatcher.getExecutor() : null;
+   }
+
+   /**
+    * Sets an executor to notify the process and update listeners on, so that
+    * slow listeners do not hold up the configuration of beans. The events of
+    * a bean are still delivered one at a time and in order, but they may be
+    * delivered after the bean's configuration has returned. By default, the
+    * listeners are notified on the thread which configures the bean.
+    * 
+    * @param listenerExecutor The executor, or null to notify the listeners
+    *        on the configuring thread.
+    */
+   public void setListenerExecutor(Executor listenerExecutor)
+   {
+      this.listenerDispatcher = listenerExecutor != null ? new ListenerDispatcher(listenerExecutor) : null;
+   }
+
+   /**
+    * Gets the {@link PropertiesBuilderFactory} for configuring the system.
+    * 
+    * @return Returns the {@link PropertiesBuilderFactory} for this
+    *         configuration.
+    */
+   public PropertiesBuilderFactory getPropertiesBuilderFactory()
+   {
+      return this.propertiesBuilderFactory;
+   }
+
+   /**
+    * Sets the {@link PropertiesBuilderFactory} for the configuration.
+    * 
+    * @param propertiesBuilderFactory The {@link PropertiesBuilderFactory} to
+    *        use.
+    */
+   public void setPropertiesBuilderFactory(PropertiesBuilderFactory propertiesBuilderFactory)
+   {
+      this.propertiesBuilderFactory = propertiesBuilderFactory;
+      this.snapshotCache.invalidateAll();
+   }
+
+   /**
+    * Gets the cache of the configuration snapshot of each source. Providers
+    * which detect a change to one of their sources should invalidate it here,
+    * or call {@link #runReconfiguration(ConfigurationSourceIdentifier)}.
+    * 
+    * @return Returns the snapshot cache.
+    */
+   public SnapshotCache getSnapshotCache()
+   {
+      return this.snapshotCache;
+   }
+
+   /**
+    * Sets whether the configuration snapshot of each source is cached and
+    * shared by the beans configured from it. Enabled by default.
+    * 
+    * @param snapshotCacheEnabled Whether snapshots are cached.
+    */
+   public void setSnapshotCacheEnabled(boolean snapshotCacheEnabled)
+   {
+      this.snapshotCacheEnabled = snapshotCacheEnabled;
+      if (!snapshotCacheEnabled)
+      {
+         this.snapshotCache.invalidateAll();
+      }
+   }
+
+   /**
+    * Returns true if the configuration snapshot of each source is cached.
+    * 
+    * @return Returns true if snapshots are cached.
+    */
+   public boolean isSnapshotCacheEnabled()
+   {
+      return this.snapshotCacheEnabled;
+   }
+   
+   /**
+    * Gets the {@link BindingEngine} used to write properties to beans.
+    * 
+    * @return Returns the binding engine.
+    */
+   public BindingEngine getBindingEngine()
+   {
+      return this.bindingEngine;
+   }
+
+   /**
+    * Sets the {@link BindingEngine} used to write properties to beans. The
+    * default is the {@link GeneratedBindingEngine}, which falls back to the
+    * {@link SetterBindingEngine} for beans without a generated binder.
+    * 
+    * @param bindingEngine The binding engine to use.
+    * @throws IllegalArgumentException if the binding engine is null.
+    */
+   public void setBindingEngine(BindingEngine bindingEngine)
+   {
+      if (bindingEngine == null)
+      {
+         throw new IllegalArgumentException("The binding engine cannot be null");
+      }
+      this.bindingEngine = bindingEngine;
+   }
+
+   /**
+    * Reads a properties file into a {@link Properties} object.
+    * 
+    * @param filePath
+    * @return
+    * @throws ConfigurationException
+    */
+   public static Properties loadProperties(String filePath) throws ConfigurationException 
+   {
+      InputStream inputStream = null;
+      try 
+      {
+         inputStream = new BufferedInputStream(new FileInputStream(filePath));
+         
+         PropertiesBuilderFactory factory = new PropertiesBuilderFactory(true, true);
+         return factory.newPropertiesBuilder().readAll(inputStream).build();
+      }
+      catch (IOException exc) 
+      {
+         throw new ConfigurationException("Could not load properties from file: " + filePath, exc);
+      }
+      finally
+      {
+         if (inputStream != null) 
+         {
+            IOUtils.closeQuietly(inputStream);
+         }
+      }
+   }
+
+   /**
+    * Loads a properties map for a class and resource location.
+    * 
+    * @param referenceClass The reference class.
+    * @param resourceLocation The resource file to load.
+    * @return Returns a properties map.
+    * @throws ConfigurationException if the resource file cannot be found, read,
+    *         or parsed.
+    */
+   public Properties loadProperties(Class<?> referenceClass, String resourceLocation) throws ConfigurationException
+   {
+      try
+      {
+         ConfigurationSourceIdentifier sourceId = new ConfigurationSourceIdentifier(referenceClass, resourceLocation);
+         ConfigurationSourceProvider provider = ConfigurationSourceProviderFactory.getInstance().getConfigurationSourceProvider(sourceId);
+
+         return provider.getProperties(sourceId, getPropertiesBuilderFactory());
+      }
+      catch (Throwable t)
+      {
+         throw new ConfigurationException("Could not load the properties", t);
+      }
+   }
+
+   /**
+    * Sets the properties of a bean with the given configuration snapshot.
+    * 
+    * @param bean The bean to configure.
+    * @param snapshot The configuration snapshot.
+    */
+   static void setProperties(Object bean, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      BeanBinder binder = getInstance().getBindingEngine().getBinder(bean.getClass());
+      binder.bind(bean, snapshot);
+   }
+
+   @PreDestroy
+   public void invokePreDestroyAll()
+   {
+      synchronized (this)
+      {
+         if (this.reconfigurationExecutor != null)
+         {
+            this.reconfigurationExecutor.shutdown();
+            this.reconfigurationExecutor = null;
+         }
+      }
+      this.snapshotCache.invalidateAll();
+      ConfigurationSourceProviderFactory.getInstance().clearAssociations();
+   }
+
+   /**
+    * Searches the bean for any methods annotated with &#64;PostConstruct for
+    * immediate invocation.
+    * 
+    * @param bean The bean to process
+    */
+   void invokePostConstruct(Object bean) throws ConfigurationException
+   {
+      Class<?> beanClass = bean.getClass();
+
+      do
+      {
+         for (Method method : beanClass.getDeclaredMethods())
+         {
+            if (method.isAnnotationPresent(PostConstruct.class))
+            {
+               Type[] types = method.getGenericParameterTypes();
+               if (types.length == 0)
+               {
+                  // cannot be called on method that takes arguments
+                  try
+                  {
+                     method.invoke(bean, (Object[]) null);
+                  }
+                  catch (Exception exc)
+                  {
+                     throw new ConfigurationException(String.format("Could not call method %s on the class %s", method.getName(), bean.getClass().getName()), exc);
+                  }
+               }
+            }
+         }
+      }
+      while ((beanClass = beanClass.getSuperclass()) != null);
+   }
+
+   /**
+    * Adds a {@link ConfigurationProcessListener} to the listener queue.
+    * 
+    * @param listener The listener to add.
+    */
+   public void addConfigurationProcessListener(ConfigurationProcessListener listener)
+   {
+      this.processListeners.add(listener);
+   }
+
+   /**
+    * Adds a {@link ConfigurationUpdateListener} to the listener queue.
+    * 
+    * @param listener The listener to add.
+    */
+   public void addConfigurationUpdateListener(ConfigurationUpdateListener listener)
+   {
+      this.updateListeners.add(listener);
+   }
+
+   /**
+    * Removes a {@link ConfigurationProcessListener} from the listener queue.
+    * 
+    * @param listener The listener to remove.
+    * @return Returns true if the listener was removed, false otherwise.
+    */
+   public boolean removeConfigurationProcessListener(ConfigurationProcessListener listener)
+   {
+      return this.processListeners.remove(listener);
+   }
+
+   /**
+    * Removes a {@link ConfigurationUpdateListener} from the listener queue.
+    * 
+    * @param listener The listener to remove.
+    * @return Returns true if the listener was removed, false otherwise.
+    */
+   public boolean removeConfigurationUpdateListener(ConfigurationUpdateListener listener)
+   {
+      return this.updateListeners.remove(listener);
+   }
+
+   /**
+    * Gets a collection of configuration identifiers that have already been
+    * used.
+    * 
+    * @return Returns a collection of {@link ConfigurationSourceIdentifier} that
+    *         have already been loaded.
+    */
+   public Collection<ConfigurationSourceIdentifier> getConfiguredSourceIdentifiers()
+   {
+      return this.beanRegistry.getSourceIdentifiers();
+   }
+
+   /**
+    * Gets the registry of the beans configured from each source, which are
+    * reconfigured when their source changes.
+    * 
+    * @return Returns the bean registry.
+    */
+   public BeanRegistry getBeanRegistry()
+   {
+      return this.beanRegistry;
+   }
+
+   /**
+    * Stops tracking a configured bean, so that it is no longer reconfigured
+    * when its source changes. Beans which are garbage collected are dropped
+    * without being unregistered.
+    * 
+    * @param bean The bean.
+    * @return Returns true if the bean was being tracked.
+    */
+   public boolean unregisterBean(Object bean)
+   {
+      return this.beanRegistry.unregister(bean);
+   }
+
+   public void setReconfigureOnUpdateEnabled(boolean reconfigureOnUpdateEnabled)
+   {
+      this.reconfigureOnUpdateEnabled = reconfigureOnUpdateEnabled;
+   }
+
+   public boolean isReconfigureOnUpdateEnabled()
+   {
+      return this.reconfigureOnUpdateEnabled;
+   }
+
+   private void configureBeanObject(Object bean) throws ConfigurationException
+   {
+      ConfigurationSourceIdentifier sourceId = new ConfigurationSourceIdentifier(bean);
+
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Bean %s of type %s, has the source id %s", bean, bean.getClass(), sourceId));
+
+      // beans of other sources are configured, and reconfigured, in parallel
+      Lock lock = this.beanRegistry.getLock(sourceId).readLock();
+      lock.lock();
+      try
+      {
+         ConfigSnapshot snapshot = loadSnapshot(sourceId);
+         setProperties(bean, snapshot);
+         this.beanRegistry.register(sourceId, bean);
+         this.beanRegistry.configured(sourceId, snapshot);
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   private ConfigSnapshot loadSnapshot(ConfigurationSourceIdentifier sourceId) throws ConfigurationException
+   {
+      ConfigurationSourceProvider provider = ConfigurationSourceProviderFactory.getInstance().getConfigurationSourceProvider(sourceId);
+
+      if (logger.isDebugEnabled())
+      {
+         logger.debug(String.format("Source ID %s being processed by provider type %s", sourceId, provider.getProviderID()));
+      }
+
+      if (isSnapshotCacheEnabled())
+      {
+         return this.snapshotCache.getSnapshot(sourceId, provider, getPropertiesBuilderFactory());
+      }
+      return provider.getSnapshot(sourceId, getPropertiesBuilderFactory());
+   }
+
+   /**
+    * Converts the properties of the bean which changed between the snapshots,
+    * unless nothing changed. Placeholders are resolved when a snapshot is
+    * built, so a property whose value refers to a changed key has itself
+    * changed. The bean of a holder is not changed: a new instance is
+    * configured instead, to be published whole.
+    */
+   private PendingUpdate prepareUpdate(Object bean, ConfigSnapshot previous, ConfigSnapshot snapshot) throws ConfigurationException
+   {
+      ConfigurationHolder<?> holder = bean instanceof ConfigurationHolder ? (ConfigurationHolder<?>) bean : null;
+      Class<?> beanType = holder != null ? holder.getBeanType() : bean.getClass();
+      BeanBinder binder = getBindingEngine().getBinder(beanType);
+      Set<String> propertyKeys = binder.getPropertyKeys();
+
+      Set<String> changedKeys;
+      if (previous == null)
+      {
+         changedKeys = propertyKeys != null ? propertyKeys : snapshot.keySet();
+      }
+      else if (propertyKeys != null)
+      {
+         // looked up rather than diffed, so that changes to the layers count
+         changedKeys = new LinkedHashSet<String>();
+         for (String key : propertyKeys)
+         {
+            if (!equal(previous.get(key), snapshot.get(key)))
+            {
+               changedKeys.add(key);
+            }
+         }
+      }
+      else
+      {
+         changedKeys = snapshot.changedKeys(previous);
+      }
+
+      if (previous != null && changedKeys.isEmpty())
+      {
+         if (logger.isDebugEnabled())
+            logger.debug(String.format("Bean '%s' is not affected by the update", bean));
+         return null;
+      }
+
+      changedKeys = Collections.unmodifiableSet(changedKeys);
+      if (holder != null)
+      {
+         Object instance = newInstance(beanType);
+         binder.bind(instance, snapshot);
+         invokePostConstruct(instance);
+         return new PendingUpdate(instance, holder, null, changedKeys);
+      }
+      PreparedBinding binding = binder.prepare(bean, snapshot, previous != null ? changedKeys : null);
+      return new PendingUpdate(bean, null, binding, changedKeys);
+   }
+
+   private static Object newInstance(Class<?> beanType) throws ConfigurationException
+   {
+      try
+      {
+         return beanType.getDeclaredConstructor().newInstance();
+      }
+      catch (Exception exc)
+      {
+         throw new ConfigurationException(String.format("Could not create an instance of the class %s", beanType.getName()), exc);
+      }
+   }
+
+   private static boolean equal(String a, String b)
+   {
+      return a == null ? b == null : a.equals(b);
+   }
+
+   private void invokeStartConfig(final Object bean)
+   {
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Configuration of bean '%s' started", bean.toString()));
+
+      if (this.processListeners.isEmpty())
+      {
+         return;
+      }
+      // the iterator is a snapshot of the listeners as the event is sent
+      final Iterator<ConfigurationProcessListener> listeners = this.processListeners.iterator();
+      dispatch(bean, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            while (listeners.hasNext())
+            {
+               ConfigurationProcessListener listener = listeners.next();
+               listener.startingConfiguration(bean);
+            }
+         }
+      });
+   }
+
+   private void invokeCompleteConfig(final Object bean)
+   {
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Configuration of bean '%s' completed", bean.toString()));
+
+      if (this.processListeners.isEmpty())
+      {
+         return;
+      }
+      // the iterator is a snapshot of the listeners as the event is sent
+      final Iterator<ConfigurationProcessListener> listeners = this.processListeners.iterator();
+      dispatch(bean, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            while (listeners.hasNext())
+            {
+               ConfigurationProcessListener listener = listeners.next();
+               listener.completedConfiguration(bean);
+            }
+         }
+      });
+   }
+
+   private void invokeStartUpdate(final Object bean)
+   {
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Update of bean '%s' started", bean.toString()));
+
+      if (this.updateListeners.isEmpty())
+      {
+         return;
+      }
+      // the iterator is a snapshot of the listeners as the event is sent
+      final Iterator<ConfigurationUpdateListener> listeners = this.updateListeners.iterator();
+      dispatch(bean, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            while (listeners.hasNext())
+            {
+               ConfigurationUpdateListener listener = listeners.next();
+               listener.startingBeanUpdate(bean);
+            }
+         }
+      });
+   }
+
+   private void invokeCompleteUpdate(final Object bean, final Set<String> changedKeys)
+   {
+      if (logger.isDebugEnabled())
+         logger.debug(String.format("Update of bean '%s' completed", bean.toString()));
+
+      if (this.updateListeners.isEmpty())
+      {
+         return;
+      }
+      // the iterator is a snapshot of the listeners as the event is sent
+      final Iterator<ConfigurationUpdateListener> listeners = this.updateListeners.iterator();
+      dispatch(bean, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            while (listeners.hasNext())
+            {
+               ConfigurationUpdateListener listener = listeners.next();
+               listener.completedBeanUpdate(bean, changedKeys);
+            }
+         }
+      });
+   }
+
+   /**
+    * Delivers an event to the listeners, on the calling thread unless a
+    * listener executor is set. The listeners are those registered when the
+    * event was sent, and no lock is held while they run.
+    */
+   private void dispatch(Object bean, Runnable event)
+   {
+      ListenerDispatcher dispatcher = this.listenerDispatcher;
+      if (dispatcher == null)
+      {
+         event.run();
+      }
+      else
+      {
+         dispatcher.dispatch(bean, event);
+      }
+   }
+
+   /**
+    * The update of one bean, whose values have been converted.
+    */
+   private final class PendingUpdate
+   {
+      private final Object bean;
+      private final ConfigurationHolder<?> holder;
+      private final PreparedBinding binding;
+      private final Set<String> changedKeys;
+
+      PendingUpdate(Object bean, ConfigurationHolder<?> holder, PreparedBinding binding, Set<String> changedKeys)
+      {
+         this.bean = bean;
+         this.holder = holder;
+         this.binding = binding;
+         this.changedKeys = changedKeys;
+      }
+
+      void apply() throws ConfigurationException
+      {
+         invokeStartUpdate(this.bean);
+         if (this.holder != null)
+         {
+            this.holder.publish(this.bean);
+         }
+         else
+         {
+            this.binding.apply();
+         }
+         invokeCompleteUpdate(this.bean, this.changedKeys);
+      }
+   }
+
+   static void resetConfigurationUtilities()
+   {
+      configUtil = new ConfigurationUtilities();
+   }
+
+   protected ConfigurationUtilities()
+   {
+      this.processListeners = new CopyOnWriteArraySet<ConfigurationProcessListener>();
+      this.updateListeners = new CopyOnWriteArraySet<ConfigurationUpdateListener>();
+      this.beanRegistry = new BeanRegistry();
+      this.snapshotCache = new SnapshotCache();
+   }
+}
@@ -0,0 +1,227 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of <code>int</code> values which are stored without
+ * boxing. Membership is checked against an open addressing hash table, so a
+ * configured set of identifiers can be queried on every request without
+ * creating wrapper objects or following references.
+ * <p/>
+ * The values are kept in the order in which they were configured, without
+ * duplicates.
+ *
+ * @author zcarioca
+ */
+public final class IntSet
+{
+   private static final IntSet EMPTY = new IntSet(new int[0], 0);
+
+   private final int[] values;
+   private final int[] table;
+   private final int mask;
+   private final boolean containsZero;
+
+   /**
+    * Creates a set of the supplied values, ignoring duplicates.
+    *
+    * @param values The values.
+    * @return Returns the set.
+    */
+   public static IntSet of(int... values)
+   {
+      if (values == null || values.length == 0)
+      {
+         return EMPTY;
+      }
+      return new IntSet(values.clone(), values.length);
+   }
+
+   /**
+    * Gets the empty set.
+    *
+    * @return Returns the empty set.
+    */
+   public static IntSet empty()
+   {
+      return EMPTY;
+   }
+
+   private IntSet(int[] values, int length)
+   {
+      // the table is kept at most half full, zero marks an empty slot
+      int[] table = new int[tableSize(length)];
+      int mask = table.length - 1;
+      boolean containsZero = false;
+      int size = 0;
+
+      for (int i = 0; i < length; i++)
+      {
+         int value = values[i];
+         if (value == 0)
+         {
+            if (containsZero)
+               continue;
+            containsZero = true;
+         }
+         else
+         {
+            int slot = hash(value) & mask;
+            while (table[slot] != 0 && table[slot] != value)
+            {
+               slot = (slot + 1) & mask;
+            }
+            if (table[slot] == value)
+               continue;
+            table[slot] = value;
+         }
+         values[size++] = value;
+      }
+
+      this.values = size == values.length ? values : Arrays.copyOf(values, size);
+      this.table = table;
+      this.mask = mask;
+      this.containsZero = containsZero;
+   }
+
+   /**
+    * Returns true if the value is in the set.
+    *
+    * @param value The value to look for.
+    * @return Returns true if the value is in the set.
+    */
+   public boolean contains(int value)
+   {
+      if (value == 0)
+      {
+         return containsZero;
+      }
+      int slot = hash(value) & mask;
+      int current;
+      while ((current = table[slot]) != 0)
+      {
+         if (current == value)
+         {
+            return true;
+         }
+         slot = (slot + 1) & mask;
+      }
+      return false;
+   }
+
+   /**
+    * Gets the number of values in the set.
+    *
+    * @return Returns the size of the set.
+    */
+   public int size()
+   {
+      return values.length;
+   }
+
+   /**
+    * Returns true if the set has no values.
+    *
+    * @return Returns true if the set is empty.
+    */
+   public boolean isEmpty()
+   {
+      return values.length == 0;
+   }
+
+   /**
+    * Gets a copy of the values, in the order in which they were configured.
+    *
+    * @return Returns the values.
+    */
+   public int[] toArray()
+   {
+      return values.clone();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (obj == this)
+      {
+         return true;
+      }
+      if (!(obj instanceof IntSet))
+      {
+         return false;
+      }
+      IntSet other = (IntSet) obj;
+      if (other.size() != size())
+      {
+         return false;
+      }
+      for (int value : values)
+      {
+         if (!other.contains(value))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int hashCode()
+   {
+      int hashCode = 0;
+      for (int value : values)
+      {
+         hashCode += value;
+      }
+      return hashCode;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      return Arrays.toString(values);
+   }
+
+   private static int tableSize(int length)
+   {
+      int size = 2;
+      while (size < length * 2)
+      {
+         size <<= 1;
+      }
+      return size;
+   }
+
+   private static int hash(int value)
+   {
+      int hash = value * 0x9E3779B9;
+      return hash ^ (hash >>> 16);
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.util.Properties;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * The properties built by a {@link PropertiesBuilder} with system property or
+ * environment layers. The builder's own properties are held as usual, and a
+ * key which is not among them falls through to the layers when it is looked
+ * up with {@link #getProperty(String)}. Nothing is copied from the layers,
+ * and only the keys which are looked up are resolved.
+ * <p/>
+ * The layered keys are not listed by the enumeration methods, nor returned by
+ * the {@link java.util.Map} methods inherited from {@link java.util.Hashtable}.
+ * A circular reference among layered values is reported as an
+ * {@link IllegalStateException} when the key is looked up.
+ * 
+ * @author zcarioca
+ */
+class LayeredProperties extends Properties
+{
+   private static final long serialVersionUID = 1L;
+
+   private final transient PlaceholderResolver resolver;
+
+   LayeredProperties(PlaceholderResolver resolver)
+   {
+      this.resolver = resolver;
+   }
+
+   /**
+    * Creates new, empty properties with the same layers.
+    * 
+    * @return Returns the new properties.
+    */
+   LayeredProperties copyLayers()
+   {
+      return new LayeredProperties(this.resolver);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String getProperty(String key)
+   {
+      String value = super.getProperty(key);
+      if (value != null || this.resolver == null)
+      {
+         return value;
+      }
+
+      synchronized (this.resolver)
+      {
+         if (!this.resolver.isDefined(key))
+         {
+            return null;
+         }
+         try
+         {
+            return this.resolver.resolve(key);
+         }
+         catch (ConfigurationException exc)
+         {
+            throw new IllegalStateException(exc.getMessage(), exc);
+         }
+      }
+   }
+}
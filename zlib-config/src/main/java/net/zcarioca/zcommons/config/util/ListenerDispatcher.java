@@ -0,0 +1,235 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers listener events on an {@link Executor}, so that slow listeners do
+ * not hold up the configuration of beans. The events of a bean are delivered
+ * one at a time, in the order in which they were sent, while the events of
+ * different beans may be delivered in parallel.
+ * <p/>
+ * Each bean with undelivered events has a queue, which is drained by a single
+ * task on the executor and dropped once it is empty. If the executor refuses
+ * the task, the events are delivered on the sending thread.
+ * 
+ * @author zcarioca
+ */
+final class ListenerDispatcher
+{
+   private static final Logger logger = LoggerFactory.getLogger(ListenerDispatcher.class);
+
+   private final Executor executor;
+   private final Map<BeanKey, BeanEvents> pending;
+
+   /**
+    * Creates a dispatcher which delivers events on the supplied executor.
+    * 
+    * @param executor The executor.
+    */
+   ListenerDispatcher(Executor executor)
+   {
+      if (executor == null)
+      {
+         throw new IllegalArgumentException("The executor cannot be null");
+      }
+      this.executor = executor;
+      this.pending = new HashMap<BeanKey, BeanEvents>();
+   }
+
+   /**
+    * Gets the executor the events are delivered on.
+    * 
+    * @return Returns the executor.
+    */
+   Executor getExecutor()
+   {
+      return this.executor;
+   }
+
+   /**
+    * Queues an event of a bean, to be delivered after the bean's earlier
+    * events.
+    * 
+    * @param bean The bean the event is about.
+    * @param event The delivery of the event to the listeners.
+    */
+   void dispatch(Object bean, Runnable event)
+   {
+      BeanKey key = new BeanKey(bean);
+      BeanEvents events;
+      synchronized (this.pending)
+      {
+         events = this.pending.get(key);
+         if (events != null)
+         {
+            events.queue.add(event);
+            return;
+         }
+         events = new BeanEvents(key);
+         events.queue.add(event);
+         this.pending.put(key, events);
+      }
+
+      try
+      {
+         this.executor.execute(events);
+      }
+      catch (RejectedExecutionException exc)
+      {
+         logger.warn(String.format("The listener executor refused the events of bean '%s', delivering them on the calling thread", bean));
+         events.run();
+      }
+   }
+
+   /**
+    * Gets the number of beans with undelivered events.
+    * 
+    * @return Returns the number of beans.
+    */
+   int getPendingCount()
+   {
+      synchronized (this.pending)
+      {
+         return this.pending.size();
+      }
+   }
+
+   /**
+    * The undelivered events of one bean.
+    */
+   private final class BeanEvents implements Runnable
+   {
+      private final BeanKey key;
+      private final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+
+      BeanEvents(BeanKey key)
+      {
+         this.key = key;
+      }
+
+      @Override
+      public void run()
+      {
+         boolean drained = false;
+         try
+         {
+            drained = drain();
+         }
+         finally
+         {
+            if (!drained)
+            {
+               resume();
+            }
+         }
+      }
+
+      private boolean drain()
+      {
+         while (true)
+         {
+            Runnable event;
+            synchronized (pending)
+            {
+               event = this.queue.poll();
+               if (event == null)
+               {
+                  pending.remove(this.key);
+                  return true;
+               }
+            }
+            try
+            {
+               event.run();
+            }
+            catch (RuntimeException exc)
+            {
+               logger.warn(String.format("A listener failed on bean '%s'", this.key.bean), exc);
+            }
+         }
+      }
+
+      /**
+       * Hands the remaining events to a new task after a listener has thrown
+       * an error, so that the bean's events are not left without a task to
+       * deliver them.
+       */
+      private void resume()
+      {
+         synchronized (pending)
+         {
+            if (this.queue.isEmpty())
+            {
+               pending.remove(this.key);
+               return;
+            }
+         }
+         try
+         {
+            executor.execute(this);
+         }
+         catch (RejectedExecutionException exc)
+         {
+            int dropped;
+            synchronized (pending)
+            {
+               dropped = this.queue.size();
+               this.queue.clear();
+               pending.remove(this.key);
+            }
+            logger.warn(String.format("The listener executor refused the events of bean '%s', dropping %d events", this.key.bean, dropped));
+         }
+      }
+   }
+
+   /**
+    * Compares beans by identity.
+    */
+   private static final class BeanKey
+   {
+      private final Object bean;
+
+      BeanKey(Object bean)
+      {
+         this.bean = bean;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         return obj instanceof BeanKey && ((BeanKey) obj).bean == this.bean;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return System.identityHashCode(this.bean);
+      }
+   }
+}
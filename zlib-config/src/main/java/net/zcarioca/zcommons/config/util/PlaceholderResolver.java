@@ -0,0 +1,254 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+/**
+ * Replaces the <code>${key}</code> placeholders in the values of a set of
+ * properties. Each value is scanned once and each resolved value is memoized,
+ * so resolving every key costs time linear in the total size of the values,
+ * however many keys share the same references.
+ * <p/>
+ * References are followed with an explicit stack rather than recursion, so
+ * long chains of references cannot overflow the thread's stack, and a key
+ * which refers back to itself is reported as a
+ * {@link ConfigurationException}. A placeholder whose key is unknown, or
+ * whose value is empty, is left in place.
+ * <p/>
+ * Note: this object is not thread-safe.
+ *
+ * @author zcarioca
+ */
+class PlaceholderResolver
+{
+   private final Map<String, String> props;
+   private final Map<String, String> resolved;
+   private final Set<String> resolving;
+
+   /**
+    * Constructor for the PlaceholderResolver.
+    *
+    * @param props The unfiltered properties.
+    */
+   PlaceholderResolver(Map<String, String> props)
+   {
+      this.props = props;
+      this.resolved = new HashMap<String, String>();
+      this.resolving = new HashSet<String>();
+   }
+
+   /**
+    * Resolves the value of the key.
+    *
+    * @param key The property name.
+    * @return Returns the value with its placeholders replaced, or an empty
+    *         string if the key has no value.
+    * @throws ConfigurationException if the value refers back to itself.
+    */
+   String resolve(String key) throws ConfigurationException
+   {
+      String result = this.resolved.get(key);
+      if (result != null)
+      {
+         return result;
+      }
+      if (lookup(key) == null)
+      {
+         return "";
+      }
+
+      Deque<Frame> stack = new ArrayDeque<Frame>();
+      stack.push(start(key));
+      while (true)
+      {
+         Frame frame = stack.peek();
+         String reference = frame.next();
+         if (reference == null)
+         {
+            // the value is complete
+            stack.pop();
+            this.resolving.remove(frame.key);
+            result = frame.output.toString();
+            this.resolved.put(frame.key, result);
+            if (stack.isEmpty())
+            {
+               return result;
+            }
+            stack.peek().replace(result);
+         }
+         else if (this.resolved.containsKey(reference))
+         {
+            frame.replace(this.resolved.get(reference));
+         }
+         else if (this.resolving.contains(reference))
+         {
+            throw new ConfigurationException(String.format("The property '%s' refers back to itself: %s", reference, describeCycle(stack, reference)));
+         }
+         else if (lookup(reference) != null)
+         {
+            stack.push(start(reference));
+         }
+         else
+         {
+            frame.replace(null);
+         }
+      }
+   }
+
+   /**
+    * Returns true if the key has a value.
+    *
+    * @param key The property name.
+    * @return Returns true if the key has a value.
+    */
+   boolean isDefined(String key)
+   {
+      return this.resolved.containsKey(key) || lookup(key) != null;
+   }
+
+   /**
+    * Looks up the unfiltered value of a key.
+    *
+    * @param key The property name.
+    * @return Returns the unfiltered value, or null if the key is unknown.
+    */
+   String lookup(String key)
+   {
+      return this.props.get(key);
+   }
+
+   private Frame start(String key)
+   {
+      this.resolving.add(key);
+      String value = lookup(key);
+      return new Frame(key, value != null ? value : "");
+   }
+
+   private static String describeCycle(Deque<Frame> stack, String reference)
+   {
+      StringBuilder cycle = new StringBuilder();
+      boolean inCycle = false;
+      for (Iterator<Frame> frames = stack.descendingIterator(); frames.hasNext();)
+      {
+         String key = frames.next().key;
+         inCycle |= key.equals(reference);
+         if (inCycle)
+         {
+            cycle.append(key).append(" -> ");
+         }
+      }
+      return cycle.append(reference).toString();
+   }
+
+   /**
+    * The progress through the value of one key.
+    */
+   private static final class Frame
+   {
+      private final String key;
+      private final String value;
+      private final StringBuilder output;
+      private int position;
+      private int placeholderStart;
+      private int placeholderEnd;
+
+      Frame(String key, String value)
+      {
+         this.key = key;
+         this.value = value;
+         this.output = new StringBuilder(value.length());
+      }
+
+      /**
+       * Copies the value up to the next placeholder.
+       *
+       * @return Returns the key of the placeholder, or null if the end of the
+       *         value was reached.
+       */
+      String next()
+      {
+         int start;
+         while ((start = value.indexOf("${", position)) >= 0)
+         {
+            output.append(value, position, start);
+            int end = value.indexOf('}', start + 2);
+            if (end < 0)
+            {
+               position = start;
+               break;
+            }
+            if (isKey(start + 2, end))
+            {
+               placeholderStart = start;
+               placeholderEnd = end + 1;
+               return value.substring(start + 2, end);
+            }
+            // not a placeholder, keep the "${" and carry on after it
+            output.append("${");
+            position = start + 2;
+         }
+         output.append(value, position, value.length());
+         position = value.length();
+         return null;
+      }
+
+      /**
+       * Replaces the current placeholder, unless the value is empty.
+       *
+       * @param replacement The resolved value of the placeholder.
+       */
+      void replace(String replacement)
+      {
+         if (replacement == null || replacement.length() == 0)
+         {
+            output.append(value, placeholderStart, placeholderEnd);
+         }
+         else
+         {
+            output.append(replacement);
+         }
+         position = placeholderEnd;
+      }
+
+      private boolean isKey(int start, int end)
+      {
+         if (start == end)
+         {
+            return false;
+         }
+         for (int i = start; i < end; i++)
+         {
+            if (Character.isWhitespace(value.charAt(i)))
+            {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+}
@@ -23,11 +23,10 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import net.zcarioca.zcommons.config.Environment;
 import net.zcarioca.zcommons.config.EnvironmentAccessor;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -53,11 +52,11 @@ import org.apache.commons.lang.StringUtils;
  */
 public class PropertiesBuilder
 {
-   private static final Pattern pattern = Pattern.compile("\\$\\{[^\\s]+\\}");
-
    private final Map<String, String> props;
    private Environment environment;
    private boolean generated;
+   private boolean systemPropertiesLayer;
+   private boolean environmentLayer;
 
    /**
     * Constructor for the PropertiesBuilder.
@@ -159,11 +158,7 @@ public class PropertiesBuilder
     */
    public PropertiesBuilder addProperty(String propertyName, String propertyValue)
    {
-      if (generated)
-      {
-         throw new IllegalStateException(
-               "The properties object for this builder has already been built. A separate builder is needed for each properties object.");
-      }
+      checkNotGenerated();
       if (StringUtils.isEmpty(propertyName))
       {
          throw new IllegalArgumentException("Empty or NULL property name");
@@ -204,6 +199,40 @@ public class PropertiesBuilder
       return addAll(environment.getAllSystemProperties());
    }
 
+   /**
+    * Makes the system properties available to the built properties, and for
+    * substitution, without copying them into the builder. A key which is not
+    * added to the builder is looked up in the system properties only when it
+    * is needed, and only then are its variables replaced.
+    * 
+    * @return Returns the builder.
+    * @throws IllegalStateException if the {@link PropertiesBuilder#build()}
+    *         method has already been called on this instance.
+    */
+   public PropertiesBuilder addSystemPropertiesLayer()
+   {
+      checkNotGenerated();
+      this.systemPropertiesLayer = true;
+      return this;
+   }
+
+   /**
+    * Makes the environment properties available to the built properties, and
+    * for substitution, without copying them into the builder. The environment
+    * is consulted after the builder's own properties and the system properties
+    * layer, if there is one.
+    * 
+    * @return Returns the builder.
+    * @throws IllegalStateException if the {@link PropertiesBuilder#build()}
+    *         method has already been called on this instance.
+    */
+   public PropertiesBuilder addEnvironmentLayer()
+   {
+      checkNotGenerated();
+      this.environmentLayer = true;
+      return this;
+   }
+
    /**
     * Adds all of the entries in the map to the builder. If any values are null,
     * an empty string will be added in its place.
@@ -248,24 +277,27 @@ public class PropertiesBuilder
    }
 
    /**
-    * Builds the {@link Properties} object.
+    * Builds the {@link Properties} object. The placeholders are resolved in a
+    * single pass, in which each referenced property is resolved only once.
     * 
     * @return Returns a new {@link Properties} object.
     * @throws IllegalStateException if this method has been called more than
     *         once.
+    * @throws ConfigurationException if a property refers back to itself.
     */
-   public Properties build()
+   public Properties build() throws ConfigurationException
    {
       if (this.generated)
       {
          throw new IllegalStateException("The build() method has already been called on this instance.");
       }
       this.generated = true;
-      Properties newProps = new Properties();
 
+      PlaceholderResolver resolver = createResolver();
+      Properties newProps = systemPropertiesLayer || environmentLayer ? new LayeredProperties(resolver) : new Properties();
       for (String key : this.props.keySet())
       {
-         newProps.setProperty(key, getFilteredValue(key));
+         newProps.setProperty(key, resolver.resolve(key));
       }
 
       return newProps;
@@ -280,11 +312,7 @@ public class PropertiesBuilder
     */
    int size()
    {
-      if (generated)
-      {
-         throw new IllegalStateException(
-               "The properties object for this builder has already been built. A separate builder is needed for each properties object.");
-      }
+      checkNotGenerated();
       return this.props.size();
    }
 
@@ -299,34 +327,46 @@ public class PropertiesBuilder
     */
    String getProperty(String propertyName)
    {
-      if (generated)
-      {
-         throw new IllegalStateException(
-               "The properties object for this builder has already been built. A separate builder is needed for each properties object.");
-      }
+      checkNotGenerated();
       return this.props.get(propertyName);
    }
 
-   String getFilteredValue(String key)
+   String getFilteredValue(String key) throws ConfigurationException
    {
-      String value = this.props.get(key);
-      if (StringUtils.isEmpty(value))
+      return createResolver().resolve(key);
+   }
+
+   private PlaceholderResolver createResolver()
+   {
+      if (!systemPropertiesLayer && !environmentLayer)
       {
-         return "";
+         return new PlaceholderResolver(this.props);
       }
-      Matcher matcher = pattern.matcher(value);
-      while (matcher.find())
+      return new PlaceholderResolver(this.props)
       {
-         String grouping = matcher.group();
-         String valKey = grouping.substring(2, grouping.length() - 1);
-
-         String prop = getFilteredValue(valKey);
-         if (!StringUtils.isEmpty(prop))
+         @Override
+         String lookup(String key)
          {
-            value = matcher.replaceFirst(prop);
-            matcher = pattern.matcher(value);
+            String value = super.lookup(key);
+            if (value == null && systemPropertiesLayer)
+            {
+               value = environment.getSystemProperty(key, null);
+            }
+            if (value == null && environmentLayer)
+            {
+               value = environment.getEnvVariable(key, null);
+            }
+            return value;
          }
+      };
+   }
+
+   private void checkNotGenerated()
+   {
+      if (generated)
+      {
+         throw new IllegalStateException(
+               "The properties object for this builder has already been built. A separate builder is needed for each properties object.");
       }
-      return value;
    }
 }
@@ -27,6 +27,7 @@ public final class PropertiesBuilderFactory
 {
    private boolean addEnvironmentProperties;
    private boolean addSystemProperties;
+   private boolean layeredLookup;
 
    /**
     * Creates a new {@link PropertiesBuilderFactory}.
@@ -108,6 +109,35 @@ public final class PropertiesBuilderFactory
       return this.addSystemProperties;
    }
 
+   /**
+    * Determines whether the environment and system properties are layered
+    * under the properties of the {@link PropertiesBuilder} instances generated
+    * by this factory, rather than copied into each of them. In a layered
+    * builder a key falls through from the builder's own properties to the
+    * system properties and then to the environment, and only the keys which
+    * are used are looked up.
+    * 
+    * @param layeredLookup If <code>true</code>, the environment and system
+    *        properties enabled on this factory are layered rather than copied.
+    */
+   public void setLayeredLookup(boolean layeredLookup)
+   {
+      this.layeredLookup = layeredLookup;
+   }
+
+   /**
+    * Determines whether the environment and system properties are layered
+    * under the properties of the {@link PropertiesBuilder} instances generated
+    * by this factory, rather than copied into each of them.
+    * 
+    * @return Returns <code>true</code> if the properties are layered;
+    *         <code>false</code> if they are copied.
+    */
+   public boolean isLayeredLookup()
+   {
+      return this.layeredLookup;
+   }
+
    /**
     * Creates a new instance of {@link PropertiesBuilder}.
     * 
@@ -115,10 +145,23 @@ public final class PropertiesBuilderFactory
     *         rules of this PropertiesBuilderFactory.
     * @see PropertiesBuilderFactory#isAddEnvironmentProperties()
     * @see PropertiesBuilderFactory#isAddSystemProperties()
+    * @see PropertiesBuilderFactory#isLayeredLookup()
     */
    public PropertiesBuilder newPropertiesBuilder()
    {
       PropertiesBuilder builder = new PropertiesBuilder();
+      if (isLayeredLookup())
+      {
+         if (isAddEnvironmentProperties())
+         {
+            builder.addEnvironmentLayer();
+         }
+         if (isAddSystemProperties())
+         {
+            builder.addSystemPropertiesLayer();
+         }
+         return builder;
+      }
       if (isAddEnvironmentProperties())
       {
          builder.addAllEnvironmentProperties();
@@ -0,0 +1,658 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the reconfiguration of changed configuration sources away from the
+ * thread which noticed the change, so that a slow bean or listener does not
+ * hold up the detection of changes to other sources.
+ * <p/>
+ * There is at most one job per source. A change reported while the source's
+ * job is still queued is folded into that job, and a change reported while
+ * it is running causes it to run once more when it is done, so a burst of
+ * changes never queues more than two reconfigurations of a source. The
+ * number of sources with a job is bounded by the queue capacity; once it is
+ * reached, further sources are deferred, each at most once, and are given a
+ * job as soon as another job finishes. The reporting thread never runs a
+ * reconfiguration itself, so no change is lost and the detection of changes
+ * is never held up. Requests refused by the executor, normally because it has
+ * been shut down, are dropped and counted.
+ * <p/>
+ * A request may come with a {@link Callback}, which is told whether the
+ * reconfiguration that covers the request succeeded.
+ * <p/>
+ * The jobs run on the supplied {@link Executor}. By default they run on
+ * virtual threads where the JVM has them, and otherwise on a small pool of
+ * daemon threads.
+ * 
+ * @author zcarioca
+ */
+public class ReconfigurationExecutor
+{
+   private static final Logger logger = LoggerFactory.getLogger(ReconfigurationExecutor.class);
+
+   /**
+    * The default number of threads, where virtual threads are not available.
+    */
+   public static final int DEFAULT_THREADS = 2;
+
+   /**
+    * The default number of sources which may have a job at once.
+    */
+   public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+   /**
+    * Told when a scheduled reconfiguration has finished.
+    */
+   public interface Callback
+   {
+      /**
+       * Called once the reconfiguration which covers a request has finished,
+       * on the thread which ran it.
+       * 
+       * @param sourceId The configuration source identifier.
+       * @param succeeded True if the beans were reconfigured, false if the
+       *        reconfiguration failed or was dropped.
+       */
+      public void reconfigured(ConfigurationSourceIdentifier sourceId, boolean succeeded);
+   }
+
+   private final Executor executor;
+   private final int queueCapacity;
+   private final Map<ConfigurationSourceIdentifier, Job> jobs;
+   private final Map<ConfigurationSourceIdentifier, Job> deferred;
+
+   private final AtomicLong submitted = new AtomicLong();
+   private final AtomicLong superseded = new AtomicLong();
+   private final AtomicLong deferrals = new AtomicLong();
+   private final AtomicLong dropped = new AtomicLong();
+   private final AtomicLong completed = new AtomicLong();
+   private final AtomicLong failed = new AtomicLong();
+   private final AtomicLong totalLatency = new AtomicLong();
+   private final AtomicLong maxLatency = new AtomicLong();
+   private final AtomicLong lastLatency = new AtomicLong();
+
+   private int running;
+   private volatile boolean shutdown;
+
+   /**
+    * Creates an executor with the default pool and queue capacity.
+    */
+   public ReconfigurationExecutor()
+   {
+      this(createDefaultExecutor(DEFAULT_THREADS), DEFAULT_QUEUE_CAPACITY);
+   }
+
+   /**
+    * Creates an executor with the default pool.
+    * 
+    * @param threads The number of threads, used where virtual threads are not
+    *        available.
+    * @param queueCapacity The number of sources which may have a job at once.
+    */
+   public ReconfigurationExecutor(int threads, int queueCapacity)
+   {
+      this(createDefaultExecutor(threads), queueCapacity);
+   }
+
+   /**
+    * Creates an executor which runs its jobs on the supplied executor.
+    * 
+    * @param executor The executor to run the jobs on.
+    * @param queueCapacity The number of sources which may have a job at once.
+    */
+   public ReconfigurationExecutor(Executor executor, int queueCapacity)
+   {
+      if (executor == null)
+      {
+         throw new IllegalArgumentException("The executor cannot be null");
+      }
+      if (queueCapacity < 1)
+      {
+         throw new IllegalArgumentException("The queue capacity must be at least 1");
+      }
+      this.executor = executor;
+      this.queueCapacity = queueCapacity;
+      this.jobs = new HashMap<ConfigurationSourceIdentifier, Job>();
+      this.deferred = new LinkedHashMap<ConfigurationSourceIdentifier, Job>();
+   }
+
+   /**
+    * Schedules the reconfiguration of the beans configured from a source.
+    * 
+    * @param utilities The configuration utilities which reconfigure the beans.
+    * @param sourceId The configuration source identifier.
+    * @return Returns true if the reconfiguration was queued or folded into a
+    *         queued one, or false if it was deferred until a job finishes or
+    *         dropped because the executor refused it.
+    */
+   boolean submit(ConfigurationUtilities utilities, ConfigurationSourceIdentifier sourceId)
+   {
+      return submit(utilities, sourceId, null);
+   }
+
+   /**
+    * Schedules the reconfiguration of the beans configured from a source, and
+    * tells the callback how it went.
+    * 
+    * @param utilities The configuration utilities which reconfigure the beans.
+    * @param sourceId The configuration source identifier.
+    * @param callback The callback to tell once the reconfiguration has
+    *        finished, may be null.
+    * @return Returns true if the reconfiguration was queued or folded into a
+    *         queued one, or false if it was deferred until a job finishes or
+    *         dropped because the executor refused it.
+    */
+   boolean submit(ConfigurationUtilities utilities, ConfigurationSourceIdentifier sourceId, Callback callback)
+   {
+      this.submitted.incrementAndGet();
+      Job job;
+      synchronized (this.jobs)
+      {
+         job = this.jobs.get(sourceId);
+         if (job == null)
+         {
+            job = this.deferred.get(sourceId);
+         }
+         if (job != null)
+         {
+            if (job.running)
+            {
+               // the running job may have read the source before this change
+               if (!job.rerun)
+               {
+                  job.rerun = true;
+                  job.rerunRequested = System.nanoTime();
+               }
+               job.rerunCallbacks = add(job.rerunCallbacks, callback);
+            }
+            else
+            {
+               job.callbacks = add(job.callbacks, callback);
+            }
+            this.superseded.incrementAndGet();
+            return true;
+         }
+         job = new Job(utilities, sourceId);
+         job.callbacks = add(job.callbacks, callback);
+         if (this.jobs.size() >= this.queueCapacity)
+         {
+            this.deferred.put(sourceId, job);
+            this.deferrals.incrementAndGet();
+            if (logger.isDebugEnabled())
+               logger.debug(String.format("The reconfiguration queue is full, deferring %s", sourceId));
+            return false;
+         }
+         this.jobs.put(sourceId, job);
+      }
+      return execute(job);
+   }
+
+   private boolean execute(Job job)
+   {
+      try
+      {
+         this.executor.execute(job);
+         return true;
+      }
+      catch (RejectedExecutionException exc)
+      {
+         List<Callback> callbacks;
+         synchronized (this.jobs)
+         {
+            this.jobs.remove(job.sourceId);
+            callbacks = job.takeAllCallbacks();
+         }
+         this.dropped.incrementAndGet();
+         logger.warn(String.format("The reconfiguration of %s was rejected by the executor and dropped", job.sourceId));
+         notify(job.sourceId, callbacks, false);
+         return false;
+      }
+   }
+
+   /**
+    * Gives the first deferred source its job. Must be called while holding
+    * the lock on the jobs, after a job has been removed.
+    * 
+    * @return Returns the job, to be executed once the lock is released, or
+    *         null if no source is deferred.
+    */
+   private Job nextDeferred()
+   {
+      Iterator<Job> iterator = this.deferred.values().iterator();
+      if (!iterator.hasNext())
+      {
+         return null;
+      }
+      Job job = iterator.next();
+      iterator.remove();
+      this.jobs.put(job.sourceId, job);
+      return job;
+   }
+
+   private static List<Callback> add(List<Callback> callbacks, Callback callback)
+   {
+      if (callback == null)
+      {
+         return callbacks;
+      }
+      List<Callback> list = callbacks != null ? callbacks : new ArrayList<Callback>(1);
+      list.add(callback);
+      return list;
+   }
+
+   private static void notify(ConfigurationSourceIdentifier sourceId, List<Callback> callbacks, boolean succeeded)
+   {
+      for (Callback callback : callbacks)
+      {
+         try
+         {
+            callback.reconfigured(sourceId, succeeded);
+         }
+         catch (RuntimeException exc)
+         {
+            logger.warn(String.format("A reconfiguration callback for %s failed", sourceId), exc);
+         }
+      }
+   }
+
+   /**
+    * Gets the number of sources waiting for a job to start.
+    * 
+    * @return Returns the queue depth.
+    */
+   public int getQueueDepth()
+   {
+      synchronized (this.jobs)
+      {
+         return this.jobs.size() - this.running + this.deferred.size();
+      }
+   }
+
+   /**
+    * Gets the number of jobs which are running.
+    * 
+    * @return Returns the number of running jobs.
+    */
+   public int getActiveCount()
+   {
+      synchronized (this.jobs)
+      {
+         return this.running;
+      }
+   }
+
+   /**
+    * Gets the number of sources which may have a job at once.
+    * 
+    * @return Returns the queue capacity.
+    */
+   public int getQueueCapacity()
+   {
+      return this.queueCapacity;
+   }
+
+   /**
+    * Gets the number of reconfigurations requested.
+    * 
+    * @return Returns the number of requests.
+    */
+   public long getSubmittedCount()
+   {
+      return this.submitted.get();
+   }
+
+   /**
+    * Gets the number of requests which were folded into a job that was
+    * already queued or running.
+    * 
+    * @return Returns the number of superseded requests.
+    */
+   public long getSupersededCount()
+   {
+      return this.superseded.get();
+   }
+
+   /**
+    * Gets the number of sources which were deferred because the queue was
+    * full.
+    * 
+    * @return Returns the number of deferred requests.
+    */
+   public long getDeferredCount()
+   {
+      return this.deferrals.get();
+   }
+
+   /**
+    * Gets the number of requests which were dropped because the executor
+    * refused them.
+    * 
+    * @return Returns the number of dropped requests.
+    */
+   public long getDroppedCount()
+   {
+      return this.dropped.get();
+   }
+
+   /**
+    * Gets the number of reconfigurations which have finished, including those
+    * which failed.
+    * 
+    * @return Returns the number of finished reconfigurations.
+    */
+   public long getCompletedCount()
+   {
+      return this.completed.get();
+   }
+
+   /**
+    * Gets the number of reconfigurations which failed.
+    * 
+    * @return Returns the number of failed reconfigurations.
+    */
+   public long getFailedCount()
+   {
+      return this.failed.get();
+   }
+
+   /**
+    * Gets the time between the request and the end of the last
+    * reconfiguration, in milliseconds.
+    * 
+    * @return Returns the latency of the last reconfiguration.
+    */
+   public long getLastLatency()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(this.lastLatency.get());
+   }
+
+   /**
+    * Gets the longest time between a request and the end of its
+    * reconfiguration, in milliseconds.
+    * 
+    * @return Returns the maximum latency.
+    */
+   public long getMaxLatency()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(this.maxLatency.get());
+   }
+
+   /**
+    * Gets the average time between a request and the end of its
+    * reconfiguration, in milliseconds.
+    * 
+    * @return Returns the average latency, or 0 if nothing has been
+    *         reconfigured.
+    */
+   public long getAverageLatency()
+   {
+      long count = this.completed.get();
+      return count == 0 ? 0l : TimeUnit.NANOSECONDS.toMillis(this.totalLatency.get() / count);
+   }
+
+   /**
+    * Stops the reconfigurations. Deferred sources and jobs which have not
+    * started are dropped, running jobs finish, and the pool is shut down if
+    * it is an {@link ExecutorService}.
+    */
+   public void shutdown()
+   {
+      this.shutdown = true;
+      List<Job> waiting;
+      synchronized (this.jobs)
+      {
+         waiting = new ArrayList<Job>(this.deferred.values());
+         this.deferred.clear();
+      }
+      this.dropped.addAndGet(waiting.size());
+      for (Job job : waiting)
+      {
+         notify(job.sourceId, job.takeAllCallbacks(), false);
+      }
+      if (this.executor instanceof ExecutorService)
+      {
+         ((ExecutorService) this.executor).shutdown();
+      }
+   }
+
+   private boolean reconfigure(ConfigurationUtilities utilities, ConfigurationSourceIdentifier sourceId, long requested)
+   {
+      try
+      {
+         utilities.runReconfiguration(sourceId);
+         return true;
+      }
+      catch (Exception exc)
+      {
+         this.failed.incrementAndGet();
+         logger.warn(String.format("Could not reconfigure the beans of %s", sourceId), exc);
+         return false;
+      }
+      catch (Error err)
+      {
+         this.failed.incrementAndGet();
+         logger.error(String.format("Could not reconfigure the beans of %s", sourceId), err);
+         throw err;
+      }
+      finally
+      {
+         long latency = System.nanoTime() - requested;
+         this.completed.incrementAndGet();
+         this.totalLatency.addAndGet(latency);
+         this.lastLatency.set(latency);
+         long max;
+         while (latency > (max = this.maxLatency.get()) && !this.maxLatency.compareAndSet(max, latency))
+         {
+            // retry
+         }
+      }
+   }
+
+   /**
+    * Creates the default pool: a virtual thread per job where the JVM supports
+    * it, otherwise a fixed pool of daemon threads which time out when idle.
+    * 
+    * @param threads The number of platform threads.
+    * @return Returns the executor.
+    */
+   static ExecutorService createDefaultExecutor(int threads)
+   {
+      if (threads < 1)
+      {
+         throw new IllegalArgumentException("The number of threads must be at least 1");
+      }
+      try
+      {
+         Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) method.invoke(null);
+      }
+      catch (Exception exc)
+      {
+         if (logger.isDebugEnabled())
+            logger.debug("Virtual threads are not available, reconfiguring on a thread pool");
+      }
+
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory()
+            {
+               @Override
+               public Thread newThread(Runnable runnable)
+               {
+                  Thread thread = new Thread(runnable, "zlib-config-reconfiguration");
+                  thread.setDaemon(true);
+                  return thread;
+               }
+            });
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+   }
+
+   /**
+    * The reconfiguration of one source.
+    */
+   private final class Job implements Runnable
+   {
+      private final ConfigurationUtilities utilities;
+      private final ConfigurationSourceIdentifier sourceId;
+      private long requested;
+      private long rerunRequested;
+      private boolean running;
+      private boolean rerun;
+      private List<Callback> callbacks;
+      private List<Callback> rerunCallbacks;
+
+      Job(ConfigurationUtilities utilities, ConfigurationSourceIdentifier sourceId)
+      {
+         this.utilities = utilities;
+         this.sourceId = sourceId;
+         this.requested = System.nanoTime();
+      }
+
+      @Override
+      public void run()
+      {
+         synchronized (jobs)
+         {
+            this.running = true;
+            ReconfigurationExecutor.this.running++;
+         }
+         boolean done = false;
+         Job next = null;
+         try
+         {
+            while (!done)
+            {
+               boolean succeeded = false;
+               if (!shutdown)
+               {
+                  succeeded = reconfigure(this.utilities, this.sourceId, this.requested);
+               }
+               else
+               {
+                  dropped.incrementAndGet();
+               }
+               List<Callback> completed;
+               synchronized (jobs)
+               {
+                  completed = takeCallbacks();
+                  done = finish(false);
+                  if (done && !shutdown)
+                  {
+                     next = nextDeferred();
+                  }
+               }
+               ReconfigurationExecutor.notify(this.sourceId, completed, succeeded);
+            }
+         }
+         finally
+         {
+            if (!done)
+            {
+               // an error ended the reconfiguration, later requests for the
+               // source start a new job
+               List<Callback> failed;
+               synchronized (jobs)
+               {
+                  failed = takeAllCallbacks();
+                  finish(true);
+                  next = shutdown ? null : nextDeferred();
+               }
+               ReconfigurationExecutor.notify(this.sourceId, failed, false);
+            }
+            if (next != null)
+            {
+               execute(next);
+            }
+         }
+      }
+
+      /**
+       * Takes the callbacks of the current run, leaving those of the rerun.
+       * Must be called while holding the lock on the jobs.
+       */
+      private List<Callback> takeCallbacks()
+      {
+         List<Callback> taken = this.callbacks != null ? this.callbacks : Collections.<Callback> emptyList();
+         this.callbacks = this.rerunCallbacks;
+         this.rerunCallbacks = null;
+         return taken;
+      }
+
+      /**
+       * Takes the callbacks of the current run and of the rerun. Must be
+       * called while holding the lock on the jobs, or once the job can no
+       * longer be found.
+       */
+      private List<Callback> takeAllCallbacks()
+      {
+         List<Callback> taken = takeCallbacks();
+         List<Callback> rerun = takeCallbacks();
+         if (rerun.isEmpty())
+         {
+            return taken;
+         }
+         List<Callback> all = new ArrayList<Callback>(taken);
+         all.addAll(rerun);
+         return all;
+      }
+
+      /**
+       * Removes the job unless a rerun has been requested, in which case the
+       * rerun is started. Must be called while holding the lock on the jobs.
+       * 
+       * @param failed True to remove the job even if a rerun was requested.
+       * @return Returns true if the job has been removed.
+       */
+      private boolean finish(boolean failed)
+      {
+         if (failed || !this.rerun)
+         {
+            jobs.remove(this.sourceId);
+            ReconfigurationExecutor.this.running--;
+            return true;
+         }
+         this.rerun = false;
+         this.requested = this.rerunRequested;
+         return false;
+      }
+   }
+}
@@ -0,0 +1,198 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.zcarioca.zcommons.config.Environment;
+import net.zcarioca.zcommons.config.EnvironmentAccessor;
+import net.zcarioca.zcommons.config.SnapshotEnvironment;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceProvider;
+
+/**
+ * Caches the {@link ConfigSnapshot} of each configuration source, so that the
+ * beans which share a source are configured from a single read of it.
+ * <p/>
+ * When several threads miss on the same source at once, only one of them
+ * loads it and the others wait for its result. A load which fails is not
+ * cached. An entry is dropped when its source is invalidated, normally
+ * because the file watcher or the provider reported a change, and the next
+ * lookup loads the source again.
+ * 
+ * @author zcarioca
+ */
+public final class SnapshotCache
+{
+   private final ConcurrentMap<ConfigurationSourceIdentifier, FutureTask<ConfigSnapshot>> snapshots;
+   private final AtomicLong hits;
+   private final AtomicLong misses;
+
+   /**
+    * Creates an empty cache.
+    */
+   public SnapshotCache()
+   {
+      this.snapshots = new ConcurrentHashMap<ConfigurationSourceIdentifier, FutureTask<ConfigSnapshot>>();
+      this.hits = new AtomicLong();
+      this.misses = new AtomicLong();
+   }
+
+   /**
+    * Gets the snapshot of a source, loading it from the provider if it is not
+    * cached.
+    * 
+    * @param sourceId The configuration source identifier.
+    * @param provider The provider of the source.
+    * @param propertiesBuilderFactory The properties builder factory passed to
+    *        the provider.
+    * @return Returns the snapshot.
+    * @throws ConfigurationException if the source could not be loaded.
+    */
+   public ConfigSnapshot getSnapshot(final ConfigurationSourceIdentifier sourceId, final ConfigurationSourceProvider provider,
+         final PropertiesBuilderFactory propertiesBuilderFactory) throws ConfigurationException
+   {
+      FutureTask<ConfigSnapshot> task = this.snapshots.get(sourceId);
+      if (task == null)
+      {
+         FutureTask<ConfigSnapshot> newTask = new FutureTask<ConfigSnapshot>(new Callable<ConfigSnapshot>()
+         {
+            @Override
+            public ConfigSnapshot call() throws Exception
+            {
+               return provider.getSnapshot(sourceId, propertiesBuilderFactory);
+            }
+         });
+         task = this.snapshots.putIfAbsent(sourceId, newTask);
+         if (task == null)
+         {
+            this.misses.incrementAndGet();
+            task = newTask;
+            task.run();
+         }
+         else
+         {
+            this.hits.incrementAndGet();
+         }
+      }
+      else
+      {
+         this.hits.incrementAndGet();
+      }
+
+      try
+      {
+         return task.get();
+      }
+      catch (InterruptedException exc)
+      {
+         Thread.currentThread().interrupt();
+         throw new ConfigurationException(String.format("Interrupted while loading the configuration source %s", sourceId), exc);
+      }
+      catch (ExecutionException exc)
+      {
+         this.snapshots.remove(sourceId, task);
+         Throwable cause = exc.getCause();
+         if (cause instanceof ConfigurationException)
+         {
+            throw (ConfigurationException) cause;
+         }
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error) cause;
+         }
+         throw new ConfigurationException(String.format("Could not load the configuration source %s", sourceId), cause);
+      }
+   }
+
+   /**
+    * Drops the snapshot of a source. The system properties are read again
+    * the next time the source is loaded.
+    * 
+    * @param sourceId The configuration source identifier.
+    */
+   public void invalidate(ConfigurationSourceIdentifier sourceId)
+   {
+      if (sourceId != null)
+      {
+         this.snapshots.remove(sourceId);
+         invalidateEnvironment();
+      }
+   }
+
+   /**
+    * Drops every snapshot. The system properties are read again the next
+    * time a source is loaded.
+    */
+   public void invalidateAll()
+   {
+      this.snapshots.clear();
+      invalidateEnvironment();
+   }
+
+   /**
+    * Gets the number of sources in the cache.
+    * 
+    * @return Returns the number of cached sources.
+    */
+   public int size()
+   {
+      return this.snapshots.size();
+   }
+
+   /**
+    * Gets the number of lookups which found the source in the cache,
+    * including those which waited for another thread to load it.
+    * 
+    * @return Returns the number of hits.
+    */
+   public long getHitCount()
+   {
+      return this.hits.get();
+   }
+
+   /**
+    * Gets the number of lookups which loaded the source from its provider.
+    * 
+    * @return Returns the number of misses.
+    */
+   public long getMissCount()
+   {
+      return this.misses.get();
+   }
+
+   private static void invalidateEnvironment()
+   {
+      Environment environment = EnvironmentAccessor.getInstance().getEnvironment();
+      if (environment instanceof SnapshotEnvironment)
+      {
+         ((SnapshotEnvironment) environment).invalidate();
+      }
+   }
+}
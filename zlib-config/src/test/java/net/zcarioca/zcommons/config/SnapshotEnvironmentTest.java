@@ -0,0 +1,144 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SnapshotEnvironment}.
+ * 
+ * @author zcarioca
+ */
+public class SnapshotEnvironmentTest
+{
+   private SnapshotEnvironment environment;
+
+   @Before
+   public void setup()
+   {
+      environment = new SnapshotEnvironment();
+   }
+
+   @After
+   public void cleanup()
+   {
+      System.clearProperty("snapshot-test-property");
+   }
+
+   @Test
+   public void testEnvSnapshotIsReused()
+   {
+      Map<String, String> env = environment.getAllEnvProperties();
+      assertSame(env, environment.getAllEnvProperties());
+      assertEquals(System.getenv(), env);
+   }
+
+   @Test
+   public void testSystemSnapshotIsReused()
+   {
+      Map<String, String> sys = environment.getAllSystemProperties();
+      assertSame(sys, environment.getAllSystemProperties());
+      assertEquals(System.getProperty("java.io.tmpdir"), sys.get("java.io.tmpdir"));
+   }
+
+   @Test
+   public void testSystemSnapshotRefreshedOnNewProperty()
+   {
+      Map<String, String> sys = environment.getAllSystemProperties();
+      assertFalse(sys.containsKey("snapshot-test-property"));
+
+      System.setProperty("snapshot-test-property", "value");
+      Map<String, String> refreshed = environment.getAllSystemProperties();
+      assertNotSame(sys, refreshed);
+      assertEquals("value", refreshed.get("snapshot-test-property"));
+
+      System.clearProperty("snapshot-test-property");
+      assertFalse(environment.getAllSystemProperties().containsKey("snapshot-test-property"));
+   }
+
+   @Test
+   public void testSystemSnapshotRefreshedOnReplacedProperties()
+   {
+      Properties original = System.getProperties();
+      Map<String, String> sys = environment.getAllSystemProperties();
+      try
+      {
+         Properties replacement = new Properties();
+         replacement.putAll(original);
+         System.setProperties(replacement);
+         assertNotSame(sys, environment.getAllSystemProperties());
+      }
+      finally
+      {
+         System.setProperties(original);
+      }
+   }
+
+   @Test
+   public void testSystemSnapshotRefreshedOnChangedValue()
+   {
+      System.setProperty("snapshot-test-property", "before");
+      assertEquals("before", environment.getAllSystemProperties().get("snapshot-test-property"));
+
+      System.setProperty("snapshot-test-property", "after");
+      assertEquals("after", environment.getAllSystemProperties().get("snapshot-test-property"));
+   }
+
+   @Test
+   public void testInvalidate()
+   {
+      Map<String, String> sys = environment.getAllSystemProperties();
+      environment.invalidate();
+      Map<String, String> refreshed = environment.getAllSystemProperties();
+      assertNotSame(sys, refreshed);
+      assertEquals(sys, refreshed);
+   }
+
+   @Test
+   public void testSingleKeyLookups()
+   {
+      environment.getAllSystemProperties();
+      System.setProperty("snapshot-test-property", "value");
+      assertEquals("value", environment.getSystemProperty("snapshot-test-property"));
+      assertEquals("value", environment.getSystemProperty("snapshot-test-property", "default"));
+      assertEquals("default", environment.getSystemProperty("fake-system-property-123456", "default"));
+
+      assertNull(environment.getEnvVariable("fake-env-variable-123456"));
+      assertEquals("default", environment.getEnvVariable("fake-env-variable-123456", "default"));
+      for (Map.Entry<String, String> entry : System.getenv().entrySet())
+      {
+         if (entry.getValue().trim().length() > 0)
+         {
+            assertEquals(entry.getValue(), environment.getEnvVariable(entry.getKey()));
+         }
+      }
+   }
+
+}
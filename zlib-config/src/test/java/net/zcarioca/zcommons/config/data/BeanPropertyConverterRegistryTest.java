@@ -20,12 +20,26 @@ package net.zcarioca.zcommons.config.data;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 import java.io.File;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.nio.CharBuffer;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
 
@@ -172,9 +186,114 @@ public class BeanPropertyConverterRegistryTest
       assertEquals((new Calendar[0]).getClass(), registry.getPropertyConverter((new Calendar[0]).getClass()).getSupportedClass());
    }
 
+   @Test
+   public void testResolutionIsCached()
+   {
+      assertSame(registry.getPropertyConverter(int[].class), registry.getPropertyConverter(int[].class));
+      assertSame(registry.getPropertyConverter(File.class), registry.getPropertyConverter(URL.class));
+      assertSame(registry.getPropertyConverter(int.class), registry.getPropertyConverter(Integer.class));
+   }
+
+   @Test
+   public void testGetPropertyConverterForSubtype() throws ConfigurationException
+   {
+      assertEquals(Calendar.class, registry.getPropertyConverter(GregorianCalendar.class).getSupportedClass());
+      assertEquals(Object.class, registry.getPropertyConverter(CharSequence.class).getSupportedClass());
+      assertEquals(Object.class, registry.getPropertyConverter(CharBuffer.class).getSupportedClass());
+
+      // registering a converter replaces the resolutions made so far
+      registry.register(new CharSequencePropertyConverter());
+      assertEquals(CharSequence.class, registry.getPropertyConverter(CharSequence.class).getSupportedClass());
+      assertEquals(CharSequence.class, registry.getPropertyConverter(CharBuffer.class).getSupportedClass());
+
+      // a String constructor or valueOf method on the type itself wins
+      assertEquals(Object.class, registry.getPropertyConverter(StringBuilder.class).getSupportedClass());
+      assertEquals(Object.class, registry.getPropertyConverter(Timestamp.class).getSupportedClass());
+      assertEquals(String.class, registry.getPropertyConverter(String.class).getSupportedClass());
+   }
+
+   @Test
+   public void testRegisteredCollectionConverterWins() throws Exception
+   {
+      Type listOfStrings = CollectionFields.class.getDeclaredField("names").getGenericType();
+      assertEquals(CollectionPropertyConverter.class, registry.getPropertyConverter(List.class).getClass());
+      assertEquals(CollectionPropertyConverter.class, registry.getPropertyConverter(listOfStrings).getClass());
+      assertNull(registry.getRegisteredConverter(List.class));
+
+      BeanPropertyConverter<List<?>> converter = new BeanPropertyConverter<List<?>>()
+      {
+         @Override
+         public Class<?> getSupportedClass()
+         {
+            return List.class;
+         }
+
+         @Override
+         public List<?> convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo)
+         {
+            return Collections.singletonList(value);
+         }
+      };
+      registry.register(converter);
+      assertSame(converter, registry.getPropertyConverter(List.class));
+      assertSame(converter, registry.getPropertyConverter(listOfStrings));
+      assertSame(converter, registry.getRegisteredConverter(List.class));
+      assertEquals(CollectionPropertyConverter.class, registry.getPropertyConverter(Set.class).getClass());
+   }
+
+   @Test
+   public void testGetRegistryConcurrently() throws Exception
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try
+      {
+         List<Future<BeanPropertyConverterRegistry>> futures = new ArrayList<Future<BeanPropertyConverterRegistry>>();
+         for (int i = 0; i < 16; i++)
+         {
+            futures.add(executor.submit(new Callable<BeanPropertyConverterRegistry>()
+            {
+               @Override
+               public BeanPropertyConverterRegistry call()
+               {
+                  BeanPropertyConverterRegistry.getRegistry().getPropertyConverter(long[].class);
+                  return BeanPropertyConverterRegistry.getRegistry();
+               }
+            }));
+         }
+         for (Future<BeanPropertyConverterRegistry> future : futures)
+         {
+            assertSame(BeanPropertyConverterRegistry.getRegistry(), future.get());
+         }
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+
    @Test(expected = IllegalArgumentException.class)
    public void testGetPropertyConverterNull()
    {
       registry.getPropertyConverter(null);
    }
+
+   private static class CharSequencePropertyConverter implements BeanPropertyConverter<CharSequence>
+   {
+      @Override
+      public Class<CharSequence> getSupportedClass()
+      {
+         return CharSequence.class;
+      }
+
+      @Override
+      public CharSequence convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo) throws ConfigurationException
+      {
+         return CharBuffer.wrap(value);
+      }
+   }
+
+   static class CollectionFields
+   {
+      List<String> names;
+   }
 }
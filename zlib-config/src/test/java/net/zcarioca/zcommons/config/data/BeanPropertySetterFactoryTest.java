@@ -0,0 +1,239 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.beans.SimpleBeanInfo;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import net.zcarioca.zcommons.config.ConfigurableAttribute;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BeanPropertySetterFactory}.
+ *
+ * @author zcarioca
+ */
+public class BeanPropertySetterFactoryTest
+{
+   private BeanPropertySetterFactory factory;
+
+   @Before
+   public void setUp()
+   {
+      factory = new BeanPropertySetterFactory();
+   }
+
+   @Test
+   public void testClassMetadataIsCached()
+   {
+      assertSame(BeanPropertySetterFactory.getClassMetadata(SimpleBean.class), BeanPropertySetterFactory.getClassMetadata(SimpleBean.class));
+   }
+
+   @Test
+   public void testIntrospectionErrorIsNotCached() throws Exception
+   {
+      try
+      {
+         BeanPropertySetterFactory.getClassMetadata(FlakyBean.class);
+         fail("The error should propagate");
+      }
+      catch (LinkageError err)
+      {
+         assertEquals("flaky", err.getMessage());
+      }
+
+      BeanClassMetadata metadata = BeanPropertySetterFactory.getClassMetadata(FlakyBean.class);
+      assertEquals(1, metadata.getProperties().size());
+   }
+
+   @Test
+   public void testFieldFailureIsCached() throws Exception
+   {
+      BeanClassMetadata metadata = BeanPropertySetterFactory.getClassMetadata(BrokenFieldBean.class);
+      assertSame(metadata, BeanPropertySetterFactory.getClassMetadata(BrokenFieldBean.class));
+      try
+      {
+         metadata.getProperties();
+         fail("The failure should be reported");
+      }
+      catch (ConfigurationException exc)
+      {
+         assertTrue(exc.getCause() instanceof IllegalStateException);
+      }
+   }
+
+   @Test
+   public void testPropertyInfoSharedBetweenInstances() throws Exception
+   {
+      Map<String, BeanPropertySetter> first = index(new SimpleBean());
+      Map<String, BeanPropertySetter> second = index(new SimpleBean());
+
+      assertEquals(3, first.size());
+      assertEquals(3, second.size());
+      for (String key : first.keySet())
+      {
+         assertNotNull(second.get(key));
+         assertSame(first.get(key).getBeanPropertyInfo(), second.get(key).getBeanPropertyInfo());
+      }
+   }
+
+   @Test
+   public void testSettersBindToTheirOwnBean() throws Exception
+   {
+      SimpleBean first = new SimpleBean();
+      SimpleBean second = new SimpleBean();
+
+      Properties props = new Properties();
+      props.setProperty("simple.name", "first");
+      props.setProperty("count", "1");
+      for (BeanPropertySetter setter : factory.getPropertySettersForBean(first))
+      {
+         setter.setProperty(props);
+      }
+
+      props.setProperty("simple.name", "second");
+      props.setProperty("count", "2");
+      props.setProperty("ratio", "0.5");
+      for (BeanPropertySetter setter : factory.getPropertySettersForBean(second))
+      {
+         setter.setProperty(props);
+      }
+
+      assertEquals("first", first.name);
+      assertEquals(1, first.count);
+      assertEquals(0.25, first.ratio, 0);
+      assertEquals("second", second.name);
+      assertEquals(2, second.count);
+      assertEquals(0.5, second.ratio, 0);
+   }
+
+   private Map<String, BeanPropertySetter> index(Object bean) throws Exception
+   {
+      Map<String, BeanPropertySetter> setters = new HashMap<String, BeanPropertySetter>();
+      for (BeanPropertySetter setter : factory.getPropertySettersForBean(bean))
+      {
+         setters.put(setter.getPropertyKey(), setter);
+      }
+      return setters;
+   }
+
+   static class SimpleBean
+   {
+      @ConfigurableAttribute(propertyName = "simple.name")
+      private String name;
+
+      @ConfigurableAttribute
+      private int count;
+
+      private double ratio;
+
+      @ConfigurableAttribute(defaultValue = "0.25")
+      public void setRatio(double ratio)
+      {
+         this.ratio = ratio;
+      }
+   }
+
+   public static class FlakyBean
+   {
+      @ConfigurableAttribute
+      private String name;
+   }
+
+   public static class BrokenFieldBean
+   {
+      @ConfigurableAttribute
+      private String name;
+
+      public String getName()
+      {
+         return name;
+      }
+
+      public void setName(String name)
+      {
+         this.name = name;
+      }
+   }
+
+   /**
+    * Describes {@link BrokenFieldBean} with a property which fails once its
+    * metadata is being built from the annotated field.
+    */
+   public static class BrokenFieldBeanBeanInfo extends SimpleBeanInfo
+   {
+      @Override
+      public PropertyDescriptor[] getPropertyDescriptors()
+      {
+         try
+         {
+            return new PropertyDescriptor[] { new PropertyDescriptor("name", BrokenFieldBean.class)
+            {
+               @Override
+               public synchronized Method getWriteMethod()
+               {
+                  for (StackTraceElement element : new Throwable().getStackTrace())
+                  {
+                     if (element.getClassName().equals(BeanPropertyMetadata.class.getName()))
+                     {
+                        throw new IllegalStateException("broken");
+                     }
+                  }
+                  return super.getWriteMethod();
+               }
+            } };
+         }
+         catch (IntrospectionException exc)
+         {
+            throw new IllegalStateException(exc);
+         }
+      }
+   }
+
+   /**
+    * Fails the first introspection of {@link FlakyBean} with an error.
+    */
+   public static class FlakyBeanBeanInfo extends SimpleBeanInfo
+   {
+      private static boolean failed;
+
+      public FlakyBeanBeanInfo()
+      {
+         if (!failed)
+         {
+            failed = true;
+            throw new LinkageError("flaky");
+         }
+      }
+   }
+}
@@ -0,0 +1,118 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the reflective {@link BeanPropertyWriter} with the method handle
+ * writer for both fields and write methods. Run after
+ * <code>mvn test-compile</code> with:
+ *
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main BeanPropertyWriterBenchmark
+ * </pre>
+ *
+ * @author zcarioca
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BeanPropertyWriterBenchmark
+{
+   private WritableBean bean;
+   private Object value;
+
+   private BeanPropertyWriter reflectiveFieldWriter;
+   private BeanPropertyWriter methodHandleFieldWriter;
+   private BeanPropertyWriter reflectiveMethodWriter;
+   private BeanPropertyWriter methodHandleMethodWriter;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      bean = new WritableBean();
+      value = "configured value";
+
+      reflectiveFieldWriter = BeanPropertyWriters.reflectiveFieldWriter(WritableBean.class.getDeclaredField("field"));
+      methodHandleFieldWriter = BeanPropertyWriters.methodHandleFieldWriter(WritableBean.class.getDeclaredField("field"));
+      reflectiveMethodWriter = BeanPropertyWriters.reflectiveMethodWriter(WritableBean.class.getDeclaredMethod("setProperty", String.class));
+      methodHandleMethodWriter = BeanPropertyWriters.methodHandleMethodWriter(WritableBean.class.getDeclaredMethod("setProperty", String.class));
+   }
+
+   @Benchmark
+   public Object reflectiveField() throws Exception
+   {
+      reflectiveFieldWriter.write(bean, value);
+      return bean;
+   }
+
+   @Benchmark
+   public Object methodHandleField() throws Exception
+   {
+      methodHandleFieldWriter.write(bean, value);
+      return bean;
+   }
+
+   @Benchmark
+   public Object reflectiveWriteMethod() throws Exception
+   {
+      reflectiveMethodWriter.write(bean, value);
+      return bean;
+   }
+
+   @Benchmark
+   public Object methodHandleWriteMethod() throws Exception
+   {
+      methodHandleMethodWriter.write(bean, value);
+      return bean;
+   }
+
+   static class WritableBean
+   {
+      private String field;
+      private String property;
+
+      @SuppressWarnings("unused")
+      private void setProperty(String property)
+      {
+         this.property = property;
+      }
+
+      @Override
+      public String toString()
+      {
+         return field + property;
+      }
+   }
+}
@@ -0,0 +1,106 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link BeanPropertyWriters}.
+ *
+ * @author zcarioca
+ */
+public class BeanPropertyWritersTest
+{
+   @Test
+   public void testFieldWriters() throws Exception
+   {
+      Field field = Target.class.getDeclaredField("count");
+      Target target = new Target();
+
+      BeanPropertyWriters.methodHandleFieldWriter(field).write(target, 5);
+      assertEquals(5, target.count);
+
+      BeanPropertyWriters.reflectiveFieldWriter(field).write(target, 7);
+      assertEquals(7, target.count);
+
+      BeanPropertyWriters.forField(field).write(target, 9);
+      assertEquals(9, target.count);
+   }
+
+   @Test
+   public void testMethodWriters() throws Exception
+   {
+      Method method = Target.class.getDeclaredMethod("setName", String.class);
+      Target target = new Target();
+
+      BeanPropertyWriters.methodHandleMethodWriter(method).write(target, "handle");
+      assertEquals("Hello handle", target.name);
+
+      BeanPropertyWriters.reflectiveMethodWriter(method).write(target, "reflection");
+      assertEquals("Hello reflection", target.name);
+
+      BeanPropertyWriters.forWriteMethod(method).write(target, "preferred");
+      assertEquals("Hello preferred", target.name);
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testMethodHandleWriterPropagatesExceptions() throws Exception
+   {
+      Method method = Target.class.getDeclaredMethod("setBroken", String.class);
+      BeanPropertyWriters.methodHandleMethodWriter(method).write(new Target(), "value");
+   }
+
+   @Test(expected = InvocationTargetException.class)
+   public void testReflectiveWriterWrapsExceptions() throws Exception
+   {
+      Method method = Target.class.getDeclaredMethod("setBroken", String.class);
+      BeanPropertyWriters.reflectiveMethodWriter(method).write(new Target(), "value");
+   }
+
+   @Test(expected = ClassCastException.class)
+   public void testMethodHandleWriterWrongType() throws Exception
+   {
+      Field field = Target.class.getDeclaredField("name");
+      BeanPropertyWriters.methodHandleFieldWriter(field).write(new Target(), 5);
+   }
+
+   static class Target
+   {
+      private int count;
+      private String name;
+
+      @SuppressWarnings("unused")
+      private void setName(String name)
+      {
+         this.name = "Hello " + name;
+      }
+
+      @SuppressWarnings("unused")
+      private void setBroken(String value)
+      {
+         throw new IllegalStateException(value);
+      }
+   }
+}
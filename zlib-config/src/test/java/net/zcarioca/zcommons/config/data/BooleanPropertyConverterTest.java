@@ -87,4 +87,12 @@ public class BooleanPropertyConverterTest extends BaseConverterTestCase
       converter.convertPropertyValue("not a boolean", beanPropertyInfo);
    }
 
+   @Test
+   public void testConvertToBoolean() throws ConfigurationException
+   {
+      assertTrue(converter.convertToBoolean(" yes ", beanPropertyInfo));
+      assertFalse(converter.convertToBoolean("0", beanPropertyInfo));
+      assertFalse(converter.convertToBoolean(null, beanPropertyInfo));
+   }
+
 }
@@ -0,0 +1,227 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.ConfigurableAttribute;
+import net.zcarioca.zcommons.config.ConfigurableNumberEncoding.NumberFormat;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.IntSet;
+import net.zcarioca.zcommons.config.util.LongSet;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link CollectionPropertyConverter}.
+ *
+ * @author zcarioca
+ */
+public class CollectionPropertyConverterTest extends BaseConverterTestCase
+{
+   @Test
+   public void testElementTypes() throws Exception
+   {
+      CollectionPropertyConverter<?> converter = converterFor("numbers");
+      assertEquals(List.class, converter.getSupportedClass());
+      assertEquals(Integer.class, converter.getElementType());
+
+      converter = converterFor("map");
+      assertEquals(Map.class, converter.getSupportedClass());
+      assertEquals(String.class, converter.getElementType());
+      assertEquals(Long.class, converter.getValueType());
+
+      assertEquals(String.class, converterFor("raw").getElementType());
+      assertEquals(String.class, converterFor("wildcard").getElementType());
+      assertEquals(Integer.class, converterFor("bounded").getElementType());
+   }
+
+   @Test
+   public void testRegistry() throws Exception
+   {
+      BeanPropertyConverterRegistry registry = BeanPropertyConverterRegistry.getRegistry();
+      assertTrue(registry.getPropertyConverter(Holder.class.getDeclaredField("numbers").getGenericType()) instanceof CollectionPropertyConverter);
+      assertTrue(registry.getPropertyConverter(IntSet.class) instanceof CollectionPropertyConverter);
+      assertTrue(registry.getPropertyConverter(Holder.class.getDeclaredField("array").getGenericType()) instanceof ArrayPropertyConverter);
+      assertTrue(registry.getPropertyConverter((Type) String.class) instanceof StringPropertyConverter);
+   }
+
+   @Test
+   public void testList() throws Exception
+   {
+      List<?> list = (List<?>) converterFor("numbers").convertPropertyValue("3, 1, , \"2\", 3", beanPropertyInfo);
+      assertEquals(Arrays.asList(3, 1, 2, 3), list);
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testListIsImmutable() throws Exception
+   {
+      List<?> list = (List<?>) converterFor("raw").convertPropertyValue("a, b", beanPropertyInfo);
+      list.remove(0);
+   }
+
+   @Test
+   public void testEmptyValue() throws Exception
+   {
+      assertTrue(((Collection<?>) converterFor("numbers").convertPropertyValue("", beanPropertyInfo)).isEmpty());
+      assertTrue(((Collection<?>) converterFor("set").convertPropertyValue(null, beanPropertyInfo)).isEmpty());
+      assertTrue(((Map<?, ?>) converterFor("map").convertPropertyValue(" ", beanPropertyInfo)).isEmpty());
+      assertTrue(((IntSet) converterFor("intSet").convertPropertyValue(",", beanPropertyInfo)).isEmpty());
+   }
+
+   @Test
+   public void testSet() throws Exception
+   {
+      Set<?> set = (Set<?>) converterFor("set").convertPropertyValue("b, a, \"c, d\", a, b", beanPropertyInfo);
+      assertEquals(3, set.size());
+      assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c, d")), set);
+      assertEquals(Arrays.asList("b", "a", "c, d"), Arrays.asList(set.toArray()));
+      assertTrue(set.contains("c, d"));
+      assertFalse(set.contains("c"));
+      assertFalse(set.contains(null));
+   }
+
+   @Test
+   public void testMap() throws Exception
+   {
+      Map<?, ?> map = (Map<?, ?>) converterFor("map").convertPropertyValue("one = 1, two=2, \"three, 3=3\", one=11, empty=", beanPropertyInfo);
+
+      Map<String, Long> expected = new LinkedHashMap<String, Long>();
+      expected.put("one", 11l);
+      expected.put("two", 2l);
+      expected.put("three, 3", 3l);
+      expected.put("empty", null);
+
+      assertEquals(expected, map);
+      assertEquals(expected.hashCode(), map.hashCode());
+      assertEquals(Arrays.asList("one", "two", "three, 3", "empty"), Arrays.asList(map.keySet().toArray()));
+      assertEquals(Long.valueOf(2), map.get("two"));
+      assertFalse(map.containsKey("three"));
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testMapEntryWithoutSeparator() throws Exception
+   {
+      converterFor("map").convertPropertyValue("one=1, two", beanPropertyInfo);
+   }
+
+   @Test
+   public void testIntSet() throws Exception
+   {
+      IntSet set = (IntSet) converterFor("intSet").convertPropertyValue("5, 0, -3, 5, 1000000", beanPropertyInfo);
+      assertEquals(IntSet.of(5, 0, -3, 1000000), set);
+      assertTrue(set.contains(0));
+      assertTrue(set.contains(-3));
+      assertFalse(set.contains(3));
+   }
+
+   @Test
+   public void testLongSetWithEncoding() throws Exception
+   {
+      setPropertyAnnotations(mockAnnotation(ConfigurableAttribute.class), mockNumberFormatAnnotation(NumberFormat.HEX));
+
+      LongSet set = (LongSet) converterFor("longSet").convertPropertyValue("ff, 10, 7fffffffffffffff", beanPropertyInfo);
+      assertEquals(LongSet.of(255l, 16l, Long.MAX_VALUE), set);
+   }
+
+   @Test
+   public void testElementConvertersAreResolvedOnce() throws Exception
+   {
+      TagConverter first = new TagConverter();
+      BeanPropertyConverterRegistry.getRegistry().register(first);
+      CollectionPropertyConverter<?> converter = CollectionPropertyConverter.createNewCollectionPropertyConverter(
+            Holder.class.getDeclaredField("tags").getGenericType(), beanPropertyInfo);
+
+      converter.convertPropertyValue("a, b", beanPropertyInfo);
+      converter.convertPropertyValue("c", beanPropertyInfo);
+      assertEquals(3, first.infos.size());
+      assertSame(first.infos.get(0), first.infos.get(1));
+      assertSame(first.infos.get(0), first.infos.get(2));
+      assertEquals(Tag.class, first.infos.get(0).getPropertyType());
+
+      // a converter registered later is used by the next conversion
+      TagConverter second = new TagConverter();
+      BeanPropertyConverterRegistry.getRegistry().register(second);
+      List<?> tags = (List<?>) converter.convertPropertyValue("d", beanPropertyInfo);
+      assertEquals(3, first.infos.size());
+      assertEquals(1, second.infos.size());
+      assertEquals("d", ((Tag) tags.get(0)).name);
+   }
+
+   private CollectionPropertyConverter<?> converterFor(String fieldName) throws Exception
+   {
+      return CollectionPropertyConverter.createNewCollectionPropertyConverter(Holder.class.getDeclaredField(fieldName).getGenericType());
+   }
+
+   @SuppressWarnings({ "rawtypes", "unused" })
+   private static class Holder<N extends Integer>
+   {
+      private List<Integer> numbers;
+      private Set<String> set;
+      private Map<String, Long> map;
+      private List raw;
+      private Collection<?> wildcard;
+      private List<N> bounded;
+      private IntSet intSet;
+      private LongSet longSet;
+      private int[] array;
+      private List<Tag> tags;
+   }
+
+   static class Tag
+   {
+      private final String name;
+
+      Tag(String name)
+      {
+         this.name = name;
+      }
+   }
+
+   private static class TagConverter implements BeanPropertyConverter<Tag>
+   {
+      private final List<BeanPropertyInfo> infos = new ArrayList<BeanPropertyInfo>();
+
+      @Override
+      public Class<?> getSupportedClass()
+      {
+         return Tag.class;
+      }
+
+      @Override
+      public Tag convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo)
+      {
+         infos.add(beanPropertyInfo);
+         return new Tag(value);
+      }
+   }
+}
@@ -0,0 +1,315 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import net.zcarioca.zcommons.config.ConfigurableAttribute;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.util.ConfigSnapshot;
+import net.zcarioca.zcommons.config.util.IntSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link CompiledBindingEngine}.
+ *
+ * @author zcarioca
+ */
+public class CompiledBindingEngineTest
+{
+   private CompiledBindingEngine engine;
+   private Properties properties;
+
+   @Before
+   public void setUp()
+   {
+      engine = new CompiledBindingEngine();
+      properties = new Properties();
+      properties.setProperty("name", "compiled");
+      properties.setProperty("count", "12");
+      properties.setProperty("values", "1, 2, 3");
+   }
+
+   @Test
+   public void testBinderIsCached() throws Exception
+   {
+      assertSame(engine.getBinder(Bean.class), engine.getBinder(Bean.class));
+      assertSame(engine.getBinder(Bean.class), new CompiledBindingEngine().getBinder(Bean.class));
+      assertEquals(Bean.class, engine.getBinder(Bean.class).getBeanType());
+   }
+
+   @Test
+   public void testMatchesSetterBindingEngine() throws Exception
+   {
+      Bean compiled = new Bean();
+      Bean setters = new Bean();
+
+      engine.getBinder(Bean.class).bind(compiled, properties);
+      new SetterBindingEngine().getBinder(Bean.class).bind(setters, properties);
+
+      assertEquals("compiled", compiled.name);
+      assertEquals(12, compiled.count);
+      assertEquals(7, compiled.missing);
+      assertEquals(0, compiled.unset);
+      assertArrayEquals(new int[] { 1, 2, 3 }, compiled.values);
+
+      assertEquals(setters.name, compiled.name);
+      assertEquals(setters.count, compiled.count);
+      assertEquals(setters.missing, compiled.missing);
+      assertEquals(setters.unset, compiled.unset);
+      assertArrayEquals(setters.values, compiled.values);
+   }
+
+   @Test
+   public void testBindSnapshot() throws Exception
+   {
+      Bean fromSnapshot = new Bean();
+      Bean fromSetters = new Bean();
+
+      engine.getBinder(Bean.class).bind(fromSnapshot, ConfigSnapshot.of(properties));
+      new SetterBindingEngine().getBinder(Bean.class).bind(fromSetters, ConfigSnapshot.of(properties));
+
+      assertEquals("compiled", fromSnapshot.name);
+      assertEquals(12, fromSnapshot.count);
+      assertEquals(7, fromSnapshot.missing);
+      assertArrayEquals(new int[] { 1, 2, 3 }, fromSnapshot.values);
+
+      assertEquals(fromSetters.name, fromSnapshot.name);
+      assertEquals(fromSetters.count, fromSnapshot.count);
+      assertEquals(fromSetters.missing, fromSnapshot.missing);
+      assertArrayEquals(fromSetters.values, fromSnapshot.values);
+   }
+
+   @Test
+   public void testCollections() throws Exception
+   {
+      properties.setProperty("names", "b, a, b");
+      properties.setProperty("ids", "4, 8, 15");
+      properties.setProperty("weights", "a=1.5, b=2");
+
+      CollectionBean compiled = new CollectionBean();
+      CollectionBean setters = new CollectionBean();
+      engine.getBinder(CollectionBean.class).bind(compiled, properties);
+      new SetterBindingEngine().getBinder(CollectionBean.class).bind(setters, properties);
+
+      assertEquals(Arrays.asList(1, 2, 3), compiled.values);
+      assertEquals(new HashSet<String>(Arrays.asList("a", "b")), compiled.names);
+      assertEquals(IntSet.of(4, 8, 15), compiled.ids);
+      assertEquals(Double.valueOf(1.5), compiled.weights.get("a"));
+
+      assertEquals(setters.values, compiled.values);
+      assertEquals(setters.names, compiled.names);
+      assertEquals(setters.ids, compiled.ids);
+      assertEquals(setters.weights, compiled.weights);
+   }
+
+   @Test
+   public void testBindChangedKeys() throws Exception
+   {
+      assertEquals(new HashSet<String>(Arrays.asList("name", "count", "missing", "unset", "values")), engine.getBinder(Bean.class).getPropertyKeys());
+
+      Bean compiled = new Bean();
+      Bean setters = new Bean();
+      properties.setProperty("count", "twelve");
+      Set<String> changedKeys = new HashSet<String>(Arrays.asList("name", "values"));
+
+      engine.getBinder(Bean.class).bind(compiled, ConfigSnapshot.of(properties), changedKeys);
+      new SetterBindingEngine().getBinder(Bean.class).bind(setters, ConfigSnapshot.of(properties), changedKeys);
+
+      assertEquals("compiled", compiled.name);
+      assertEquals(0, compiled.count);
+      assertEquals(0, compiled.missing);
+      assertArrayEquals(new int[] { 1, 2, 3 }, compiled.values);
+
+      assertEquals(setters.name, compiled.name);
+      assertEquals(setters.count, compiled.count);
+      assertEquals(setters.missing, compiled.missing);
+      assertArrayEquals(setters.values, compiled.values);
+   }
+
+   @Test
+   public void testPrepare() throws Exception
+   {
+      Bean bean = new Bean();
+      PreparedBinding binding = engine.getBinder(Bean.class).prepare(bean, ConfigSnapshot.of(properties), null);
+      assertEquals(null, bean.name);
+      assertEquals(0, bean.count);
+
+      binding.apply();
+      assertEquals("compiled", bean.name);
+      assertEquals(12, bean.count);
+      assertEquals(7, bean.missing);
+      assertArrayEquals(new int[] { 1, 2, 3 }, bean.values);
+
+      properties.setProperty("name", "prepared");
+      properties.setProperty("count", "13");
+      new SetterBindingEngine().getBinder(Bean.class).prepare(bean, ConfigSnapshot.of(properties), new HashSet<String>(Arrays.asList("name"))).apply();
+      assertEquals("prepared", bean.name);
+      assertEquals(12, bean.count);
+   }
+
+   @Test
+   public void testPrepareChangedKeys() throws Exception
+   {
+      Bean bean = new Bean();
+      bean.name = "unchanged";
+      properties.setProperty("count", "13");
+      PreparedBinding binding = engine.getBinder(Bean.class).prepare(bean, ConfigSnapshot.of(properties), new HashSet<String>(Arrays.asList("count")));
+      assertEquals(0, bean.count);
+
+      binding.apply();
+      assertEquals("unchanged", bean.name);
+      assertEquals(13, bean.count);
+      assertEquals(0, bean.missing);
+      assertEquals(null, bean.values);
+   }
+
+   @Test
+   public void testPreparedValuesAreConvertedOnce() throws Exception
+   {
+      CountingConverter converter = new CountingConverter();
+      BeanPropertyConverterRegistry.getRegistry().register(converter);
+
+      CountedBean bean = new CountedBean();
+      properties.setProperty("counted", "value");
+      PreparedBinding binding = engine.getBinder(CountedBean.class).prepare(bean, ConfigSnapshot.of(properties), null);
+      assertEquals(1, converter.calls);
+      assertEquals(null, bean.counted);
+
+      binding.apply();
+      assertEquals(1, converter.calls);
+      assertEquals("value", bean.counted.value);
+      assertEquals(12, bean.count);
+   }
+
+   @Test
+   public void testPrepareInvalidValueWritesNothing() throws Exception
+   {
+      Bean bean = new Bean();
+      properties.setProperty("count", "twelve");
+      try
+      {
+         engine.getBinder(Bean.class).prepare(bean, ConfigSnapshot.of(properties), null);
+         fail("The invalid count should not convert");
+      }
+      catch (ConfigurationException exc)
+      {
+         assertEquals(null, bean.name);
+      }
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testInvalidValue() throws Exception
+   {
+      properties.setProperty("count", "twelve");
+      engine.getBinder(Bean.class).bind(new Bean(), properties);
+   }
+
+   static class Bean
+   {
+      @ConfigurableAttribute
+      private String name;
+
+      @ConfigurableAttribute
+      private int count;
+
+      @ConfigurableAttribute(defaultValue = "7")
+      private int missing;
+
+      @ConfigurableAttribute
+      private long unset;
+
+      private int[] values;
+
+      @ConfigurableAttribute
+      public void setValues(int[] values)
+      {
+         this.values = values;
+      }
+   }
+
+   static class CollectionBean
+   {
+      @ConfigurableAttribute
+      private List<Integer> values;
+
+      @ConfigurableAttribute
+      private Set<String> names;
+
+      @ConfigurableAttribute
+      private IntSet ids;
+
+      private Map<String, Double> weights;
+
+      @ConfigurableAttribute
+      public void setWeights(Map<String, Double> weights)
+      {
+         this.weights = weights;
+      }
+   }
+
+   static class Counted
+   {
+      private final String value;
+
+      Counted(String value)
+      {
+         this.value = value;
+      }
+   }
+
+   static class CountedBean
+   {
+      @ConfigurableAttribute
+      private Counted counted;
+
+      @ConfigurableAttribute
+      private int count;
+   }
+
+   private static final class CountingConverter implements BeanPropertyConverter<Counted>
+   {
+      private int calls;
+
+      @Override
+      public Class<?> getSupportedClass()
+      {
+         return Counted.class;
+      }
+
+      @Override
+      public Counted convertPropertyValue(String value, BeanPropertyInfo beanPropertyInfo)
+      {
+         calls++;
+         return value != null ? new Counted(value) : null;
+      }
+   }
+}
@@ -0,0 +1,148 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link CsvTokenizer}.
+ *
+ * @author zcarioca
+ */
+public class CsvTokenizerTest
+{
+   private static final Pattern legacyPattern = Pattern.compile("(?:^|,)(\\\"(?:[^\\\"]+|\\\"\\\")*\\\"|[^,]*)");
+
+   @Test
+   public void testSplit()
+   {
+      assertArrayEquals(new String[] { "" }, CsvTokenizer.split(""));
+      assertArrayEquals(new String[] { "a", "b", "" }, CsvTokenizer.split(" a ,b,"));
+      // the legacy expression skips the item after a leading comma
+      assertArrayEquals(new String[] { "" }, CsvTokenizer.split(",a"));
+      assertArrayEquals(new String[] { "a, b", "c" }, CsvTokenizer.split("\"a, b\", c"));
+      assertArrayEquals(new String[] { "a,b", "c" }, CsvTokenizer.split(" \"a,b\", c"));
+      assertArrayEquals(new String[] { "\"is\"" }, CsvTokenizer.split(" \"\"is\"\""));
+      assertArrayEquals(new String[] {}, CsvTokenizer.split("\"unclosed, list"));
+   }
+
+   @Test
+   public void testLargeList()
+   {
+      StringBuilder value = new StringBuilder();
+      String[] expected = new String[50000];
+      for (int i = 0; i < expected.length; i++)
+      {
+         expected[i] = i % 2 == 0 ? "item" + i : "item, " + i;
+         value.append(i == 0 ? "" : ", ").append(i % 2 == 0 ? expected[i] : "\"" + expected[i] + "\"");
+      }
+      assertArrayEquals(expected, CsvTokenizer.split(value.toString()));
+   }
+
+   @Test
+   public void testMatchesRegularExpressionSplit()
+   {
+      char[] alphabet = { 'a', ' ', ',', '"' };
+      for (int length = 0; length <= 7; length++)
+      {
+         int combinations = (int) Math.pow(alphabet.length, length);
+         for (int n = 0; n < combinations; n++)
+         {
+            char[] chars = new char[length];
+            for (int i = 0, rest = n; i < length; i++, rest /= alphabet.length)
+            {
+               chars[i] = alphabet[rest % alphabet.length];
+            }
+            String value = new String(chars);
+            assertEquals("'" + value + "'", Arrays.asList(legacySplit(value)), Arrays.asList(CsvTokenizer.split(value)));
+         }
+      }
+   }
+
+   /**
+    * The regular expression split the tokenizer replaces, with the quoted
+    * group reset between quoted items.
+    */
+   private static String[] legacySplit(String originalValue)
+   {
+      List<String> list = new ArrayList<String>();
+      Matcher matcher = legacyPattern.matcher(originalValue);
+
+      StringBuilder quotedGroup = new StringBuilder();
+      boolean inQuotedLoop = false;
+
+      while (matcher.find())
+      {
+         String group = matcher.group();
+         if (!inQuotedLoop)
+         {
+            if (group.startsWith(","))
+            {
+               group = group.substring(1);
+            }
+            group = group.trim();
+         }
+
+         if (group.startsWith("\""))
+         {
+            group = group.substring(1);
+
+            if (group.endsWith("\""))
+            {
+               group = group.substring(0, group.length() - 1);
+            }
+            else
+            {
+               quotedGroup.setLength(0);
+               quotedGroup.append(group);
+               inQuotedLoop = true;
+               continue;
+            }
+         }
+         if (inQuotedLoop)
+         {
+            if (group.endsWith("\""))
+            {
+               quotedGroup.append(group.substring(0, group.length() - 1));
+               inQuotedLoop = false;
+
+               group = quotedGroup.toString();
+            }
+            else
+            {
+               quotedGroup.append(group);
+               continue;
+            }
+         }
+
+         list.add(group);
+      }
+
+      return list.toArray(new String[list.size()]);
+   }
+}
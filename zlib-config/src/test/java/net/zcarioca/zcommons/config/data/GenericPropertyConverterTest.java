@@ -22,8 +22,10 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
 
 import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
 
@@ -73,6 +75,23 @@ public class GenericPropertyConverterTest extends BaseConverterTestCase
       assertEquals(new BigInteger("1000"), converter.convertPropertyValue("1000", beanPropertyInfo));
    }
 
+   @Test
+   public void testConvertPropertyWithValueOf() throws ConfigurationException
+   {
+      setPropertyType(TimeUnit.class);
+      assertEquals(TimeUnit.SECONDS, converter.convertPropertyValue("SECONDS", beanPropertyInfo));
+
+      setPropertyType(Timestamp.class);
+      assertEquals(Timestamp.valueOf("2013-01-02 03:04:05"), converter.convertPropertyValue("2013-01-02 03:04:05", beanPropertyInfo));
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testConvertPropertyBadEnumValue() throws ConfigurationException
+   {
+      setPropertyType(TimeUnit.class);
+      converter.convertPropertyValue("FORTNIGHTS", beanPropertyInfo);
+   }
+
    @Test(expected = ConfigurationException.class)
    public void testConvertPropertyBadValue() throws ConfigurationException
    {
@@ -0,0 +1,101 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link NumberParser}.
+ *
+ * @author zcarioca
+ */
+public class NumberParserTest
+{
+   @Test
+   public void testMatchesWrapperParsers()
+   {
+      String[] values = { "0", "1", "-1", "+17", " 101 ", "\t777\n", "7f", "-80", "2147483647", "-2147483648", "2147483648", "9223372036854775807",
+            "-9223372036854775808", "9223372036854775808", "ff", "-", "+", "", "1-", "0x10", "12.5" };
+      int[] radixes = { 2, 8, 10, 16 };
+
+      for (int radix : radixes)
+      {
+         for (String value : values)
+         {
+            assertSameResult(Integer.class, radix, value);
+            assertSameResult(Long.class, radix, value);
+            assertSameResult(Short.class, radix, value);
+            assertSameResult(Byte.class, radix, value);
+         }
+      }
+   }
+
+   @Test
+   public void testPrimitiveParsers()
+   {
+      assertEquals(-255, NumberParser.create(Integer.class, 16).parseInt("-ff"));
+      assertEquals(0x7fffffffffffffffl, NumberParser.create(Long.class, 16).parseLong(" 7fffffffffffffff "));
+      assertEquals(5, NumberParser.create(Integer.class, 2).parseInt(new StringBuilder("101")));
+      assertEquals(1.5, NumberParser.create(Double.class, 10).parseDouble(" 1.5 "), 0);
+      assertEquals(Float.valueOf(2.25f), NumberParser.create(Float.class, 10).parse("2.25"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testUnsupportedType()
+   {
+      NumberParser.create(java.math.BigDecimal.class, 10);
+   }
+
+   private void assertSameResult(Class<?> type, int radix, String value)
+   {
+      Number expected = null;
+      try
+      {
+         String trimmed = value.trim();
+         if (type == Integer.class)
+            expected = Integer.parseInt(trimmed, radix);
+         else if (type == Long.class)
+            expected = Long.parseLong(trimmed, radix);
+         else if (type == Short.class)
+            expected = Short.parseShort(trimmed, radix);
+         else
+            expected = Byte.parseByte(trimmed, radix);
+      }
+      catch (NumberFormatException exc)
+      {
+         // expected stays null
+      }
+
+      try
+      {
+         Number actual = NumberParser.create(type, radix).parse(value);
+         assertEquals(String.format("%s '%s' radix %d", type, value, radix), expected, actual);
+      }
+      catch (NumberFormatException exc)
+      {
+         if (expected != null)
+         {
+            fail(String.format("%s '%s' radix %d should parse to %s", type, value, radix, expected));
+         }
+      }
+   }
+}
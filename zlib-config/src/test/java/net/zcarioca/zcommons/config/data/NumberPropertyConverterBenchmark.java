@@ -0,0 +1,111 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import net.zcarioca.zcommons.config.ConfigurableNumberEncoding;
+import net.zcarioca.zcommons.config.ConfigurableNumberEncoding.NumberFormat;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link NumberPropertyConverter} for decimal, hex, binary and
+ * octal values, boxed and primitive, against the wrapper type's own parse
+ * method. Run after <code>mvn test-compile</code> with:
+ *
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main NumberPropertyConverterBenchmark
+ * </pre>
+ *
+ * @author zcarioca
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class NumberPropertyConverterBenchmark
+{
+   @Param({ "DECIMAL", "HEX", "BINARY", "OCTAL" })
+   private NumberFormat numberFormat;
+
+   private String value;
+   private int radix;
+   private BeanPropertyInfo beanPropertyInfo;
+   private NumberPropertyConverter<Integer> converter;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      int number = 1234567;
+      radix = numberFormat.radix();
+      value = " " + Integer.toString(number, radix) + " ";
+
+      ConfigurableNumberEncoding encoding = EncodedProperties.class.getDeclaredField(numberFormat.name().toLowerCase()).getAnnotation(
+            ConfigurableNumberEncoding.class);
+      beanPropertyInfo = new BeanPropertySetterFactory.BeanPropertyInfoImpl(EncodedProperties.class, int.class, "value",
+            Collections.<java.lang.annotation.Annotation> emptyList(), Arrays.<java.lang.annotation.Annotation> asList(encoding));
+      converter = NumberPropertyConverter.createNewNumberPropertyConverter(Integer.class);
+   }
+
+   @Benchmark
+   public int wrapperParse()
+   {
+      return Integer.parseInt(value.trim(), radix);
+   }
+
+   @Benchmark
+   public Integer convertBoxed() throws ConfigurationException
+   {
+      return converter.convertPropertyValue(value, beanPropertyInfo);
+   }
+
+   @Benchmark
+   public int convertPrimitive() throws ConfigurationException
+   {
+      return converter.convertToInt(value, beanPropertyInfo);
+   }
+
+   static class EncodedProperties
+   {
+      @ConfigurableNumberEncoding(NumberFormat.DECIMAL)
+      int decimal;
+      @ConfigurableNumberEncoding(NumberFormat.HEX)
+      int hex;
+      @ConfigurableNumberEncoding(NumberFormat.BINARY)
+      int binary;
+      @ConfigurableNumberEncoding(NumberFormat.OCTAL)
+      int octal;
+   }
+}
@@ -294,4 +294,23 @@ public class NumberPropertyConverterTest extends BaseConverterTestCase
       converter.convertPropertyValue("123.456.789", beanPropertyInfo);
    }
 
+   @Test
+   public void testPrimitiveConversions() throws ConfigurationException
+   {
+      setPropertyAnnotations(mockAnnotation(ConfigurableAttribute.class), mockNumberFormatAnnotation(NumberFormat.HEX));
+
+      assertEquals(255, NumberPropertyConverter.createNewNumberPropertyConverter(Integer.class).convertToInt(" ff ", beanPropertyInfo));
+      assertEquals(0, NumberPropertyConverter.createNewNumberPropertyConverter(Integer.class).convertToInt(" ", beanPropertyInfo));
+      assertEquals(0xffffffffffl, NumberPropertyConverter.createNewNumberPropertyConverter(Long.class).convertToLong("ffffffffff", beanPropertyInfo));
+      assertEquals(0l, NumberPropertyConverter.createNewNumberPropertyConverter(Long.class).convertToLong(null, beanPropertyInfo));
+      assertEquals(-256.99, NumberPropertyConverter.createNewNumberPropertyConverter(Double.class).convertToDouble("-256.99", beanPropertyInfo), 0);
+      assertEquals(0d, NumberPropertyConverter.createNewNumberPropertyConverter(Double.class).convertToDouble("", beanPropertyInfo), 0);
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testPrimitiveIntInvalid() throws ConfigurationException
+   {
+      NumberPropertyConverter.createNewNumberPropertyConverter(Integer.class).convertToInt("12.5", beanPropertyInfo);
+   }
+
 }
@@ -0,0 +1,156 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import net.zcarioca.zcommons.config.ConfigurableAttribute;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link PrimitivePropertyWriters}.
+ *
+ * @author zcarioca
+ */
+public class PrimitivePropertyWritersTest extends BaseConverterTestCase
+{
+   @Test
+   public void testFieldWriters() throws Exception
+   {
+      BeanPropertyConverterRegistry registry = BeanPropertyConverterRegistry.getRegistry();
+      Target target = new Target();
+
+      PrimitivePropertyWriter intWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("count"));
+      assertTrue(intWriter.supports(registry.getPropertyConverter(int.class)));
+      intWriter.write(target, registry.getPropertyConverter(int.class), "42", beanPropertyInfo);
+      assertEquals(42, target.count);
+
+      PrimitivePropertyWriter longWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("total"));
+      longWriter.write(target, registry.getPropertyConverter(long.class), "9000000000", beanPropertyInfo);
+      assertEquals(9000000000l, target.total);
+
+      PrimitivePropertyWriter doubleWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("ratio"));
+      doubleWriter.write(target, registry.getPropertyConverter(double.class), "0.25", beanPropertyInfo);
+      assertEquals(0.25, target.ratio, 0);
+
+      PrimitivePropertyWriter booleanWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("enabled"));
+      booleanWriter.write(target, registry.getPropertyConverter(boolean.class), "yes", beanPropertyInfo);
+      assertTrue(target.enabled);
+   }
+
+   @Test
+   public void testSlots() throws Exception
+   {
+      BeanPropertyConverterRegistry registry = BeanPropertyConverterRegistry.getRegistry();
+      Target target = new Target();
+
+      PrimitivePropertyWriter intWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("count"));
+      intWriter.write(target, intWriter.convert(registry.getPropertyConverter(int.class), "-42", beanPropertyInfo));
+      assertEquals(-42, target.count);
+
+      PrimitivePropertyWriter longWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("total"));
+      longWriter.write(target, longWriter.convert(registry.getPropertyConverter(long.class), "9000000000", beanPropertyInfo));
+      assertEquals(9000000000l, target.total);
+
+      PrimitivePropertyWriter doubleWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("ratio"));
+      doubleWriter.write(target, doubleWriter.convert(registry.getPropertyConverter(double.class), "-0.25", beanPropertyInfo));
+      assertEquals(-0.25, target.ratio, 0);
+
+      PrimitivePropertyWriter booleanWriter = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("enabled"));
+      booleanWriter.write(target, booleanWriter.convert(registry.getPropertyConverter(boolean.class), "yes", beanPropertyInfo));
+      assertTrue(target.enabled);
+      booleanWriter.write(target, booleanWriter.convert(registry.getPropertyConverter(boolean.class), "no", beanPropertyInfo));
+      assertFalse(target.enabled);
+   }
+
+   @Test
+   public void testWriteMethodWriter() throws Exception
+   {
+      Target target = new Target();
+      PrimitivePropertyWriter writer = PrimitivePropertyWriters.forWriteMethod(Target.class.getDeclaredMethod("setDoubled", int.class));
+      writer.write(target, BeanPropertyConverterRegistry.getRegistry().getPropertyConverter(int.class), " ", beanPropertyInfo);
+      assertEquals(0, target.count);
+      writer.write(target, BeanPropertyConverterRegistry.getRegistry().getPropertyConverter(int.class), "21", beanPropertyInfo);
+      assertEquals(42, target.count);
+   }
+
+   @Test
+   public void testUnsupported() throws Exception
+   {
+      assertNull(PrimitivePropertyWriters.forField(Target.class.getDeclaredField("name")));
+      assertNull(PrimitivePropertyWriters.forField(Target.class.getDeclaredField("small")));
+
+      PrimitivePropertyWriter writer = PrimitivePropertyWriters.forField(Target.class.getDeclaredField("count"));
+      assertNotNull(writer);
+      assertFalse(writer.supports(new GenericPropertyConverter()));
+      assertFalse(writer.supports(BeanPropertyConverterRegistry.getRegistry().getPropertyConverter(boolean.class)));
+   }
+
+   @Test
+   public void testBindsPrimitiveProperties() throws Exception
+   {
+      Properties properties = new Properties();
+      properties.setProperty("count", "7");
+      properties.setProperty("total", "8");
+      properties.setProperty("ratio", "1.5");
+
+      Target target = new Target();
+      for (BeanPropertySetter setter : new BeanPropertySetterFactory().getPropertySettersForBean(target))
+      {
+         setter.setProperty(properties);
+      }
+      assertEquals(7, target.count);
+      assertEquals(8l, target.total);
+      assertEquals(1.5, target.ratio, 0);
+      assertTrue(target.enabled);
+   }
+
+   static class Target
+   {
+      @ConfigurableAttribute
+      private int count;
+      @ConfigurableAttribute
+      private long total;
+      @ConfigurableAttribute
+      private double ratio;
+      @ConfigurableAttribute(defaultValue = "true")
+      private boolean enabled;
+      private short small;
+      private String name;
+
+      @SuppressWarnings("unused")
+      private void setDoubled(int value)
+      {
+         this.count = value * 2;
+      }
+
+      @Override
+      public String toString()
+      {
+         return name + small;
+      }
+   }
+}
@@ -0,0 +1,182 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+import java.text.DateFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.Date;
+
+import net.zcarioca.zcommons.config.Configurable;
+import net.zcarioca.zcommons.config.ConfigurableAttribute;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.junit.Test;
+
+/**
+ * Tests the <code>java.time</code> converters and the
+ * {@link DateFormatterCache}.
+ * 
+ * @author zcarioca
+ */
+public class TemporalPropertyConverterTest extends BaseConverterTestCase
+{
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   protected void setupBeanPropertyInfo()
+   {
+      super.setupBeanPropertyInfo();
+      when(beanPropertyInfo.getPropertyName()).thenReturn("myTemporalProperty");
+      when(beanPropertyInfo.getBeanType()).thenReturn((Class) Object.class);
+   }
+
+   @Test
+   public void testIsoValues() throws ConfigurationException
+   {
+      assertEquals(Instant.parse("2013-05-01T10:15:30Z"), new InstantPropertyConverter().convertPropertyValue(" 2013-05-01T10:15:30Z ", beanPropertyInfo));
+      assertEquals(LocalDate.of(2013, 5, 1), new LocalDatePropertyConverter().convertPropertyValue("2013-05-01", beanPropertyInfo));
+      assertEquals(LocalDateTime.of(2013, 5, 1, 10, 15), new LocalDateTimePropertyConverter().convertPropertyValue("2013-05-01T10:15", beanPropertyInfo));
+      assertEquals(ZonedDateTime.of(2013, 5, 1, 10, 15, 0, 0, ZoneOffset.ofHours(2)),
+            new ZonedDateTimePropertyConverter().convertPropertyValue("2013-05-01T10:15+02:00", beanPropertyInfo));
+      assertNull(new LocalDatePropertyConverter().convertPropertyValue(" ", beanPropertyInfo));
+   }
+
+   @Test
+   public void testFormattedValues() throws ConfigurationException
+   {
+      setPropertyAnnotations(mockAnnotation(ConfigurableAttribute.class), mockConfigurableDateFormat("yyyy-MM-dd HH:mm"));
+
+      assertEquals(LocalDate.of(2013, 5, 1), new LocalDatePropertyConverter().convertPropertyValue("2013-05-01 10:15", beanPropertyInfo));
+      assertEquals(LocalDateTime.of(2013, 5, 1, 10, 15), new LocalDateTimePropertyConverter().convertPropertyValue("2013-05-01 10:15", beanPropertyInfo));
+      assertEquals(ZonedDateTime.of(2013, 5, 1, 10, 15, 0, 0, ZoneId.systemDefault()),
+            new ZonedDateTimePropertyConverter().convertPropertyValue("2013-05-01 10:15", beanPropertyInfo));
+      assertEquals(ZonedDateTime.of(2013, 5, 1, 10, 15, 0, 0, ZoneId.systemDefault()).toInstant(),
+            new InstantPropertyConverter().convertPropertyValue("2013-05-01 10:15", beanPropertyInfo));
+   }
+
+   @Test
+   public void testFormattedValueWithZone() throws ConfigurationException
+   {
+      setBeanAnnotations(mockAnnotation(Configurable.class), mockConfigurableDateFormat("yyyyMMddHHmmZ"));
+
+      assertEquals(Instant.parse("2013-05-01T08:15:00Z"), new InstantPropertyConverter().convertPropertyValue("201305011015+0200", beanPropertyInfo));
+   }
+
+   @Test
+   public void testMatchesSimpleDateFormat() throws Exception
+   {
+      String[][] samples = { { "yyyy", "2010" }, { "yyyyMMdd", "20101223" }, { "yyyy-MM-dd HH:mm:ss", "2013-02-30 23:59:59" },
+            { "MM/dd/yyyy hh:mm a", "12/23/2010 07:45 PM" }, { "yyyy-MM-dd'T'HH:mm:ss.SSS", "2013-05-01T10:15:30.125 trailing text" },
+            { "yyyy-MM-dd", "2013-1-5" }, { "MM/dd/yyyy", "1/5/2013" }, { "dd-MMM-yyyy", "05-" + shortMonth(Calendar.JANUARY).toLowerCase() + "-2013" },
+            { "yyyy", "13" }, { "HH:mm:ss.S", "10:15:30.5" } };
+      for (String[] sample : samples)
+      {
+         setPropertyAnnotations(mockAnnotation(ConfigurableAttribute.class), mockConfigurableDateFormat(sample[0]));
+         Date expected = new SimpleDateFormat(sample[0]).parse(sample[1]);
+         assertEquals(sample[0], expected, new DatePropertyConverter().convertPropertyValue(sample[1], beanPropertyInfo));
+      }
+   }
+
+   @Test
+   public void testDateKeepsSimpleDateFormatRules() throws Exception
+   {
+      setPropertyAnnotations(mockAnnotation(ConfigurableAttribute.class), mockConfigurableDateFormat("yyyy"));
+      Calendar calendar = new CalendarPropertyConverter().convertPropertyValue("13", beanPropertyInfo);
+      assertEquals(13, calendar.get(Calendar.YEAR));
+
+      setPropertyAnnotations(mockAnnotation(ConfigurableAttribute.class), mockConfigurableDateFormat("HH:mm:ss.S"));
+      calendar.setTime(new DatePropertyConverter().convertPropertyValue("10:15:30.5", beanPropertyInfo));
+      assertEquals(5, calendar.get(Calendar.MILLISECOND));
+   }
+
+   @Test
+   public void testDateFormatsArePerThread() throws Exception
+   {
+      final SimpleDateFormat[] other = new SimpleDateFormat[1];
+      Thread thread = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            other[0] = DateFormatterCache.getDateFormat("yyyy-MM-dd");
+         }
+      };
+      thread.start();
+      thread.join();
+
+      assertSame(DateFormatterCache.getDateFormat("yyyy-MM-dd"), DateFormatterCache.getDateFormat("yyyy-MM-dd"));
+      assertFalse(other[0] == DateFormatterCache.getDateFormat("yyyy-MM-dd"));
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testInvalidFormattedValue() throws ConfigurationException
+   {
+      setPropertyAnnotations(mockAnnotation(ConfigurableAttribute.class), mockConfigurableDateFormat("yyyy-MM-dd"));
+      new LocalDatePropertyConverter().convertPropertyValue("May 1st", beanPropertyInfo);
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testInvalidIsoValue() throws ConfigurationException
+   {
+      new InstantPropertyConverter().convertPropertyValue("2013-05-01", beanPropertyInfo);
+   }
+
+   @Test
+   public void testFormattersAreCached()
+   {
+      assertSame(DateFormatterCache.getFormatter("yyyy-MM-dd"), DateFormatterCache.getFormatter("yyyy-MM-dd"));
+   }
+
+   @Test
+   public void testDuration() throws ConfigurationException
+   {
+      DurationPropertyConverter converter = new DurationPropertyConverter();
+      assertEquals(Duration.ofMinutes(15), converter.convertPropertyValue("PT15M", beanPropertyInfo));
+      assertEquals(Duration.ofMillis(1500), converter.convertPropertyValue(" 1500 ", beanPropertyInfo));
+      assertEquals(Duration.ofMillis(-10), converter.convertPropertyValue("-10", beanPropertyInfo));
+      assertNull(converter.convertPropertyValue("", beanPropertyInfo));
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testInvalidDuration() throws ConfigurationException
+   {
+      new DurationPropertyConverter().convertPropertyValue("15 minutes", beanPropertyInfo);
+   }
+
+   private static String shortMonth(int month)
+   {
+      return new DateFormatSymbols().getShortMonths()[month];
+   }
+}
@@ -0,0 +1,168 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2010 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import net.zcarioca.zcommons.config.BaseTestCase;
+import net.zcarioca.zcommons.config.source.spi.DefaultConfigSourceServiceProvider;
+import net.zcarioca.zcommons.config.util.MockConfigurableObject;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ConfigurationSourceProviderFactory}.
+ * 
+ * 
+ * @author zcarioca
+ */
+public class ConfigurationSourceProviderFactoryTest extends BaseTestCase
+{
+
+   @Test
+   public void testGetInstance()
+   {
+      assertNotNull(ConfigurationSourceProviderFactory.getInstance());
+      assertSame(ConfigurationSourceProviderFactory.getInstance(), ConfigurationSourceProviderFactory.getInstance());
+   }
+
+   @After
+   public void tearDown()
+   {
+      ConfigurationSourceProviderFactory.getInstance().clearAssociations();
+   }
+
+   @Test
+   public void testProvidersAreCached()
+   {
+      ConfigurationSourceProviderFactory factory = ConfigurationSourceProviderFactory.getInstance();
+      ConfigurationSourceProvider mock = factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(new MockConfigurableObject()));
+      assertTrue(mock instanceof MockConfSourceProvider);
+      assertSame(mock, factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(new MockConfigurableObject())));
+
+      ConfigurationSourceProvider backup = factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(getClass(), "unknown-one"));
+      assertTrue(backup instanceof DefaultConfigSourceServiceProvider);
+      assertSame(backup, factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(getClass(), "unknown-two")));
+
+      // the associations are forgotten, but not the providers
+      factory.clearAssociations();
+      assertSame(mock, factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(new MockConfigurableObject())));
+
+      factory.refresh();
+      ConfigurationSourceProvider refreshed = factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(new MockConfigurableObject()));
+      assertTrue(refreshed instanceof MockConfSourceProvider);
+      assertNotSame(mock, refreshed);
+   }
+
+   @Test
+   public void testConcurrentLookups() throws Exception
+   {
+      final ConfigurationSourceProviderFactory factory = ConfigurationSourceProviderFactory.getInstance();
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<ConfigurationSourceProvider> found = new ArrayList<ConfigurationSourceProvider>();
+
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 16; i++)
+      {
+         Thread thread = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+                  ConfigurationSourceProvider provider = factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(
+                        new MockConfigurableObject()));
+                  synchronized (found)
+                  {
+                     found.add(provider);
+                  }
+               }
+               catch (InterruptedException exc)
+               {
+                  Thread.currentThread().interrupt();
+               }
+            }
+         };
+         thread.start();
+         threads.add(thread);
+      }
+      start.countDown();
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      assertEquals(16, found.size());
+      for (ConfigurationSourceProvider provider : found)
+      {
+         assertSame(found.get(0), provider);
+      }
+   }
+
+   @Test
+   public void testLookupsDuringRefresh() throws Exception
+   {
+      final ConfigurationSourceProviderFactory factory = ConfigurationSourceProviderFactory.getInstance();
+      final List<Throwable> failures = new ArrayList<Throwable>();
+      Thread refresher = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               for (int i = 0; i < 50; i++)
+               {
+                  factory.clearAssociations();
+                  factory.refresh();
+               }
+            }
+            catch (Throwable exc)
+            {
+               synchronized (failures)
+               {
+                  failures.add(exc);
+               }
+            }
+         }
+      };
+      refresher.start();
+      while (refresher.isAlive())
+      {
+         assertTrue(factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(new MockConfigurableObject())) instanceof MockConfSourceProvider);
+      }
+      refresher.join();
+      assertTrue(failures.isEmpty());
+
+      ConfigurationSourceProvider provider = factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(new MockConfigurableObject()));
+      assertSame(provider, factory.getConfigurationSourceProvider(new ConfigurationSourceIdentifier(new MockConfigurableObject())));
+   }
+
+}
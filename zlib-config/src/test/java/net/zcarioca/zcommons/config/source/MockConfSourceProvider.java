@@ -31,6 +31,26 @@ import net.zcarioca.zcommons.config.util.PropertiesBuilderFactory;
 public class MockConfSourceProvider implements ConfigurationSourceProvider
 {
    private static final String ID = "MOCK-PROVIDER";
+   private static final Properties overrides = new Properties();
+
+   /**
+    * Changes the value of a property, until the overrides are cleared.
+    * 
+    * @param key The property key.
+    * @param value The new value.
+    */
+   public static synchronized void setOverride(String key, String value)
+   {
+      overrides.setProperty(key, value);
+   }
+
+   /**
+    * Restores the original properties.
+    */
+   public static synchronized void clearOverrides()
+   {
+      overrides.clear();
+   }
 
    public Properties getProperties(ConfigurationSourceIdentifier configurationSourceIdentifier, PropertiesBuilderFactory propertiesBuilderFactory)
    {
@@ -46,6 +66,10 @@ public class MockConfSourceProvider implements ConfigurationSourceProvider
       props.setProperty("aCharacter", "s");
       props.setProperty("property.message", "This is a simple property message");
       props.setProperty("another.long.value", "500");
+      synchronized (MockConfSourceProvider.class)
+      {
+         props.putAll(overrides);
+      }
 
       return props;
    }
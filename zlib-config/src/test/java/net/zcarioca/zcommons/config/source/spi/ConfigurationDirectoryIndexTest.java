@@ -0,0 +1,154 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ConfigurationDirectoryIndex}.
+ * 
+ * @author zcarioca
+ */
+public class ConfigurationDirectoryIndexTest
+{
+   private File confDir;
+   private File packageDir;
+   private ConfigurationDirectoryIndex index;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      confDir = new File(System.getProperty("java.io.tmpdir"), "directory_index_conf");
+      FileUtils.deleteDirectory(confDir);
+      packageDir = new File(confDir, "net/zcarioca/test");
+      packageDir.mkdirs();
+
+      touch(new File(confDir, "Shared.properties"));
+      touch(new File(confDir, "rootonly.xml"));
+      touch(new File(packageDir, "shared.properties"));
+      touch(new File(packageDir, "nested.properties.xml"));
+
+      index = new ConfigurationDirectoryIndex(confDir);
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      FileUtils.deleteDirectory(confDir);
+   }
+
+   @Test
+   public void testFind()
+   {
+      assertFalse(index.isBuilt());
+      index.build();
+      assertTrue(index.isBuilt());
+
+      assertEquals(new File(packageDir, "shared.properties"), index.find("net/zcarioca/test", "shared"));
+      assertEquals(new File(confDir, "Shared.properties"), index.find("net/zcarioca/other", "SHARED"));
+      assertEquals(new File(confDir, "Shared.properties"), index.find("", "shared.properties"));
+      assertEquals(new File(confDir, "rootonly.xml"), index.find("net/zcarioca/test", "rootonly"));
+      assertEquals(new File(packageDir, "nested.properties.xml"), index.find("net/zcarioca/test", "nested"));
+      assertEquals(new File(packageDir, "nested.properties.xml"), index.find("net/zcarioca/test", "nested.properties"));
+      assertNull(index.find("net/zcarioca/test", "missing"));
+      assertNull(index.find("net/zcarioca/test", "share"));
+   }
+
+   @Test
+   public void testScanMatchesIndex()
+   {
+      index.build();
+      String[][] lookups = { { "net/zcarioca/test", "shared" }, { "net/zcarioca/other", "shared" }, { "", "rootonly.xml" },
+            { "net/zcarioca/test", "nested" }, { "net/zcarioca/test", "missing" } };
+      for (String[] lookup : lookups)
+      {
+         assertEquals(index.find(lookup[0], lookup[1]), ConfigurationDirectoryIndex.scan(confDir, lookup[0], lookup[1]));
+      }
+   }
+
+   @Test
+   public void testFileEvents() throws Exception
+   {
+      index.build();
+
+      File added = new File(packageDir, "added.properties");
+      touch(added);
+      index.fileCreated(added);
+      assertEquals(added, index.find("net/zcarioca/test", "added"));
+
+      // the name which sorts first is used, and the other takes over when it goes
+      File xml = new File(packageDir, "added.xml");
+      touch(xml);
+      index.fileCreated(xml);
+      assertEquals(added, index.find("net/zcarioca/test", "added"));
+
+      added.delete();
+      index.fileDeleted(added);
+      assertEquals(xml, index.find("net/zcarioca/test", "added"));
+
+      xml.delete();
+      index.fileDeleted(xml);
+      assertNull(index.find("net/zcarioca/test", "added"));
+
+      // files outside of the configuration directory are ignored
+      index.fileCreated(new File(System.getProperty("java.io.tmpdir"), "outside.properties"));
+      assertNull(index.find("", "outside"));
+   }
+
+   @Test
+   public void testDirectoryEvents() throws Exception
+   {
+      index.build();
+
+      File newDir = new File(confDir, "org/example");
+      newDir.mkdirs();
+      touch(new File(newDir, "example.properties"));
+      index.directoryCreated(new File(confDir, "org"));
+      assertEquals(new File(newDir, "example.properties"), index.find("org/example", "example"));
+
+      FileUtils.deleteDirectory(new File(confDir, "org"));
+      index.directoryDeleted(new File(confDir, "org"));
+      assertNull(index.find("org/example", "example"));
+      assertEquals(new File(packageDir, "shared.properties"), index.find("net/zcarioca/test", "shared"));
+   }
+
+   @Test
+   public void testClear()
+   {
+      index.build();
+      index.clear();
+      assertFalse(index.isBuilt());
+      assertNull(index.find("", "shared"));
+   }
+
+   private static void touch(File file) throws Exception
+   {
+      FileUtils.writeStringToFile(file, "key=value", "UTF-8");
+   }
+}
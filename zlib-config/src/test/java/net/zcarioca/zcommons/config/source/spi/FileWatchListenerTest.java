@@ -24,13 +24,17 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.concurrent.Executor;
 
 import net.zcarioca.zcommons.config.BaseTestCase;
 import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
 import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
 import net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.FileWatchListener;
 import net.zcarioca.zcommons.config.util.ConfigurationUtilities;
+import net.zcarioca.zcommons.config.util.ReconfigurationExecutor;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -42,11 +46,20 @@ import org.junit.Test;
 public class FileWatchListenerTest extends BaseTestCase
 {
    private ConfigurationUtilitiesMock configurationUtilities;
+   private File file;
 
    @Before
    public void setUp() throws Exception
    {
       configurationUtilities = new ConfigurationUtilitiesMock();
+      file = new File(System.getProperty("java.io.tmpdir"), "file_watch_listener_test.properties");
+      FileUtils.writeStringToFile(file, "key=value", "UTF-8");
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      file.delete();
    }
 
    /**
@@ -98,15 +111,89 @@ public class FileWatchListenerTest extends BaseTestCase
    }
 
    @Test
-   public void testOnFileChanged()
+   public void testOnFileChanged() throws Exception
    {
-      FileWatchListener listener = new FileWatchListener(configurationUtilities);
-      listener.onFileChange(new File("file1.txt"));
+      FileWatchListener listener = new FileWatchListener(configurationUtilities, 0);
+      listener.onFileChange(file);
       assertFalse(configurationUtilities.isRanReconfiguration());
 
-      listener.addFile(new File("file1.txt"), new ConfigurationSourceIdentifier(this));
-      listener.onFileChange(new File("file1.txt"));
+      listener.addFile(file, new ConfigurationSourceIdentifier(this));
+      FileUtils.writeStringToFile(file, "key=changed", "UTF-8");
+      listener.onFileChange(file);
       assertTrue(configurationUtilities.isRanReconfiguration());
+      assertEquals(1, configurationUtilities.getReconfigurationCount());
+   }
+
+   @Test
+   public void testOnFileChangedSameContents() throws Exception
+   {
+      FileWatchListener listener = new FileWatchListener(configurationUtilities, 0);
+      listener.addFile(file, new ConfigurationSourceIdentifier(this));
+
+      // rewritten with the same contents
+      FileUtils.writeStringToFile(file, "key=value", "UTF-8");
+      listener.onFileChange(file);
+      listener.onFileCreate(file);
+      assertFalse(configurationUtilities.isRanReconfiguration());
+
+      FileUtils.writeStringToFile(file, "key=changed", "UTF-8");
+      listener.onFileChange(file);
+      listener.onFileChange(file);
+      assertEquals(1, configurationUtilities.getReconfigurationCount());
+
+      // changed back to the original contents
+      FileUtils.writeStringToFile(file, "key=value", "UTF-8");
+      listener.onFileChange(file);
+      assertEquals(2, configurationUtilities.getReconfigurationCount());
+   }
+
+   @Test
+   public void testOnFileChangedAfterFailureIsRetried() throws Exception
+   {
+      FileWatchListener listener = new FileWatchListener(configurationUtilities, 0);
+      listener.addFile(file, new ConfigurationSourceIdentifier(this));
+
+      configurationUtilities.failures = 1;
+      FileUtils.writeStringToFile(file, "key=changed", "UTF-8");
+      listener.onFileChange(file);
+      assertEquals(1, configurationUtilities.getReconfigurationCount());
+
+      // the contents were never applied, so they are still a change
+      listener.onFileChange(file);
+      assertEquals(2, configurationUtilities.getReconfigurationCount());
+      listener.onFileChange(file);
+      assertEquals(2, configurationUtilities.getReconfigurationCount());
+   }
+
+   @Test
+   public void testOnFileChangedBurstIsCoalesced() throws Exception
+   {
+      FileWatchListener listener = new FileWatchListener(configurationUtilities, 200);
+      try
+      {
+         listener.addFile(file, new ConfigurationSourceIdentifier(this));
+
+         // truncate, write and write again, as an editor would
+         FileUtils.writeStringToFile(file, "", "UTF-8");
+         listener.onFileChange(file);
+         FileUtils.writeStringToFile(file, "key=", "UTF-8");
+         listener.onFileChange(file);
+         FileUtils.writeStringToFile(file, "key=changed", "UTF-8");
+         listener.onFileChange(file);
+         assertFalse(configurationUtilities.isRanReconfiguration());
+
+         long deadline = System.currentTimeMillis() + 5000;
+         while (!configurationUtilities.isRanReconfiguration() && System.currentTimeMillis() < deadline)
+         {
+            Thread.sleep(20);
+         }
+         Thread.sleep(400);
+         assertEquals(1, configurationUtilities.getReconfigurationCount());
+      }
+      finally
+      {
+         listener.clear();
+      }
    }
 
    @Test
@@ -127,16 +214,31 @@ public class FileWatchListenerTest extends BaseTestCase
    private static class ConfigurationUtilitiesMock extends ConfigurationUtilities
    {
 
-      private boolean ranReconfiguration = false;
+      private volatile int reconfigurationCount;
+      private volatile int failures;
 
       public ConfigurationUtilitiesMock()
       {
          super();
+         // reconfigure on the watcher's thread, so the tests can check at once
+         setReconfigurationExecutor(new ReconfigurationExecutor(new Executor()
+         {
+            @Override
+            public void execute(Runnable command)
+            {
+               command.run();
+            }
+         }, 1));
       }
 
       public boolean isRanReconfiguration()
       {
-         return this.ranReconfiguration;
+         return this.reconfigurationCount > 0;
+      }
+
+      public int getReconfigurationCount()
+      {
+         return this.reconfigurationCount;
       }
 
       /**
@@ -145,7 +247,12 @@ public class FileWatchListenerTest extends BaseTestCase
       @Override
       public void runReconfiguration(ConfigurationSourceIdentifier sourceId) throws ConfigurationException
       {
-         ranReconfiguration = true;
+         reconfigurationCount++;
+         if (failures > 0)
+         {
+            failures--;
+            throw new ConfigurationException("failed");
+         }
       }
    }
 }
\ No newline at end of file
@@ -21,9 +21,14 @@ package net.zcarioca.zcommons.config.source.spi;
 import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.CONF_DIR_OVERRIDE;
 import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.DEFAULT_CONF_DIR;
 import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.DEFAULT_ROOT_DIR_ENV_VAR;
+import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.POLL_INTERVAL_OVERRIDE;
 import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.ROOT_DIR_ENV_OVERRIDE;
 import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.ROOT_DIR_OVERRIDE;
+import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.WATCHER_AUTO;
+import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.WATCHER_OVERRIDE;
+import static net.zcarioca.zcommons.config.source.spi.FilesystemConfigurationSourceServiceProvider.WATCHER_POLL;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -49,6 +54,7 @@ import net.zcarioca.zcommons.config.util.UnconfigurableObject;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -127,6 +133,30 @@ public class FilesystemConfigurationSourceServiceProviderTest extends BaseTestCa
       assertEquals("configuration.xml", fcsp.getResourceName(new ConfigurationSourceIdentifier(getClass(), "configuration.xml")));
    }
 
+   @Test
+   public void testCreateFileWatcher() throws Exception
+   {
+      FileWatcher watcher = fcsp.createFileWatcher(confDir, new FileAlterationListenerAdaptor());
+      try
+      {
+         assertTrue(watcher instanceof NioFileWatcher || watcher instanceof PollingFileWatcher);
+         if (watcher instanceof NioFileWatcher)
+         {
+            assertTrue(((NioFileWatcher) watcher).isNative());
+         }
+      }
+      finally
+      {
+         watcher.stop();
+      }
+
+      when(environment.getSystemProperty(WATCHER_OVERRIDE, WATCHER_AUTO)).thenReturn(WATCHER_POLL);
+      when(environment.getSystemProperty(POLL_INTERVAL_OVERRIDE, null)).thenReturn("500");
+      FilesystemConfigurationSourceServiceProvider polling = new FilesystemConfigurationSourceServiceProvider(environment);
+      assertEquals(500l, polling.getFilesystemConfiguration().getPollInterval());
+      assertTrue(polling.createFileWatcher(confDir, new FileAlterationListenerAdaptor()) instanceof PollingFileWatcher);
+   }
+
    @Test
    public void testGetProperties() throws ConfigurationException
    {
@@ -139,6 +169,16 @@ public class FilesystemConfigurationSourceServiceProviderTest extends BaseTestCa
       assertNotNull(fcsp.getProperties(new ConfigurationSourceIdentifier(new TestOne()), new PropertiesBuilderFactory(false, false)));
    }
 
+   @Test
+   public void testGetPropertiesIndexed() throws ConfigurationException
+   {
+      fcsp.postInit();
+      assertTrue(fcsp.supportsIdentifier(new ConfigurationSourceIdentifier(new TestOne())));
+      assertNotNull(fcsp.getProperties(new ConfigurationSourceIdentifier(new TestOne()), new PropertiesBuilderFactory(false, false)));
+      assertNotNull(fcsp.getProperties(new ConfigurationSourceIdentifier(new ConfigurableObject()), new PropertiesBuilderFactory(false, false)));
+      assertFalse(fcsp.supportsIdentifier(new ConfigurationSourceIdentifier(getClass(), "missing")));
+   }
+
    @Test
    public void testGetMonitoredConfigurationDirectory()
    {
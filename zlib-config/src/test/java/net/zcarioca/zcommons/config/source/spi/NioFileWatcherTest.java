@@ -0,0 +1,203 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.source.spi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link NioFileWatcher}.
+ * 
+ * @author zcarioca
+ */
+public class NioFileWatcherTest
+{
+   private File confDir;
+   private RecordingListener listener;
+   private NioFileWatcher watcher;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      confDir = new File(System.getProperty("java.io.tmpdir"), "nio_watcher_conf");
+      FileUtils.deleteDirectory(confDir);
+      new File(confDir, "sub").mkdirs();
+      FileUtils.writeStringToFile(new File(confDir, "sub/existing.properties"), "key=value", "UTF-8");
+
+      listener = new RecordingListener();
+      watcher = new NioFileWatcher(confDir, listener);
+      watcher.start();
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      watcher.stop();
+      FileUtils.deleteDirectory(confDir);
+   }
+
+   @Test
+   public void testFileChangeInSubDirectory() throws Exception
+   {
+      if (!watcher.isNative())
+         return;
+
+      File file = new File(confDir, "sub/existing.properties");
+      FileUtils.writeStringToFile(file, "key=changed", "UTF-8");
+      assertEquals("change " + file, listener.next("change"));
+   }
+
+   @Test
+   public void testFileCreateAndDelete() throws Exception
+   {
+      if (!watcher.isNative())
+         return;
+
+      File file = new File(confDir, "created.properties");
+      FileUtils.writeStringToFile(file, "key=value", "UTF-8");
+      assertEquals("create " + file, listener.next("create"));
+
+      file.delete();
+      assertEquals("delete " + file, listener.next("delete"));
+   }
+
+   @Test
+   public void testNewDirectoryIsWatched() throws Exception
+   {
+      if (!watcher.isNative())
+         return;
+
+      File dir = new File(confDir, "new");
+      dir.mkdirs();
+      assertEquals("createDir " + dir, listener.next("createDir"));
+
+      File file = new File(dir, "new.properties");
+      FileUtils.writeStringToFile(file, "key=value", "UTF-8");
+      assertEquals("create " + file, listener.next("create"));
+   }
+
+   @Test
+   public void testDeletedDirectoryReportsItsFiles() throws Exception
+   {
+      if (!watcher.isNative())
+         return;
+
+      File dir = new File(confDir, "sub");
+      FileUtils.deleteDirectory(dir);
+      assertEquals("delete " + new File(dir, "existing.properties"), listener.next("delete"));
+      assertEquals("deleteDir " + dir, listener.next("deleteDir"));
+   }
+
+   @Test
+   public void testRescanReportsMissedChanges() throws Exception
+   {
+      File kept = new File(confDir, "kept.properties");
+      File removed = new File(confDir, "removed.properties");
+      FileUtils.writeStringToFile(kept, "key=value", "UTF-8");
+      FileUtils.writeStringToFile(removed, "key=value", "UTF-8");
+
+      RecordingListener recorder = new RecordingListener();
+      NioFileWatcher rescanned = new NioFileWatcher(confDir, recorder);
+      try
+      {
+         rescanned.registerAll(confDir.toPath());
+
+         File sub = new File(confDir, "sub");
+         File added = new File(confDir, "added.properties");
+         File newDir = new File(confDir, "new");
+         File inner = new File(newDir, "inner.properties");
+         removed.delete();
+         FileUtils.deleteDirectory(sub);
+         FileUtils.writeStringToFile(added, "key=value", "UTF-8");
+         FileUtils.writeStringToFile(inner, "key=value", "UTF-8");
+
+         rescanned.rescan(confDir.toPath());
+         assertEquals(new HashSet<String>(Arrays.asList("change " + kept, "delete " + removed, "delete " + new File(sub, "existing.properties"),
+               "deleteDir " + sub, "create " + added, "createDir " + newDir, "create " + inner)), new HashSet<String>(recorder.events));
+      }
+      finally
+      {
+         rescanned.stop();
+      }
+   }
+
+   private static final class RecordingListener extends FileAlterationListenerAdaptor
+   {
+      private final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+
+      /**
+       * Waits for the next event of the kind, skipping any other events.
+       */
+      String next(String kind) throws InterruptedException
+      {
+         long deadline = System.currentTimeMillis() + 10000;
+         String event;
+         while ((event = events.poll(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) != null)
+         {
+            if (event.startsWith(kind + " "))
+            {
+               return event;
+            }
+         }
+         return null;
+      }
+
+      @Override
+      public void onFileChange(File file)
+      {
+         events.add("change " + file);
+      }
+
+      @Override
+      public void onFileCreate(File file)
+      {
+         events.add("create " + file);
+      }
+
+      @Override
+      public void onFileDelete(File file)
+      {
+         events.add("delete " + file);
+      }
+
+      @Override
+      public void onDirectoryCreate(File directory)
+      {
+         events.add("createDir " + directory);
+      }
+
+      @Override
+      public void onDirectoryDelete(File directory)
+      {
+         events.add("deleteDir " + directory);
+      }
+   }
+}
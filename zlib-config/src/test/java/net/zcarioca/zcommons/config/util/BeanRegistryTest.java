@@ -0,0 +1,186 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BeanRegistry} class.
+ * 
+ * @author zcarioca
+ */
+public class BeanRegistryTest
+{
+   private BeanRegistry registry;
+   private ConfigurationSourceIdentifier sourceA;
+   private ConfigurationSourceIdentifier sourceB;
+
+   @Before
+   public void setUp()
+   {
+      registry = new BeanRegistry();
+      sourceA = new ConfigurationSourceIdentifier(BeanRegistryTest.class, "a");
+      sourceB = new ConfigurationSourceIdentifier(BeanRegistryTest.class, "b");
+   }
+
+   @Test
+   public void testRegisterByIdentity()
+   {
+      EqualBean first = new EqualBean();
+      EqualBean second = new EqualBean();
+
+      assertTrue(registry.register(sourceA, first));
+      assertFalse(registry.register(sourceA, first));
+      assertTrue(registry.register(sourceA, second));
+      assertTrue(registry.register(sourceB, first));
+
+      List<Object> beans = registry.getBeans(sourceA);
+      assertEquals(2, beans.size());
+      assertSame(first, beans.get(0));
+      assertSame(second, beans.get(1));
+      assertEquals(1, registry.getBeanCount(sourceB));
+   }
+
+   @Test
+   public void testUnregister()
+   {
+      Object bean = new Object();
+      Object other = new Object();
+      registry.register(sourceA, bean);
+      registry.register(sourceA, other);
+      registry.register(sourceB, bean);
+
+      assertTrue(registry.unregister(bean));
+      assertFalse(registry.unregister(bean));
+      assertEquals(1, registry.getBeanCount(sourceA));
+      assertEquals(0, registry.getBeanCount(sourceB));
+      assertEquals(1, registry.getSourceIdentifiers().size());
+      assertTrue(registry.getBeans(sourceB).isEmpty());
+   }
+
+   @Test
+   public void testBeanCounts()
+   {
+      registry.register(sourceA, new Object());
+      registry.register(sourceA, new Object());
+      registry.register(sourceB, new Object());
+
+      Map<ConfigurationSourceIdentifier, Integer> counts = registry.getBeanCounts();
+      assertEquals(2, counts.size());
+      // the registry only holds weak references, the beans may already be gone
+      assertTrue(counts.get(sourceA) <= 2);
+
+      registry.clear();
+      assertTrue(registry.getBeanCounts().isEmpty());
+   }
+
+   @Test
+   public void testConcurrentRegistration() throws Exception
+   {
+      final Object[] beans = new Object[64];
+      for (int i = 0; i < beans.length; i++)
+      {
+         beans[i] = new Object();
+      }
+      Thread[] threads = new Thread[8];
+      for (int t = 0; t < threads.length; t++)
+      {
+         final ConfigurationSourceIdentifier sourceId = t % 2 == 0 ? sourceA : sourceB;
+         threads[t] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               for (Object bean : beans)
+               {
+                  registry.register(sourceId, bean);
+               }
+            }
+         };
+         threads[t].start();
+      }
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+      assertEquals(beans.length, registry.getBeanCount(sourceA));
+      assertEquals(beans.length, registry.getBeanCount(sourceB));
+   }
+
+   @Test
+   public void testCollectedBeansAreDropped() throws Exception
+   {
+      Object kept = new Object();
+      Object dropped = new Object();
+      registry.register(sourceA, kept);
+      registry.register(sourceA, dropped);
+
+      WeakReference<Object> reference = new WeakReference<Object>(dropped);
+      dropped = null;
+      for (int i = 0; i < 50 && reference.get() != null; i++)
+      {
+         System.gc();
+         Thread.sleep(10);
+      }
+      if (reference.get() != null)
+      {
+         // the JVM did not collect the bean
+         return;
+      }
+
+      // the reference is enqueued some time after it is cleared
+      long deadline = System.currentTimeMillis() + 5000;
+      while (registry.getBeanCount(sourceA) > 1 && System.currentTimeMillis() < deadline)
+      {
+         Thread.sleep(10);
+      }
+      assertEquals(1, registry.getBeanCount(sourceA));
+      assertSame(kept, registry.getBeans(sourceA).get(0));
+   }
+
+   /**
+    * A bean which is equal to every other instance of its class.
+    */
+   private static final class EqualBean
+   {
+      @Override
+      public boolean equals(Object obj)
+      {
+         return obj instanceof EqualBean;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return 1;
+      }
+   }
+}
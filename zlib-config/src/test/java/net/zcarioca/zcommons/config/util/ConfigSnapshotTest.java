@@ -0,0 +1,203 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+
+import net.zcarioca.zcommons.config.BaseTestCase;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ConfigSnapshot} class.
+ * 
+ * @author zcarioca
+ */
+public class ConfigSnapshotTest extends BaseTestCase
+{
+   @Test
+   public void testOfProperties()
+   {
+      Properties defaults = new Properties();
+      defaults.setProperty("inherited", "from defaults");
+      defaults.setProperty("key1", "overridden");
+      Properties properties = new Properties(defaults);
+      properties.setProperty("key1", "value1");
+      properties.setProperty("key2", "");
+
+      ConfigSnapshot snapshot = ConfigSnapshot.of(properties);
+      assertEquals(3, snapshot.size());
+      assertEquals("value1", snapshot.get("key1"));
+      assertEquals("", snapshot.get("key2"));
+      assertEquals("from defaults", snapshot.get("inherited"));
+      assertNull(snapshot.get("unknown"));
+      assertNull(snapshot.get(null));
+      assertEquals("default", snapshot.get("unknown", "default"));
+      assertEquals("", snapshot.get("key2", "default"));
+      assertTrue(snapshot.containsKey("key2"));
+      assertFalse(snapshot.containsKey("unknown"));
+
+      // later changes to the properties are not seen
+      properties.setProperty("key1", "changed");
+      assertEquals("value1", snapshot.get("key1"));
+   }
+
+   @Test
+   public void testOfMap()
+   {
+      Map<String, String> map = new HashMap<String, String>();
+      for (int i = 0; i < 1000; i++)
+      {
+         map.put("key" + i, "value" + i);
+      }
+      map.put("null", null);
+
+      ConfigSnapshot snapshot = ConfigSnapshot.of(map);
+      assertEquals(1000, snapshot.size());
+      for (int i = 0; i < 1000; i++)
+      {
+         assertEquals("value" + i, snapshot.get("key" + i));
+      }
+      assertFalse(snapshot.containsKey("null"));
+      assertEquals(1000, snapshot.keySet().size());
+      assertTrue(snapshot.keySet().contains("key999"));
+   }
+
+   @Test
+   public void testEmpty()
+   {
+      assertSame(ConfigSnapshot.empty(), ConfigSnapshot.of((Properties) null));
+      assertSame(ConfigSnapshot.empty(), ConfigSnapshot.of((Map<String, String>) null));
+      assertTrue(ConfigSnapshot.empty().isEmpty());
+      assertNull(ConfigSnapshot.empty().get("key"));
+      assertTrue(ConfigSnapshot.empty().toProperties().isEmpty());
+   }
+
+   @Test
+   public void testVersion()
+   {
+      Properties properties = new Properties();
+      properties.setProperty("key", "value");
+
+      ConfigSnapshot first = ConfigSnapshot.of(properties);
+      ConfigSnapshot second = ConfigSnapshot.of(properties);
+      assertTrue(second.getVersion() > first.getVersion());
+      assertEquals(first.getVersion(), first.getVersion());
+
+      // equality only looks at the contents
+      assertEquals(first, second);
+      assertEquals(first.hashCode(), second.hashCode());
+      properties.setProperty("key", "other");
+      assertFalse(first.equals(ConfigSnapshot.of(properties)));
+   }
+
+   @Test
+   public void testChangedKeys()
+   {
+      Map<String, String> map = new HashMap<String, String>();
+      map.put("same", "value");
+      map.put("changed", "before");
+      map.put("removed", "value");
+      ConfigSnapshot previous = ConfigSnapshot.of(map);
+
+      map.put("changed", "after");
+      map.remove("removed");
+      map.put("added", "value");
+      ConfigSnapshot snapshot = ConfigSnapshot.of(map);
+
+      assertEquals(new HashSet<String>(Arrays.asList("changed", "removed", "added")), snapshot.changedKeys(previous));
+      assertTrue(snapshot.changedKeys(ConfigSnapshot.of(map)).isEmpty());
+      assertEquals(snapshot.keySet(), snapshot.changedKeys(null));
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testKeySetImmutable()
+   {
+      Properties properties = new Properties();
+      properties.setProperty("key", "value");
+      ConfigSnapshot.of(properties).keySet().iterator().remove();
+   }
+
+   @Test
+   public void testToProperties()
+   {
+      Map<String, String> map = new HashMap<String, String>();
+      map.put("key1", "value1");
+      map.put("key2", "value2");
+      ConfigSnapshot snapshot = ConfigSnapshot.of(map);
+
+      Properties properties = snapshot.toProperties();
+      assertEquals(2, properties.size());
+      assertEquals("value1", properties.getProperty("key1"));
+
+      // each call returns a new copy
+      properties.setProperty("key1", "changed");
+      assertEquals("value1", snapshot.toProperties().getProperty("key1"));
+      assertEquals("value1", snapshot.get("key1"));
+   }
+
+   @Test
+   public void testLayers() throws ConfigurationException
+   {
+      PropertiesBuilder builder = new PropertiesBuilder();
+      builder.addSystemPropertiesLayer().addEnvironmentLayer();
+      builder.addProperty("fake.system.property", "file value");
+
+      ConfigSnapshot snapshot = ConfigSnapshot.of(builder.build());
+      assertEquals(1, snapshot.size());
+      assertEquals("file value", snapshot.get("fake.system.property"));
+      assertEquals("fake env value", snapshot.get("fake-env-prop"));
+      assertFalse(snapshot.containsKey("fake-env-prop"));
+      assertNull(snapshot.get("unknown"));
+
+      Properties properties = snapshot.toProperties();
+      assertEquals(1, properties.size());
+      assertEquals("fake env value", properties.getProperty("fake-env-prop"));
+   }
+
+   @Test
+   public void testLayeredValuesAreRemembered() throws ConfigurationException
+   {
+      MockEnvironment environment = new MockEnvironment();
+      PropertiesBuilder builder = new PropertiesBuilder();
+      builder.setEnvironment(environment);
+      builder.addSystemPropertiesLayer();
+      ConfigSnapshot snapshot = ConfigSnapshot.of(builder.build());
+
+      assertNull(snapshot.get("added.system.property"));
+      assertEquals("fake value", snapshot.get("fake.system.property"));
+
+      // the layered lookups are answered from the snapshot from now on
+      environment.getAllSystemProperties().put("added.system.property", "added");
+      environment.getAllSystemProperties().put("fake.system.property", "changed");
+      assertNull(snapshot.get("added.system.property"));
+      assertEquals("fake value", snapshot.get("fake.system.property"));
+   }
+}
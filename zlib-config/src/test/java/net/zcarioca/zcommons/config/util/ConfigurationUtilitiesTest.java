@@ -0,0 +1,585 @@
+/*
+ * Project: zlib-config
+ * 
+ * Copyright (C) 2010 zcarioca.net
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import net.zcarioca.zcommons.config.BaseTestCase;
+import net.zcarioca.zcommons.config.ConfigurationProcessListener;
+import net.zcarioca.zcommons.config.ConfigurationUpdateListener;
+import net.zcarioca.zcommons.config.data.CompiledBindingEngine;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+import net.zcarioca.zcommons.config.source.MockConfSourceProvider;
+
+import org.apache.log4j.PropertyConfigurator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the {@link ConfigurationUtilities} class.
+ * 
+ * @author zcarioca
+ */
+public class ConfigurationUtilitiesTest extends BaseTestCase
+{
+   private static final Logger logger = LoggerFactory.getLogger(ConfigurationUtilitiesTest.class);
+   private ConfigurationUtilities utils;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      PropertyConfigurator.configure(getClass().getResource("/log4j.properties"));
+
+      utils = ConfigurationUtilities.getInstance();
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      ConfigurationUtilities.resetConfigurationUtilities();
+   }
+
+   @Test
+   public void testGetInstance()
+   {
+      assertSame(ConfigurationUtilities.getInstance(), ConfigurationUtilities.getInstance());
+   }
+
+   @Test
+   public void testConfigureBeanObject() throws Exception
+   {
+      ConfigurableObject obj = new ConfigurableObject();
+      this.utils.configureBean(obj);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testConfigureBeanObjectNull() throws Exception
+   {
+      this.utils.configureBean(null);
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testConfigureBeanObjectInvalid() throws Exception
+   {
+      this.utils.configureBean(new UnconfigurableObject());
+   }
+
+   @Test
+   public void testReconfigureConfigureBeanObject() throws Exception
+   {
+      MockUpdateListener updateListener = new MockUpdateListener();
+      this.utils.addConfigurationUpdateListener(updateListener);
+
+      ConfigurableObject obj = new ConfigurableObject();
+      this.utils.configureBean(obj);
+      this.utils.setReconfigureOnUpdateEnabled(true);
+
+      for (ConfigurationSourceIdentifier sourceId : this.utils.getConfiguredSourceIdentifiers())
+      {
+         this.utils.runReconfiguration(sourceId, true);
+      }
+      assertEquals(1, updateListener.count);
+      assertEquals(obj, updateListener.lastCompleted);
+      updateListener.lastCompleted = null;
+
+      this.utils.setReconfigureOnUpdateEnabled(false);
+      for (ConfigurationSourceIdentifier sourceId : this.utils.getConfiguredSourceIdentifiers())
+      {
+         this.utils.runReconfiguration(sourceId, true);
+      }
+      assertEquals(1, updateListener.count);
+      assertNull(updateListener.lastCompleted);
+   }
+
+   @Test
+   public void testBeanConfiguredTwiceIsUpdatedOnce() throws Exception
+   {
+      MockUpdateListener updateListener = new MockUpdateListener();
+      this.utils.addConfigurationUpdateListener(updateListener);
+      this.utils.setReconfigureOnUpdateEnabled(true);
+
+      ConfigurableObject obj = new ConfigurableObject();
+      ConfigurationSourceIdentifier sourceId = new ConfigurationSourceIdentifier(obj);
+      this.utils.configureBean(obj);
+      this.utils.configureBean(obj);
+      assertEquals(1, this.utils.getBeanRegistry().getBeanCount(sourceId));
+
+      this.utils.runReconfiguration(sourceId, true);
+      assertEquals(1, updateListener.count);
+
+      assertTrue(this.utils.unregisterBean(obj));
+      this.utils.runReconfiguration(sourceId, true);
+      assertEquals(1, updateListener.count);
+   }
+
+   @Test
+   public void testReconfigurationDoesNotBlockOtherSources() throws Exception
+   {
+      final CountDownLatch updating = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      this.utils.addConfigurationUpdateListener(new ConfigurationUpdateListener()
+      {
+         public void startingBeanUpdate(Object bean)
+         {
+            updating.countDown();
+            try
+            {
+               release.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException exc)
+            {
+               Thread.currentThread().interrupt();
+            }
+         }
+
+         public void completedBeanUpdate(Object bean)
+         {
+         }
+      });
+      this.utils.setReconfigureOnUpdateEnabled(true);
+
+      final ConfigurableObject obj = new ConfigurableObject();
+      this.utils.configureBean(obj);
+      Thread reload = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               utils.runReconfiguration(new ConfigurationSourceIdentifier(obj), true);
+            }
+            catch (ConfigurationException exc)
+            {
+               logger.error(exc.getMessage(), exc);
+            }
+         }
+      };
+      reload.start();
+      try
+      {
+         assertTrue(updating.await(5, TimeUnit.SECONDS));
+
+         // the reload of the other source is still running
+         MockConfigurableObject other = new MockConfigurableObject();
+         this.utils.configureBean(other);
+         assertEquals(1, this.utils.getBeanRegistry().getBeanCount(new ConfigurationSourceIdentifier(other)));
+         assertTrue(reload.isAlive());
+      }
+      finally
+      {
+         release.countDown();
+         reload.join();
+      }
+   }
+
+   @Test
+   public void testReconfigurationUpdatesChangedKeysOnly() throws Exception
+   {
+      MockUpdateListener updateListener = new MockUpdateListener();
+      this.utils.addConfigurationUpdateListener(updateListener);
+      this.utils.setReconfigureOnUpdateEnabled(true);
+
+      MockConfigurableObject obj = new MockConfigurableObject();
+      ConfigurableObject other = new ConfigurableObject();
+      this.utils.configureBean(obj);
+      this.utils.configureBean(other);
+      assertEquals("Hello Z-Carioca!", obj.getMessage());
+      obj.setNumber(99);
+
+      ConfigurationSourceIdentifier sourceId = new ConfigurationSourceIdentifier(obj);
+      try
+      {
+         // nothing changed, so the bean is not updated
+         this.utils.runReconfiguration(sourceId);
+         assertEquals(0, updateListener.count);
+
+         MockConfSourceProvider.setOverride("name", "Somebody");
+         this.utils.runReconfiguration(sourceId);
+         assertEquals(1, updateListener.count);
+         assertSame(obj, updateListener.lastCompleted);
+         assertEquals(Collections.singleton("name"), updateListener.lastChangedKeys);
+         assertEquals("Hello Somebody!", obj.getMessage());
+         assertEquals(99, obj.getNumber());
+
+         this.utils.runReconfiguration(new ConfigurationSourceIdentifier(other));
+         assertEquals(1, updateListener.count);
+
+         // a forced reconfiguration writes every property
+         this.utils.runReconfiguration(sourceId, true);
+         assertEquals(2, updateListener.count);
+         assertEquals(23, obj.getNumber());
+      }
+      finally
+      {
+         MockConfSourceProvider.clearOverrides();
+      }
+   }
+
+   @Test
+   public void testReconfigurationConvertsBeforeWriting() throws Exception
+   {
+      this.utils.setReconfigureOnUpdateEnabled(true);
+      MockConfigurableObject obj = new MockConfigurableObject();
+      this.utils.configureBean(obj);
+
+      MockConfSourceProvider.setOverride("name", "Somebody");
+      MockConfSourceProvider.setOverride("number", "twenty");
+      try
+      {
+         this.utils.runReconfiguration(new ConfigurationSourceIdentifier(obj));
+         fail("The invalid number should have failed the reconfiguration");
+      }
+      catch (ConfigurationException exc)
+      {
+         // the valid change was not written either
+         assertEquals("Hello Z-Carioca!", obj.getMessage());
+         assertEquals(23, obj.getNumber());
+      }
+      finally
+      {
+         MockConfSourceProvider.clearOverrides();
+      }
+   }
+
+   @Test
+   public void testHolderPublishesNewInstance() throws Exception
+   {
+      MockUpdateListener updateListener = new MockUpdateListener();
+      this.utils.addConfigurationUpdateListener(updateListener);
+      this.utils.setReconfigureOnUpdateEnabled(true);
+
+      ConfigurationHolder<MockConfigurableObject> holder = this.utils.createHolder(MockConfigurableObject.class);
+      MockConfigurableObject first = holder.get();
+      assertEquals(MockConfigurableObject.class, holder.getBeanType());
+      assertEquals("Hello Z-Carioca!", first.getMessage());
+      assertEquals(23 + 123.56, first.getBigNum(), 0.000001);
+
+      ConfigurationSourceIdentifier sourceId = new ConfigurationSourceIdentifier(first);
+      this.utils.runReconfiguration(sourceId);
+      assertSame(first, holder.get());
+      assertEquals(0, updateListener.count);
+
+      MockConfSourceProvider.setOverride("name", "Somebody");
+      MockConfSourceProvider.setOverride("number", "30");
+      try
+      {
+         this.utils.runReconfiguration(sourceId);
+      }
+      finally
+      {
+         MockConfSourceProvider.clearOverrides();
+      }
+
+      MockConfigurableObject second = holder.get();
+      assertFalse(first == second);
+      assertEquals("Hello Z-Carioca!", first.getMessage());
+      assertEquals("Hello Somebody!", second.getMessage());
+      assertEquals(30 + 123.56, second.getBigNum(), 0.000001);
+      assertEquals(1, updateListener.count);
+      assertSame(second, updateListener.lastCompleted);
+      assertEquals(new HashSet<String>(Arrays.asList("name", "number")), updateListener.lastChangedKeys);
+   }
+
+   @Test
+   public void testListenerAddedByListener() throws Exception
+   {
+      final MockUpdateListener updateListener = new MockUpdateListener();
+      this.utils.addConfigurationProcessListener(new ConfigurationProcessListener()
+      {
+         public void startingConfiguration(Object bean)
+         {
+            utils.addConfigurationProcessListener(new MockProcessListener());
+            utils.addConfigurationUpdateListener(updateListener);
+         }
+
+         public void completedConfiguration(Object bean)
+         {
+         }
+      });
+
+      this.utils.configureBean(new ConfigurableObject());
+      assertTrue(this.utils.removeConfigurationUpdateListener(updateListener));
+   }
+
+   @Test
+   public void testListenerExecutor() throws Exception
+   {
+      final List<Runnable> tasks = new ArrayList<Runnable>();
+      Executor executor = new Executor()
+      {
+         public void execute(Runnable command)
+         {
+            tasks.add(command);
+         }
+      };
+      this.utils.setListenerExecutor(executor);
+      assertSame(executor, this.utils.getListenerExecutor());
+
+      final List<String> events = new ArrayList<String>();
+      this.utils.addConfigurationProcessListener(new ConfigurationProcessListener()
+      {
+         public void startingConfiguration(Object bean)
+         {
+            events.add("starting");
+         }
+
+         public void completedConfiguration(Object bean)
+         {
+            events.add("completed");
+         }
+      });
+
+      ConfigurableObject obj = new ConfigurableObject();
+      this.utils.configureBean(obj);
+      assertEquals("Hello Z Carioca!", obj.getMessage());
+      assertTrue(events.isEmpty());
+      assertEquals(1, tasks.size());
+
+      // a listener added after the events were sent does not receive them
+      final List<String> late = new ArrayList<String>();
+      this.utils.addConfigurationProcessListener(new ConfigurationProcessListener()
+      {
+         public void startingConfiguration(Object bean)
+         {
+            late.add("starting");
+         }
+
+         public void completedConfiguration(Object bean)
+         {
+            late.add("completed");
+         }
+      });
+      tasks.remove(0).run();
+      assertEquals(Arrays.asList("starting", "completed"), events);
+      assertTrue(late.isEmpty());
+
+      this.utils.setListenerExecutor(null);
+      assertNull(this.utils.getListenerExecutor());
+      this.utils.configureBean(new ConfigurableObject());
+      assertEquals(4, events.size());
+      assertEquals(2, late.size());
+   }
+
+   @Test
+   public void testSnapshotCache() throws Exception
+   {
+      SnapshotCache cache = this.utils.getSnapshotCache();
+      assertTrue(this.utils.isSnapshotCacheEnabled());
+
+      ConfigurableObject first = new ConfigurableObject();
+      ConfigurableObject second = new ConfigurableObject();
+      this.utils.configureBean(first);
+      this.utils.configureBean(second);
+      assertEquals(1, cache.getMissCount());
+      assertEquals(1, cache.getHitCount());
+      assertEquals(first.getMessage(), second.getMessage());
+
+      // a reconfiguration reloads the source, even when updates are disabled
+      this.utils.runReconfiguration(new ConfigurationSourceIdentifier(first));
+      this.utils.configureBean(new ConfigurableObject());
+      assertEquals(2, cache.getMissCount());
+
+      this.utils.setSnapshotCacheEnabled(false);
+      assertEquals(0, cache.size());
+      this.utils.configureBean(new ConfigurableObject());
+      assertEquals(2, cache.getMissCount());
+      assertEquals(0, cache.size());
+   }
+
+   /**
+    * Test method for
+    * {@link net.zcarioca.zcommons.config.util.ConfigurationUtilities#configureBean(java.lang.Object)}
+    * .
+    */
+   @Test
+   public void testNotFullyConfiguredBeanObject() throws Exception
+   {
+      NotFullyConfiguredObject nfc = new NotFullyConfiguredObject();
+      this.utils.configureBean(nfc);
+
+      assertEquals(0.34, nfc.anotherFloat, 0.000001);
+      assertEquals(500, nfc.anotherLongValue);
+      assertEquals(1780000, nfc.longValue);
+      assertEquals('S', nfc.getaCharacter());
+      assertEquals("This is a simple message", nfc.getFieldMessage());
+      assertEquals(new Double(123.56), nfc.getFloatingPointNumber());
+      assertEquals("Hello Z Carioca!", nfc.getMessage());
+      assertEquals((byte) 120, nfc.getMyByte());
+      assertEquals(Boolean.TRUE, nfc.getTrueFalse());
+
+   }
+
+   /**
+    * Test method for
+    * {@link net.zcarioca.zcommons.config.util.ConfigurationUtilities#configureBean(java.lang.Object, boolean)}
+    * .
+    */
+   @Test
+   public void testConfigureBeanObjectBoolean() throws Exception
+   {
+      MockProcessListener listener = new MockProcessListener();
+      MockUpdateListener updateListener = new MockUpdateListener();
+      this.utils.addConfigurationProcessListener(listener);
+      this.utils.addConfigurationUpdateListener(updateListener);
+      ConfigurableObject obj = new ConfigurableObject();
+      this.utils.configureBean(obj, false);
+
+      assertFalse(obj.getBigNum() == (obj.getNumber() + obj.getFloatingPointNumber()));
+
+      this.utils.configureBean(obj, true);
+
+      assertEquals(0.34, obj.anotherFloat, 0.000001);
+      assertEquals(500, obj.anotherLongValue);
+      assertEquals(1780000, obj.longValue);
+      assertEquals('S', obj.getaCharacter());
+      assertEquals("This is a simple message", obj.getFieldMessage());
+      assertEquals(new Double(123.56), obj.getFloatingPointNumber());
+      assertEquals("Hello Z Carioca!", obj.getMessage());
+      assertEquals((byte) 120, obj.getMyByte());
+      assertEquals(22, obj.getNumber());
+      assertEquals("There is a field which states: This is a simple message - 0.34 ${along}", obj.getPropMessage());
+      assertEquals(Boolean.TRUE, obj.getTrueFalse());
+      assertTrue(obj.getBigNum() == (obj.getNumber() + obj.getFloatingPointNumber()));
+
+      this.utils.configureBean(new BadPostConstructObject(), false);
+
+      assertTrue(this.utils.removeConfigurationProcessListener(listener));
+      assertTrue(this.utils.removeConfigurationUpdateListener(updateListener));
+   }
+
+   @Test
+   public void testConfigureBeanWithCompiledBindingEngine() throws Exception
+   {
+      this.utils.setBindingEngine(new CompiledBindingEngine());
+
+      ConfigurableObject obj = new ConfigurableObject();
+      this.utils.configureBean(obj, true);
+
+      assertEquals(0.34, obj.anotherFloat, 0.000001);
+      assertEquals(500, obj.anotherLongValue);
+      assertEquals(1780000, obj.longValue);
+      assertEquals('S', obj.getaCharacter());
+      assertEquals("This is a simple message", obj.getFieldMessage());
+      assertEquals(new Double(123.56), obj.getFloatingPointNumber());
+      assertEquals("Hello Z Carioca!", obj.getMessage());
+      assertEquals((byte) 120, obj.getMyByte());
+      assertEquals(22, obj.getNumber());
+      assertEquals(2, obj.getFiles().length);
+      assertEquals(Boolean.TRUE, obj.getTrueFalse());
+   }
+
+   @Test
+   public void testPreDestroyShutsDownReconfigurationExecutor()
+   {
+      ReconfigurationExecutor executor = new ReconfigurationExecutor(1, 1);
+      this.utils.setReconfigurationExecutor(executor);
+      this.utils.invokePreDestroyAll();
+
+      assertFalse(executor == this.utils.getReconfigurationExecutor());
+      assertFalse(executor.submit(this.utils, new ConfigurationSourceIdentifier(ConfigurableObject.class, "configurableobject.properties")));
+      assertEquals(1, executor.getDroppedCount());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testSetNullBindingEngine()
+   {
+      this.utils.setBindingEngine(null);
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testConfigurationBeanBadBean() throws Exception
+   {
+      this.utils.configureBean(new BadPostConstructObject(), true);
+   }
+
+   @Test
+   public void testLoadProperties() throws Exception
+   {
+      Properties props = utils.loadProperties(ConfigurableObject.class, "configurableobject.properties");
+      assertNotNull(props);
+      assertEquals("There is a field which states: This is a simple message - 0.34 ${along}", props.getProperty("property.message"));
+   }
+
+   @Test(expected = ConfigurationException.class)
+   public void testLoadPropertiesBadProps() throws Exception
+   {
+      utils.loadProperties(ConfigurableObject.class, "unconfigurableobject.properties");
+   }
+
+   private static class MockProcessListener implements ConfigurationProcessListener
+   {
+      public void completedConfiguration(Object bean)
+      {
+         logger.debug("Completed Configuration: " + bean);
+      }
+
+      public void startingConfiguration(Object bean)
+      {
+         logger.debug("Starting Configuration: " + bean);
+      }
+   }
+
+   private static class MockUpdateListener implements ConfigurationUpdateListener
+   {
+      private Object lastCompleted;
+      private Set<String> lastChangedKeys;
+      private int count = 0;
+
+      public void startingBeanUpdate(Object bean)
+      {
+         logger.debug("Starting Bean Update: " + bean);
+      }
+
+      public void completedBeanUpdate(Object bean)
+      {
+         logger.debug("Completed Bean Update: " + bean);
+         this.lastCompleted = bean;
+         this.count++;
+      }
+
+      @Override
+      public void completedBeanUpdate(Object bean, Set<String> changedKeys)
+      {
+         this.lastChangedKeys = changedKeys;
+         completedBeanUpdate(bean);
+      }
+   }
+}
\ No newline at end of file
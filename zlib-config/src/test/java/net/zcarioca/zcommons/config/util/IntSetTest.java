@@ -0,0 +1,97 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link IntSet}.
+ *
+ * @author zcarioca
+ */
+public class IntSetTest
+{
+   @Test
+   public void testEmpty()
+   {
+      assertSame(IntSet.empty(), IntSet.of());
+      assertTrue(IntSet.empty().isEmpty());
+      assertFalse(IntSet.empty().contains(0));
+      assertEquals("[]", IntSet.empty().toString());
+   }
+
+   @Test
+   public void testOf()
+   {
+      int[] values = { 3, 0, -1, 3, Integer.MIN_VALUE, 0, Integer.MAX_VALUE };
+      IntSet set = IntSet.of(values);
+
+      assertEquals(5, set.size());
+      assertArrayEquals(new int[] { 3, 0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE }, set.toArray());
+      assertTrue(set.contains(0));
+      assertTrue(set.contains(Integer.MIN_VALUE));
+      assertFalse(set.contains(1));
+
+      // the set does not share the supplied array
+      values[0] = 4;
+      assertTrue(set.contains(3));
+      set.toArray()[0] = 4;
+      assertFalse(set.contains(4));
+   }
+
+   @Test
+   public void testEquals()
+   {
+      assertEquals(IntSet.of(1, 2, 3), IntSet.of(3, 2, 1, 1));
+      assertEquals(IntSet.of(1, 2, 3).hashCode(), IntSet.of(3, 2, 1).hashCode());
+      assertFalse(IntSet.of(1, 2).equals(IntSet.of(1, 3)));
+      assertFalse(IntSet.of(1, 2).equals(IntSet.of(1)));
+   }
+
+   @Test
+   public void testMatchesHashSet()
+   {
+      Random random = new Random(7);
+      int[] values = new int[1000];
+      Set<Integer> expected = new HashSet<Integer>();
+      for (int i = 0; i < values.length; i++)
+      {
+         // collide on the low bits to exercise the probing
+         values[i] = random.nextInt(2000) << 12;
+         expected.add(values[i]);
+      }
+
+      IntSet set = IntSet.of(values);
+      assertEquals(expected.size(), set.size());
+      for (int i = -10; i < 2010; i++)
+      {
+         assertEquals(expected.contains(i << 12), set.contains(i << 12));
+      }
+   }
+}
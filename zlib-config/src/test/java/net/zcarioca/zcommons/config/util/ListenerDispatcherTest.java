@@ -0,0 +1,206 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ListenerDispatcher} class.
+ * 
+ * @author zcarioca
+ */
+public class ListenerDispatcherTest
+{
+   private QueueingExecutor queue;
+   private ListenerDispatcher dispatcher;
+   private List<String> delivered;
+
+   @Before
+   public void setUp()
+   {
+      queue = new QueueingExecutor();
+      dispatcher = new ListenerDispatcher(queue);
+      delivered = new ArrayList<String>();
+   }
+
+   @Test
+   public void testEventsOfABeanAreDeliveredInOrder()
+   {
+      Object first = new Object();
+      Object second = new Object();
+      dispatcher.dispatch(first, event("first-1"));
+      dispatcher.dispatch(second, event("second-1"));
+      dispatcher.dispatch(first, event("first-2"));
+      dispatcher.dispatch(first, event("first-3"));
+
+      // one task per bean
+      assertEquals(2, queue.tasks.size());
+      assertEquals(2, dispatcher.getPendingCount());
+      assertEquals(0, delivered.size());
+
+      queue.runAll();
+      assertEquals(Arrays.asList("first-1", "first-2", "first-3", "second-1"), delivered);
+      assertEquals(0, dispatcher.getPendingCount());
+
+      dispatcher.dispatch(first, event("first-4"));
+      assertEquals(1, queue.tasks.size());
+      queue.runAll();
+      assertEquals("first-4", delivered.get(4));
+   }
+
+   @Test
+   public void testFailingEventDoesNotStopLaterEvents()
+   {
+      Object bean = new Object();
+      dispatcher.dispatch(bean, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            throw new IllegalStateException("listener failed");
+         }
+      });
+      dispatcher.dispatch(bean, event("after"));
+
+      queue.runAll();
+      assertEquals(Arrays.asList("after"), delivered);
+      assertEquals(0, dispatcher.getPendingCount());
+   }
+
+   @Test
+   public void testErrorDoesNotStrandLaterEvents()
+   {
+      Object bean = new Object();
+      dispatcher.dispatch(bean, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            throw new Error("listener failed");
+         }
+      });
+      dispatcher.dispatch(bean, event("after"));
+      try
+      {
+         queue.tasks.remove(0).run();
+         fail("The error should reach the executor");
+      }
+      catch (Error err)
+      {
+         assertEquals("listener failed", err.getMessage());
+      }
+
+      // the remaining event is handed to a new task
+      assertEquals(1, queue.tasks.size());
+      queue.runAll();
+      assertEquals(Arrays.asList("after"), delivered);
+      assertEquals(0, dispatcher.getPendingCount());
+   }
+
+   @Test
+   public void testErrorOnLastEventClearsPending()
+   {
+      Object bean = new Object();
+      dispatcher.dispatch(bean, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            throw new Error("listener failed");
+         }
+      });
+      try
+      {
+         queue.runAll();
+         fail("The error should reach the executor");
+      }
+      catch (Error err)
+      {
+         assertEquals(0, dispatcher.getPendingCount());
+      }
+
+      dispatcher.dispatch(bean, event("later"));
+      assertEquals(1, queue.tasks.size());
+      queue.runAll();
+      assertEquals(Arrays.asList("later"), delivered);
+   }
+
+   @Test
+   public void testRejectedEventsRunOnTheCaller()
+   {
+      dispatcher = new ListenerDispatcher(new Executor()
+      {
+         @Override
+         public void execute(Runnable command)
+         {
+            throw new RejectedExecutionException();
+         }
+      });
+      dispatcher.dispatch(new Object(), event("rejected"));
+      assertEquals(Arrays.asList("rejected"), delivered);
+      assertEquals(0, dispatcher.getPendingCount());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNullExecutor()
+   {
+      new ListenerDispatcher(null);
+   }
+
+   private Runnable event(final String name)
+   {
+      return new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            delivered.add(name);
+         }
+      };
+   }
+
+   private static final class QueueingExecutor implements Executor
+   {
+      private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+      @Override
+      public void execute(Runnable command)
+      {
+         tasks.add(command);
+      }
+
+      void runAll()
+      {
+         while (!tasks.isEmpty())
+         {
+            tasks.remove(0).run();
+         }
+      }
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link LongSet}.
+ *
+ * @author zcarioca
+ */
+public class LongSetTest
+{
+   @Test
+   public void testEmpty()
+   {
+      assertSame(LongSet.empty(), LongSet.of());
+      assertTrue(LongSet.empty().isEmpty());
+      assertFalse(LongSet.empty().contains(0));
+      assertEquals("[]", LongSet.empty().toString());
+   }
+
+   @Test
+   public void testOf()
+   {
+      long[] values = { 3, 0, -1, 3, Long.MIN_VALUE, 0, Long.MAX_VALUE };
+      LongSet set = LongSet.of(values);
+
+      assertEquals(5, set.size());
+      assertArrayEquals(new long[] { 3, 0, -1, Long.MIN_VALUE, Long.MAX_VALUE }, set.toArray());
+      assertTrue(set.contains(0));
+      assertTrue(set.contains(Long.MIN_VALUE));
+      assertFalse(set.contains(1));
+
+      // the set does not share the supplied array
+      values[0] = 4;
+      assertTrue(set.contains(3));
+      set.toArray()[0] = 4;
+      assertFalse(set.contains(4));
+   }
+
+   @Test
+   public void testEquals()
+   {
+      assertEquals(LongSet.of(1, 2, 3), LongSet.of(3, 2, 1, 1));
+      assertEquals(LongSet.of(1, 2, 3).hashCode(), LongSet.of(3, 2, 1).hashCode());
+      assertFalse(LongSet.of(1, 2).equals(LongSet.of(1, 3)));
+      assertFalse(LongSet.of(1, 2).equals(LongSet.of(1)));
+   }
+
+   @Test
+   public void testMatchesHashSet()
+   {
+      Random random = new Random(7);
+      long[] values = new long[1000];
+      Set<Long> expected = new HashSet<Long>();
+      for (int i = 0; i < values.length; i++)
+      {
+         // collide on the low bits to exercise the probing
+         values[i] = (long) random.nextInt(2000) << 40;
+         expected.add(values[i]);
+      }
+
+      LongSet set = LongSet.of(values);
+      assertEquals(expected.size(), set.size());
+      for (int i = -10; i < 2010; i++)
+      {
+         assertEquals(expected.contains((long) i << 40), set.contains((long) i << 40));
+      }
+   }
+}
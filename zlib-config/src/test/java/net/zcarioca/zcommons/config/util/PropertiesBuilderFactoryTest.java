@@ -21,6 +21,9 @@ package net.zcarioca.zcommons.config.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
 import net.zcarioca.zcommons.config.BaseTestCase;
 
 import org.junit.Test;
@@ -87,4 +90,20 @@ public class PropertiesBuilderFactoryTest extends BaseTestCase
       assertEquals(3, fullBuilder.size());
    }
 
+   @Test
+   public void testNewLayeredPropertiesBuilder() throws Exception
+   {
+      PropertiesBuilderFactory factory = new PropertiesBuilderFactory(true, true);
+      assertFalse(factory.isLayeredLookup());
+      factory.setLayeredLookup(true);
+      assertTrue(factory.isLayeredLookup());
+
+      PropertiesBuilder layeredBuilder = factory.newPropertiesBuilder();
+      assertEquals(0, layeredBuilder.size());
+
+      Properties props = layeredBuilder.build();
+      assertEquals("fake env value", props.getProperty("fake-env-prop"));
+      assertEquals("fake value", props.getProperty("fake.system.property"));
+   }
+
 }
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Properties;
 
 import net.zcarioca.zcommons.config.BaseTestCase;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -71,7 +72,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test
-   public void testAddPropertyNullValue()
+   public void testAddPropertyNullValue() throws ConfigurationException
    {
       assertEquals(0, builder.size());
       assertEquals(this.builder, builder.addProperty("property", null));
@@ -243,7 +244,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test
-   public void testGetFilteredValue()
+   public void testGetFilteredValue() throws ConfigurationException
    {
       assertEquals(0, builder.size());
       assertEquals(this.builder, builder.addProperty("greeting", "Hello"));
@@ -258,14 +259,14 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test
-   public void testGetFilteredValueNullValue()
+   public void testGetFilteredValueNullValue() throws ConfigurationException
    {
       assertEquals(0, builder.size());
       assertEquals("", builder.getFilteredValue("test"));
    }
 
    @Test
-   public void testGetFilteredValueNested()
+   public void testGetFilteredValueNested() throws ConfigurationException
    {
       assertEquals(0, builder.size());
       assertEquals(this.builder, builder.addProperty("greeting", "Hello"));
@@ -285,7 +286,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test
-   public void testBuild()
+   public void testBuild() throws ConfigurationException
    {
       Properties props = new Properties();
       props.setProperty("greeting", "Hello");
@@ -308,7 +309,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test(expected = IllegalStateException.class)
-   public void testBuildAndBuildAgain()
+   public void testBuildAndBuildAgain() throws ConfigurationException
    {
       Properties props = new Properties();
       props.setProperty("greeting", "Hello");
@@ -324,7 +325,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test(expected = IllegalStateException.class)
-   public void testBuildAndAddProperty()
+   public void testBuildAndAddProperty() throws ConfigurationException
    {
       Properties props = new Properties();
       props.setProperty("greeting", "Hello");
@@ -340,7 +341,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test(expected = IllegalStateException.class)
-   public void testBuildAndAddAll()
+   public void testBuildAndAddAll() throws ConfigurationException
    {
       Properties props = new Properties();
       props.setProperty("greeting", "Hello");
@@ -356,7 +357,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test(expected = IllegalStateException.class)
-   public void testBuildAndSize()
+   public void testBuildAndSize() throws ConfigurationException
    {
       Properties props = new Properties();
       props.setProperty("greeting", "Hello");
@@ -372,7 +373,7 @@ public class PropertiesBuilderTest extends BaseTestCase
    }
 
    @Test(expected = IllegalStateException.class)
-   public void testBuildAndGetProperty()
+   public void testBuildAndGetProperty() throws ConfigurationException
    {
       Properties props = new Properties();
       props.setProperty("greeting", "Hello");
@@ -410,4 +411,121 @@ public class PropertiesBuilderTest extends BaseTestCase
       }
    }
 
+   @Test
+   public void testFilteredValueEdgeCases() throws ConfigurationException
+   {
+      builder.addProperty("host", "example.com");
+      builder.addProperty("port", "8080");
+      builder.addProperty("empty", "");
+      builder.addProperty("price", "$5");
+
+      builder.addProperty("adjacent", "${host}:${port}${port}");
+      builder.addProperty("missing", "http://${unknown}/${empty}/${host}");
+      builder.addProperty("whitespace", "${ host} ${host");
+      builder.addProperty("literal", "costs ${price} or \\${price}");
+
+      Properties props = builder.build();
+      assertEquals("example.com:80808080", props.getProperty("adjacent"));
+      assertEquals("http://${unknown}/${empty}/example.com", props.getProperty("missing"));
+      assertEquals("${ host} ${host", props.getProperty("whitespace"));
+      assertEquals("costs $5 or \\$5", props.getProperty("literal"));
+   }
+
+   @Test
+   public void testLongReferenceChain() throws ConfigurationException
+   {
+      // each link has a constant size, so only the depth of the chain grows
+      builder.addProperty("key0", "base");
+      for (int i = 1; i < 20000; i++)
+      {
+         builder.addProperty("key" + i, "${key" + (i - 1) + "}");
+      }
+
+      Properties props;
+      try
+      {
+         props = builder.build();
+      }
+      catch (StackOverflowError err)
+      {
+         fail("The reference chain overflowed the stack");
+         return;
+      }
+      assertEquals("base", props.getProperty("key1"));
+      assertEquals("base", props.getProperty("key19999"));
+   }
+
+   @Test
+   public void testSelfReference()
+   {
+      builder.addProperty("loop", "before ${loop} after");
+      try
+      {
+         builder.build();
+         fail("Expected a ConfigurationException");
+      }
+      catch (ConfigurationException exc)
+      {
+         assertTrue(exc.getMessage(), exc.getMessage().endsWith("loop -> loop"));
+      }
+   }
+
+   @Test
+   public void testIndirectCycle()
+   {
+      builder.addProperty("start", "${a}");
+      builder.addProperty("a", "x ${b}");
+      builder.addProperty("b", "${c} y");
+      builder.addProperty("c", "${a}");
+      try
+      {
+         builder.getFilteredValue("start");
+         fail("Expected a ConfigurationException");
+      }
+      catch (ConfigurationException exc)
+      {
+         assertTrue(exc.getMessage(), exc.getMessage().endsWith("a -> b -> c -> a"));
+      }
+   }
+   @Test
+   public void testLayers() throws ConfigurationException
+   {
+      builder.addSystemPropertiesLayer().addEnvironmentLayer();
+      builder.addProperty("fake.system.property", "file value");
+      builder.addProperty("combined", "${fake-env-prop} and ${fake.system.property}");
+      assertEquals(2, builder.size());
+
+      Properties props = builder.build();
+      assertEquals("file value", props.getProperty("fake.system.property"));
+      assertEquals("fake env value and file value", props.getProperty("combined"));
+      assertEquals("fake env value", props.getProperty("fake-env-prop"));
+      assertEquals("fake env value", props.getProperty("fake-env-prop", "default"));
+      assertEquals("default", props.getProperty("unknown", "default"));
+      assertNull(props.getProperty("unknown"));
+
+      // the layers are not copied into the properties
+      assertEquals(2, props.size());
+      assertEquals(2, props.stringPropertyNames().size());
+   }
+
+   @Test
+   public void testSystemPropertiesLayerPrecedence() throws ConfigurationException
+   {
+      MockEnvironment environment = new MockEnvironment();
+      environment.getAllEnvProperties().put("shared", "from env");
+      environment.getAllSystemProperties().put("shared", "from system");
+      environment.getAllSystemProperties().put("greeting", "Hello ${shared}");
+      builder.setEnvironment(environment);
+
+      Properties props = builder.addEnvironmentLayer().addSystemPropertiesLayer().build();
+      assertEquals("from system", props.getProperty("shared"));
+      assertEquals("Hello from system", props.getProperty("greeting"));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testLayerAfterBuild() throws ConfigurationException
+   {
+      builder.build();
+      builder.addEnvironmentLayer();
+   }
 }
@@ -0,0 +1,334 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ReconfigurationExecutor} class.
+ * 
+ * @author zcarioca
+ */
+public class ReconfigurationExecutorTest
+{
+   private QueueingExecutor queue;
+   private ReconfigurationExecutor executor;
+   private CountingUtilities utilities;
+   private ConfigurationSourceIdentifier sourceA;
+   private ConfigurationSourceIdentifier sourceB;
+
+   @Before
+   public void setUp()
+   {
+      queue = new QueueingExecutor();
+      executor = new ReconfigurationExecutor(queue, 1);
+      utilities = new CountingUtilities();
+      sourceA = new ConfigurationSourceIdentifier(ReconfigurationExecutorTest.class, "a");
+      sourceB = new ConfigurationSourceIdentifier(ReconfigurationExecutorTest.class, "b");
+   }
+
+   @Test
+   public void testQueuedJobIsSuperseded()
+   {
+      assertTrue(executor.submit(utilities, sourceA));
+      assertTrue(executor.submit(utilities, sourceA));
+      assertTrue(executor.submit(utilities, sourceA));
+
+      assertEquals(1, queue.jobs.size());
+      assertEquals(1, executor.getQueueDepth());
+      assertEquals(3, executor.getSubmittedCount());
+      assertEquals(2, executor.getSupersededCount());
+      assertEquals(0, utilities.count.get());
+
+      queue.runAll();
+      assertEquals(1, utilities.count.get());
+      assertEquals(1, executor.getCompletedCount());
+      assertEquals(0, executor.getQueueDepth());
+      assertEquals(0, executor.getActiveCount());
+   }
+
+   @Test
+   public void testChangeWhileRunningRunsAgain()
+   {
+      utilities.onRun = new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            if (utilities.count.get() == 1)
+            {
+               assertEquals(1, executor.getActiveCount());
+               assertTrue(executor.submit(utilities, sourceA));
+               assertTrue(executor.submit(utilities, sourceA));
+            }
+         }
+      };
+      executor.submit(utilities, sourceA);
+      queue.runAll();
+
+      assertEquals(2, utilities.count.get());
+      assertEquals(2, executor.getCompletedCount());
+      assertEquals(2, executor.getSupersededCount());
+      assertEquals(0, executor.getActiveCount());
+   }
+
+   @Test
+   public void testFullQueueDefersSource()
+   {
+      assertTrue(executor.submit(utilities, sourceA));
+      assertFalse(executor.submit(utilities, sourceB));
+      assertTrue(executor.submit(utilities, sourceB));
+
+      assertEquals(0, utilities.count.get());
+      assertEquals(1, executor.getDeferredCount());
+      assertEquals(1, executor.getSupersededCount());
+      assertEquals(2, executor.getQueueDepth());
+      assertEquals(1, queue.jobs.size());
+
+      queue.runAll();
+      assertEquals(2, utilities.count.get());
+      assertEquals(2, executor.getCompletedCount());
+      assertEquals(0, executor.getQueueDepth());
+   }
+
+   @Test
+   public void testRejectedJobIsDropped()
+   {
+      ReconfigurationExecutor rejecting = new ReconfigurationExecutor(new Executor()
+      {
+         @Override
+         public void execute(Runnable command)
+         {
+            throw new RejectedExecutionException("shut down");
+         }
+      }, 1);
+      RecordingCallback callback = new RecordingCallback();
+      assertFalse(rejecting.submit(utilities, sourceA, callback));
+
+      assertEquals(0, utilities.count.get());
+      assertEquals(Arrays.asList("a false"), callback.results);
+      assertEquals(1, rejecting.getDroppedCount());
+      assertEquals(0, rejecting.getQueueDepth());
+   }
+
+   @Test
+   public void testShutdownDropsWaitingJobs()
+   {
+      assertTrue(executor.submit(utilities, sourceA));
+      assertFalse(executor.submit(utilities, sourceB));
+      executor.shutdown();
+      queue.runAll();
+
+      assertEquals(0, utilities.count.get());
+      assertEquals(2, executor.getDroppedCount());
+      assertEquals(0, executor.getQueueDepth());
+      assertEquals(0, executor.getActiveCount());
+   }
+
+   @Test
+   public void testCallbacksAreTold()
+   {
+      RecordingCallback callback = new RecordingCallback();
+      assertTrue(executor.submit(utilities, sourceA, callback));
+      assertTrue(executor.submit(utilities, sourceA, callback));
+      assertFalse(executor.submit(utilities, sourceB, callback));
+      assertTrue(callback.results.isEmpty());
+
+      queue.runAll();
+      assertEquals(Arrays.asList("a true", "a true", "b true"), callback.results);
+
+      callback.results.clear();
+      utilities.fail = true;
+      executor.submit(utilities, sourceA, callback);
+      queue.runAll();
+      assertEquals(Arrays.asList("a false"), callback.results);
+   }
+
+   @Test
+   public void testRerunCallbacksWaitForTheRerun()
+   {
+      final RecordingCallback callback = new RecordingCallback();
+      utilities.onRun = new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            if (utilities.count.get() == 1)
+            {
+               assertTrue(executor.submit(utilities, sourceA, callback));
+            }
+            else
+            {
+               assertEquals(Arrays.asList("a true"), callback.results);
+            }
+         }
+      };
+      executor.submit(utilities, sourceA, callback);
+      queue.runAll();
+
+      assertEquals(2, utilities.count.get());
+      assertEquals(Arrays.asList("a true", "a true"), callback.results);
+   }
+
+   @Test
+   public void testFailureIsCounted()
+   {
+      utilities.fail = true;
+      executor.submit(utilities, sourceA);
+      queue.runAll();
+
+      assertEquals(1, executor.getCompletedCount());
+      assertEquals(1, executor.getFailedCount());
+      assertEquals(0, executor.getQueueDepth());
+   }
+
+   @Test
+   public void testErrorEndsJob()
+   {
+      utilities.onRun = new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            assertTrue(executor.submit(utilities, sourceA));
+            throw new Error("failed");
+         }
+      };
+      executor.submit(utilities, sourceA);
+      try
+      {
+         queue.runAll();
+         fail("The error should reach the pool");
+      }
+      catch (Error err)
+      {
+         assertEquals("failed", err.getMessage());
+      }
+      assertEquals(1, executor.getFailedCount());
+      assertEquals(0, executor.getQueueDepth());
+      assertEquals(0, executor.getActiveCount());
+
+      utilities.onRun = null;
+      assertTrue(executor.submit(utilities, sourceA));
+      assertEquals(1, queue.jobs.size());
+      queue.runAll();
+      assertEquals(2, utilities.count.get());
+      assertEquals(0, executor.getQueueDepth());
+   }
+
+   @Test
+   public void testDefaultExecutor() throws InterruptedException
+   {
+      ReconfigurationExecutor pooled = new ReconfigurationExecutor(1, 4);
+      try
+      {
+         pooled.submit(utilities, sourceA);
+         pooled.submit(utilities, sourceB);
+
+         long deadline = System.currentTimeMillis() + 5000;
+         while (pooled.getCompletedCount() < 2 && System.currentTimeMillis() < deadline)
+         {
+            Thread.sleep(10);
+         }
+         assertEquals(2, pooled.getCompletedCount());
+         assertEquals(2, utilities.count.get());
+         assertTrue(pooled.getMaxLatency() >= pooled.getAverageLatency());
+      }
+      finally
+      {
+         pooled.shutdown();
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidQueueCapacity()
+   {
+      new ReconfigurationExecutor(queue, 0);
+   }
+
+   /**
+    * Holds the jobs until the test runs them.
+    */
+   private static final class QueueingExecutor implements Executor
+   {
+      private final List<Runnable> jobs = new ArrayList<Runnable>();
+
+      @Override
+      public void execute(Runnable command)
+      {
+         jobs.add(command);
+      }
+
+      void runAll()
+      {
+         while (!jobs.isEmpty())
+         {
+            jobs.remove(0).run();
+         }
+      }
+   }
+
+   private static final class RecordingCallback implements ReconfigurationExecutor.Callback
+   {
+      private final List<String> results = new ArrayList<String>();
+
+      @Override
+      public void reconfigured(ConfigurationSourceIdentifier sourceId, boolean succeeded)
+      {
+         results.add(sourceId.getResourceName() + " " + succeeded);
+      }
+   }
+
+   private static final class CountingUtilities extends ConfigurationUtilities
+   {
+      private final AtomicInteger count = new AtomicInteger();
+      private boolean fail;
+      private Runnable onRun;
+
+      @Override
+      public void runReconfiguration(ConfigurationSourceIdentifier sourceId) throws ConfigurationException
+      {
+         count.incrementAndGet();
+         if (onRun != null)
+         {
+            onRun.run();
+         }
+         if (fail)
+         {
+            throw new ConfigurationException("failed");
+         }
+      }
+   }
+}
@@ -0,0 +1,254 @@
+/*
+ * Project: zlib-config
+ *
+ * Copyright (C) 2013 zcarioca.net
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.zcarioca.zcommons.config.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.zcarioca.zcommons.config.Environment;
+import net.zcarioca.zcommons.config.EnvironmentAccessor;
+import net.zcarioca.zcommons.config.SnapshotEnvironment;
+import net.zcarioca.zcommons.config.exceptions.ConfigurationException;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceIdentifier;
+import net.zcarioca.zcommons.config.source.ConfigurationSourceProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SnapshotCache} class.
+ * 
+ * @author zcarioca
+ */
+public class SnapshotCacheTest
+{
+   private SnapshotCache cache;
+   private CountingProvider provider;
+   private ConfigurationSourceIdentifier sourceId;
+
+   @Before
+   public void setUp()
+   {
+      cache = new SnapshotCache();
+      provider = new CountingProvider();
+      sourceId = new ConfigurationSourceIdentifier(SnapshotCacheTest.class, "shared");
+   }
+
+   @Test
+   public void testHitsAndMisses() throws ConfigurationException
+   {
+      ConfigSnapshot snapshot = cache.getSnapshot(sourceId, provider, null);
+      assertEquals("1", snapshot.get("load"));
+      assertSame(snapshot, cache.getSnapshot(sourceId, provider, null));
+      assertSame(snapshot, cache.getSnapshot(new ConfigurationSourceIdentifier(SnapshotCacheTest.class, "shared"), provider, null));
+
+      assertEquals(1, provider.loads.get());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(2, cache.getHitCount());
+      assertEquals(1, cache.size());
+
+      cache.getSnapshot(new ConfigurationSourceIdentifier(SnapshotCacheTest.class, "other"), provider, null);
+      assertEquals(2, cache.getMissCount());
+      assertEquals(2, cache.size());
+   }
+
+   @Test
+   public void testInvalidate() throws ConfigurationException
+   {
+      ConfigSnapshot snapshot = cache.getSnapshot(sourceId, provider, null);
+      cache.invalidate(sourceId);
+      cache.invalidate(null);
+
+      ConfigSnapshot reloaded = cache.getSnapshot(sourceId, provider, null);
+      assertNotSame(snapshot, reloaded);
+      assertEquals("2", reloaded.get("load"));
+      assertEquals(2, cache.getMissCount());
+
+      cache.invalidateAll();
+      assertEquals(0, cache.size());
+      assertEquals("3", cache.getSnapshot(sourceId, provider, null).get("load"));
+   }
+
+   @Test
+   public void testInvalidateRefreshesSystemProperties()
+   {
+      EnvironmentAccessor accessor = EnvironmentAccessor.getInstance();
+      Environment original = accessor.getEnvironment();
+      SnapshotEnvironment environment = new SnapshotEnvironment();
+      accessor.setEnvironment(environment);
+      try
+      {
+         Map<String, String> sys = environment.getAllSystemProperties();
+         assertSame(sys, environment.getAllSystemProperties());
+
+         cache.invalidate(sourceId);
+         Map<String, String> refreshed = environment.getAllSystemProperties();
+         assertNotSame(sys, refreshed);
+
+         cache.invalidateAll();
+         assertNotSame(refreshed, environment.getAllSystemProperties());
+      }
+      finally
+      {
+         accessor.setEnvironment(original);
+      }
+   }
+
+   @Test
+   public void testFailureIsNotCached() throws ConfigurationException
+   {
+      provider.fail = true;
+      try
+      {
+         cache.getSnapshot(sourceId, provider, null);
+         fail("The load should have failed");
+      }
+      catch (ConfigurationException exc)
+      {
+         assertEquals("failed load 1", exc.getMessage());
+      }
+      assertEquals(0, cache.size());
+
+      provider.fail = false;
+      assertEquals("2", cache.getSnapshot(sourceId, provider, null).get("load"));
+   }
+
+   @Test
+   public void testConcurrentMissesAreCoalesced() throws Exception
+   {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<ConfigSnapshot> results = new ArrayList<ConfigSnapshot>();
+      final List<Throwable> errors = new ArrayList<Throwable>();
+      provider.delay = 50;
+
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 16; i++)
+      {
+         Thread thread = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+                  ConfigSnapshot snapshot = cache.getSnapshot(sourceId, provider, null);
+                  synchronized (results)
+                  {
+                     results.add(snapshot);
+                  }
+               }
+               catch (Throwable t)
+               {
+                  synchronized (errors)
+                  {
+                     errors.add(t);
+                  }
+               }
+            }
+         };
+         thread.start();
+         threads.add(thread);
+      }
+      start.countDown();
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      assertEquals(0, errors.size());
+      assertEquals(16, results.size());
+      for (ConfigSnapshot snapshot : results)
+      {
+         assertSame(results.get(0), snapshot);
+      }
+      assertEquals(1, provider.loads.get());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(15, cache.getHitCount());
+   }
+
+   private static final class CountingProvider implements ConfigurationSourceProvider
+   {
+      private final AtomicInteger loads = new AtomicInteger();
+      private volatile boolean fail;
+      private volatile long delay;
+
+      @Override
+      public String getProviderID()
+      {
+         return "counting";
+      }
+
+      @Override
+      public Priority getPriorityLevel()
+      {
+         return Priority.LOW;
+      }
+
+      @Override
+      public void postInit()
+      {
+      }
+
+      @Override
+      public void preDestroy()
+      {
+      }
+
+      @Override
+      public Properties getProperties(ConfigurationSourceIdentifier configurationSourceIdentifier, PropertiesBuilderFactory propertiesBuilderFactory)
+            throws ConfigurationException
+      {
+         int load = loads.incrementAndGet();
+         if (delay > 0)
+         {
+            try
+            {
+               Thread.sleep(delay);
+            }
+            catch (InterruptedException exc)
+            {
+               Thread.currentThread().interrupt();
+            }
+         }
+         if (fail)
+         {
+            throw new ConfigurationException("failed load " + load);
+         }
+         Properties properties = new Properties();
+         properties.setProperty("load", String.valueOf(load));
+         return properties;
+      }
+
+      @Override
+      public boolean supportsIdentifier(ConfigurationSourceIdentifier configurationSourceIdentifier)
+      {
+         return true;
+      }
+   }
+}